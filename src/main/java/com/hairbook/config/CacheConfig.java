@@ -19,6 +19,14 @@ import java.util.concurrent.TimeUnit;
  * <p>Les caches définis ici permettent d'améliorer les performances
  * en évitant des appels répétés à la base de données ou à des services
  * externes (par ex. récupération des employés, créneaux disponibles, etc.).</p>
+ *
+ * <p>Les caches déclarés ici sont enregistrés automatiquement auprès de Micrometer
+ * par l'Actuator : les compteurs {@code cache.gets} (tags {@code cache} et
+ * {@code result=hit|miss}), {@code cache.puts} et {@code cache.evictions} sont
+ * consultables via {@code /actuator/metrics}.</p>
+ *
+ * <p>Le cache des créneaux disponibles ({@code availableSlots}) n'est pas géré ici :
+ * il s'agit d'un cache asynchrone avec coalescence des requêtes, porté par {@code SlotService}.</p>
  */
 @Configuration
 @EnableCaching
@@ -42,7 +50,7 @@ public class CacheConfig {
                 "staffMembers",
                 "workingHours",
                 "holidays",
-                "availableSlots"
+                "salonSettings"
         );
 
         cacheManager.setCaffeine(Caffeine.newBuilder()
@@ -0,0 +1,51 @@
+package com.hairbook.config;
+
+import com.hairbook.entity.JobLock;
+import com.hairbook.service.JobLockService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoint Actuator {@code /actuator/joblocks} exposant l'état des tâches planifiées.
+ *
+ * <p>Pour chaque tâche : instance détenant le verrou, fin du bail, et résultat de la dernière
+ * exécution (instance, début, durée, statut).</p>
+ */
+@Component
+@Endpoint(id = "joblocks")
+public class JobLocksEndpoint {
+
+    private final JobLockService jobLockService;
+
+    public JobLocksEndpoint(JobLockService jobLockService) {
+        this.jobLockService = jobLockService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> jobLocks() {
+        List<Map<String, Object>> jobs = jobLockService.getJobLocks().stream()
+                .map(lock -> Map.<String, Object>of(
+                        "name", lock.getName(),
+                        "locked", lock.getLocked(),
+                        "lockedBy", lock.getLockedBy(),
+                        "lockedUntil", lock.getLockedUntil(),
+                        "lastRun", lastRun(lock)))
+                .toList();
+        return Map.of("node", jobLockService.getNodeId(), "jobs", jobs);
+    }
+
+    private static Map<String, Object> lastRun(JobLock lock) {
+        if (lock.getLastStartedAt() == null) {
+            return Map.of();
+        }
+        return Map.of(
+                "node", lock.getLastRunBy(),
+                "startedAt", lock.getLastStartedAt(),
+                "durationMs", lock.getLastDurationMs(),
+                "status", lock.getLastStatus());
+    }
+}
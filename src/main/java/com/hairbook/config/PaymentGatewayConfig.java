@@ -0,0 +1,53 @@
+package com.hairbook.config;
+
+import com.hairbook.service.PaymentGateway;
+import com.hairbook.service.ResilientPaymentGateway;
+import com.hairbook.service.StripePaymentGateway;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration de la passerelle de paiement.
+ *
+ * <p>La passerelle injectée dans les services est une {@link ResilientPaymentGateway}
+ * (cloison, délai maximal, disjoncteur) autour de l'API Stripe, avec délais de connexion et
+ * de lecture explicites. La passerelle en mémoire des tests n'existe que dans {@code src/test}.</p>
+ */
+@Configuration
+public class PaymentGatewayConfig {
+
+    /**
+     * Déclare la passerelle de paiement.
+     *
+     * @param apiKey             clé secrète Stripe
+     * @param connectTimeoutMs   délai de connexion à Stripe (en millisecondes)
+     * @param readTimeoutMs      délai de lecture de la réponse Stripe (en millisecondes)
+     * @param maxNetworkRetries  nouveaux essais réseau de {@code stripe-java}
+     * @param maxConcurrentCalls nombre maximal d'appels simultanés au prestataire
+     * @param timeoutMs          durée maximale d'un appel (en millisecondes)
+     * @param failureThreshold   pannes consécutives ouvrant le disjoncteur
+     * @param openSeconds        durée d'ouverture du disjoncteur (en secondes)
+     * @param meterRegistry      registre des métriques
+     * @return la passerelle de paiement
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ResilientPaymentGateway paymentGateway(
+            @Value("${stripe.api-key}") String apiKey,
+            @Value("${app.payment.stripe.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${app.payment.stripe.read-timeout-ms:4000}") long readTimeoutMs,
+            @Value("${app.payment.stripe.max-network-retries:0}") int maxNetworkRetries,
+            @Value("${app.payment.gateway.max-concurrent-calls:10}") int maxConcurrentCalls,
+            @Value("${app.payment.gateway.timeout-ms:5000}") long timeoutMs,
+            @Value("${app.payment.gateway.circuit.failure-threshold:5}") int failureThreshold,
+            @Value("${app.payment.gateway.circuit.open-seconds:30}") long openSeconds,
+            MeterRegistry meterRegistry) {
+        PaymentGateway delegate = new StripePaymentGateway(apiKey, Duration.ofMillis(connectTimeoutMs),
+                Duration.ofMillis(readTimeoutMs), maxNetworkRetries);
+        return new ResilientPaymentGateway(delegate, maxConcurrentCalls, Duration.ofMillis(timeoutMs),
+                failureThreshold, Duration.ofSeconds(openSeconds), meterRegistry);
+    }
+}
@@ -12,10 +12,24 @@ import org.springframework.scheduling.annotation.EnableScheduling;
  * par exemple pour des nettoyages périodiques, des notifications,
  * ou des synchronisations automatiques.</p>
  *
+ * <p>Les méthodes {@code @Scheduled} ne font que déclencher la tâche : le traitement
+ * s'exécute dans un pool dédié à sa famille (notifications, maintenance, paiements) via
+ * {@link com.hairbook.service.ScheduledJobService}, qui gère aussi le verrou entre instances,
+ * le délai maximal, les métriques et la suspension. Tailles des pools :
+ * {@code app.scheduling.pools.notifications}, {@code app.scheduling.pools.maintenance}
+ * et {@code app.scheduling.pools.payments}.</p>
+ *
  * <p>Exemple d’utilisation :</p>
  * <pre>
+ *   @PostConstruct
+ *   void registerJob() {
+ *       scheduledJobService.register(new ScheduledJob("nettoyage", ScheduledJobService.MAINTENANCE_POOL,
+ *               Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofMinutes(10), this::nettoyer));
+ *   }
+ *
  *   @Scheduled(fixedRate = 60000)
  *   public void nettoyageAutomatique() {
+ *       scheduledJobService.run("nettoyage");
  *   }
  * </pre>
  */
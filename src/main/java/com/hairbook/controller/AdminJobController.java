@@ -0,0 +1,84 @@
+package com.hairbook.controller;
+
+import com.hairbook.dto.ScheduledJobDto;
+import com.hairbook.service.ScheduledJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Contrôleur d'administration des tâches planifiées (réservé aux administrateurs).
+ * Permet de consulter l'état des tâches, de les déclencher manuellement et de les suspendre.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/jobs")
+@Tag(name = "Admin jobs", description = "Administration des tâches planifiées")
+public class AdminJobController {
+
+    private final ScheduledJobService scheduledJobService;
+
+    /**
+     * Construit un AdminJobController avec le service requis.
+     *
+     * @param scheduledJobService Service d'exécution des tâches planifiées.
+     */
+    public AdminJobController(ScheduledJobService scheduledJobService) {
+        this.scheduledJobService = scheduledJobService;
+    }
+
+    /**
+     * Liste les tâches planifiées avec leur verrou et leur dernière exécution.
+     *
+     * @return Une liste des tâches, triées par nom.
+     */
+    @GetMapping
+    @Operation(summary = "Lister les tâches planifiées")
+    public ResponseEntity<List<ScheduledJobDto>> getJobs() {
+        return ResponseEntity.ok(scheduledJobService.getJobs());
+    }
+
+    /**
+     * Déclenche immédiatement une tâche (sur une seule instance, si elle n'est pas suspendue).
+     *
+     * @param name Le nom de la tâche.
+     * @return 202 si l'exécution est lancée, 409 si une exécution est déjà en cours sur cette instance.
+     */
+    @PostMapping("/{name}/trigger")
+    @Operation(summary = "Déclencher une tâche planifiée")
+    public ResponseEntity<Void> trigger(@Parameter(description = "Nom de la tâche") @PathVariable String name) {
+        return scheduledJobService.run(name)
+                ? ResponseEntity.accepted().build()
+                : ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    /**
+     * Suspend une tâche sur toutes les instances. Une exécution en cours n'est pas interrompue.
+     *
+     * @param name Le nom de la tâche.
+     * @return Une réponse vide.
+     */
+    @PostMapping("/{name}/pause")
+    @Operation(summary = "Suspendre une tâche planifiée")
+    public ResponseEntity<Void> pause(@Parameter(description = "Nom de la tâche") @PathVariable String name) {
+        scheduledJobService.setPaused(name, true);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Réactive une tâche suspendue.
+     *
+     * @param name Le nom de la tâche.
+     * @return Une réponse vide.
+     */
+    @PostMapping("/{name}/resume")
+    @Operation(summary = "Réactiver une tâche planifiée")
+    public ResponseEntity<Void> resume(@Parameter(description = "Nom de la tâche") @PathVariable String name) {
+        scheduledJobService.setPaused(name, false);
+        return ResponseEntity.noContent().build();
+    }
+}
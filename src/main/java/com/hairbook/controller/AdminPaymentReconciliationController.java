@@ -0,0 +1,44 @@
+package com.hairbook.controller;
+
+import com.hairbook.dto.ReconciliationReportDto;
+import com.hairbook.service.PaymentReconciliationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Contrôleur d'administration du rapprochement des paiements avec Stripe (réservé aux administrateurs).
+ * Une exécution se déclenche comme toute tâche planifiée :
+ * {@code POST /api/v1/admin/jobs/payment-reconciliation/trigger}.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/payments/reconciliation")
+@Tag(name = "Admin payments", description = "Rapprochement des paiements avec Stripe")
+public class AdminPaymentReconciliationController {
+
+    private final PaymentReconciliationService paymentReconciliationService;
+
+    /**
+     * Construit un AdminPaymentReconciliationController avec le service requis.
+     *
+     * @param paymentReconciliationService Service de rapprochement des paiements.
+     */
+    public AdminPaymentReconciliationController(PaymentReconciliationService paymentReconciliationService) {
+        this.paymentReconciliationService = paymentReconciliationService;
+    }
+
+    /**
+     * Récupère le rapport du dernier rapprochement exécuté, quelle que soit l'instance.
+     *
+     * @return Le rapport, ou 204 si aucun rapprochement n'a encore été exécuté.
+     */
+    @GetMapping("/last")
+    @Operation(summary = "Récupérer le rapport du dernier rapprochement des paiements")
+    public ResponseEntity<ReconciliationReportDto> getLastReport() {
+        ReconciliationReportDto report = paymentReconciliationService.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.hairbook.controller;
+
+import com.hairbook.dto.AppointmentDto;
+import com.hairbook.dto.CreateAppointmentRequest;
+import com.hairbook.service.AppointmentService;
+import com.hairbook.service.IdempotencyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+/**
+ * Contrôleur pour la prise de rendez-vous par les clients.
+ * Les créations acceptent un en-tête {@code Idempotency-Key} afin que les rejeux
+ * d'un client (réseau instable) ne créent pas de rendez-vous en double.
+ */
+@RestController
+@RequestMapping("/api/v1/appointments")
+@Tag(name = "Appointments", description = "Prise de rendez-vous")
+public class AppointmentController {
+
+    /** Périmètre d'idempotence de la création de rendez-vous. */
+    private static final String CREATE_SCOPE = "APPOINTMENT_CREATE";
+
+    private final AppointmentService appointmentService;
+    private final IdempotencyService idempotencyService;
+
+    /**
+     * Construit un AppointmentController avec les services requis.
+     *
+     * @param appointmentService Service pour la gestion des rendez-vous.
+     * @param idempotencyService Service pour le rejeu des requêtes idempotentes.
+     */
+    public AppointmentController(AppointmentService appointmentService, IdempotencyService idempotencyService) {
+        this.appointmentService = appointmentService;
+        this.idempotencyService = idempotencyService;
+    }
+
+    /**
+     * Crée un rendez-vous pour l'utilisateur connecté.
+     * Un rejeu avec la même clé d'idempotence renvoie le rendez-vous déjà créé.
+     *
+     * @param request        Les données du rendez-vous.
+     * @param idempotencyKey Clé d'idempotence fournie par le client (optionnelle).
+     * @param authentication L'objet d'authentification de l'utilisateur connecté.
+     * @return Une entité de réponse avec le rendez-vous créé.
+     */
+    @PostMapping
+    @Operation(summary = "Créer un rendez-vous")
+    public ResponseEntity<AppointmentDto> create(
+            @Valid @RequestBody CreateAppointmentRequest request,
+            @Parameter(description = "Clé d'idempotence") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
+        String email = ((UserDetails) authentication.getPrincipal()).getUsername();
+        AppointmentDto created = idempotencyService.execute(CREATE_SCOPE, idempotencyKey, email, request,
+                AppointmentDto.class, () -> appointmentService.createAppointment(request, email));
+        return ResponseEntity.created(URI.create("/api/v1/appointments/" + created.getId())).body(created);
+    }
+}
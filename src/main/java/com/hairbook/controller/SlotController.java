@@ -0,0 +1,120 @@
+package com.hairbook.controller;
+
+import com.hairbook.dto.AnyStaffSlotDto;
+import com.hairbook.dto.DaySlotSummaryDto;
+import com.hairbook.dto.SlotDto;
+import com.hairbook.service.SlotService;
+import com.hairbook.service.SlotSummaryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Contrôleur public pour la consultation des créneaux disponibles.
+ * Fournit des endpoints pour récupérer les disponibilités d'un membre du staff
+ * ou de l'ensemble du staff pour un service donné.
+ */
+@RestController
+@RequestMapping("/api/v1/slots")
+@Tag(name = "Slots", description = "Consultation des créneaux disponibles")
+public class SlotController {
+
+    private final SlotService slotService;
+    private final SlotSummaryService slotSummaryService;
+
+    /**
+     * Construit un SlotController avec les services requis.
+     *
+     * @param slotService        Service pour le calcul des créneaux disponibles.
+     * @param slotSummaryService Service pour le résumé des disponibilités par jour.
+     */
+    public SlotController(SlotService slotService, SlotSummaryService slotSummaryService) {
+        this.slotService = slotService;
+        this.slotSummaryService = slotSummaryService;
+    }
+
+    /**
+     * Récupère les créneaux disponibles d'un membre du staff pour un service à une date donnée.
+     *
+     * @param date      La date ciblée.
+     * @param serviceId L'ID du service.
+     * @param staffId   L'ID du membre du staff.
+     * @return Une liste des créneaux disponibles, triés chronologiquement.
+     */
+    @GetMapping
+    @Operation(summary = "Récupérer les créneaux disponibles d'un membre du staff")
+    public ResponseEntity<List<SlotDto>> getAvailableSlots(
+            @Parameter(description = "Date (format: yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @Parameter(description = "ID du service") @RequestParam UUID serviceId,
+            @Parameter(description = "ID du membre du staff") @RequestParam UUID staffId) {
+        return ResponseEntity.ok(slotService.getAvailableSlots(date, serviceId, staffId));
+    }
+
+    /**
+     * Récupère les créneaux disponibles pour un service, tous membres du staff actifs confondus.
+     * Chaque créneau liste les membres du staff pouvant le prendre.
+     *
+     * @param date      La date ciblée.
+     * @param serviceId L'ID du service.
+     * @param skill     Compétence requise (optionnelle).
+     * @return Une liste des créneaux fusionnés, triés chronologiquement.
+     */
+    @GetMapping("/any-staff")
+    @Operation(summary = "Récupérer les créneaux disponibles avec n'importe quel membre du staff")
+    public ResponseEntity<List<AnyStaffSlotDto>> getAvailableSlotsForAnyStaff(
+            @Parameter(description = "Date (format: yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @Parameter(description = "ID du service") @RequestParam UUID serviceId,
+            @Parameter(description = "Compétence requise (ex: Balayage)") @RequestParam(required = false) String skill) {
+        return ResponseEntity.ok(slotService.getAvailableSlotsForAnyStaff(date, serviceId, skill));
+    }
+
+    /**
+     * Récupère, pour chaque jour d'une plage, le nombre de créneaux libres et la première heure libre.
+     * Destiné à la vue calendrier (mois) pour griser les journées complètes.
+     *
+     * @param from      La première date de la plage (incluse).
+     * @param to        La dernière date de la plage (incluse).
+     * @param serviceId L'ID du service.
+     * @param staffId   L'ID du membre du staff (optionnel, tous les staff actifs si absent).
+     * @return Une liste de résumés journaliers, triés chronologiquement.
+     */
+    @GetMapping("/summary")
+    @Operation(summary = "Récupérer le résumé des disponibilités par jour")
+    public ResponseEntity<List<DaySlotSummaryDto>> getSummary(
+            @Parameter(description = "Date de début (format: yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Date de fin (format: yyyy-MM-dd)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "ID du service") @RequestParam UUID serviceId,
+            @Parameter(description = "ID du membre du staff") @RequestParam(required = false) UUID staffId) {
+        return ResponseEntity.ok(slotSummaryService.getSummary(from, to, serviceId, staffId));
+    }
+
+    /**
+     * Recherche les prochains créneaux disponibles pour un service, à partir d'une date.
+     * Destiné au bouton « Premier créneau disponible ».
+     *
+     * @param serviceId   L'ID du service.
+     * @param staffId     L'ID du membre du staff (optionnel, tous les staff actifs si absent).
+     * @param from        La date de départ de la recherche (aujourd'hui si absente).
+     * @param horizonDays Le nombre de jours examinés.
+     * @param limit       Le nombre maximal de créneaux renvoyés.
+     * @return Une liste des créneaux les plus proches, triés chronologiquement.
+     */
+    @GetMapping("/next-available")
+    @Operation(summary = "Rechercher les prochains créneaux disponibles")
+    public ResponseEntity<List<SlotDto>> findNextAvailable(
+            @Parameter(description = "ID du service") @RequestParam UUID serviceId,
+            @Parameter(description = "ID du membre du staff") @RequestParam(required = false) UUID staffId,
+            @Parameter(description = "Date de départ (format: yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Nombre de jours examinés") @RequestParam(defaultValue = "30") int horizonDays,
+            @Parameter(description = "Nombre maximal de créneaux") @RequestParam(defaultValue = "3") int limit) {
+        LocalDate start = from != null ? from : LocalDate.now();
+        return ResponseEntity.ok(slotService.findNextAvailable(serviceId, staffId, start, horizonDays, limit));
+    }
+}
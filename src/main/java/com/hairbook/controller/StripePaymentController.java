@@ -0,0 +1,107 @@
+package com.hairbook.controller;
+
+import com.hairbook.dto.CheckoutResponse;
+import com.hairbook.dto.CreateCheckoutRequest;
+import com.hairbook.service.IdempotencyService;
+import com.hairbook.service.PaymentService;
+import com.hairbook.service.StripeWebhookService;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.exception.StripeException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Contrôleur pour le paiement des rendez-vous via Stripe Checkout.
+ * La création de session accepte un en-tête {@code Idempotency-Key} afin qu'un rejeu
+ * ne crée pas une seconde session Stripe.
+ * Les webhooks Stripe sont enregistrés puis appliqués en arrière-plan ({@link StripeWebhookService}).
+ */
+@RestController
+@RequestMapping("/api/v1/payments")
+@Tag(name = "Stripe payments", description = "Paiement des rendez-vous via Stripe")
+public class StripePaymentController {
+
+    /** Périmètre d'idempotence de la création de session Checkout. */
+    private static final String CHECKOUT_SCOPE = "CHECKOUT_CREATE";
+
+    /** Délai suggéré au client avant de réessayer quand Stripe est indisponible (en secondes). */
+    private static final String RETRY_AFTER_SECONDS = "30";
+
+    private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
+    private final StripeWebhookService stripeWebhookService;
+
+    /**
+     * Construit un StripePaymentController avec les services requis.
+     *
+     * @param paymentService       Service pour la gestion des paiements.
+     * @param idempotencyService   Service pour le rejeu des requêtes idempotentes.
+     * @param stripeWebhookService Service de réception des webhooks Stripe.
+     */
+    public StripePaymentController(PaymentService paymentService, IdempotencyService idempotencyService,
+                                   StripeWebhookService stripeWebhookService) {
+        this.paymentService = paymentService;
+        this.idempotencyService = idempotencyService;
+        this.stripeWebhookService = stripeWebhookService;
+    }
+
+    /**
+     * Crée une session Stripe Checkout pour un rendez-vous de l'utilisateur connecté.
+     * Un rejeu avec la même clé d'idempotence renvoie la session déjà créée.
+     * Si Stripe est indisponible (délai dépassé, trop d'appels simultanés, disjoncteur ouvert),
+     * répond immédiatement 503 avec un en-tête {@code Retry-After}.
+     *
+     * @param request        L'identifiant du rendez-vous à payer.
+     * @param idempotencyKey Clé d'idempotence fournie par le client (optionnelle).
+     * @param authentication L'objet d'authentification de l'utilisateur connecté.
+     * @return Une entité de réponse avec l'ID et l'URL de la session Stripe.
+     * @throws StripeException En cas d'erreur de communication avec Stripe.
+     */
+    @PostMapping("/checkout")
+    @Operation(summary = "Créer une session de paiement Stripe")
+    public ResponseEntity<CheckoutResponse> createCheckout(
+            @Valid @RequestBody CreateCheckoutRequest request,
+            @Parameter(description = "Clé d'idempotence") @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) throws StripeException {
+        String email = ((UserDetails) authentication.getPrincipal()).getUsername();
+        try {
+            return ResponseEntity.ok(idempotencyService.execute(CHECKOUT_SCOPE, idempotencyKey, email, request,
+                    CheckoutResponse.class, () -> paymentService.createCheckoutSession(request, email)));
+        } catch (ApiConnectionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .build();
+        }
+    }
+
+    /**
+     * Reçoit un webhook Stripe : la signature est vérifiée et l'événement enregistré,
+     * son application aux paiements et rendez-vous se fait en arrière-plan.
+     * Un événement déjà reçu est acquitté sans être enregistré une seconde fois.
+     *
+     * @param payload   Le corps brut de la requête.
+     * @param sigHeader L'en-tête {@code Stripe-Signature}.
+     * @return 200 si l'événement est accepté (ou déjà reçu), 400 si la signature est invalide.
+     */
+    @PostMapping("/stripe/webhook")
+    @Operation(summary = "Recevoir un webhook Stripe")
+    public ResponseEntity<String> handleStripeWebhook(
+            @RequestBody String payload,
+            @Parameter(description = "Signature Stripe") @RequestHeader(value = "Stripe-Signature", required = false) String sigHeader) {
+        try {
+            stripeWebhookService.receive(payload, sigHeader);
+            return ResponseEntity.ok("ok");
+        } catch (SignatureVerificationException e) {
+            return ResponseEntity.badRequest().body("invalid signature");
+        }
+    }
+}
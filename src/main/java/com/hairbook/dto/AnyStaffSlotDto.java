@@ -0,0 +1,61 @@
+package com.hairbook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Créneau disponible pour un service, tous membres du staff confondus.
+ *
+ * <p>Ce DTO est renvoyé par la recherche « n'importe quel coiffeur » : pour chaque heure
+ * de début, il liste les membres du staff pouvant prendre le rendez-vous, afin que le
+ * frontend n'ait plus à interroger chaque staff séparément.</p>
+ *
+ * <h3>Exemple JSON :</h3>
+ * <pre>
+ * {
+ *   "startTime": "2025-11-02T14:00:00",
+ *   "endTime": "2025-11-02T15:30:00",
+ *   "staff": [
+ *     { "staffId": "1a2b3c4d-5e6f-7081-920a-bcdef1234567", "staffName": "Sophie Martin" },
+ *     { "staffId": "9f8e7d6c-5b4a-3928-1706-fedcba987654", "staffName": "Lucas Dubois" }
+ *   ]
+ * }
+ * </pre>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnyStaffSlotDto {
+
+    /** Date et heure de début du créneau. */
+    private LocalDateTime startTime;
+
+    /** Date et heure de fin du créneau. */
+    private LocalDateTime endTime;
+
+    /** Membres du staff disponibles sur ce créneau, dans l'ordre d'affichage. */
+    private List<AvailableStaff> staff;
+
+    /**
+     * Membre du staff pouvant prendre un créneau.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AvailableStaff {
+
+        /** Identifiant du membre du personnel. */
+        private UUID staffId;
+
+        /** Nom complet du membre du personnel. */
+        private String staffName;
+    }
+}
@@ -37,6 +37,10 @@ public class CreateUserRequest {
 
     private String phone;
 
+    /** Langue des emails de l'utilisateur (ex: fr, en) ; langue par défaut du salon si absente */
+    @Size(max = 8, message = "Preferred locale must be at most 8 characters")
+    private String preferredLocale;
+
     /** Rôles à attribuer (par défaut ROLE_CLIENT) */
     private Set<String> roles;
 
@@ -0,0 +1,43 @@
+package com.hairbook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Résumé des disponibilités d'une journée, utilisé par la vue calendrier (mois).
+ *
+ * <p>Permet au frontend de griser les journées complètes et d'afficher la première
+ * heure libre sans récupérer le détail des créneaux jour par jour.</p>
+ *
+ * <h3>Exemple JSON :</h3>
+ * <pre>
+ * {
+ *   "date": "2025-11-04",
+ *   "freeSlots": 7,
+ *   "earliestStart": "09:30:00"
+ * }
+ * </pre>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DaySlotSummaryDto {
+
+    /** Journée concernée. */
+    private LocalDate date;
+
+    /**
+     * Nombre d'heures de début disponibles ce jour-là
+     * (tous staff confondus si aucun staff n'est précisé).
+     */
+    private Integer freeSlots;
+
+    /** Première heure de début disponible, ou {@code null} si la journée est complète. */
+    private LocalTime earliestStart;
+}
@@ -0,0 +1,137 @@
+package com.hairbook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rapport d'un rapprochement des paiements avec Stripe.
+ *
+ * <p>Les compteurs couvrent toute l'exécution ; le détail des écarts est limité aux premiers
+ * rencontrés ({@code truncated} indique qu'il en existe d'autres).</p>
+ *
+ * <h3>Exemple JSON :</h3>
+ * <pre>
+ * {
+ *   "windowStart": "2025-11-01T04:00:00",
+ *   "windowEnd": "2025-11-03T04:00:00",
+ *   "startedAt": "2025-11-03T04:00:00",
+ *   "finishedAt": "2025-11-03T04:02:13",
+ *   "stripeSessions": 1843,
+ *   "matched": 1840,
+ *   "corrected": 4,
+ *   "discrepancyCounts": { "MISSED_PAYMENT": 3, "MISSED_EXPIRATION": 1, "UNKNOWN_SESSION": 3 },
+ *   "discrepancies": [
+ *     {
+ *       "type": "MISSED_PAYMENT",
+ *       "sessionId": "cs_test_a1b2c3",
+ *       "appointmentId": "1a2b3c4d-5e6f-7081-920a-bcdef1234567",
+ *       "localStatus": "PENDING",
+ *       "stripeStatus": "complete/paid",
+ *       "corrected": true,
+ *       "detail": null
+ *     }
+ *   ],
+ *   "truncated": false,
+ *   "error": null
+ * }
+ * </pre>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReportDto {
+
+    /** Début de la fenêtre de création des sessions rapprochées. */
+    private LocalDateTime windowStart;
+
+    /** Fin de la fenêtre de création des sessions rapprochées. */
+    private LocalDateTime windowEnd;
+
+    /** Début de l'exécution. */
+    private LocalDateTime startedAt;
+
+    /** Fin de l'exécution. */
+    private LocalDateTime finishedAt;
+
+    /** Nombre de sessions Stripe parcourues. */
+    private Long stripeSessions;
+
+    /** Nombre de sessions associées à un paiement local. */
+    private Long matched;
+
+    /** Nombre de paiements corrigés. */
+    private Long corrected;
+
+    /** Nombre d'écarts par type. */
+    private Map<DiscrepancyType, Long> discrepancyCounts;
+
+    /** Détail des premiers écarts rencontrés. */
+    private List<Discrepancy> discrepancies;
+
+    /** {@code true} si le détail des écarts a été tronqué. */
+    private Boolean truncated;
+
+    /** Erreur ayant interrompu le rapprochement (rapport partiel), ou {@code null}. */
+    private String error;
+
+    /**
+     * Type d'écart entre un paiement local et Stripe.
+     */
+    public enum DiscrepancyType {
+        /** Session payée, paiement local resté en attente (corrigé : paiement réussi). */
+        MISSED_PAYMENT,
+        /** Session expirée sans paiement, paiement local resté en attente (corrigé : paiement échoué). */
+        MISSED_EXPIRATION,
+        /** Session payée alors que le paiement local est échoué ou remboursé (à traiter manuellement). */
+        PAID_BUT_NOT_SUCCEEDED,
+        /** Paiement local réussi alors que la session n'est pas payée (à traiter manuellement). */
+        SUCCEEDED_BUT_NOT_PAID,
+        /** Montant de la session différent du montant du paiement local. */
+        AMOUNT_MISMATCH,
+        /** Session payée sans paiement local correspondant. */
+        UNKNOWN_SESSION,
+        /** Paiement local en attente sans session Stripe dans la fenêtre. */
+        MISSING_AT_STRIPE,
+        /** La correction a échoué ; le paiement sera réexaminé au prochain passage. */
+        CORRECTION_FAILED
+    }
+
+    /**
+     * Écart constaté pour une session ou un paiement.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Discrepancy {
+
+        /** Type d'écart. */
+        private DiscrepancyType type;
+
+        /** Identifiant de la session Stripe. */
+        private String sessionId;
+
+        /** Rendez-vous concerné, s'il est connu. */
+        private UUID appointmentId;
+
+        /** Statut du paiement local, ou {@code null} s'il n'existe pas. */
+        private String localStatus;
+
+        /** Statut de la session chez Stripe ({@code status/payment_status}), ou {@code null}. */
+        private String stripeStatus;
+
+        /** {@code true} si l'écart a été corrigé automatiquement. */
+        private Boolean corrected;
+
+        /** Précision éventuelle (montants, erreur de correction). */
+        private String detail;
+    }
+}
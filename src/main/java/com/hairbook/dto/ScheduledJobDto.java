@@ -0,0 +1,68 @@
+package com.hairbook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * État d'une tâche planifiée, renvoyé par l'administration des tâches.
+ *
+ * <h3>Exemple JSON :</h3>
+ * <pre>
+ * {
+ *   "name": "daily-reminders",
+ *   "pool": "notifications",
+ *   "timeoutSeconds": 1800,
+ *   "paused": false,
+ *   "runningOnThisNode": false,
+ *   "lockedBy": "4242@app-1",
+ *   "lockedUntil": "2025-11-02T10:05:00",
+ *   "lastRunBy": "4242@app-1",
+ *   "lastStartedAt": "2025-11-02T10:00:00",
+ *   "lastDurationMs": 5230,
+ *   "lastStatus": "SUCCESS"
+ * }
+ * </pre>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledJobDto {
+
+    /** Nom unique de la tâche. */
+    private String name;
+
+    /** Pool de threads exécutant la tâche. */
+    private String pool;
+
+    /** Durée maximale d'exécution (en secondes). */
+    private Long timeoutSeconds;
+
+    /** Tâche suspendue sur toutes les instances. */
+    private Boolean paused;
+
+    /** Exécution en cours sur l'instance ayant répondu. */
+    private Boolean runningOnThisNode;
+
+    /** Instance détenant (ou ayant détenu en dernier) le verrou, ou {@code null} si jamais exécutée. */
+    private String lockedBy;
+
+    /** Fin du bail du verrou. */
+    private LocalDateTime lockedUntil;
+
+    /** Instance ayant exécuté la dernière exécution terminée. */
+    private String lastRunBy;
+
+    /** Début de la dernière exécution terminée. */
+    private LocalDateTime lastStartedAt;
+
+    /** Durée de la dernière exécution (en millisecondes). */
+    private Long lastDurationMs;
+
+    /** Statut de la dernière exécution (SUCCESS ou FAILED). */
+    private String lastStatus;
+}
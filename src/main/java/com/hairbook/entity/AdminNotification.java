@@ -0,0 +1,40 @@
+package com.hairbook.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Notification administrateur en attente du prochain email récapitulatif.
+ *
+ * <p>La ligne est supprimée dans la transaction qui met le récapitulatif en file :
+ * une notification n'est ni perdue au redémarrage, ni envoyée deux fois.</p>
+ */
+@Entity
+@Table(name = "admin_notification")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AdminNotification {
+
+    /** Identifiant unique de la notification (UUID). */
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    /** Rubrique du récapitulatif (ex : « Demandes de remboursement »). */
+    @Column(nullable = false, length = 100)
+    private String category;
+
+    /** Description de l'événement (une ou plusieurs lignes). */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String summary;
+
+    /** Date de l'événement. */
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+}
@@ -0,0 +1,43 @@
+package com.hairbook.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Trace de l'envoi d'un rappel pour un rendez-vous.
+ *
+ * <p>Sert de point de reprise à la tâche de rappels : un rendez-vous ayant déjà une trace
+ * pour un type de rappel n'est plus sélectionné, si bien qu'un redémarrage en cours d'envoi
+ * ne renvoie pas les rappels déjà partis et n'en oublie aucun.</p>
+ */
+@Entity
+@Table(name = "appointment_reminder", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "appointment_id", "reminder_type" })
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppointmentReminder {
+
+    /** Identifiant unique de la trace (UUID). */
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    /** Rendez-vous rappelé. */
+    @Column(name = "appointment_id", nullable = false)
+    private UUID appointmentId;
+
+    /** Type de rappel (ex : BEFORE_1440M pour 24 h). */
+    @Column(name = "reminder_type", nullable = false, length = 30)
+    private String reminderType;
+
+    /** Date d'envoi du rappel. */
+    @Column(name = "sent_at", nullable = false)
+    private LocalDateTime sentAt;
+}
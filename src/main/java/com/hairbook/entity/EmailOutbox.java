@@ -0,0 +1,74 @@
+package com.hairbook.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Email en attente d'envoi dans la boîte d'envoi transactionnelle.
+ *
+ * <p>Enregistré dans la même transaction que l'action métier qui le produit
+ * (confirmation de paiement, annulation, inscription...) : il n'est envoyé que si
+ * cette transaction est validée, et reste en base jusqu'à son envoi effectif.</p>
+ */
+@Entity
+@Table(name = "email_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailOutbox {
+
+    /** Identifiant unique de l'email (UUID). */
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    /** Adresse du destinataire. */
+    @Column(nullable = false)
+    private String recipient;
+
+    /** Sujet de l'email. */
+    @Column(nullable = false)
+    private String subject;
+
+    /** Partie texte de l'email, effacée une fois l'email envoyé ou abandonné. */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String body;
+
+    /** Partie HTML de l'email, ou {@code null} pour un email texte seul ou une fois l'email envoyé ou abandonné. */
+    @Column(name = "html_body", columnDefinition = "TEXT")
+    private String htmlBody;
+
+    /** Statut d'envoi. */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private EmailOutboxStatus status = EmailOutboxStatus.PENDING;
+
+    /** Nombre de tentatives d'envoi déjà commencées. */
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    /** Date à partir de laquelle l'email peut être (à nouveau) envoyé. */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /** Message de la dernière erreur d'envoi. */
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    /** Date de mise en file. */
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /** Date d'envoi effectif. */
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+}
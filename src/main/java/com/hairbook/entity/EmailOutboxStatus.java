@@ -0,0 +1,22 @@
+package com.hairbook.entity;
+
+/**
+ * Statut d'un email de la boîte d'envoi ({@link EmailOutbox}).
+ *
+ * <ul>
+ *   <li>{@link #PENDING} → En attente d'envoi (premier essai ou nouvel essai planifié)</li>
+ *   <li>{@link #SENT} → Accepté par le serveur SMTP</li>
+ *   <li>{@link #FAILED} → Abandonné après le nombre maximal de tentatives</li>
+ * </ul>
+ */
+public enum EmailOutboxStatus {
+
+    /** Email en attente d'envoi. */
+    PENDING,
+
+    /** Email envoyé avec succès. */
+    SENT,
+
+    /** Email abandonné après trop d'échecs. */
+    FAILED
+}
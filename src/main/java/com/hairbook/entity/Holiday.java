@@ -6,6 +6,7 @@ import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.MonthDay;
 import java.util.UUID;
 
 /**
@@ -65,4 +66,29 @@ public class Holiday {
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
+
+    // -------------------------------------------------------------
+    // Méthodes utilitaires métier
+    // -------------------------------------------------------------
+
+    /**
+     * Vérifie si la période couvre une date donnée, en tenant compte de la récurrence annuelle.
+     *
+     * @param date date à vérifier
+     * @return true si la date tombe dans la période (ou dans sa répétition annuelle)
+     */
+    public boolean covers(LocalDate date) {
+        if (!date.isBefore(startDate) && !date.isAfter(endDate)) {
+            return true;
+        }
+        if (!Boolean.TRUE.equals(isRecurring)) {
+            return false;
+        }
+        MonthDay day = MonthDay.from(date);
+        MonthDay start = MonthDay.from(startDate);
+        MonthDay end = MonthDay.from(endDate);
+        return start.isAfter(end)
+                ? !day.isBefore(start) || !day.isAfter(end)
+                : !day.isBefore(start) && !day.isAfter(end);
+    }
 }
@@ -0,0 +1,50 @@
+package com.hairbook.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Réponse mémorisée d'une requête envoyée avec un en-tête {@code Idempotency-Key}.
+ *
+ * <p>Permet de renvoyer la même réponse lorsqu'un client rejoue une requête
+ * (réseau mobile instable) sans réexécuter la création du rendez-vous ou de la session
+ * de paiement. Les enregistrements expirent après {@code app.idempotency.ttl-hours}.</p>
+ */
+@Entity
+@Table(name = "idempotency_key")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    /** Empreinte SHA-256 (hex) du triplet périmètre / utilisateur / clé fournie par le client. */
+    @Id
+    @Column(length = 64)
+    private String id;
+
+    /** Périmètre de la requête (ex : APPOINTMENT_CREATE, CHECKOUT_CREATE). */
+    @Column(nullable = false, length = 50)
+    private String scope;
+
+    /** Empreinte SHA-256 (hex) du corps de la requête d'origine. */
+    @Column(name = "request_fingerprint", nullable = false, length = 64)
+    private String requestFingerprint;
+
+    /** Réponse sérialisée en JSON, ou {@code null} tant que la première exécution est en cours. */
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    /** Date de première exécution. */
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    /** Date à partir de laquelle la réponse n'est plus rejouée (fin du bail tant que l'exécution est en cours). */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
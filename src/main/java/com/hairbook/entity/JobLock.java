@@ -0,0 +1,75 @@
+package com.hairbook.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Formula;
+
+import java.time.LocalDateTime;
+
+/**
+ * Verrou d'une tâche planifiée partagé entre les instances de l'application.
+ *
+ * <p>Le verrou est un bail : l'instance qui le détient le prolonge régulièrement
+ * tant que la tâche s'exécute. Si elle s'arrête brutalement, le bail expire et une
+ * autre instance peut reprendre la tâche. La ligne conserve aussi les informations
+ * de la dernière exécution (instance, durée, statut).</p>
+ */
+@Entity
+@Table(name = "job_lock")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobLock {
+
+    /** Nom unique de la tâche (ex : daily-reminders). */
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    /** Instance détenant (ou ayant détenu en dernier) le verrou. */
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+
+    /** Date d'acquisition du verrou. */
+    @Column(name = "locked_at", nullable = false)
+    private LocalDateTime lockedAt;
+
+    /** Fin du bail ; le verrou est libre une fois cette date passée. */
+    @Column(name = "locked_until", nullable = false)
+    private LocalDateTime lockedUntil;
+
+    /** Instance ayant exécuté la dernière exécution terminée. */
+    @Column(name = "last_run_by")
+    private String lastRunBy;
+
+    /** Début de la dernière exécution terminée. */
+    @Column(name = "last_started_at")
+    private LocalDateTime lastStartedAt;
+
+    /** Fin de la dernière exécution terminée. */
+    @Column(name = "last_finished_at")
+    private LocalDateTime lastFinishedAt;
+
+    /** Durée de la dernière exécution (en millisecondes). */
+    @Column(name = "last_duration_ms")
+    private Long lastDurationMs;
+
+    /** Statut de la dernière exécution (SUCCESS ou FAILED). */
+    @Column(name = "last_status", length = 20)
+    private String lastStatus;
+
+    /** Tâche suspendue par un administrateur (sur toutes les instances). */
+    @Column(nullable = false)
+    @Builder.Default
+    private Boolean paused = false;
+
+    /**
+     * Bail en cours, évalué par la base à la lecture : les horloges des instances peuvent dériver,
+     * seule celle de la base fait foi, comme pour l'acquisition du verrou.
+     */
+    @Formula("locked_until > LOCALTIMESTAMP")
+    @Setter(AccessLevel.NONE)
+    private Boolean locked;
+}
@@ -26,6 +26,7 @@ import java.util.UUID;
  *   <li>SUCCEEDED → transaction validée</li>
  *   <li>FAILED → échec du paiement</li>
  *   <li>REFUNDED → remboursement partiel ou total effectué</li>
+ *   <li>REFUND_REQUIRED → payé après l'annulation du rendez-vous, à rembourser</li>
  * </ul>
  */
 @Entity
@@ -112,4 +113,9 @@ public class Payment {
     public void markFailed() {
         this.status = PaymentStatus.FAILED;
     }
+
+    /** Marque le paiement comme reçu pour un rendez-vous qui n'est plus en attente (à rembourser). */
+    public void markRefundRequired() {
+        this.status = PaymentStatus.REFUND_REQUIRED;
+    }
 }
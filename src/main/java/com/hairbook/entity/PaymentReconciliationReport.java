@@ -0,0 +1,35 @@
+package com.hairbook.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Dernier rapport de rapprochement des paiements avec Stripe.
+ *
+ * <p>Une seule ligne par tâche, remplacée à chaque exécution : le rapport est consultable
+ * depuis n'importe quelle instance, y compris après un redémarrage.</p>
+ */
+@Entity
+@Table(name = "payment_reconciliation_report")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentReconciliationReport {
+
+    /** Nom de la tâche de rapprochement. */
+    @Id
+    @Column(name = "job_name", length = 100)
+    private String jobName;
+
+    /** Fin de l'exécution. */
+    @Column(name = "finished_at", nullable = false)
+    private LocalDateTime finishedAt;
+
+    /** Rapport sérialisé en JSON ({@code ReconciliationReportDto}). */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String report;
+}
@@ -8,6 +8,7 @@ package com.hairbook.entity;
  *   <li>{@link #SUCCEEDED} → Paiement validé par le prestataire</li>
  *   <li>{@link #FAILED} → Échec lors du traitement du paiement</li>
  *   <li>{@link #REFUNDED} → Remboursement partiel ou total effectué</li>
+ *   <li>{@link #REFUND_REQUIRED} → Paiement reçu pour un rendez-vous qui n'est plus en attente, à rembourser</li>
  * </ul>
  *
  * Ces statuts permettent à l'application de gérer correctement :
@@ -27,5 +28,11 @@ public enum PaymentStatus {
     FAILED,
 
     /** Paiement remboursé par le salon ou à la demande du client. */
-    REFUNDED
+    REFUNDED,
+
+    /**
+     * Paiement validé par le prestataire après l'annulation du rendez-vous (réservation temporaire
+     * expirée, annulation) : à rembourser ou à reprogrammer par un administrateur.
+     */
+    REFUND_REQUIRED
 }
@@ -0,0 +1,70 @@
+package com.hairbook.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Événement Stripe reçu par webhook, conservé tel quel jusqu'à son traitement.
+ *
+ * <p>La clé est l'identifiant d'événement Stripe ({@code evt_...}) : un événement renvoyé
+ * par Stripe n'est enregistré et appliqué qu'une seule fois.</p>
+ */
+@Entity
+@Table(name = "stripe_webhook_event")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StripeWebhookEvent {
+
+    /** Identifiant de l'événement chez Stripe. */
+    @Id
+    private String id;
+
+    /** Type d'événement (ex : checkout.session.completed). */
+    @Column(nullable = false, length = 100)
+    private String type;
+
+    /** Rendez-vous concerné (métadonnée {@code appointmentId} de la session), si connu. */
+    @Column(name = "appointment_id")
+    private UUID appointmentId;
+
+    /** Corps JSON brut du webhook. */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    /** Statut de traitement. */
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private WebhookEventStatus status = WebhookEventStatus.PENDING;
+
+    /** Nombre de tentatives de traitement commencées. */
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    /** Date de création de l'événement chez Stripe (ordre de traitement). */
+    @Column(name = "event_created_at", nullable = false)
+    private LocalDateTime eventCreatedAt;
+
+    /** Date de réception du webhook. */
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    /** Date à partir de laquelle l'événement peut être (à nouveau) traité. */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    /** Date de fin de traitement. */
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    /** Message de la dernière erreur de traitement. */
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+}
@@ -95,6 +95,10 @@ public class User {
     @Column(name = "profile_picture")
     private String profilePicture;
 
+    /** Langue des emails envoyés à l'utilisateur (ex: fr, en) ; null pour la langue par défaut du salon. */
+    @Column(name = "preferred_locale", length = 8)
+    private String preferredLocale;
+
     /** Date à laquelle la suppression du compte est programmée (null si pas de suppression prévue). */
     @Column(name = "deletion_scheduled_at")
     private LocalDateTime deletionScheduledAt;
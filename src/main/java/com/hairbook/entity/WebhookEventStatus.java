@@ -0,0 +1,26 @@
+package com.hairbook.entity;
+
+/**
+ * Statut d'un événement de la boîte de réception des webhooks Stripe ({@link StripeWebhookEvent}).
+ *
+ * <ul>
+ *   <li>{@link #PENDING} → Reçu, en attente de traitement (ou de nouvel essai)</li>
+ *   <li>{@link #PROCESSED} → Appliqué aux paiements et rendez-vous</li>
+ *   <li>{@link #IGNORED} → Type d'événement sans effet sur l'application</li>
+ *   <li>{@link #FAILED} → Abandonné (erreur définitive ou trop de tentatives)</li>
+ * </ul>
+ */
+public enum WebhookEventStatus {
+
+    /** Événement en attente de traitement. */
+    PENDING,
+
+    /** Événement appliqué. */
+    PROCESSED,
+
+    /** Événement sans traitement associé. */
+    IGNORED,
+
+    /** Événement abandonné. */
+    FAILED
+}
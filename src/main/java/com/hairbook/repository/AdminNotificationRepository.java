@@ -0,0 +1,40 @@
+package com.hairbook.repository;
+
+import com.hairbook.entity.AdminNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Dépôt des notifications administrateur en attente de récapitulatif.
+ */
+@Repository
+public interface AdminNotificationRepository extends JpaRepository<AdminNotification, UUID> {
+
+    /**
+     * Verrouille les plus anciennes notifications en attente, de la plus ancienne à la plus récente.
+     * Les lignes déjà prises par le récapitulatif d'une autre instance sont ignorées ({@code SKIP LOCKED}).
+     * Doit être appelée dans une transaction.
+     *
+     * @param limit nombre maximal de notifications verrouillées
+     * @return notifications à inclure dans le récapitulatif
+     */
+    @Query(value = """
+            SELECT * FROM admin_notification
+            ORDER BY occurred_at, id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<AdminNotification> lockPending(@Param("limit") int limit);
+
+    /**
+     * @return date de la plus ancienne notification en attente, ou {@code null} s'il n'y en a aucune
+     */
+    @Query("SELECT MIN(n.occurredAt) FROM AdminNotification n")
+    LocalDateTime findOldestOccurredAt();
+}
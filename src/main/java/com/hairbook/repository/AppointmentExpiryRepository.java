@@ -0,0 +1,126 @@
+package com.hairbook.repository;
+
+import com.hairbook.entity.Appointment;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Dépôt ensembliste pour l'annulation automatique des rendez-vous non payés.
+ * <p>
+ * L'annulation est faite par une seule instruction {@code UPDATE ... RETURNING} par lot,
+ * au lieu d'un chargement, d'une vérification de paiement et d'une sauvegarde par rendez-vous.
+ * Les transitions d'un rendez-vous en attente (annulation à l'expiration, confirmation au paiement)
+ * sont des mises à jour conditionnelles sur son statut : la première validée l'emporte.
+ */
+@org.springframework.stereotype.Repository
+public interface AppointmentExpiryRepository extends Repository<Appointment, UUID> {
+
+    /**
+     * Compte les rendez-vous PENDING créés avant une date et sans paiement réussi.
+     *
+     * @param cutoff date de création limite (exclue)
+     * @return nombre de rendez-vous à annuler
+     */
+    @Query(value = """
+            SELECT count(*) FROM appointment a
+            WHERE a.status = 'PENDING'
+              AND a.created_at < :cutoff
+              AND NOT EXISTS (SELECT 1 FROM payment p WHERE p.appointment_id = a.id AND p.status = 'SUCCEEDED')
+            """, nativeQuery = true)
+    long countExpiredPending(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Annule un lot de rendez-vous PENDING créés avant une date et sans paiement réussi.
+     * Les lignes verrouillées par une autre instance sont ignorées ({@code SKIP LOCKED}).
+     * Doit être appelée dans une transaction.
+     *
+     * @param cutoff    date de création limite (exclue)
+     * @param reason    raison d'annulation enregistrée
+     * @param chunkSize nombre maximal de rendez-vous annulés
+     * @return identifiants des rendez-vous annulés
+     */
+    @Query(value = """
+            WITH expired AS (
+                SELECT a.id FROM appointment a
+                WHERE a.status = 'PENDING'
+                  AND a.created_at < :cutoff
+                  AND NOT EXISTS (SELECT 1 FROM payment p WHERE p.appointment_id = a.id AND p.status = 'SUCCEEDED')
+                ORDER BY a.created_at
+                LIMIT :chunkSize
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE appointment a
+            SET status = 'CANCELLED', cancellation_reason = :reason,
+                cancelled_at = LOCALTIMESTAMP, updated_at = LOCALTIMESTAMP
+            FROM expired
+            WHERE a.id = expired.id
+            RETURNING a.id
+            """, nativeQuery = true)
+    List<UUID> cancelExpiredPending(@Param("cutoff") LocalDateTime cutoff,
+                                    @Param("reason") String reason,
+                                    @Param("chunkSize") int chunkSize);
+
+    /**
+     * Annule un rendez-vous PENDING sans paiement réussi, à l'expiration de sa réservation temporaire.
+     * L'instruction est conditionnelle : un rendez-vous confirmé, annulé ou payé entre-temps n'est pas
+     * modifié, et un paiement validé en parallèle (ligne du rendez-vous verrouillée) n'est jamais écrasé.
+     * Doit être appelée dans une transaction.
+     *
+     * @param id     identifiant du rendez-vous
+     * @param reason raison d'annulation enregistrée
+     * @return l'identifiant du rendez-vous s'il a été annulé, une liste vide sinon
+     */
+    @Query(value = """
+            UPDATE appointment a
+            SET status = 'CANCELLED', cancellation_reason = :reason,
+                cancelled_at = LOCALTIMESTAMP, updated_at = LOCALTIMESTAMP
+            WHERE a.id = :id
+              AND a.status = 'PENDING'
+              AND NOT EXISTS (SELECT 1 FROM payment p WHERE p.appointment_id = a.id AND p.status = 'SUCCEEDED')
+            RETURNING a.id
+            """, nativeQuery = true)
+    List<UUID> cancelIfUnpaid(@Param("id") UUID id, @Param("reason") String reason);
+
+    /**
+     * Confirme un rendez-vous encore en attente, au paiement de sa session Checkout.
+     * La ligne reste verrouillée jusqu'à la fin de la transaction : une annulation concurrente
+     * ({@link #cancelIfUnpaid}) attend puis ne trouve plus le rendez-vous en attente.
+     *
+     * @param id identifiant du rendez-vous
+     * @return 1 si le rendez-vous a été confirmé, 0 s'il n'était plus en attente
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE appointment
+            SET status = 'CONFIRMED', updated_at = LOCALTIMESTAMP
+            WHERE id = :id AND status = 'PENDING'
+            """, nativeQuery = true)
+    int confirmIfPending(@Param("id") UUID id);
+
+    /**
+     * Charge des rendez-vous avec leur membre du staff (publication des événements de créneau).
+     *
+     * @param ids identifiants des rendez-vous
+     * @return rendez-vous trouvés
+     */
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.staffMember WHERE a.id IN :ids")
+    List<Appointment> findAllWithStaffByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Charge les rendez-vous PENDING avec leur membre du staff (reconstruction des réservations temporaires).
+     *
+     * @return rendez-vous en attente de paiement
+     */
+    @Query("""
+            SELECT a FROM Appointment a JOIN FETCH a.staffMember
+            WHERE a.status = com.hairbook.entity.AppointmentStatus.PENDING
+            """)
+    List<Appointment> findAllPendingWithStaff();
+}
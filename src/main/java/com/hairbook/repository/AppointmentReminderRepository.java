@@ -0,0 +1,87 @@
+package com.hairbook.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentReminder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Dépôt des traces d'envoi des rappels de rendez-vous.
+ */
+@Repository
+public interface AppointmentReminderRepository extends JpaRepository<AppointmentReminder, UUID> {
+
+    /**
+     * Lit un lot de rendez-vous confirmés à rappeler, par pagination sur la clé
+     * (date, heure de début, id), avec client, service et staff chargés en une requête.
+     * Les rendez-vous ayant déjà reçu ce type de rappel sont exclus.
+     *
+     * @param type      type de rappel
+     * @param fromDate  date de début de la fenêtre
+     * @param fromTime  heure de début de la fenêtre (incluse)
+     * @param toDate    date de fin de la fenêtre
+     * @param toTime    heure de fin de la fenêtre (exclue)
+     * @param afterDate date du dernier rendez-vous du lot précédent
+     * @param afterTime heure du dernier rendez-vous du lot précédent
+     * @param afterId   id du dernier rendez-vous du lot précédent
+     * @param limit     taille du lot
+     * @return rendez-vous triés par date, heure et id
+     */
+    @Query("""
+            SELECT a FROM Appointment a
+            JOIN FETCH a.user JOIN FETCH a.service JOIN FETCH a.staffMember
+            WHERE a.status = com.hairbook.entity.AppointmentStatus.CONFIRMED
+              AND (a.appointmentDate > :fromDate OR (a.appointmentDate = :fromDate AND a.startTime >= :fromTime))
+              AND (a.appointmentDate < :toDate OR (a.appointmentDate = :toDate AND a.startTime < :toTime))
+              AND (a.appointmentDate > :afterDate
+                   OR (a.appointmentDate = :afterDate AND a.startTime > :afterTime)
+                   OR (a.appointmentDate = :afterDate AND a.startTime = :afterTime AND a.id > :afterId))
+              AND NOT EXISTS (SELECT r.id FROM AppointmentReminder r
+                              WHERE r.appointmentId = a.id AND r.reminderType = :type)
+            ORDER BY a.appointmentDate, a.startTime, a.id
+            """)
+    List<Appointment> findChunkToRemind(@Param("type") String type,
+                                        @Param("fromDate") LocalDate fromDate,
+                                        @Param("fromTime") LocalTime fromTime,
+                                        @Param("toDate") LocalDate toDate,
+                                        @Param("toTime") LocalTime toTime,
+                                        @Param("afterDate") LocalDate afterDate,
+                                        @Param("afterTime") LocalTime afterTime,
+                                        @Param("afterId") UUID afterId,
+                                        Limit limit);
+
+    /**
+     * Charge un rendez-vous avec client, service et staff pour l'envoi d'un rappel.
+     *
+     * @param id identifiant du rendez-vous
+     * @return le rendez-vous s'il existe
+     */
+    @Query("""
+            SELECT a FROM Appointment a
+            JOIN FETCH a.user JOIN FETCH a.service JOIN FETCH a.staffMember
+            WHERE a.id = :id
+            """)
+    Optional<Appointment> findForReminder(@Param("id") UUID id);
+
+    /**
+     * Efface les traces des rappels d'un rendez-vous, pour qu'il soit rappelé à nouveau
+     * après un déplacement. Appelée dans la transaction qui déplace le rendez-vous.
+     *
+     * @param appointmentId identifiant du rendez-vous
+     * @return nombre de traces supprimées
+     */
+    @Modifying
+    @Query("DELETE FROM AppointmentReminder r WHERE r.appointmentId = :appointmentId")
+    int deleteByAppointmentId(@Param("appointmentId") UUID appointmentId);
+}
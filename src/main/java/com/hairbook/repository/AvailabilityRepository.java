@@ -0,0 +1,70 @@
+package com.hairbook.repository;
+
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.Holiday;
+import com.hairbook.entity.WorkingHours;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Dépôt en lecture seule regroupant les requêtes "par lot" nécessaires au calcul des disponibilités.
+ * <p>
+ * Chaque méthode charge en une seule requête les données de plusieurs membres du staff
+ * sur une plage de dates, afin d'éviter une requête par staff et par jour.
+ */
+@org.springframework.stereotype.Repository
+public interface AvailabilityRepository extends Repository<Appointment, UUID> {
+
+    /**
+     * Recherche les rendez-vous actifs (PENDING ou CONFIRMED) de plusieurs membres du staff sur une plage de dates.
+     *
+     * @param staffIds identifiants des membres du staff
+     * @param from     première date (incluse)
+     * @param to       dernière date (incluse)
+     * @return rendez-vous actifs, triés par date et heure de début
+     */
+    @Query("""
+            SELECT a FROM Appointment a
+            WHERE a.staffMember.id IN :staffIds
+              AND a.appointmentDate BETWEEN :from AND :to
+              AND a.status IN (com.hairbook.entity.AppointmentStatus.PENDING,
+                               com.hairbook.entity.AppointmentStatus.CONFIRMED)
+            ORDER BY a.appointmentDate, a.startTime
+            """)
+    List<Appointment> findActiveByStaffIdsAndDateRange(@Param("staffIds") Collection<UUID> staffIds,
+                                                       @Param("from") LocalDate from,
+                                                       @Param("to") LocalDate to);
+
+    /**
+     * Recherche les horaires hebdomadaires de plusieurs membres du staff.
+     *
+     * @param staffIds identifiants des membres du staff
+     * @return horaires de travail (au plus un par staff et par jour de la semaine)
+     */
+    @Query("SELECT w FROM WorkingHours w JOIN FETCH w.staffMember s WHERE s.id IN :staffIds")
+    List<WorkingHours> findWorkingHoursByStaffIds(@Param("staffIds") Collection<UUID> staffIds);
+
+    /**
+     * Recherche les congés des membres du staff et les fermetures globales pouvant couvrir une plage de dates.
+     * Les périodes récurrentes sont toujours renvoyées et filtrées en mémoire via {@link Holiday#covers}.
+     *
+     * @param staffIds identifiants des membres du staff
+     * @param from     première date (incluse)
+     * @param to       dernière date (incluse)
+     * @return congés individuels et fermetures du salon
+     */
+    @Query("""
+            SELECT h FROM Holiday h LEFT JOIN FETCH h.staffMember s
+            WHERE (s IS NULL OR s.id IN :staffIds)
+              AND ((h.startDate <= :to AND h.endDate >= :from) OR h.isRecurring = true)
+            """)
+    List<Holiday> findHolidaysForStaffIds(@Param("staffIds") Collection<UUID> staffIds,
+                                          @Param("from") LocalDate from,
+                                          @Param("to") LocalDate to);
+}
@@ -0,0 +1,143 @@
+package com.hairbook.repository;
+
+import com.hairbook.entity.EmailOutbox;
+import com.hairbook.entity.EmailOutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Dépôt de la boîte d'envoi transactionnelle des emails.
+ * <p>
+ * Le contenu d'un email (qui peut porter un mot de passe temporaire) est effacé dès qu'il est envoyé
+ * ou abandonné : seuls le destinataire, le sujet et l'historique d'envoi sont conservés jusqu'à la purge.
+ */
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, UUID> {
+
+    /**
+     * Réserve un lot d'emails à envoyer.
+     * <p>
+     * Les emails réservés voient leur nombre de tentatives incrémenté et leur prochaine échéance
+     * repoussée de la durée de réservation : si l'instance s'arrête avant de les marquer envoyés,
+     * ils redeviennent disponibles à l'expiration de la réservation (livraison au moins une fois).
+     * Les lignes verrouillées par un autre dispatcher sont ignorées ({@code SKIP LOCKED}).
+     *
+     * @param batchSize    nombre maximal d'emails réservés
+     * @param leaseSeconds durée de la réservation (en secondes)
+     * @return identifiants des emails réservés
+     */
+    @Transactional
+    @Query(value = """
+            WITH due AS (
+                SELECT o.id FROM email_outbox o
+                WHERE o.status = 'PENDING'
+                  AND o.next_attempt_at <= LOCALTIMESTAMP
+                ORDER BY o.next_attempt_at
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE email_outbox o
+            SET attempts = o.attempts + 1,
+                next_attempt_at = LOCALTIMESTAMP + make_interval(secs => :leaseSeconds)
+            FROM due
+            WHERE o.id = due.id
+            RETURNING o.id
+            """, nativeQuery = true)
+    List<UUID> claimBatch(@Param("batchSize") int batchSize, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Marque un email comme envoyé et efface son contenu.
+     *
+     * @param id     identifiant de l'email
+     * @param sentAt date d'envoi
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE EmailOutbox o SET o.status = com.hairbook.entity.EmailOutboxStatus.SENT,
+                o.sentAt = :sentAt, o.lastError = NULL, o.body = '', o.htmlBody = NULL
+            WHERE o.id = :id
+            """)
+    void markSent(@Param("id") UUID id, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Enregistre l'échec d'une tentative et planifie un nouvel essai.
+     *
+     * @param id            identifiant de l'email
+     * @param nextAttemptAt date du prochain essai
+     * @param error         message d'erreur (tronqué à 500 caractères)
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE EmailOutbox o SET o.status = com.hairbook.entity.EmailOutboxStatus.PENDING,
+                o.nextAttemptAt = :nextAttemptAt, o.lastError = :error
+            WHERE o.id = :id
+            """)
+    void scheduleRetry(@Param("id") UUID id,
+                       @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                       @Param("error") String error);
+
+    /**
+     * Abandonne un email après sa dernière tentative et efface son contenu.
+     *
+     * @param id       identifiant de l'email
+     * @param failedAt date de l'abandon (conservée dans {@code nextAttemptAt}, référence de la purge)
+     * @param error    message d'erreur (tronqué à 500 caractères)
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE EmailOutbox o SET o.status = com.hairbook.entity.EmailOutboxStatus.FAILED,
+                o.nextAttemptAt = :failedAt, o.lastError = :error, o.body = '', o.htmlBody = NULL
+            WHERE o.id = :id
+            """)
+    void markFailed(@Param("id") UUID id, @Param("failedAt") LocalDateTime failedAt, @Param("error") String error);
+
+    /**
+     * Libère la réservation d'un email non envoyé (pool d'envoi saturé, domaine saturé, lot interrompu
+     * par une erreur) : la tentative n'est pas comptée et l'email redevient disponible à {@code availableAt}.
+     * Sans effet sur un email qui n'est plus en attente.
+     *
+     * @param id          identifiant de l'email
+     * @param availableAt instant à partir duquel l'email peut être réservé à nouveau
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE EmailOutbox o SET o.attempts = o.attempts - 1, o.nextAttemptAt = :availableAt
+            WHERE o.id = :id AND o.status = com.hairbook.entity.EmailOutboxStatus.PENDING
+            """)
+    void releaseClaim(@Param("id") UUID id, @Param("availableAt") LocalDateTime availableAt);
+
+    /**
+     * Compte les emails d'un statut.
+     *
+     * @param status statut recherché
+     * @return nombre d'emails
+     */
+    long countByStatus(EmailOutboxStatus status);
+
+    /**
+     * Supprime les emails envoyés ou abandonnés avant une date.
+     *
+     * @param cutoff date d'envoi ou d'abandon limite (exclue)
+     * @return nombre de lignes supprimées
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            DELETE FROM EmailOutbox o
+            WHERE (o.status = com.hairbook.entity.EmailOutboxStatus.SENT AND o.sentAt < :cutoff)
+               OR (o.status = com.hairbook.entity.EmailOutboxStatus.FAILED AND o.nextAttemptAt < :cutoff)
+            """)
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
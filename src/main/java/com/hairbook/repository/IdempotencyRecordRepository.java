@@ -0,0 +1,100 @@
+package com.hairbook.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hairbook.entity.IdempotencyRecord;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Dépôt des réponses mémorisées pour les requêtes idempotentes.
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Recherche une réponse mémorisée encore valide.
+     *
+     * @param id empreinte de la clé d'idempotence
+     * @return la réponse si la première exécution est terminée et que la réponse n'a pas expiré
+     */
+    @Query(value = """
+            SELECT * FROM idempotency_key
+            WHERE id = :id AND response_body IS NOT NULL AND expires_at > LOCALTIMESTAMP
+            """, nativeQuery = true)
+    Optional<IdempotencyRecord> findCompleted(@Param("id") String id);
+
+    /**
+     * Réserve une clé avant l'exécution de la requête. Une clé déjà présente n'est reprise que si elle
+     * a expiré : réponse périmée, ou exécution abandonnée dont le bail est échu.
+     *
+     * @param id           empreinte de la clé d'idempotence
+     * @param scope        périmètre de la requête
+     * @param fingerprint  empreinte du corps de la requête
+     * @param leaseSeconds durée du bail de l'exécution (en secondes)
+     * @return 1 si la clé est réservée, 0 si elle est déjà utilisée
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO idempotency_key (id, scope, request_fingerprint, created_at, expires_at)
+            VALUES (:id, :scope, :fingerprint, LOCALTIMESTAMP, LOCALTIMESTAMP + :leaseSeconds * INTERVAL '1 second')
+            ON CONFLICT (id) DO UPDATE
+            SET scope = EXCLUDED.scope, request_fingerprint = EXCLUDED.request_fingerprint, response_body = NULL,
+                created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at
+            WHERE idempotency_key.expires_at <= LOCALTIMESTAMP
+            """, nativeQuery = true)
+    int claim(@Param("id") String id,
+              @Param("scope") String scope,
+              @Param("fingerprint") String fingerprint,
+              @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Enregistre la réponse d'une clé réservée.
+     *
+     * @param id           empreinte de la clé d'idempotence
+     * @param fingerprint  empreinte du corps de la requête ayant réservé la clé
+     * @param responseBody réponse sérialisée en JSON
+     * @param ttlSeconds   durée (en secondes) pendant laquelle la réponse est rejouée
+     * @return 1 si la réponse est enregistrée, 0 si la réservation a été perdue (bail échu et repris)
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE idempotency_key
+            SET response_body = :responseBody, expires_at = LOCALTIMESTAMP + :ttlSeconds * INTERVAL '1 second'
+            WHERE id = :id AND response_body IS NULL AND request_fingerprint = :fingerprint
+            """, nativeQuery = true)
+    int complete(@Param("id") String id,
+                 @Param("fingerprint") String fingerprint,
+                 @Param("responseBody") String responseBody,
+                 @Param("ttlSeconds") long ttlSeconds);
+
+    /**
+     * Libère une clé réservée dont l'exécution a échoué, pour que le client puisse réessayer.
+     *
+     * @param id empreinte de la clé d'idempotence
+     * @return nombre de lignes supprimées
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM idempotency_key WHERE id = :id AND response_body IS NULL", nativeQuery = true)
+    int release(@Param("id") String id);
+
+    /**
+     * Supprime les réponses expirées.
+     *
+     * @param now instant de référence
+     * @return nombre de lignes supprimées
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
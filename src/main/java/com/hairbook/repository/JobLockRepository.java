@@ -0,0 +1,99 @@
+package com.hairbook.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hairbook.entity.JobLock;
+
+/**
+ * Dépôt des verrous de tâches planifiées.
+ * <p>
+ * Toutes les dates de bail sont calculées avec l'horloge de la base ({@code LOCALTIMESTAMP})
+ * afin de ne pas dépendre de la synchronisation des horloges entre instances.
+ * Chaque opération s'exécute et se valide dans sa propre transaction.
+ */
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    /**
+     * Acquiert le verrou d'une tâche s'il est libre (bail expiré ou tâche jamais exécutée)
+     * et si la tâche n'est pas suspendue.
+     *
+     * @param name         nom de la tâche
+     * @param node         identifiant de l'instance
+     * @param leaseSeconds durée du bail (en secondes)
+     * @return 1 si le verrou est acquis, 0 sinon
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO job_lock (name, locked_by, locked_at, locked_until)
+            VALUES (:name, :node, LOCALTIMESTAMP, LOCALTIMESTAMP + :leaseSeconds * INTERVAL '1 second')
+            ON CONFLICT (name) DO UPDATE
+            SET locked_by = EXCLUDED.locked_by, locked_at = EXCLUDED.locked_at, locked_until = EXCLUDED.locked_until
+            WHERE job_lock.locked_until <= LOCALTIMESTAMP AND NOT job_lock.paused
+            """, nativeQuery = true)
+    int tryAcquire(@Param("name") String name, @Param("node") String node, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Prolonge le bail d'un verrou détenu par cette instance (heartbeat).
+     *
+     * @param name         nom de la tâche
+     * @param node         identifiant de l'instance
+     * @param leaseSeconds nouvelle durée du bail à partir de maintenant (en secondes)
+     * @return 1 si le bail est prolongé, 0 si le verrou a été perdu
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE job_lock SET locked_until = LOCALTIMESTAMP + :leaseSeconds * INTERVAL '1 second'
+            WHERE name = :name AND locked_by = :node
+            """, nativeQuery = true)
+    int extendLease(@Param("name") String name, @Param("node") String node, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Libère le verrou et enregistre le résultat de l'exécution.
+     * Le bail est conservé au moins jusqu'à {@code lockedAt + minHoldSeconds} pour qu'une
+     * instance dont l'horloge de déclenchement est légèrement décalée ne relance pas la tâche.
+     * Les dates de la dernière exécution sont celles de la base, le début étant déduit de la durée.
+     *
+     * @param name           nom de la tâche
+     * @param node           identifiant de l'instance
+     * @param minHoldSeconds durée minimale de détention (en secondes)
+     * @param durationMs     durée de l'exécution (en millisecondes)
+     * @param status         statut de l'exécution (SUCCESS ou FAILED)
+     * @return 1 si le verrou est libéré, 0 s'il avait été perdu
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE job_lock
+            SET locked_until = GREATEST(LOCALTIMESTAMP, locked_at + :minHoldSeconds * INTERVAL '1 second'),
+                last_run_by = locked_by, last_started_at = LOCALTIMESTAMP - :durationMs * INTERVAL '1 millisecond',
+                last_finished_at = LOCALTIMESTAMP, last_duration_ms = :durationMs, last_status = :status
+            WHERE name = :name AND locked_by = :node
+            """, nativeQuery = true)
+    int release(@Param("name") String name, @Param("node") String node, @Param("minHoldSeconds") long minHoldSeconds,
+                @Param("durationMs") long durationMs, @Param("status") String status);
+
+    /**
+     * Suspend ou réactive une tâche, en créant sa ligne si elle n'a jamais été exécutée.
+     *
+     * @param name   nom de la tâche
+     * @param node   identifiant de l'instance à l'origine de la demande
+     * @param paused {@code true} pour suspendre
+     * @return nombre de lignes modifiées
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO job_lock (name, locked_by, locked_at, locked_until, paused)
+            VALUES (:name, :node, LOCALTIMESTAMP, LOCALTIMESTAMP, :paused)
+            ON CONFLICT (name) DO UPDATE SET paused = EXCLUDED.paused
+            """, nativeQuery = true)
+    int setPaused(@Param("name") String name, @Param("node") String node, @Param("paused") boolean paused);
+}
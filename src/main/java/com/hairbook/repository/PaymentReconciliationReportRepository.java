@@ -0,0 +1,12 @@
+package com.hairbook.repository;
+
+import com.hairbook.entity.PaymentReconciliationReport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Dépôt du dernier rapport de rapprochement des paiements.
+ */
+@Repository
+public interface PaymentReconciliationReportRepository extends JpaRepository<PaymentReconciliationReport, String> {
+}
@@ -1,13 +1,20 @@
 package com.hairbook.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.hairbook.entity.Payment;
 import com.hairbook.entity.PaymentStatus;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Dépôt pour la gestion des paiements liés aux réservations.
@@ -40,4 +47,68 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
      * @return Une liste de paiements correspondant au statut.
      */
     List<Payment> findByStatus(PaymentStatus status);
+
+    /**
+     * Remplace la session Checkout d'un paiement en attente, à condition qu'elle soit encore celle
+     * lue avant l'appel à Stripe (écriture conditionnelle : un seul remplacement concurrent aboutit).
+     *
+     * @param appointmentId     identifiant du rendez-vous
+     * @param observedSessionId session lue avant l'appel à Stripe
+     * @param sessionId         nouvelle session
+     * @param paymentIntentId   payment intent de la nouvelle session, ou {@code null}
+     * @param checkoutUrl       URL de paiement de la nouvelle session
+     * @param expiresAt         expiration de la nouvelle session (ISO-8601)
+     * @return 1 si la session a été remplacée, 0 sinon
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE payment
+            SET provider_session_id = :sessionId,
+                provider_payment_id = :paymentIntentId,
+                checkout_url = :checkoutUrl,
+                metadata = jsonb_set(COALESCE(metadata, CAST('{}' AS jsonb)), '{checkoutExpiresAt}',
+                                     to_jsonb(CAST(:expiresAt AS text))),
+                updated_at = LOCALTIMESTAMP
+            WHERE appointment_id = :appointmentId
+              AND status = 'PENDING'
+              AND provider_session_id IS NOT DISTINCT FROM CAST(:observedSessionId AS varchar)
+            """, nativeQuery = true)
+    int swapCheckoutSession(@Param("appointmentId") UUID appointmentId,
+                            @Param("observedSessionId") String observedSessionId,
+                            @Param("sessionId") String sessionId,
+                            @Param("paymentIntentId") String paymentIntentId,
+                            @Param("checkoutUrl") String checkoutUrl,
+                            @Param("expiresAt") String expiresAt);
+
+    /**
+     * Recherche les paiements correspondant à un lot de sessions Stripe.
+     *
+     * @param sessionIds identifiants de session Stripe
+     * @return paiements trouvés
+     */
+    List<Payment> findByProviderSessionIdIn(Collection<String> sessionIds);
+
+    /**
+     * Recherche, par pagination par clé, les paiements en attente créés dans une fenêtre.
+     * Pour la première page, passer une date {@code afterCreatedAt} antérieure à {@code from}.
+     *
+     * @param from           début de la fenêtre (inclus)
+     * @param to             fin de la fenêtre (exclue)
+     * @param afterCreatedAt date de création du dernier paiement de la page précédente
+     * @param afterId        identifiant du dernier paiement de la page précédente
+     * @param pageable       taille de la page
+     * @return paiements en attente, triés par date de création puis identifiant
+     */
+    @Query("""
+            SELECT p FROM Payment p
+            WHERE p.status = com.hairbook.entity.PaymentStatus.PENDING
+              AND p.createdAt >= :from AND p.createdAt < :to
+              AND (p.createdAt > :afterCreatedAt OR (p.createdAt = :afterCreatedAt AND p.id > :afterId))
+            ORDER BY p.createdAt, p.id
+            """)
+    List<Payment> findPendingCreatedBetween(@Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                            @Param("afterId") UUID afterId,
+                                            Pageable pageable);
 }
@@ -0,0 +1,135 @@
+package com.hairbook.repository;
+
+import com.hairbook.entity.StripeWebhookEvent;
+import com.hairbook.entity.WebhookEventStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Dépôt de la boîte de réception des webhooks Stripe.
+ */
+@Repository
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, String> {
+
+    /**
+     * Enregistre un événement s'il n'a pas déjà été reçu.
+     *
+     * @param id             identifiant de l'événement Stripe
+     * @param type           type d'événement
+     * @param appointmentId  rendez-vous concerné, ou {@code null}
+     * @param payload        corps JSON brut
+     * @param eventCreatedAt date de création chez Stripe
+     * @return 1 si l'événement est nouveau, 0 s'il s'agit d'un renvoi
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO stripe_webhook_event (id, type, appointment_id, payload, event_created_at)
+            VALUES (:id, :type, :appointmentId, :payload, :eventCreatedAt)
+            ON CONFLICT (id) DO NOTHING
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("type") String type,
+                       @Param("appointmentId") UUID appointmentId,
+                       @Param("payload") String payload,
+                       @Param("eventCreatedAt") LocalDateTime eventCreatedAt);
+
+    /**
+     * Réserve un lot d'événements à traiter.
+     * <p>
+     * Seul le plus ancien événement en attente de chaque rendez-vous est éligible : les événements
+     * d'un même rendez-vous sont appliqués un par un, dans l'ordre de création chez Stripe, même
+     * en cas de nouvel essai ou sur plusieurs instances. La réservation incrémente le nombre de
+     * tentatives et repousse la prochaine échéance de la durée de réservation.
+     *
+     * @param batchSize    nombre maximal d'événements réservés
+     * @param leaseSeconds durée de la réservation (en secondes)
+     * @return identifiants des événements réservés
+     */
+    @Transactional
+    @Query(value = """
+            WITH due AS (
+                SELECT e.id FROM stripe_webhook_event e
+                WHERE e.status = 'PENDING'
+                  AND e.next_attempt_at <= LOCALTIMESTAMP
+                  AND NOT EXISTS (
+                      SELECT 1 FROM stripe_webhook_event p
+                      WHERE p.status = 'PENDING'
+                        AND p.appointment_id = e.appointment_id
+                        AND (p.event_created_at, p.id) < (e.event_created_at, e.id))
+                ORDER BY e.event_created_at, e.id
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE stripe_webhook_event e
+            SET attempts = e.attempts + 1,
+                next_attempt_at = LOCALTIMESTAMP + make_interval(secs => :leaseSeconds)
+            FROM due
+            WHERE e.id = due.id
+            RETURNING e.id
+            """, nativeQuery = true)
+    List<String> claimBatch(@Param("batchSize") int batchSize, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Termine le traitement d'un événement.
+     *
+     * @param id          identifiant de l'événement
+     * @param status      {@code PROCESSED}, {@code IGNORED} ou {@code FAILED}
+     * @param processedAt date de fin de traitement
+     * @param error       message d'erreur, ou {@code null}
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE StripeWebhookEvent e SET e.status = :status, e.processedAt = :processedAt, e.lastError = :error
+            WHERE e.id = :id
+            """)
+    void markFinished(@Param("id") String id,
+                      @Param("status") WebhookEventStatus status,
+                      @Param("processedAt") LocalDateTime processedAt,
+                      @Param("error") String error);
+
+    /**
+     * Planifie un nouvel essai après un échec de traitement.
+     *
+     * @param id            identifiant de l'événement
+     * @param nextAttemptAt date du prochain essai
+     * @param error         message d'erreur
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StripeWebhookEvent e SET e.nextAttemptAt = :nextAttemptAt, e.lastError = :error WHERE e.id = :id")
+    void reschedule(@Param("id") String id,
+                    @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                    @Param("error") String error);
+
+    /**
+     * Compte les événements d'un statut.
+     *
+     * @param status statut recherché
+     * @return nombre d'événements
+     */
+    long countByStatus(WebhookEventStatus status);
+
+    /**
+     * Supprime les événements terminés reçus avant une date.
+     *
+     * @param cutoff date de réception limite (exclue)
+     * @return nombre de lignes supprimées
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            DELETE FROM StripeWebhookEvent e
+            WHERE e.status <> com.hairbook.entity.WebhookEventStatus.PENDING AND e.receivedAt < :cutoff
+            """)
+    int deleteFinishedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
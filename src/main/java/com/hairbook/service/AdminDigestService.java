@@ -0,0 +1,194 @@
+package com.hairbook.service;
+
+import com.hairbook.entity.AdminNotification;
+import com.hairbook.repository.AdminNotificationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service de regroupement des notifications destinées aux administrateurs.
+ * <p>
+ * Au lieu d'un email par événement ({@link AdminNotificationEvent}), les événements sont enregistrés
+ * ({@link AdminNotification}) dans la transaction qui les publie, puis envoyés en un seul email
+ * récapitulatif, classé par rubrique :
+ * <ul>
+ *   <li>dès que {@code app.admin-digest.max-events} événements sont en attente</li>
+ *   <li>ou lorsque le plus ancien événement attend depuis {@code app.admin-digest.max-delay-minutes} minutes</li>
+ * </ul>
+ * Les destinataires sont lus dans le paramètre du salon {@code ADMIN_NOTIFICATION_EMAILS}
+ * (adresses séparées par des virgules). Tant qu'il est vide, les événements restent en attente.
+ * <p>
+ * L'envoi est la tâche {@value #DIGEST_JOB} ({@link ScheduledJobService}, pool des notifications),
+ * déclenchée après chaque commit qui publie un événement et à intervalle régulier. Un récapitulatif
+ * contient au plus {@code app.admin-digest.max-events} événements ; un arriéré est envoyé en plusieurs
+ * récapitulatifs. Chacun est mis en file dans sa propre transaction, qui supprime les événements envoyés :
+ * un échec les laisse en attente pour l'exécution suivante, et un redémarrage n'en perd aucun.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AdminDigestService {
+
+    /** Paramètre du salon listant les destinataires des notifications administrateur. */
+    public static final String RECIPIENTS_SETTING = "ADMIN_NOTIFICATION_EMAILS";
+
+    /** Nom de la tâche d'envoi des récapitulatifs (verrou et administration). */
+    public static final String DIGEST_JOB = "admin-digest";
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    private final EmailService emailService;
+    private final AdminNotificationRepository adminNotificationRepository;
+    private final SalonSettingService salonSettingService;
+    private final ScheduledJobService scheduledJobService;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Nombre d'événements déclenchant l'envoi immédiat du récapitulatif. */
+    @Value("${app.admin-digest.max-events:50}")
+    private Integer maxEvents;
+
+    /** Attente maximale (en minutes) d'un événement avant l'envoi du récapitulatif. */
+    @Value("${app.admin-digest.max-delay-minutes:15}")
+    private Integer maxDelayMinutes;
+
+    private Counter eventCounter;
+    private Counter digestCounter;
+
+    @PostConstruct
+    void init() {
+        eventCounter = Counter.builder("admin.digest.events")
+                .description("Notifications administrateur enregistrées")
+                .register(meterRegistry);
+        digestCounter = Counter.builder("admin.digest.sent")
+                .description("Emails récapitulatifs envoyés aux administrateurs")
+                .register(meterRegistry);
+        scheduledJobService.register(new ScheduledJob(DIGEST_JOB, ScheduledJobService.NOTIFICATIONS_POOL,
+                Duration.ofMinutes(2), Duration.ZERO, Duration.ofMinutes(5), this::digest));
+    }
+
+    /**
+     * Enregistre un événement dans la transaction qui l'a publié : il n'existe que si elle est validée.
+     *
+     * @param event notification administrateur
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onAdminNotification(AdminNotificationEvent event) {
+        adminNotificationRepository.save(AdminNotification.builder()
+                .category(event.category())
+                .summary(event.summary())
+                .occurredAt(event.occurredAt())
+                .build());
+        eventCounter.increment();
+    }
+
+    /**
+     * Déclenche la tâche d'envoi après le commit de la transaction qui a publié un événement,
+     * sans attendre son exécution.
+     *
+     * @param event notification administrateur (déjà enregistrée)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAdminNotificationCommitted(AdminNotificationEvent event) {
+        scheduledJobService.run(DIGEST_JOB);
+    }
+
+    /**
+     * Déclenche la tâche d'envoi pour les événements qui ont assez attendu.
+     */
+    @Scheduled(fixedDelayString = "${app.admin-digest.check-interval-ms:60000}")
+    public void digestPending() {
+        scheduledJobService.run(DIGEST_JOB);
+    }
+
+    /**
+     * Envoie des récapitulatifs tant qu'assez d'événements sont en attente, ou que le plus ancien a
+     * assez attendu. S'arrête sans rien envoyer tant qu'aucun destinataire n'est configuré.
+     */
+    void digest() {
+        while (!Thread.currentThread().isInterrupted() && isDue()) {
+            Integer sent = transactionTemplate.execute(tx -> send());
+            if (sent == null || sent == 0) {
+                return;
+            }
+        }
+    }
+
+    private boolean isDue() {
+        if (adminNotificationRepository.count() >= maxEvents) {
+            return true;
+        }
+        LocalDateTime oldest = adminNotificationRepository.findOldestOccurredAt();
+        return oldest != null && !oldest.plusMinutes(maxDelayMinutes).isAfter(LocalDateTime.now());
+    }
+
+    /**
+     * Met en file un email récapitulatif des plus anciens événements en attente pour chaque
+     * administrateur, et supprime ces événements.
+     *
+     * @return nombre d'événements envoyés
+     */
+    private int send() {
+        List<String> recipients = Arrays.stream(salonSettingService.getSettingValue(RECIPIENTS_SETTING, "").split(","))
+                .map(String::trim)
+                .filter(address -> !address.isEmpty())
+                .toList();
+        if (recipients.isEmpty()) {
+            log.warn("{} admin notification(s) kept until setting {} is configured",
+                    adminNotificationRepository.count(), RECIPIENTS_SETTING);
+            return 0;
+        }
+
+        List<AdminNotification> events = adminNotificationRepository.lockPending(maxEvents);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        String subject = "Récapitulatif des notifications (" + events.size() + ")";
+        String body = buildBody(events);
+        for (String recipient : recipients) {
+            emailService.sendSimpleEmail(recipient, subject, body);
+        }
+        adminNotificationRepository.deleteAllInBatch(events);
+        digestCounter.increment();
+        log.info("Admin digest of {} notification(s) queued for {} recipient(s)", events.size(), recipients.size());
+        return events.size();
+    }
+
+    private static String buildBody(List<AdminNotification> events) {
+        Map<String, List<AdminNotification>> byCategory = new LinkedHashMap<>();
+        for (AdminNotification event : events) {
+            byCategory.computeIfAbsent(event.getCategory(), key -> new ArrayList<>()).add(event);
+        }
+
+        StringBuilder body = new StringBuilder(256 * events.size());
+        body.append(events.size()).append(" nouvelle(s) notification(s) depuis le dernier récapitulatif.\n");
+        byCategory.forEach((category, items) -> {
+            body.append("\n").append(category).append(" (").append(items.size()).append(")\n");
+            for (AdminNotification item : items) {
+                body.append("\n[").append(item.getOccurredAt().format(TIME_FORMATTER)).append("]\n")
+                        .append(item.getSummary()).append("\n");
+            }
+        });
+        body.append("\nVeuillez traiter ces éléments dans l'interface d'administration.");
+        return body.toString();
+    }
+}
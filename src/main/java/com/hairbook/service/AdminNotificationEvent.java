@@ -0,0 +1,26 @@
+package com.hairbook.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Événement destiné aux administrateurs du salon (demande de remboursement, annulation automatique...).
+ * <p>
+ * Il est enregistré dans la transaction qui le publie par {@link AdminDigestService},
+ * qui regroupe les événements en un email récapitulatif.
+ *
+ * @param category   rubrique du récapitulatif (ex : « Demandes de remboursement »)
+ * @param summary    description de l'événement (une ou plusieurs lignes)
+ * @param occurredAt date de l'événement
+ */
+public record AdminNotificationEvent(
+        String category,
+        String summary,
+        LocalDateTime occurredAt) {
+
+    /**
+     * Crée l'événement à la date courante.
+     */
+    public static AdminNotificationEvent of(String category, String summary) {
+        return new AdminNotificationEvent(category, summary, LocalDateTime.now());
+    }
+}
@@ -1,110 +1,187 @@
 package com.hairbook.service;
 
 
+import com.hairbook.repository.AppointmentExpiryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service pour gérer les tâches planifiées liées aux rendez-vous.
- * Notamment l'annulation automatique des rendez-vous non payés.
+ * Notamment l'annulation automatique des rendez-vous non payés,
+ * à l'expiration de leur réservation temporaire ({@link SlotHoldService}).
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AppointmentSchedulerService {
 
-    private final AppointmentRepository appointmentRepository;
-    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
     private final AuditService auditService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AppointmentExpiryRepository appointmentExpiryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledJobService scheduledJobService;
+
+    /** Nom de la tâche d'annulation automatique (verrou et administration). */
+    public static final String AUTO_CANCEL_JOB = "auto-cancel-unpaid";
+
+    /** Raison enregistrée sur les rendez-vous annulés faute de paiement. */
+    private static final String AUTO_CANCEL_REASON = "Aucun paiement reçu dans le délai imparti";
+
+    /** Raison enregistrée sur les rendez-vous annulés à l'expiration de leur réservation temporaire. */
+    private static final String HOLD_EXPIRED_REASON = "Paiement non effectué dans le délai de réservation";
+
+    /** Format des dates dans les notifications administrateur. */
+    private static final DateTimeFormatter AUTO_CANCEL_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    /** Ancienneté (en minutes) à partir de laquelle un rendez-vous PENDING non payé est annulé. */
+    @Value("${app.booking.auto-cancel.pending-minutes:15}")
+    private Integer pendingMinutes;
+
+    /** Nombre maximal de rendez-vous annulés par lot (une transaction par lot). */
+    @Value("${app.booking.auto-cancel.chunk-size:200}")
+    private Integer chunkSize;
+
+    /** Nombre maximal de lots traités par exécution. */
+    @Value("${app.booking.auto-cancel.max-chunks:50}")
+    private Integer maxChunks;
+
+    @PostConstruct
+    void registerJob() {
+        scheduledJobService.register(new ScheduledJob(AUTO_CANCEL_JOB, ScheduledJobService.MAINTENANCE_POOL,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofMinutes(10), this::cancelExpiredPendingAppointments));
+    }
 
     /**
-     * Annule automatiquement les rendez-vous PENDING dont le paiement a échoué
-     * et qui ont été créés il y a plus de 15 minutes.
+     * Annule un rendez-vous dont la réservation temporaire a expiré sans paiement réussi,
+     * puis expire sa session Stripe Checkout pour qu'elle ne puisse plus être payée.
+     * Appelé par {@link SlotHoldService} à l'instant de l'expiration.
+     * <p>
+     * L'annulation est une mise à jour conditionnelle ({@link AppointmentExpiryRepository#cancelIfUnpaid}) :
+     * un paiement validé en parallèle l'emporte, et seule l'instance qui annule effectivement
+     * le rendez-vous publie les événements, la notification et l'audit. Plusieurs instances peuvent
+     * ainsi suivre la même réservation (reconstruction au démarrage) sans doublon.
      *
-     * Exécuté toutes les 5 minutes.
+     * @param appointmentId identifiant du rendez-vous
+     * @return {@code true} si le rendez-vous a été annulé par cet appel
      */
-    @Scheduled(fixedRate = 300000) // Toutes les 5 minutes (300 000 ms)
-    @Transactional
-    public void cancelUnpaidAppointments() {
-        LocalDateTime fifteenMinutesAgo = LocalDateTime.now().minusMinutes(15);
-
-        // Trouver tous les paiements échoués créés il y a plus de 15 minutes
-        List<Payment> failedPayments = paymentRepository.findByStatus(PaymentStatus.FAILED);
-
-        for (Payment payment : failedPayments) {
-            Appointment appointment = payment.getAppointment();
-
-            // Vérifier si le rendez-vous est toujours PENDING et créé il y a plus de 15 min
-            if (appointment.getStatus() == AppointmentStatus.PENDING
-                    && appointment.getCreatedAt().isBefore(fifteenMinutesAgo)) {
-
-                // Annuler le rendez-vous
-                appointment.cancel("Paiement non effectué dans les 15 minutes");
-                appointmentRepository.save(appointment);
-
-                log.info("Rendez-vous {} annulé automatiquement - paiement non effectué",
-                        appointment.getId());
-
-                // Audit log
-                auditService.logAction(
-                        appointment.getUser().getEmail(),
-                        "APPOINTMENT_AUTO_CANCELLED",
-                        "Appointment",
-                        appointment.getId(),
-                        java.util.Map.of(
-                                "reason", "Paiement non effectué dans les 15 minutes",
-                                "paymentStatus", payment.getStatus().toString()
-                        )
-                );
-            }
+    public boolean expireHold(UUID appointmentId) {
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(tx -> cancelUnpaidHold(appointmentId)))) {
+            return false;
         }
+        paymentService.expireOpenCheckoutSession(appointmentId);
+        return true;
+    }
+
+    private boolean cancelUnpaidHold(UUID appointmentId) {
+        if (appointmentExpiryRepository.cancelIfUnpaid(appointmentId, HOLD_EXPIRED_REASON).isEmpty()) {
+            return false;
+        }
+        Appointment appointment = appointmentExpiryRepository.findAllWithStaffByIdIn(List.of(appointmentId)).get(0);
+        eventPublisher.publishEvent(AppointmentSlotChangedEvent.of(appointment));
+
+        log.info("Rendez-vous {} annulé à l'expiration de sa réservation temporaire", appointmentId);
+        eventPublisher.publishEvent(autoCancelNotification(appointment, HOLD_EXPIRED_REASON));
+
+        // Audit log
+        auditService.logAction(
+                appointment.getUser().getEmail(),
+                "APPOINTMENT_AUTO_CANCELLED",
+                "Appointment",
+                appointmentId,
+                Map.of("reason", HOLD_EXPIRED_REASON)
+        );
+        return true;
     }
 
     /**
-     * Annule automatiquement les rendez-vous PENDING sans paiement associé
-     * créés il y a plus de 15 minutes.
+     * Annule automatiquement les rendez-vous PENDING sans paiement réussi
+     * créés il y a plus de {@code app.booking.auto-cancel.pending-minutes} minutes.
+     * <p>
+     * Balayage de sécurité, rarement utile : {@link SlotHoldService} libère le créneau à l'échéance
+     * et reconstruit ses réservations au démarrage.
+     * <p>
+     * Traitement ensembliste et borné : chaque lot est annulé par un seul
+     * {@code UPDATE ... RETURNING} dans sa propre transaction, suivi d'une insertion
+     * groupée des logs d'audit ; au plus {@code max-chunks} lots par exécution.
      *
-     * Exécuté toutes les 5 minutes.
+     * Exécuté toutes les heures dans le pool de maintenance, par une seule instance
+     * (voir {@link ScheduledJobService}).
      */
-    @Scheduled(fixedRate = 300000) // Toutes les 5 minutes
-    @Transactional
+    @Scheduled(fixedDelayString = "${app.booking.auto-cancel.interval-ms:3600000}")
     public void cancelPendingAppointmentsWithoutPayment() {
-        LocalDateTime fifteenMinutesAgo = LocalDateTime.now().minusMinutes(15);
-
-        // Trouver tous les rendez-vous PENDING créés il y a plus de 15 minutes
-        List<Appointment> pendingAppointments = appointmentRepository
-                .findByStatusAndCreatedAtBefore(AppointmentStatus.PENDING, fifteenMinutesAgo);
-
-        for (Appointment appointment : pendingAppointments) {
-            // Vérifier s'il n'y a pas de paiement réussi
-            Optional<Payment> paymentOpt = paymentRepository.findByAppointmentId(appointment.getId());
-
-            boolean hasSuccessfulPayment = paymentOpt.isPresent()
-                    && paymentOpt.get().getStatus() == PaymentStatus.SUCCEEDED;
-
-            if (!hasSuccessfulPayment) {
-                appointment.cancel("Aucun paiement reçu dans les 15 minutes");
-                appointmentRepository.save(appointment);
-
-                log.info("Rendez-vous {} annulé automatiquement - aucun paiement",
-                        appointment.getId());
-
-                // Audit log
-                auditService.logAction(
-                        appointment.getUser().getEmail(),
-                        "APPOINTMENT_AUTO_CANCELLED",
-                        "Appointment",
-                        appointment.getId(),
-                        java.util.Map.of("reason", "Aucun paiement reçu dans les 15 minutes")
-                );
+        scheduledJobService.run(AUTO_CANCEL_JOB);
+    }
+
+    private void cancelExpiredPendingAppointments() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(pendingMinutes);
+
+        long eligible = appointmentExpiryRepository.countExpiredPending(cutoff);
+        meterRegistry.counter("appointments.auto_cancel.eligible").increment(eligible);
+
+        int cancelled = 0;
+        for (int chunk = 0; eligible > 0 && chunk < maxChunks; chunk++) {
+            Integer count = transactionTemplate.execute(status -> cancelChunk(cutoff));
+            cancelled += count;
+            if (count < chunkSize) {
+                break;
             }
         }
+
+        meterRegistry.counter("appointments.auto_cancel.cancelled").increment(cancelled);
+        sample.stop(meterRegistry.timer("appointments.auto_cancel.duration"));
+        if (cancelled > 0) {
+            log.info("{} rendez-vous annulés automatiquement - aucun paiement ({} éligibles)", cancelled, eligible);
+        }
+    }
+
+    /**
+     * Annule un lot de rendez-vous expirés, publie les événements de créneau et les notifications
+     * administrateur, et journalise l'audit.
+     *
+     * @param cutoff date de création limite
+     * @return nombre de rendez-vous annulés
+     */
+    private int cancelChunk(LocalDateTime cutoff) {
+        List<UUID> ids = appointmentExpiryRepository.cancelExpiredPending(cutoff, AUTO_CANCEL_REASON, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        for (Appointment appointment : appointmentExpiryRepository.findAllWithStaffByIdIn(ids)) {
+            eventPublisher.publishEvent(AppointmentSlotChangedEvent.of(appointment));
+            eventPublisher.publishEvent(autoCancelNotification(appointment, AUTO_CANCEL_REASON));
+        }
+
+        Map<String, Object> details = Map.of("reason", AUTO_CANCEL_REASON);
+        auditService.logSystemActions("APPOINTMENT_AUTO_CANCELLED", "Appointment",
+                ids.stream().collect(Collectors.toMap(Function.identity(), id -> details)));
+        return ids.size();
+    }
+
+    private static AdminNotificationEvent autoCancelNotification(Appointment appointment, String reason) {
+        return AdminNotificationEvent.of("Annulations automatiques", String.format("Rendez-vous du %s avec %s\nRaison: %s",
+                LocalDateTime.of(appointment.getAppointmentDate(), appointment.getStartTime()).format(AUTO_CANCEL_FORMATTER),
+                appointment.getStaffMember().getFullName(),
+                reason));
     }
 }
@@ -1,14 +1,20 @@
 package com.hairbook.service;
 
 
+import com.hairbook.repository.AppointmentReminderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -32,9 +38,14 @@ public class AppointmentService {
     private final ServiceRepository serviceRepository;
     private final StaffMemberRepository staffMemberRepository;
     private final PaymentRepository paymentRepository;
+    private final AppointmentReminderRepository appointmentReminderRepository;
     private final AppointmentMapper appointmentMapper;
     private final EmailService emailService;
     private final AuditService auditService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** SQLSTATE PostgreSQL levé par une contrainte {@code EXCLUDE} (chevauchement de rendez-vous). */
+    private static final String EXCLUSION_VIOLATION = "23P01";
 
     /**
      * Délai minimal (en heures) à respecter entre maintenant et l'heure de début d'un rendez-vous.
@@ -60,7 +71,6 @@ public class AppointmentService {
      *                                  si le créneau est invalide ou en conflit
      */
     @Transactional
-    @CacheEvict(value = "availableSlots", allEntries = true)
     public AppointmentDto createAppointment(CreateAppointmentRequest request, String userEmail) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
@@ -88,8 +98,9 @@ public class AppointmentService {
                 .notes(request.getNotes())
                 .build();
 
-        appointment = appointmentRepository.save(appointment);
+        appointment = saveCheckingOverlap(appointment);
         log.info("Appointment created: {} for user {}", appointment.getId(), userEmail);
+        eventPublisher.publishEvent(AppointmentSlotChangedEvent.of(appointment));
 
         // Audit log
         auditService.logAction(userEmail, "APPOINTMENT_CREATED", "Appointment", appointment.getId(),
@@ -161,7 +172,6 @@ public class AppointmentService {
      * @throws IllegalArgumentException si non autorisé, non modifiable, entités introuvables ou conflit de créneau
      */
     @Transactional
-    @CacheEvict(value = "availableSlots", allEntries = true)
     public AppointmentDto updateAppointment(UUID id, UpdateAppointmentRequest request, String userEmail) {
         Appointment appointment = appointmentRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Appointment not found"));
@@ -176,6 +186,10 @@ public class AppointmentService {
 
         validateAppointmentTime(request.getStartTime());
 
+        UUID previousStaffId = appointment.getStaffMember().getId();
+        LocalDate previousDate = appointment.getAppointmentDate();
+        LocalTime previousStartTime = appointment.getStartTime();
+
         if (request.getServiceId() != null) {
             be.salon.coiffurereservation.entity.Service service = serviceRepository.findById(request.getServiceId())
                     .orElseThrow(() -> new IllegalArgumentException("Service not found"));
@@ -201,8 +215,13 @@ public class AppointmentService {
             appointment.setNotes(request.getNotes());
         }
 
-        appointment = appointmentRepository.save(appointment);
+        appointment = saveCheckingOverlap(appointment);
+        if (!appointment.getAppointmentDate().equals(previousDate) || !appointment.getStartTime().equals(previousStartTime)) {
+            // Les rappels déjà envoyés portaient sur l'ancienne heure : le nouveau créneau doit être rappelé
+            appointmentReminderRepository.deleteByAppointmentId(id);
+        }
         log.info("Appointment updated: {}", id);
+        eventPublisher.publishEvent(AppointmentSlotChangedEvent.moved(appointment, previousStaffId, previousDate));
 
         return appointmentMapper.toDto(appointment);
     }
@@ -216,7 +235,6 @@ public class AppointmentService {
      * @throws IllegalArgumentException si non autorisé, non annulable ou trop tard
      */
     @Transactional
-    @CacheEvict(value = "availableSlots", allEntries = true)
     public void cancelAppointment(UUID id, CancelAppointmentRequest request, String userEmail) {
         Appointment appointment = appointmentRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Appointment not found"));
@@ -241,6 +259,7 @@ public class AppointmentService {
         appointment.cancel(cancellationReason);
         appointmentRepository.save(appointment);
         log.info("Appointment cancelled: {}", id);
+        eventPublisher.publishEvent(AppointmentSlotChangedEvent.of(appointment));
 
         // Audit log
         auditService.logAction(userEmail, "APPOINTMENT_CANCELLED", "Appointment", id,
@@ -330,4 +349,29 @@ public class AppointmentService {
             throw new IllegalArgumentException("This time slot is no longer available");
         }
     }
+
+    /**
+     * Enregistre immédiatement un rendez-vous et traduit la violation de la contrainte
+     * d'exclusion {@code excl_appointment_staff_overlap} en erreur métier.
+     * <p>
+     * {@link #checkForConflicts} couvre le cas courant ; la contrainte en base tranche entre
+     * deux réservations concurrentes ayant passé la vérification au même moment.
+     *
+     * @param appointment rendez-vous à enregistrer
+     * @return rendez-vous enregistré
+     * @throws IllegalArgumentException si le créneau a été pris entre-temps
+     */
+    private Appointment saveCheckingOverlap(Appointment appointment) {
+        try {
+            return appointmentRepository.saveAndFlush(appointment);
+        } catch (DataIntegrityViolationException e) {
+            if (NestedExceptionUtils.getMostSpecificCause(e) instanceof SQLException sqlException
+                    && EXCLUSION_VIOLATION.equals(sqlException.getSQLState())) {
+                log.info("Concurrent booking rejected for staff {} on {} at {}",
+                        appointment.getStaffMember().getId(), appointment.getAppointmentDate(), appointment.getStartTime());
+                throw new IllegalArgumentException("This time slot is no longer available", e);
+            }
+            throw e;
+        }
+    }
 }
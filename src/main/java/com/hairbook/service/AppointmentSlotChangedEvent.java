@@ -0,0 +1,62 @@
+package com.hairbook.service;
+
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentStatus;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Événement publié lorsqu'un rendez-vous occupe, déplace ou libère un créneau.
+ * <p>
+ * Il est consommé après le commit de la transaction ({@code @TransactionalEventListener})
+ * afin de mettre à jour les structures en mémoire dérivées des rendez-vous.
+ *
+ * @param appointmentId   identifiant du rendez-vous
+ * @param staffId         membre du staff après modification
+ * @param date            date du rendez-vous après modification
+ * @param startTime       heure de début
+ * @param endTime         heure de fin
+ * @param active          {@code true} si le rendez-vous occupe encore le créneau (PENDING ou CONFIRMED)
+ * @param pending         {@code true} si le rendez-vous est en attente de paiement (PENDING)
+ * @param previousStaffId membre du staff avant déplacement ({@code null} si inchangé)
+ * @param previousDate    date avant déplacement ({@code null} si inchangée)
+ */
+public record AppointmentSlotChangedEvent(
+        UUID appointmentId,
+        UUID staffId,
+        LocalDate date,
+        LocalTime startTime,
+        LocalTime endTime,
+        boolean active,
+        boolean pending,
+        UUID previousStaffId,
+        LocalDate previousDate) {
+
+    /**
+     * Crée l'événement pour un rendez-vous créé, confirmé ou annulé.
+     */
+    public static AppointmentSlotChangedEvent of(Appointment appointment) {
+        return moved(appointment, null, null);
+    }
+
+    /**
+     * Crée l'événement pour un rendez-vous déplacé (staff et/ou date).
+     */
+    public static AppointmentSlotChangedEvent moved(Appointment appointment, UUID previousStaffId,
+                                                    LocalDate previousDate) {
+        boolean pending = appointment.getStatus() == AppointmentStatus.PENDING;
+        boolean active = pending || appointment.getStatus() == AppointmentStatus.CONFIRMED;
+        return new AppointmentSlotChangedEvent(
+                appointment.getId(),
+                appointment.getStaffMember().getId(),
+                appointment.getAppointmentDate(),
+                appointment.getStartTime(),
+                appointment.getEndTime(),
+                active,
+                pending,
+                previousStaffId,
+                previousDate);
+    }
+}
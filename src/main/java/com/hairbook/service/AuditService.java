@@ -90,6 +90,30 @@ public class AuditService {
                 action, entityType, entityId);
     }
 
+    /**
+     * Enregistre en lot une même action système pour plusieurs entités.
+     * Les insertions sont regroupées par Hibernate ({@code hibernate.jdbc.batch_size}).
+     *
+     * @param action            type d'action
+     * @param entityType        type d'entité concernée
+     * @param detailsByEntityId détails additionnels par identifiant d'entité
+     */
+    @Transactional
+    public void logSystemActions(String action, String entityType, Map<UUID, Map<String, Object>> detailsByEntityId) {
+        List<AuditLog> auditLogs = detailsByEntityId.entrySet().stream()
+                .map(entry -> AuditLog.builder()
+                        .action(action)
+                        .entityType(entityType)
+                        .entityId(entry.getKey())
+                        .details(entry.getValue())
+                        .build())
+                .toList();
+
+        auditLogRepository.saveAll(auditLogs);
+        log.info("System audit logs created: action={}, entityType={}, count={}",
+                action, entityType, auditLogs.size());
+    }
+
     /**
      * Récupère les logs d'audit d'un utilisateur spécifique.
      *
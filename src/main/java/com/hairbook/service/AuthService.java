@@ -3,6 +3,7 @@ package com.hairbook.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -72,6 +73,8 @@ public class AuthService {
                 .firstName(request.getFirstName())
                 .lastName(request.getLastName())
                 .phone(request.getPhone())
+                // Langue de la page d'inscription, reprise pour tous les emails envoyés au client
+                .preferredLocale(LocaleContextHolder.getLocale().getLanguage())
                 .roles(roles)
                 .emailVerified(false)
                 .active(true)
@@ -83,7 +86,7 @@ public class AuthService {
         log.info("New user registered: {}", user.getEmail());
 
         // Envoyer l'email de bienvenue avec lien de vérification
-        emailService.sendWelcomeEmail(user.getEmail(), user.getFirstName(), verificationToken);
+        emailService.sendWelcomeEmail(user, verificationToken);
 
         // Audit log
         auditService.logAction(user.getEmail(), "USER_REGISTERED", "User", user.getId(),
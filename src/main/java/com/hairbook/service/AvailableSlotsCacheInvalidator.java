@@ -0,0 +1,63 @@
+package com.hairbook.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Invalidation ciblée du cache {@code availableSlots}.
+ * <p>
+ * Remplace l'éviction globale ({@code allEntries = true}) faite à chaque réservation :
+ * seules les entrées ({@link SlotCacheKey}) du membre du staff et de la ou des dates
+ * concernées sont supprimées, après commit et une fois le {@link SlotAvailabilityIndex} à jour.
+ * <ul>
+ *   <li>Création, annulation : staff et date du rendez-vous</li>
+ *   <li>Déplacement : ancienne et nouvelle date (et ancien staff le cas échéant)</li>
+ *   <li>Horaires de travail, congé : toutes les dates du staff concerné</li>
+ *   <li>Fermeture globale du salon : tout le cache</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+public class AvailableSlotsCacheInvalidator {
+
+    private final SlotService slotService;
+
+    /**
+     * Invalide les créneaux du staff aux dates touchées par un changement de rendez-vous.
+     *
+     * @param event rendez-vous créé, déplacé ou annulé
+     */
+    @TransactionalEventListener
+    public void onAppointmentChanged(AppointmentSlotChangedEvent event) {
+        evict(key -> key.matches(event.staffId(), event.date()));
+        if (event.previousStaffId() != null || event.previousDate() != null) {
+            UUID previousStaffId = Objects.requireNonNullElse(event.previousStaffId(), event.staffId());
+            LocalDate previousDate = Objects.requireNonNullElse(event.previousDate(), event.date());
+            evict(key -> key.matches(previousStaffId, previousDate));
+        }
+    }
+
+    /**
+     * Invalide les créneaux d'un staff (ou de tout le salon) lorsque son planning change.
+     *
+     * @param event changement de planning
+     */
+    @TransactionalEventListener
+    public void onStaffScheduleChanged(StaffScheduleChangedEvent event) {
+        if (event.isSalonWide()) {
+            evict(key -> true);
+        } else {
+            evict(key -> key.staffId().equals(event.staffId()));
+        }
+    }
+
+    private void evict(Predicate<SlotCacheKey> predicate) {
+        slotService.evictAvailableSlots(predicate);
+    }
+}
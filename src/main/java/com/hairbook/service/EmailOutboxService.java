@@ -0,0 +1,497 @@
+package com.hairbook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hairbook.entity.EmailOutbox;
+import com.hairbook.entity.EmailOutboxStatus;
+import com.hairbook.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Boîte d'envoi transactionnelle des emails.
+ * <p>
+ * {@link #enqueue} enregistre l'email dans la transaction de l'appelant : un email n'est envoyé
+ * que si l'action métier est validée, et les emails en file survivent à un redémarrage.
+ * L'envoi SMTP est fait en arrière-plan par la tâche {@value #DISPATCH_JOB} :
+ * <ul>
+ *   <li>Déclenchée après chaque commit ayant mis un email en file, et à intervalle régulier</li>
+ *   <li>Réserve les emails par lots ({@code FOR UPDATE SKIP LOCKED}), dans la limite de la place
+ *       libre de la file d'envoi</li>
+ *   <li>Envoie dans un pool dédié et borné ({@code app.mail.executor.*}), éventuellement sur threads
+ *       virtuels : un pic d'emails ne consomme ni la mémoire ni les threads du trafic HTTP. Un email
+ *       refusé par le pool file pleine reste simplement en base pour le passage suivant</li>
+ *   <li>Regroupe les emails par domaine destinataire et envoie chaque lot sur une connexion SMTP
+ *       réutilisée ({@link SmtpTransportPool}), avec un nombre de lots simultanés borné par domaine</li>
+ *   <li>Limite le débit à {@code app.mail.max-per-second} emails/s</li>
+ *   <li>Réessaie les échecs avec un délai doublé à chaque tentative, puis abandonne (statut FAILED)</li>
+ *   <li>Efface le contenu d'un email dès qu'il est envoyé ou abandonné (un email de création de compte
+ *       porte un mot de passe temporaire), puis purge la ligne après {@code app.mail.outbox.retention-days}</li>
+ *   <li>Livraison au moins une fois : un email réservé par une instance arrêtée redevient disponible</li>
+ *   <li>Métriques Micrometer : {@code mail.outbox.enqueued}, {@code mail.outbox.sent},
+ *       {@code mail.outbox.retried}, {@code mail.outbox.failed}, {@code mail.outbox.send},
+ *       {@code mail.outbox.pending}, ainsi que l'occupation du pool ({@code mail.executor}),
+ *       ses refus ({@code mail.executor.rejected}), l'attente en file ({@code mail.executor.queue.wait})
+ *       et les lots rendus faute de place pour leur domaine ({@code mail.smtp.domain.throttled})</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxService {
+
+    /** Nom de la tâche d'envoi (verrou et administration). */
+    public static final String DISPATCH_JOB = "email-outbox-dispatch";
+
+    /** Nom de la tâche de purge des emails envoyés ou abandonnés. */
+    public static final String PURGE_JOB = "email-outbox-purge";
+
+    /**
+     * Attente maximale d'une place d'envoi pour un domaine avant de rendre le lot : courte, pour ne pas
+     * immobiliser un thread d'envoi qui peut servir les autres domaines.
+     */
+    private static final Duration DOMAIN_WAIT = Duration.ofMillis(100);
+
+    /** Délai avant qu'un lot rendu faute de place pour son domaine puisse être réservé à nouveau. */
+    private static final Duration DOMAIN_REQUEUE_DELAY = Duration.ofSeconds(5);
+
+    /** Longueur maximale du message d'erreur conservé. */
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final SmtpTransportPool smtpTransportPool;
+    private final ScheduledJobService scheduledJobService;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Adresse expéditrice utilisée pour tous les emails.
+     * Valeur par défaut: {@code noreply@salon.be}.
+     */
+    @Value("${spring.mail.username:noreply@salon.be}")
+    private String fromEmail;
+
+    /** Nombre d'emails réservés par lot. */
+    @Value("${app.mail.outbox.batch-size:50}")
+    private Integer batchSize;
+
+    /** Durée (en secondes) de la réservation d'un lot ; doit couvrir l'envoi du lot entier. */
+    @Value("${app.mail.outbox.lease-seconds:300}")
+    private Integer leaseSeconds;
+
+    /** Nombre maximal de tentatives avant abandon. */
+    @Value("${app.mail.outbox.max-attempts:8}")
+    private Integer maxAttempts;
+
+    /** Délai (en secondes) avant le premier nouvel essai, doublé à chaque échec. */
+    @Value("${app.mail.outbox.retry-base-seconds:30}")
+    private Integer retryBaseSeconds;
+
+    /** Délai maximal (en secondes) entre deux essais. */
+    @Value("${app.mail.outbox.retry-max-seconds:3600}")
+    private Integer retryMaxSeconds;
+
+    /** Durée (en jours) de conservation des emails envoyés ou abandonnés (sans leur contenu). */
+    @Value("${app.mail.outbox.retention-days:7}")
+    private Integer retentionDays;
+
+    /** Nombre de threads d'envoi SMTP. */
+    @Value("${app.mail.executor.threads:4}")
+    private Integer executorThreads;
+
+    /** Capacité de la file d'attente du pool d'envoi (en lots). */
+    @Value("${app.mail.executor.queue-capacity:50}")
+    private Integer executorQueueCapacity;
+
+    /** Envoi sur threads virtuels (le nombre d'envois simultanés reste borné). */
+    @Value("${app.mail.executor.virtual-threads:false}")
+    private Boolean executorVirtualThreads;
+
+    /** Nombre maximal d'emails envoyés sur une même connexion SMTP, par lot. */
+    @Value("${app.mail.smtp.batch-size:20}")
+    private Integer smtpBatchSize;
+
+    /** Nombre maximal de lots envoyés simultanément vers un même domaine destinataire. */
+    @Value("${app.mail.smtp.per-domain-concurrency:2}")
+    private Integer perDomainConcurrency;
+
+    /** Nombre maximal d'emails envoyés par seconde. */
+    @Value("${app.mail.max-per-second:10}")
+    private Integer maxPerSecond;
+
+    private ThreadPoolExecutor mailExecutor;
+    /**
+     * Places d'envoi par domaine destinataire. Les domaines viennent des inscriptions : une place n'est
+     * gardée que tant qu'un lot la détient (valeurs faibles), une place libre ne retient aucune entrée.
+     */
+    private final Cache<String, Semaphore> domainLimits = Caffeine.newBuilder().weakValues().build();
+    private SendRateLimiter rateLimiter;
+    private final AtomicLong pending = new AtomicLong();
+    private Counter enqueuedCounter;
+    private Counter sentCounter;
+    private Counter retriedCounter;
+    private Counter failedCounter;
+    private Timer sendTimer;
+    private Counter rejectedCounter;
+    private Timer queueWaitTimer;
+    private Counter domainThrottledCounter;
+
+    @PostConstruct
+    void init() {
+        ThreadFactory threadFactory = executorVirtualThreads
+                ? Thread.ofVirtual().name("mail-sender-", 1).factory()
+                : Thread.ofPlatform().name("mail-sender-", 1).factory();
+        mailExecutor = new ThreadPoolExecutor(executorThreads, executorThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(executorQueueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(meterRegistry, mailExecutor, "mail.executor");
+        rateLimiter = new SendRateLimiter(maxPerSecond);
+        enqueuedCounter = Counter.builder("mail.outbox.enqueued")
+                .description("Emails mis en file")
+                .register(meterRegistry);
+        sentCounter = Counter.builder("mail.outbox.sent")
+                .description("Emails envoyés")
+                .register(meterRegistry);
+        retriedCounter = Counter.builder("mail.outbox.retried")
+                .description("Envois échoués planifiés pour un nouvel essai")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("mail.outbox.failed")
+                .description("Emails abandonnés après le nombre maximal de tentatives")
+                .register(meterRegistry);
+        sendTimer = Timer.builder("mail.outbox.send")
+                .description("Durée d'envoi SMTP d'un email")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("mail.executor.rejected")
+                .description("Emails refusés par le pool d'envoi (file pleine), laissés en base")
+                .register(meterRegistry);
+        queueWaitTimer = Timer.builder("mail.executor.queue.wait")
+                .description("Attente d'un email dans la file du pool d'envoi")
+                .register(meterRegistry);
+        domainThrottledCounter = Counter.builder("mail.smtp.domain.throttled")
+                .description("Emails rendus à la base faute de place d'envoi pour leur domaine")
+                .register(meterRegistry);
+        Gauge.builder("mail.outbox.pending", pending, AtomicLong::get)
+                .description("Emails en attente d'envoi (au dernier passage du dispatcher)")
+                .register(meterRegistry);
+        scheduledJobService.register(new ScheduledJob(DISPATCH_JOB, ScheduledJobService.NOTIFICATIONS_POOL,
+                Duration.ofMinutes(2), Duration.ZERO, Duration.ofMinutes(10), this::dispatch));
+        scheduledJobService.register(new ScheduledJob(PURGE_JOB, ScheduledJobService.MAINTENANCE_POOL,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofMinutes(5), this::deleteFinished));
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Les emails encore en file redeviennent disponibles à l'expiration de leur réservation
+        mailExecutor.shutdown();
+        if (!mailExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+            mailExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Met un email texte en file dans la transaction courante (ou dans une nouvelle transaction).
+     * L'envoi est déclenché après le commit, sans attendre le serveur SMTP.
+     *
+     * @param to      destinataire
+     * @param subject sujet de l'email
+     * @param body    corps texte de l'email
+     */
+    @Transactional
+    public void enqueue(String to, String subject, String body) {
+        enqueue(to, subject, body, null);
+    }
+
+    /**
+     * Met un email rendu (parties texte et HTML) en file dans la transaction courante.
+     *
+     * @param to    destinataire
+     * @param email email rendu par {@link EmailTemplateService}
+     */
+    @Transactional
+    public void enqueue(String to, RenderedEmail email) {
+        enqueue(to, email.subject(), email.text(), email.html());
+    }
+
+    private void enqueue(String to, String subject, String body, String htmlBody) {
+        emailOutboxRepository.save(EmailOutbox.builder()
+                .recipient(to)
+                .subject(subject)
+                .body(body)
+                .htmlBody(htmlBody)
+                .nextAttemptAt(LocalDateTime.now())
+                .build());
+        enqueuedCounter.increment();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                scheduledJobService.run(DISPATCH_JOB);
+            }
+        });
+    }
+
+    /**
+     * Envoie les emails en attente dont l'échéance est passée (nouveaux essais, emails d'une
+     * instance arrêtée, commits dont le déclenchement a été sauté).
+     */
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:10000}")
+    public void dispatchPending() {
+        scheduledJobService.run(DISPATCH_JOB);
+    }
+
+    /**
+     * Purge chaque nuit les emails envoyés ou abandonnés depuis plus de {@code app.mail.outbox.retention-days} jours.
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void purgeFinished() {
+        scheduledJobService.run(PURGE_JOB);
+    }
+
+    private void dispatch() {
+        int submitted = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int capacity = Math.min(batchSize, mailExecutor.getQueue().remainingCapacity() * smtpBatchSize);
+            if (capacity == 0) {
+                break;
+            }
+            List<UUID> ids = emailOutboxRepository.claimBatch(capacity, leaseSeconds);
+            Map<String, List<EmailOutbox>> byDomain = emailOutboxRepository.findAllById(ids).stream()
+                    .collect(Collectors.groupingBy(email -> domainOf(email.getRecipient())));
+            boolean saturated = false;
+            for (Map.Entry<String, List<EmailOutbox>> entry : byDomain.entrySet()) {
+                List<EmailOutbox> emails = entry.getValue();
+                for (int from = 0; from < emails.size(); from += smtpBatchSize) {
+                    List<EmailOutbox> batch = emails.subList(from, Math.min(from + smtpBatchSize, emails.size()));
+                    if (submit(entry.getKey(), batch)) {
+                        submitted += batch.size();
+                    } else {
+                        saturated = true;
+                    }
+                }
+            }
+            if (saturated || ids.size() < capacity) {
+                break;
+            }
+        }
+        pending.set(emailOutboxRepository.countByStatus(EmailOutboxStatus.PENDING));
+        if (submitted > 0) {
+            log.info("Email outbox: {} email(s) submitted for sending, {} pending", submitted, pending.get());
+        }
+    }
+
+    /**
+     * Confie un lot d'emails d'un même domaine au pool d'envoi. Si le pool refuse (file pleine ou arrêt),
+     * les réservations sont libérées et les emails restent en base pour un passage suivant.
+     *
+     * @return {@code false} si le pool a refusé le lot
+     */
+    private boolean submit(String domain, List<EmailOutbox> batch) {
+        long queuedAt = System.nanoTime();
+        try {
+            mailExecutor.execute(() -> {
+                queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    sendBatch(domain, batch);
+                } catch (RuntimeException e) {
+                    // Emails non traités : rendus par sendBatch si possible, sinon à l'expiration de leur réservation
+                    log.error("Unexpected error while sending {} email(s) to {}", batch.size(), domain, e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            releaseClaims(batch);
+            rejectedCounter.increment(batch.size());
+            return false;
+        }
+    }
+
+    /**
+     * Envoie un lot d'emails d'un même domaine sur une connexion SMTP réutilisée,
+     * dans la limite de {@code app.mail.smtp.per-domain-concurrency} lots simultanés par domaine : un lot
+     * dont le domaine est saturé est rendu à la base, sans attendre, pour un passage suivant.
+     * Le résultat de chaque email est enregistré individuellement. Sur une erreur inattendue, l'email en
+     * cause suit la politique de nouvel essai et les emails suivants du lot sont rendus immédiatement.
+     */
+    private void sendBatch(String domain, List<EmailOutbox> batch) {
+        Semaphore domainLimit = domainLimits.get(domain, key -> new Semaphore(perDomainConcurrency));
+        try {
+            if (!domainLimit.tryAcquire(DOMAIN_WAIT.toMillis(), TimeUnit.MILLISECONDS)) {
+                releaseClaims(batch, LocalDateTime.now().plus(DOMAIN_REQUEUE_DELAY));
+                domainThrottledCounter.increment(batch.size());
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        Transport transport = null;
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                EmailOutbox email = batch.get(i);
+                if (Thread.currentThread().isInterrupted()) {
+                    // Les emails restants redeviennent disponibles à l'expiration de leur réservation
+                    return;
+                }
+                try {
+                    rateLimiter.acquire();
+                    if (transport == null) {
+                        transport = smtpTransportPool.borrow();
+                    }
+                    MimeMessage message = toMimeMessage(email);
+                    long start = System.nanoTime();
+                    transport.sendMessage(message, message.getAllRecipients());
+                    sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    emailOutboxRepository.markSent(email.getId(), LocalDateTime.now());
+                    sentCounter.increment();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (SendFailedException e) {
+                    // Destinataire refusé : la connexion reste utilisable
+                    recordFailure(email, e);
+                } catch (MessagingException | IllegalStateException e) {
+                    recordFailure(email, e);
+                    if (transport != null) {
+                        smtpTransportPool.release(transport, false);
+                        transport = null;
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Unexpected error while sending email {} to {}", email.getId(), email.getRecipient(), e);
+                    if (transport != null) {
+                        smtpTransportPool.release(transport, false);
+                        transport = null;
+                    }
+                    releaseClaimsQuietly(batch.subList(i + 1, batch.size()));
+                    recordFailure(email, e);
+                    return;
+                }
+            }
+        } finally {
+            if (transport != null) {
+                smtpTransportPool.release(transport, true);
+            }
+            domainLimit.release();
+        }
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage message = new MimeMessage(smtpTransportPool.getSession());
+        boolean multipart = email.getHtmlBody() != null;
+        MimeMessageHelper helper = new MimeMessageHelper(message, multipart, StandardCharsets.UTF_8.name());
+        helper.setFrom(fromEmail);
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        if (multipart) {
+            helper.setText(email.getBody(), email.getHtmlBody());
+        } else {
+            helper.setText(email.getBody());
+        }
+        message.saveChanges();
+        return message;
+    }
+
+    private void releaseClaims(List<EmailOutbox> emails) {
+        releaseClaims(emails, LocalDateTime.now());
+    }
+
+    private void releaseClaims(List<EmailOutbox> emails, LocalDateTime availableAt) {
+        for (EmailOutbox email : emails) {
+            emailOutboxRepository.releaseClaim(email.getId(), availableAt);
+        }
+    }
+
+    /**
+     * Libère des réservations en ignorant les erreurs (base indisponible) : les emails redeviennent
+     * alors disponibles à l'expiration de leur réservation.
+     */
+    private void releaseClaimsQuietly(List<EmailOutbox> emails) {
+        try {
+            releaseClaims(emails);
+        } catch (RuntimeException e) {
+            log.warn("Could not release {} email claim(s): {}", emails.size(), e.getMessage());
+        }
+    }
+
+    private static String domainOf(String recipient) {
+        return recipient.substring(recipient.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private void recordFailure(EmailOutbox email, Exception e) {
+        String error = e.getMessage() != null && e.getMessage().length() > MAX_ERROR_LENGTH
+                ? e.getMessage().substring(0, MAX_ERROR_LENGTH)
+                : e.getMessage();
+        if (email.getAttempts() >= maxAttempts) {
+            emailOutboxRepository.markFailed(email.getId(), LocalDateTime.now(), error);
+            failedCounter.increment();
+            log.error("Email {} to {} abandoned after {} attempt(s)", email.getId(), email.getRecipient(),
+                    email.getAttempts(), e);
+            return;
+        }
+
+        long delay = Math.min((long) retryBaseSeconds << Math.min(email.getAttempts() - 1, 20), retryMaxSeconds);
+        emailOutboxRepository.scheduleRetry(email.getId(), LocalDateTime.now().plusSeconds(delay), error);
+        retriedCounter.increment();
+        log.warn("Email {} to {} failed (attempt {}), retrying in {}s: {}", email.getId(), email.getRecipient(),
+                email.getAttempts(), delay, error);
+    }
+
+    private void deleteFinished() {
+        int deleted = emailOutboxRepository.deleteFinishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} sent or abandoned email(s) from the outbox", deleted);
+        }
+    }
+
+    /**
+     * Limiteur de débit simple : espace les envois d'au moins {@code 1 s / maxPerSecond}.
+     */
+    private static final class SendRateLimiter {
+
+        private final long intervalNanos;
+        private long next = System.nanoTime();
+
+        SendRateLimiter(int maxPerSecond) {
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxPerSecond);
+        }
+
+        synchronized void acquire() throws InterruptedException {
+            long now = System.nanoTime();
+            if (next > now) {
+                TimeUnit.NANOSECONDS.sleep(next - now);
+            }
+            next = Math.max(now, next) + intervalNanos;
+        }
+    }
+}
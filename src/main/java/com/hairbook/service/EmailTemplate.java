@@ -0,0 +1,58 @@
+package com.hairbook.service;
+
+import java.util.List;
+
+/**
+ * Modèles d'emails rendus par {@link EmailTemplateService}.
+ * <p>
+ * Chaque modèle correspond aux ressources {@code mail-templates/<nom>.txt} et {@code mail-templates/<nom>.html}
+ * et au message {@code email.<nom>.subject}. Les variables sont passées au rendu dans l'ordre déclaré ici.
+ */
+public enum EmailTemplate {
+
+    /** Confirmation d'un rendez-vous. */
+    APPOINTMENT_CONFIRMATION("appointment-confirmation",
+            "firstName", "service", "dateTime", "duration", "staff", "price", "link"),
+
+    /** Annulation d'un rendez-vous. */
+    APPOINTMENT_CANCELLATION("appointment-cancellation",
+            "firstName", "service", "dateTime", "staff", "reason", "link"),
+
+    /** Rappel d'un rendez-vous à venir. */
+    APPOINTMENT_REMINDER("appointment-reminder",
+            "firstName", "service", "dateTime", "duration", "staff"),
+
+    /** Échec du paiement d'un rendez-vous. */
+    PAYMENT_FAILURE("payment-failure",
+            "firstName", "service", "dateTime", "duration", "staff", "amount", "link"),
+
+    /** Paiement réussi et rendez-vous confirmé. */
+    PAYMENT_CONFIRMATION("payment-confirmation",
+            "firstName", "amount", "service", "dateTime", "duration", "staff", "link"),
+
+    /** Bienvenue et vérification de l'adresse email. */
+    WELCOME("welcome",
+            "firstName", "link"),
+
+    /** Identifiants d'un compte créé par un administrateur. */
+    ACCOUNT_CREDENTIALS("account-credentials",
+            "firstName", "email", "password", "link");
+
+    private final String resourceName;
+    private final List<String> variables;
+
+    EmailTemplate(String resourceName, String... variables) {
+        this.resourceName = resourceName;
+        this.variables = List.of(variables);
+    }
+
+    /** Nom des ressources du modèle (sans extension). */
+    public String getResourceName() {
+        return resourceName;
+    }
+
+    /** Variables du modèle, dans l'ordre attendu au rendu. */
+    public List<String> getVariables() {
+        return variables;
+    }
+}
@@ -0,0 +1,251 @@
+package com.hairbook.service;
+
+import com.hairbook.entity.User;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service de rendu des emails à partir de modèles précompilés et traduits.
+ * <p>
+ * Les modèles ({@code mail-templates/*.txt} et {@code *.html}, la mise en page HTML commune
+ * {@code layout.html}) sont lus une seule fois et compilés par langue :
+ * <ul>
+ *   <li>{@code {{msg:clé}}} est remplacé à la compilation par le message traduit ({@link MessageService}) ;
+ *       un message peut lui-même contenir des variables</li>
+ *   <li>{@code {{variable}}} devient un emplacement numéroté selon {@link EmailTemplate#getVariables()}</li>
+ *   <li>Le rendu n'enchaîne que des {@code append} dans un tampon dimensionné d'avance,
+ *       sans analyse de format ni expression régulière ; les valeurs sont échappées dans la partie HTML</li>
+ * </ul>
+ * Langue : celle du destinataire ({@link User#getPreferredLocale()}) si elle est prise en charge
+ * ({@code app.mail.locales}), sinon {@code app.mail.default-locale}. La langue de la requête en cours
+ * n'est jamais utilisée : un email peut être déclenché par un autre utilisateur (admin, staff)
+ * ou hors requête (rappels, webhooks, tâches planifiées).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailTemplateService {
+
+    private static final String TEMPLATE_LOCATION = "mail-templates/";
+    private static final String CONTENT_SLOT = "{{content}}";
+    private static final String MESSAGE_PREFIX = "msg:";
+
+    /** Taille estimée d'une valeur, pour dimensionner le tampon de rendu. */
+    private static final int ESTIMATED_VALUE_LENGTH = 24;
+
+    private final MessageService messageService;
+
+    /** Langues prises en charge par les emails, compilées au démarrage. */
+    @Value("${app.mail.locales:fr,en}")
+    private List<String> supportedLanguages;
+
+    /** Langue utilisée sans préférence du destinataire ou pour une langue non prise en charge. */
+    @Value("${app.mail.default-locale:fr}")
+    private String defaultLanguage;
+
+    private Set<String> languages;
+    private final Map<PlanKey, CompiledTemplate> plans = new ConcurrentHashMap<>();
+    private final Map<String, DateTimeFormatter> dateTimeFormatters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        languages = supportedLanguages.stream()
+                .map(language -> language.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        for (String language : languages) {
+            Locale locale = Locale.forLanguageTag(language);
+            for (EmailTemplate template : EmailTemplate.values()) {
+                compiled(template, locale);
+            }
+        }
+        log.info("{} email template(s) compiled for {}", plans.size(), languages);
+    }
+
+    /**
+     * Langue des emails envoyés à un utilisateur.
+     *
+     * @param recipient destinataire
+     * @return langue préférée du destinataire si prise en charge, sinon la langue par défaut
+     */
+    public Locale resolveLocale(User recipient) {
+        String preferred = recipient.getPreferredLocale();
+        return resolve(preferred != null && !preferred.isBlank() ? Locale.forLanguageTag(preferred.trim()) : null);
+    }
+
+    /**
+     * Rend un email.
+     *
+     * @param template modèle à rendre
+     * @param locale   langue souhaitée (ramenée à une langue prise en charge)
+     * @param values   valeurs des variables, dans l'ordre de {@link EmailTemplate#getVariables()}
+     * @return sujet, partie texte et partie HTML
+     * @throws IllegalArgumentException si le nombre de valeurs ne correspond pas au modèle
+     */
+    public RenderedEmail render(EmailTemplate template, Locale locale, Object... values) {
+        if (values.length != template.getVariables().size()) {
+            throw new IllegalArgumentException("Le modèle " + template + " attend " + template.getVariables().size()
+                    + " valeur(s), " + values.length + " reçue(s)");
+        }
+        CompiledTemplate compiled = compiled(template, resolve(locale));
+        return new RenderedEmail(compiled.subject().render(values), compiled.text().render(values),
+                compiled.html().render(values));
+    }
+
+    /**
+     * Formate une date-heure de rendez-vous selon la langue (message {@code email.datetime.pattern}).
+     *
+     * @param dateTime date-heure à formater
+     * @param locale   langue des emails
+     * @return date-heure formatée
+     */
+    public String formatDateTime(LocalDateTime dateTime, Locale locale) {
+        Locale resolved = resolve(locale);
+        return dateTimeFormatters.computeIfAbsent(resolved.getLanguage(), language ->
+                        DateTimeFormatter.ofPattern(messageService.getMessage("email.datetime.pattern", resolved), resolved))
+                .format(dateTime);
+    }
+
+    /**
+     * Traduit un message simple utilisé comme valeur (ex : raison d'annulation par défaut).
+     *
+     * @param code   clé du message
+     * @param locale langue des emails
+     * @return message traduit
+     */
+    public String getMessage(String code, Locale locale) {
+        return messageService.getMessage(code, resolve(locale));
+    }
+
+    private Locale resolve(Locale locale) {
+        String language = locale != null ? locale.getLanguage() : defaultLanguage;
+        return Locale.forLanguageTag(languages.contains(language) ? language : defaultLanguage);
+    }
+
+    private CompiledTemplate compiled(EmailTemplate template, Locale locale) {
+        return plans.computeIfAbsent(new PlanKey(template, locale.getLanguage()), key -> compile(template, locale));
+    }
+
+    private CompiledTemplate compile(EmailTemplate template, Locale locale) {
+        String name = template.getResourceName();
+        String subject = messageService.getMessage("email." + name + ".subject", locale);
+        String text = load(name + ".txt");
+        String html = load("layout.html").replace(CONTENT_SLOT, load(name + ".html"));
+        return new CompiledTemplate(
+                RenderPlan.compile(expandMessages(subject, locale, false), template.getVariables(), false),
+                RenderPlan.compile(expandMessages(text, locale, false), template.getVariables(), false),
+                RenderPlan.compile(expandMessages(html, locale, true), template.getVariables(), true));
+    }
+
+    /** Remplace les {@code {{msg:clé}}} par les messages traduits (échappés pour le HTML). */
+    private String expandMessages(String source, Locale locale, boolean html) {
+        StringBuilder expanded = new StringBuilder(source.length() * 2);
+        int position = 0;
+        int start;
+        while ((start = source.indexOf("{{" + MESSAGE_PREFIX, position)) >= 0) {
+            int end = source.indexOf("}}", start);
+            if (end < 0) {
+                break;
+            }
+            String message = messageService.getMessage(source.substring(start + 2 + MESSAGE_PREFIX.length(), end).trim(), locale);
+            expanded.append(source, position, start).append(html ? HtmlUtils.htmlEscape(message, StandardCharsets.UTF_8.name()) : message);
+            position = end + 2;
+        }
+        return expanded.append(source, position, source.length()).toString();
+    }
+
+    private String load(String resource) {
+        try (InputStream input = new ClassPathResource(TEMPLATE_LOCATION + resource).getInputStream()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Modèle d'email introuvable : " + resource, e);
+        }
+    }
+
+    /** Clé d'un modèle compilé. */
+    private record PlanKey(EmailTemplate template, String language) {
+    }
+
+    /** Parties compilées d'un modèle dans une langue. */
+    private record CompiledTemplate(RenderPlan subject, RenderPlan text, RenderPlan html) {
+    }
+
+    /**
+     * Plan de rendu : alternance de textes fixes et d'emplacements de variables.
+     * {@code literals} compte un élément de plus que {@code slots}.
+     */
+    private record RenderPlan(String[] literals, int[] slots, int literalLength, boolean html) {
+
+        static RenderPlan compile(String source, List<String> variables, boolean html) {
+            List<String> literals = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            int position = 0;
+            int start;
+            while ((start = source.indexOf("{{", position)) >= 0) {
+                int end = source.indexOf("}}", start);
+                if (end < 0) {
+                    break;
+                }
+                String variable = source.substring(start + 2, end).trim();
+                int slot = variables.indexOf(variable);
+                if (slot < 0) {
+                    throw new IllegalStateException("Variable inconnue dans un modèle d'email : " + variable);
+                }
+                literals.add(source.substring(position, start));
+                slots.add(slot);
+                position = end + 2;
+            }
+            literals.add(source.substring(position));
+            return new RenderPlan(literals.toArray(String[]::new),
+                    slots.stream().mapToInt(Integer::intValue).toArray(),
+                    literals.stream().mapToInt(String::length).sum(),
+                    html);
+        }
+
+        String render(Object[] values) {
+            StringBuilder out = new StringBuilder(literalLength + slots.length * ESTIMATED_VALUE_LENGTH);
+            for (int i = 0; i < slots.length; i++) {
+                out.append(literals[i]);
+                String value = String.valueOf(values[slots[i]]);
+                if (html) {
+                    appendEscaped(out, value);
+                } else {
+                    out.append(value);
+                }
+            }
+            return out.append(literals[slots.length]).toString();
+        }
+
+        private static void appendEscaped(StringBuilder out, String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '<' -> out.append("&lt;");
+                    case '>' -> out.append("&gt;");
+                    case '&' -> out.append("&amp;");
+                    case '"' -> out.append("&quot;");
+                    case '\'' -> out.append("&#39;");
+                    default -> out.append(c);
+                }
+            }
+        }
+    }
+}
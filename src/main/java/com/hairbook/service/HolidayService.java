@@ -3,6 +3,7 @@ package com.hairbook.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,6 +28,7 @@ public class HolidayService {
 
     private final HolidayRepository holidayRepository;
     private final StaffMemberRepository staffMemberRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Crée un jour férié ou une période de congé.
@@ -39,6 +41,7 @@ public class HolidayService {
         Holiday saved = holidayRepository.save(holiday);
         log.info("Holiday created: {} from {} to {}",
                 saved.getName(), saved.getStartDate(), saved.getEndDate());
+        publishScheduleChanged(saved);
         return saved;
     }
 
@@ -191,6 +194,7 @@ public class HolidayService {
     @Transactional
     public Holiday updateHoliday(UUID id, Holiday holiday) {
         Holiday existing = getHolidayById(id);
+        publishScheduleChanged(existing);
 
         existing.setName(holiday.getName());
         existing.setStartDate(holiday.getStartDate());
@@ -203,6 +207,7 @@ public class HolidayService {
 
         Holiday updated = holidayRepository.save(existing);
         log.info("Holiday updated: {}", id);
+        publishScheduleChanged(updated);
         return updated;
     }
 
@@ -216,5 +221,18 @@ public class HolidayService {
         Holiday holiday = getHolidayById(id);
         holidayRepository.delete(holiday);
         log.info("Holiday deleted: {}", id);
+        publishScheduleChanged(holiday);
+    }
+
+    /**
+     * Signale un changement de planning pour le staff concerné, ou pour tout le salon
+     * s'il s'agit d'une fermeture globale.
+     *
+     * @param holiday congé créé, modifié ou supprimé
+     */
+    private void publishScheduleChanged(Holiday holiday) {
+        eventPublisher.publishEvent(holiday.getStaffMember() != null
+                ? new StaffScheduleChangedEvent(holiday.getStaffMember().getId())
+                : StaffScheduleChangedEvent.salonWide());
     }
 }
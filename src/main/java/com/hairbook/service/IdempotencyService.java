@@ -0,0 +1,299 @@
+package com.hairbook.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hairbook.entity.IdempotencyRecord;
+import com.hairbook.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service de gestion des requêtes idempotentes (en-tête {@code Idempotency-Key}).
+ * <p>
+ * La première exécution d'une clé mémorise la réponse, en mémoire (Caffeine) et en base
+ * ({@link IdempotencyRecord}) ; les rejeux renvoient cette réponse sans réexécuter l'action :
+ * <ul>
+ *   <li>La clé est propre à un périmètre et à un utilisateur</li>
+ *   <li>La clé est réservée en base ({@code INSERT ... ON CONFLICT}) avant l'exécution : une seule
+ *       instance exécute l'action, même si plusieurs reçoivent la même requête au même moment</li>
+ *   <li>Les rejeux concurrents sur la même instance attendent la fin de la première exécution
+ *       (au plus le bail) ; sur une autre instance, ils reçoivent un 409 tant qu'elle est en cours</li>
+ *   <li>Une clé réutilisée avec un autre corps de requête est refusée</li>
+ *   <li>Un échec n'est pas mémorisé : la réservation est libérée et le client peut réessayer avec la même clé</li>
+ * </ul>
+ * Une réservation abandonnée (instance arrêtée pendant l'exécution) est reprise après
+ * {@code app.idempotency.claim-timeout-seconds}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    /** Nom de la tâche de purge (verrou et administration). */
+    public static final String PURGE_JOB = "idempotency-purge";
+
+    /** Longueur maximale d'une clé fournie par le client. */
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledJobService scheduledJobService;
+
+    /** Durée (en heures) pendant laquelle une réponse est rejouée. */
+    @Value("${app.idempotency.ttl-hours:24}")
+    private Integer ttlHours;
+
+    /** Bail (en secondes) d'une exécution en cours, au-delà duquel une autre requête peut reprendre la clé. */
+    @Value("${app.idempotency.claim-timeout-seconds:300}")
+    private Integer claimTimeoutSeconds;
+
+    private Cache<String, IdempotencyRecord> records;
+    private final Map<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    private Counter replayCounter;
+
+    @PostConstruct
+    void init() {
+        records = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, records, "idempotencyKeys");
+        replayCounter = Counter.builder("idempotency.replays")
+                .description("Requêtes rejouées à partir d'une réponse mémorisée")
+                .register(meterRegistry);
+        scheduledJobService.register(new ScheduledJob(PURGE_JOB, ScheduledJobService.MAINTENANCE_POOL,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofMinutes(5), this::deleteExpired));
+    }
+
+    /**
+     * Exécute une action au plus une fois par clé d'idempotence.
+     *
+     * @param scope        périmètre de la requête (ex : APPOINTMENT_CREATE)
+     * @param key          valeur de l'en-tête {@code Idempotency-Key}, ou {@code null} (exécution simple)
+     * @param owner        email de l'utilisateur authentifié
+     * @param request      corps de la requête, comparé lors des rejeux
+     * @param responseType type de la réponse
+     * @param action       action à exécuter lors de la première requête
+     * @return la réponse de l'action ou la réponse mémorisée
+     * @throws E                        exception levée par l'action
+     * @throws IllegalArgumentException si la clé est invalide ou réutilisée pour une autre requête
+     * @throws ResponseStatusException  (409) si la même requête est en cours sur une autre instance
+     */
+    public <T, E extends Exception> T execute(String scope, String key, String owner, Object request,
+                                              Class<T> responseType, IdempotentAction<T, E> action) throws E {
+        if (key == null || key.isBlank()) {
+            return action.run();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("La clé d'idempotence ne doit pas dépasser " + MAX_KEY_LENGTH + " caractères");
+        }
+
+        String id = sha256(scope + "\n" + owner + "\n" + key);
+        String fingerprint = sha256(toJson(request));
+
+        IdempotencyRecord stored = findStored(id);
+        if (stored != null) {
+            return replay(stored, fingerprint, responseType);
+        }
+
+        CompletableFuture<IdempotencyRecord> pending = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(id, pending);
+        if (running != null) {
+            return replay(awaitRunning(running), fingerprint, responseType);
+        }
+
+        try {
+            if (idempotencyRecordRepository.claim(id, scope, fingerprint, claimTimeoutSeconds) == 0) {
+                IdempotencyRecord claimed = claimedElsewhere(id, fingerprint);
+                pending.complete(claimed);
+                return replay(claimed, fingerprint, responseType);
+            }
+
+            T response;
+            try {
+                response = action.run();
+            } catch (Exception e) {
+                idempotencyRecordRepository.release(id);
+                throw e;
+            }
+            IdempotencyRecord record = store(id, scope, fingerprint, response);
+            if (record != null) {
+                pending.complete(record);
+            } else {
+                // La réponse qui fait foi est celle de la requête ayant repris la clé
+                pending.completeExceptionally(inProgress());
+            }
+            return response;
+        } catch (Exception e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, pending);
+        }
+    }
+
+    /**
+     * Purge les réponses expirées de la base.
+     * Exécuté toutes les heures dans le pool de maintenance, par une seule instance
+     * (voir {@link ScheduledJobService}).
+     */
+    @Scheduled(cron = "0 15 * * * *")
+    public void purgeExpired() {
+        scheduledJobService.run(PURGE_JOB);
+    }
+
+    private void deleteExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency key(s)", deleted);
+        }
+    }
+
+    private IdempotencyRecord findStored(String id) {
+        IdempotencyRecord cached = records.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+        return idempotencyRecordRepository.findCompleted(id)
+                .map(record -> {
+                    records.put(id, record);
+                    return record;
+                })
+                .orElse(null);
+    }
+
+    /**
+     * La clé est déjà réservée : renvoie la réponse si la première exécution est terminée.
+     *
+     * @throws IllegalArgumentException si la clé a été réservée pour une autre requête
+     * @throws ResponseStatusException  (409) si la première exécution est encore en cours
+     */
+    private IdempotencyRecord claimedElsewhere(String id, String fingerprint) {
+        IdempotencyRecord completed = findStored(id);
+        if (completed != null) {
+            return completed;
+        }
+        boolean otherRequest = idempotencyRecordRepository.findById(id)
+                .filter(claim -> !claim.getRequestFingerprint().equals(fingerprint))
+                .isPresent();
+        if (otherRequest) {
+            throw new IllegalArgumentException("Cette clé d'idempotence a déjà été utilisée pour une autre requête");
+        }
+        throw inProgress();
+    }
+
+    /**
+     * Attend la fin de la même requête en cours sur cette instance, au plus le bail d'une exécution.
+     *
+     * @throws ResponseStatusException (409) si elle n'est pas terminée à temps, comme sur une autre instance
+     */
+    private IdempotencyRecord awaitRunning(CompletableFuture<IdempotencyRecord> running) {
+        try {
+            return running.get(claimTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw inProgress();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static ResponseStatusException inProgress() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "Une requête avec cette clé d'idempotence est en cours de traitement");
+    }
+
+    /**
+     * Mémorise la réponse en base, puis en mémoire si la réservation était toujours détenue.
+     *
+     * @return la réponse mémorisée, ou {@code null} si la clé a été reprise par une autre requête
+     */
+    private IdempotencyRecord store(String id, String scope, String fingerprint, Object response) {
+        IdempotencyRecord record = IdempotencyRecord.builder()
+                .id(id)
+                .scope(scope)
+                .requestFingerprint(fingerprint)
+                .responseBody(toJson(response))
+                .expiresAt(LocalDateTime.now().plusHours(ttlHours))
+                .build();
+        if (idempotencyRecordRepository.complete(id, fingerprint, record.getResponseBody(), ttlHours * 3600L) == 0) {
+            // Bail échu pendant l'exécution et clé reprise par une autre requête : sa réponse fera foi
+            log.warn("Idempotency claim lost before completion (scope {})", scope);
+            return null;
+        }
+        records.put(id, record);
+        return record;
+    }
+
+    private <T> T replay(IdempotencyRecord record, String fingerprint, Class<T> responseType) {
+        if (!record.getRequestFingerprint().equals(fingerprint)) {
+            throw new IllegalArgumentException("Cette clé d'idempotence a déjà été utilisée pour une autre requête");
+        }
+        replayCounter.increment();
+        log.debug("Replaying stored response for idempotency scope {}", record.getScope());
+        try {
+            return objectMapper.readValue(record.getResponseBody(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Réponse mémorisée illisible", e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Impossible de sérialiser la requête idempotente", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * Action exécutée au plus une fois par clé d'idempotence.
+     *
+     * @param <T> type de la réponse
+     * @param <E> exception pouvant être levée (ex : {@code StripeException})
+     */
+    @FunctionalInterface
+    public interface IdempotentAction<T, E extends Exception> {
+        T run() throws E;
+    }
+}
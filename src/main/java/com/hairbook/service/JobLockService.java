@@ -0,0 +1,130 @@
+package com.hairbook.service;
+
+import com.hairbook.entity.JobLock;
+import com.hairbook.repository.JobLockRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service de verrouillage des tâches planifiées entre instances (table {@code job_lock}).
+ * <p>
+ * Chaque tâche {@code @Scheduled} passe par {@link #runExclusive} : une seule instance acquiert
+ * le bail et exécute la tâche, les autres passent leur tour. Tant que la tâche tourne, un
+ * heartbeat prolonge le bail ; si l'instance s'arrête brutalement, le bail expire et la tâche
+ * peut être reprise au déclenchement suivant par une autre instance.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobLockService {
+
+    private final JobLockRepository jobLockRepository;
+
+    /** Identifiant de cette instance (par défaut : {@code pid@hostname}). */
+    @Value("${app.scheduling.node-id:}")
+    private String nodeId;
+
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    void init() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = ManagementFactory.getRuntimeMXBean().getName();
+        }
+        heartbeat = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("job-lock-heartbeat").daemon().factory());
+        log.info("Job locks enabled for node {}", nodeId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * Exécute une tâche si cette instance obtient son verrou.
+     *
+     * @param jobName   nom unique de la tâche
+     * @param lease     durée du bail, prolongée par heartbeat tous les tiers de bail
+     * @param minHold   durée minimale de détention du verrou après le démarrage, supérieure
+     *                  au décalage possible des déclenchements entre instances
+     * @param job       tâche à exécuter
+     * @return {@code true} si la tâche a été exécutée par cette instance
+     */
+    public boolean runExclusive(String jobName, Duration lease, Duration minHold, Runnable job) {
+        if (jobLockRepository.tryAcquire(jobName, nodeId, lease.toSeconds()) == 0) {
+            log.debug("Job {} skipped: lock held by another node", jobName);
+            return false;
+        }
+
+        long periodMs = Math.max(1_000, lease.toMillis() / 3);
+        ScheduledFuture<?> beat = heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                if (jobLockRepository.extendLease(jobName, nodeId, lease.toSeconds()) == 0) {
+                    log.warn("Job {} lost its lock while running on node {}", jobName, nodeId);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Heartbeat failed for job {}: {}", jobName, e.getMessage());
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        String status = "FAILED";
+        try {
+            job.run();
+            status = "SUCCESS";
+            return true;
+        } finally {
+            beat.cancel(false);
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            try {
+                jobLockRepository.release(jobName, nodeId, minHold.toSeconds(), durationMs, status);
+            } catch (RuntimeException e) {
+                log.warn("Unable to release lock of job {}: {}", jobName, e.getMessage());
+            }
+            log.debug("Job {} finished on node {} in {} ms ({})", jobName, nodeId, durationMs, status);
+        }
+    }
+
+    /**
+     * Suspend ou réactive une tâche sur toutes les instances.
+     * Une exécution en cours n'est pas interrompue.
+     *
+     * @param jobName nom de la tâche
+     * @param paused  {@code true} pour suspendre
+     */
+    public void setPaused(String jobName, boolean paused) {
+        jobLockRepository.setPaused(jobName, nodeId, paused);
+        log.info("Job {} {} from node {}", jobName, paused ? "paused" : "resumed", nodeId);
+    }
+
+    /**
+     * Liste l'état des verrous et des dernières exécutions de toutes les tâches.
+     * Les dates sont celles de la base, et {@link JobLock#getLocked()} est évalué par la base.
+     *
+     * @return verrous triés par nom de tâche
+     */
+    public List<JobLock> getJobLocks() {
+        return jobLockRepository.findAll(Sort.by("name"));
+    }
+
+    /**
+     * @return identifiant de cette instance
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,101 @@
+package com.hairbook.service;
+
+import com.stripe.exception.StripeException;
+import com.stripe.param.checkout.SessionCreateParams;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Passerelle vers le prestataire de paiement (Stripe Checkout).
+ * <p>
+ * Tous les appels réseau vers Stripe passent par cette interface. L'implémentation injectée est
+ * {@link ResilientPaymentGateway} (cloison, délai maximal, disjoncteur, métriques), qui délègue
+ * à {@link StripePaymentGateway}. Les tests la remplacent par une passerelle en mémoire.
+ * <p>
+ * Une indisponibilité du prestataire (délai dépassé, cloison pleine, disjoncteur ouvert) est signalée
+ * par une {@link com.stripe.exception.ApiConnectionException}.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Crée une session Checkout.
+     *
+     * @param params paramètres de la session
+     * @return la session créée
+     * @throws StripeException erreur ou indisponibilité du prestataire
+     */
+    CheckoutSession createCheckoutSession(SessionCreateParams params) throws StripeException;
+
+    /**
+     * Récupère une session Checkout.
+     *
+     * @param sessionId identifiant de la session
+     * @return la session
+     * @throws StripeException erreur ou indisponibilité du prestataire
+     */
+    CheckoutSession retrieveCheckoutSession(String sessionId) throws StripeException;
+
+    /**
+     * Expire une session Checkout pour qu'elle ne puisse plus être payée.
+     *
+     * @param sessionId identifiant de la session
+     * @throws StripeException erreur ou indisponibilité du prestataire
+     */
+    void expireCheckoutSession(String sessionId) throws StripeException;
+
+    /**
+     * Liste une page de sessions Checkout créées dans une fenêtre, de la plus récente à la plus ancienne.
+     *
+     * @param createdFrom   début de la fenêtre de création (inclus)
+     * @param createdTo     fin de la fenêtre de création (exclue)
+     * @param startingAfter identifiant de la dernière session de la page précédente, ou {@code null}
+     * @param limit         nombre maximal de sessions (100 au plus chez Stripe)
+     * @return la page de sessions
+     * @throws StripeException erreur ou indisponibilité du prestataire
+     */
+    SessionPage listCheckoutSessions(Instant createdFrom, Instant createdTo, String startingAfter, int limit)
+            throws StripeException;
+
+    /**
+     * Session Checkout, réduite aux champs utilisés par l'application.
+     *
+     * @param id              identifiant de la session ({@code cs_...})
+     * @param url             URL publique de paiement
+     * @param paymentIntentId identifiant du payment intent, ou {@code null} s'il n'est pas encore créé
+     * @param expiresAt       date à laquelle la session expire et ne peut plus être payée
+     */
+    record CheckoutSession(String id, String url, String paymentIntentId, Instant expiresAt) {
+    }
+
+    /**
+     * État d'une session Checkout chez le prestataire, utilisé pour le rapprochement des paiements.
+     *
+     * @param id              identifiant de la session
+     * @param appointmentId   rendez-vous (métadonnée {@code appointmentId}), ou {@code null}
+     * @param status          {@code open}, {@code complete} ou {@code expired}
+     * @param paymentStatus   {@code paid}, {@code unpaid} ou {@code no_payment_required}
+     * @param paymentIntentId identifiant du payment intent, ou {@code null}
+     * @param amountTotal     montant total en centimes
+     * @param createdAt       date de création de la session
+     */
+    record SessionSummary(String id, String appointmentId, String status, String paymentStatus,
+                          String paymentIntentId, Long amountTotal, Instant createdAt) {
+
+        /**
+         * @return {@code true} si la session a été payée
+         */
+        public boolean isPaid() {
+            return "paid".equals(paymentStatus);
+        }
+    }
+
+    /**
+     * Page de sessions Checkout.
+     *
+     * @param sessions sessions de la page
+     * @param hasMore  {@code true} si d'autres sessions suivent
+     */
+    record SessionPage(List<SessionSummary> sessions, boolean hasMore) {
+    }
+}
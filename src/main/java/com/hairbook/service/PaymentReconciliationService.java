@@ -0,0 +1,438 @@
+package com.hairbook.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hairbook.dto.ReconciliationReportDto;
+import com.hairbook.dto.ReconciliationReportDto.Discrepancy;
+import com.hairbook.dto.ReconciliationReportDto.DiscrepancyType;
+import com.hairbook.entity.Payment;
+import com.hairbook.entity.PaymentReconciliationReport;
+import com.hairbook.entity.PaymentStatus;
+import com.hairbook.repository.PaymentReconciliationReportRepository;
+import com.hairbook.repository.PaymentRepository;
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Rapprochement nocturne des paiements avec Stripe.
+ * <p>
+ * Un webhook perdu laisse un paiement en attente indéfiniment (et son rendez-vous dans les annulations
+ * automatiques). La tâche {@value #JOB_NAME} parcourt les sessions Checkout créées chez Stripe sur les
+ * {@code app.payment.reconciliation.window-days} derniers jours et les compare aux paiements locaux :
+ * <ul>
+ *   <li>Les sessions sont lues page par page et traitées par lots de {@code app.payment.reconciliation.chunk-size} :
+ *       chaque lot forme une table de hachage (identifiant de session → session), sondée par les paiements
+ *       locaux du lot chargés en une requête. La mémoire utilisée est bornée par la taille du lot, quel que
+ *       soit le nombre de paiements de la fenêtre</li>
+ *   <li>Corrige les paiements restés en attente : session payée → paiement réussi, session expirée →
+ *       paiement échoué. Les corrections sont appliquées par lots transactionnels
+ *       ({@code app.payment.reconciliation.correction-batch-size}) ; un lot en échec est rejoué élément par élément</li>
+ *   <li>Signale sans les corriger les écarts demandant une intervention (session payée pour un paiement échoué,
+ *       paiement réussi non payé, montants différents, session payée inconnue, paiement en attente absent de Stripe)</li>
+ *   <li>Enregistre un rapport en base ({@link #getLastReport()}, le même pour toutes les instances),
+ *       envoyé aux administrateurs en cas d'écart, et publie les métriques
+ *       {@code payment.reconciliation.sessions}, {@code payment.reconciliation.corrected} et
+ *       {@code payment.reconciliation.discrepancies} (par type)</li>
+ * </ul>
+ * Les corrections passent par {@link PaymentService} et sont donc sans effet sur un paiement déjà mis à jour
+ * entre-temps par un webhook.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentReconciliationService {
+
+    /** Nom de la tâche de rapprochement (verrou et administration). */
+    public static final String JOB_NAME = "payment-reconciliation";
+
+    /** Nombre de sessions demandées par page (maximum de l'API Stripe). */
+    private static final int PAGE_SIZE = 100;
+
+    /** Âge au-delà duquel une session Checkout a forcément expiré (durée de vie maximale 24 h, plus une marge). */
+    private static final Duration SESSION_MAX_AGE = Duration.ofHours(25);
+
+    /** Écart toléré entre la création d'une session et celle de son paiement local. */
+    private static final Duration CREATION_SKEW = Duration.ofMinutes(1);
+
+    /** Nombre maximal d'écarts détaillés dans le rapport. */
+    private static final int MAX_REPORTED = 500;
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentReconciliationReportRepository reportRepository;
+    private final PaymentService paymentService;
+    private final PaymentGateway paymentGateway;
+    private final ScheduledJobService scheduledJobService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    /** Nombre de jours de sessions Stripe rapprochées à chaque exécution. */
+    @Value("${app.payment.reconciliation.window-days:2}")
+    private Integer windowDays;
+
+    /** Nombre de sessions rapprochées par lot (taille de la table de hachage). */
+    @Value("${app.payment.reconciliation.chunk-size:1000}")
+    private Integer chunkSize;
+
+    /** Nombre de corrections appliquées par transaction. */
+    @Value("${app.payment.reconciliation.correction-batch-size:50}")
+    private Integer correctionBatchSize;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        scheduledJobService.register(new ScheduledJob(JOB_NAME, ScheduledJobService.MAINTENANCE_POOL,
+                Duration.ofMinutes(5), Duration.ofMinutes(5), Duration.ofHours(2), this::reconcileWindow));
+    }
+
+    /**
+     * Rapproche chaque nuit les paiements des derniers jours avec Stripe.
+     */
+    @Scheduled(cron = "0 0 4 * * *")
+    public void reconcileNightly() {
+        scheduledJobService.run(JOB_NAME);
+    }
+
+    /**
+     * Renvoie le rapport de la dernière exécution, quelle que soit l'instance qui l'a menée.
+     *
+     * @return le rapport, ou {@code null} si aucun rapprochement n'a encore été exécuté
+     */
+    public ReconciliationReportDto getLastReport() {
+        return readOnlyTransaction.execute(tx -> reportRepository.findById(JOB_NAME)
+                .map(stored -> fromJson(stored.getReport()))
+                .orElse(null));
+    }
+
+    private void reconcileWindow() {
+        Instant to = Instant.now();
+        ReconciliationReportDto report = reconcile(to.minus(Duration.ofDays(windowDays)), to);
+        log.info("Payment reconciliation: {} Stripe session(s), {} matched, {} corrected, discrepancies {}",
+                report.getStripeSessions(), report.getMatched(), report.getCorrected(), report.getDiscrepancyCounts());
+        record(report);
+    }
+
+    /**
+     * Remplace le dernier rapport enregistré et, en cas d'écart, notifie les administrateurs
+     * dans la même transaction.
+     *
+     * @param report rapport de l'exécution
+     */
+    void record(ReconciliationReportDto report) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            reportRepository.save(PaymentReconciliationReport.builder()
+                    .jobName(JOB_NAME)
+                    .finishedAt(report.getFinishedAt())
+                    .report(toJson(report))
+                    .build());
+            if (!report.getDiscrepancyCounts().isEmpty() || report.getError() != null) {
+                eventPublisher.publishEvent(AdminNotificationEvent.of("Rapprochement des paiements", summarize(report)));
+            }
+        });
+    }
+
+    /**
+     * Rapproche les sessions Stripe créées dans une fenêtre avec les paiements locaux.
+     *
+     * @param from début de la fenêtre (inclus)
+     * @param to   fin de la fenêtre (exclue)
+     * @return le rapport ; partiel (champ {@code error}) si Stripe est devenu indisponible en cours de route
+     */
+    ReconciliationReportDto reconcile(Instant from, Instant to) {
+        Run run = new Run(from, to);
+        try {
+            matchStripeSessions(run);
+            // Sans le parcours complet des sessions, l'absence d'une session chez Stripe ne prouve rien
+            if (run.error == null) {
+                reportMissingAtStripe(run);
+            }
+        } catch (StripeException | RuntimeException e) {
+            run.error = e.getMessage();
+            log.error("Payment reconciliation aborted after {} Stripe session(s)", run.stripeSessions, e);
+        }
+        return run.toReport();
+    }
+
+    private void matchStripeSessions(Run run) throws StripeException {
+        Map<String, PaymentGateway.SessionSummary> chunk = new HashMap<>();
+        String cursor = null;
+        boolean hasMore = true;
+        while (hasMore) {
+            if (Thread.currentThread().isInterrupted()) {
+                run.error = "Rapprochement interrompu";
+                return;
+            }
+            PaymentGateway.SessionPage page = paymentGateway.listCheckoutSessions(run.from, run.to, cursor, PAGE_SIZE);
+            for (PaymentGateway.SessionSummary session : page.sessions()) {
+                chunk.put(session.id(), session);
+            }
+            run.stripeSessions += page.sessions().size();
+            meterRegistry.counter("payment.reconciliation.sessions").increment(page.sessions().size());
+            hasMore = page.hasMore() && !page.sessions().isEmpty();
+            if (!page.sessions().isEmpty()) {
+                cursor = page.sessions().getLast().id();
+            }
+            if (chunk.size() >= chunkSize || !hasMore) {
+                joinChunk(chunk, run);
+                chunk.clear();
+            }
+        }
+    }
+
+    /**
+     * Rapproche un lot de sessions : les paiements locaux du lot sondent la table de hachage des sessions,
+     * les sessions restantes n'ont pas de paiement local.
+     */
+    private void joinChunk(Map<String, PaymentGateway.SessionSummary> chunk, Run run) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<Correction> corrections = readOnlyTransaction.execute(tx -> {
+            List<Correction> found = new ArrayList<>();
+            for (Payment payment : paymentRepository.findByProviderSessionIdIn(chunk.keySet())) {
+                PaymentGateway.SessionSummary session = chunk.remove(payment.getProviderSessionId());
+                if (session != null) {
+                    run.matched++;
+                    compare(payment, session, run, found);
+                }
+            }
+            return found;
+        });
+
+        for (PaymentGateway.SessionSummary session : chunk.values()) {
+            if (session.isPaid()) {
+                run.discrepancy(DiscrepancyType.UNKNOWN_SESSION, session.id(), parseUuid(session.appointmentId()),
+                        null, stripeStatus(session), false, null);
+            }
+        }
+        applyCorrections(corrections, run);
+    }
+
+    private void compare(Payment payment, PaymentGateway.SessionSummary session, Run run, List<Correction> corrections) {
+        UUID appointmentId = payment.getAppointment().getId();
+        String localStatus = payment.getStatus().name();
+        String stripeStatus = stripeStatus(session);
+        if (payment.getStatus() == PaymentStatus.PENDING) {
+            run.foundPendingSessionIds.add(session.id());
+        }
+
+        if (session.isPaid() && session.amountTotal() != null
+                && session.amountTotal() != payment.getAmountCents().longValue()) {
+            run.discrepancy(DiscrepancyType.AMOUNT_MISMATCH, session.id(), appointmentId, localStatus, stripeStatus, false,
+                    "Stripe " + session.amountTotal() + " / local " + payment.getAmountCents());
+        }
+
+        if (payment.getStatus() == PaymentStatus.PENDING && session.isPaid()) {
+            corrections.add(new Correction(DiscrepancyType.MISSED_PAYMENT, session.id(), appointmentId,
+                    session.paymentIntentId(), localStatus, stripeStatus));
+        } else if (payment.getStatus() == PaymentStatus.PENDING && "expired".equals(session.status())) {
+            corrections.add(new Correction(DiscrepancyType.MISSED_EXPIRATION, session.id(), appointmentId,
+                    null, localStatus, stripeStatus));
+        } else if (payment.getStatus() == PaymentStatus.FAILED && session.isPaid()) {
+            run.discrepancy(DiscrepancyType.PAID_BUT_NOT_SUCCEEDED, session.id(), appointmentId, localStatus,
+                    stripeStatus, false, null);
+        } else if (payment.getStatus() == PaymentStatus.SUCCEEDED && !session.isPaid()) {
+            run.discrepancy(DiscrepancyType.SUCCEEDED_BUT_NOT_PAID, session.id(), appointmentId, localStatus,
+                    stripeStatus, false, null);
+        }
+    }
+
+    private void applyCorrections(List<Correction> corrections, Run run) {
+        for (int from = 0; from < corrections.size(); from += correctionBatchSize) {
+            List<Correction> batch = corrections.subList(from, Math.min(from + correctionBatchSize, corrections.size()));
+            try {
+                transactionTemplate.executeWithoutResult(tx -> batch.forEach(this::apply));
+                batch.forEach(run::corrected);
+            } catch (RuntimeException e) {
+                // Un échec annule tout le lot : rejouer chaque correction seule pour isoler le paiement en cause
+                for (Correction correction : batch) {
+                    try {
+                        transactionTemplate.executeWithoutResult(tx -> apply(correction));
+                        run.corrected(correction);
+                    } catch (RuntimeException ex) {
+                        run.discrepancy(DiscrepancyType.CORRECTION_FAILED, correction.sessionId(),
+                                correction.appointmentId(), correction.localStatus(), correction.stripeStatus(),
+                                false, ex.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private void apply(Correction correction) {
+        if (correction.type() == DiscrepancyType.MISSED_PAYMENT) {
+            paymentService.markPaymentSucceeded(correction.appointmentId(), correction.sessionId(),
+                    correction.paymentIntentId());
+        } else {
+            // Comme le webhook manqué : une session renouvelable expirée ne fait pas échouer le paiement
+            paymentService.markSessionExpired(correction.appointmentId(), correction.sessionId());
+        }
+    }
+
+    /**
+     * Signale les paiements encore en attente dont la session aurait forcément expiré et n'a pas été
+     * trouvée chez Stripe. Une session trouvée mais encore ouverte, ou terminée sans être payée, n'est
+     * pas un écart de ce type : le paiement est laissé tel quel jusqu'au prochain rapprochement.
+     */
+    private void reportMissingAtStripe(Run run) {
+        LocalDateTime from = toLocal(run.from.plus(CREATION_SKEW));
+        LocalDateTime to = toLocal(run.to.minus(SESSION_MAX_AGE));
+        LocalDateTime afterCreatedAt = from.minusSeconds(1);
+        UUID afterId = new UUID(0, 0);
+        while (from.isBefore(to) && !Thread.currentThread().isInterrupted()) {
+            LocalDateTime cursorCreatedAt = afterCreatedAt;
+            UUID cursorId = afterId;
+            List<Payment> page = readOnlyTransaction.execute(tx -> paymentRepository.findPendingCreatedBetween(
+                    from, to, cursorCreatedAt, cursorId, PageRequest.of(0, chunkSize)));
+            for (Payment payment : page) {
+                if (!run.foundPendingSessionIds.contains(payment.getProviderSessionId())) {
+                    run.discrepancy(DiscrepancyType.MISSING_AT_STRIPE, payment.getProviderSessionId(),
+                            payment.getAppointment().getId(), payment.getStatus().name(), null, false, null);
+                }
+            }
+            if (page.size() < chunkSize) {
+                return;
+            }
+            afterCreatedAt = page.getLast().getCreatedAt();
+            afterId = page.getLast().getId();
+        }
+    }
+
+    private static String summarize(ReconciliationReportDto report) {
+        String counts = report.getDiscrepancyCounts().entrySet().stream()
+                .map(entry -> entry.getKey() + " : " + entry.getValue())
+                .collect(Collectors.joining("\n"));
+        return "Sessions Stripe : " + report.getStripeSessions()
+                + ", paiements corrigés : " + report.getCorrected()
+                + (counts.isEmpty() ? "" : "\n" + counts)
+                + (report.getError() != null ? "\nRapprochement interrompu : " + report.getError() : "");
+    }
+
+    private String toJson(ReconciliationReportDto report) {
+        try {
+            return objectMapper.writeValueAsString(report);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Impossible de sérialiser le rapport de rapprochement", e);
+        }
+    }
+
+    private ReconciliationReportDto fromJson(String report) {
+        try {
+            return objectMapper.readValue(report, ReconciliationReportDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Rapport de rapprochement illisible", e);
+        }
+    }
+
+    private static String stripeStatus(PaymentGateway.SessionSummary session) {
+        return session.status() + "/" + session.paymentStatus();
+    }
+
+    private static UUID parseUuid(String value) {
+        try {
+            return value != null ? UUID.fromString(value) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+    }
+
+    /** Correction à appliquer à un paiement resté en attente. */
+    private record Correction(DiscrepancyType type, String sessionId, UUID appointmentId, String paymentIntentId,
+                              String localStatus, String stripeStatus) {
+    }
+
+    /**
+     * État d'une exécution ; le détail des écarts est borné à {@value #MAX_REPORTED} entrées.
+     * {@code foundPendingSessionIds} retient les sessions trouvées chez Stripe pour des paiements
+     * en attente, seuls paiements que {@link #reportMissingAtStripe} doit écarter.
+     */
+    private final class Run {
+
+        private final Instant from;
+        private final Instant to;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final Map<DiscrepancyType, Long> counts = new EnumMap<>(DiscrepancyType.class);
+        private final List<Discrepancy> discrepancies = new ArrayList<>();
+        private final Set<String> foundPendingSessionIds = new HashSet<>();
+        private long stripeSessions;
+        private long matched;
+        private long corrected;
+        private String error;
+
+        private Run(Instant from, Instant to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private void corrected(Correction correction) {
+            corrected++;
+            meterRegistry.counter("payment.reconciliation.corrected").increment();
+            discrepancy(correction.type(), correction.sessionId(), correction.appointmentId(),
+                    correction.localStatus(), correction.stripeStatus(), true, null);
+        }
+
+        private void discrepancy(DiscrepancyType type, String sessionId, UUID appointmentId, String localStatus,
+                                 String stripeStatus, boolean isCorrected, String detail) {
+            counts.merge(type, 1L, Long::sum);
+            meterRegistry.counter("payment.reconciliation.discrepancies", "type", type.name()).increment();
+            if (discrepancies.size() < MAX_REPORTED) {
+                discrepancies.add(Discrepancy.builder()
+                        .type(type)
+                        .sessionId(sessionId)
+                        .appointmentId(appointmentId)
+                        .localStatus(localStatus)
+                        .stripeStatus(stripeStatus)
+                        .corrected(isCorrected)
+                        .detail(detail)
+                        .build());
+            }
+        }
+
+        private ReconciliationReportDto toReport() {
+            return ReconciliationReportDto.builder()
+                    .windowStart(toLocal(from))
+                    .windowEnd(toLocal(to))
+                    .startedAt(startedAt)
+                    .finishedAt(LocalDateTime.now())
+                    .stripeSessions(stripeSessions)
+                    .matched(matched)
+                    .corrected(corrected)
+                    .discrepancyCounts(counts)
+                    .discrepancies(discrepancies)
+                    .truncated(counts.values().stream().mapToLong(Long::longValue).sum() > discrepancies.size())
+                    .error(error)
+                    .build();
+        }
+    }
+}
@@ -1,20 +1,39 @@
 package com.hairbook.service;
 
 
-import com.stripe.Stripe;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.hairbook.entity.AppointmentStatus;
+import com.hairbook.repository.AppointmentExpiryRepository;
+import com.stripe.exception.ApiConnectionException;
 import com.stripe.exception.StripeException;
-import com.stripe.model.checkout.Session;
 import com.stripe.param.checkout.SessionCreateParams;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service de paiement basé sur Stripe Checkout.
@@ -22,177 +41,202 @@ import java.util.UUID;
  * Responsabilités :
  * <ul>
  *   <li>Création d'une session Stripe Checkout pour un rendez-vous</li>
- *   <li>Gestion des webhooks Stripe (accusé & mise à jour d'état)</li>
+ *   <li>Application des événements Stripe reçus par webhook ({@link StripeWebhookService})</li>
  *   <li>Marquage d'un paiement comme réussi et confirmation du rendez-vous</li>
  * </ul>
  * <p>
  * Hypothèses :
  * <ul>
  *   <li>Le prix du service est stocké en centimes d'euro (integer) côté domaine</li>
- *   <li>Un seul paiement par rendez-vous (vérification de doublon)</li>
+ *   <li>Un seul paiement par rendez-vous (index unique {@code payment.appointment_id})</li>
  *   <li>Le frontend gère les redirections <i>success/cancel</i></li>
  * </ul>
+ * <p>
+ * Les appels à l'API Stripe passent par {@link PaymentGateway} (cloison, délai maximal, disjoncteur)
+ * et sont faits hors transaction : une lecture courte, l'appel à Stripe,
+ * puis une écriture courte qui vérifie que le rendez-vous n'a pas changé entre-temps. Aucune
+ * connexion à la base n'est ainsi retenue pendant un aller-retour réseau vers Stripe.
+ * <p>
+ * La date d'expiration de chaque session Checkout est enregistrée avec le paiement et suivie par un
+ * cache par rendez-vous : une session encore valide est renvoyée sans appel à Stripe (métrique
+ * {@code payment.checkout.sessions}, par résultat {@code reused}, {@code created}, {@code refreshed} ou
+ * {@code fallback}). Si Stripe est indisponible, la session en cours est servie tant qu'elle n'a pas
+ * réellement expiré.
+ * <p>
+ * Une session qui expire avant la fin de la réservation (réservation plus longue que la durée maximale
+ * d'une session Stripe) est recréée en arrière-plan dès son expiration chez Stripe, jamais avant : un
+ * client en train de la payer ne la perd pas. Son expiration ne fait pas échouer le paiement
+ * ({@link #markSessionExpired}) ; le client qui revient trouve la nouvelle session sans attendre Stripe.
+ * <p>
+ * Une session n'est jamais considérée valide au-delà de la réservation temporaire du rendez-vous
+ * ({@code app.booking.slot-hold-minutes} après sa création), annulée à cette échéance par le
+ * {@link SlotHoldService}. Une session bornée par la réservation est réutilisée jusqu'à son terme
+ * sans être renouvelée : une nouvelle session ne vivrait pas plus longtemps.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentService {
 
+    /** Clé de {@link Payment#getMetadata()} portant la date d'expiration de la session Checkout. */
+    private static final String CHECKOUT_EXPIRES_AT = "checkoutExpiresAt";
+
+    /** Validité restante minimale d'une session servie en repli lorsque Stripe est indisponible. */
+    private static final Duration FALLBACK_MIN_VALIDITY = Duration.ofMinutes(1);
+
+    /** Bornes imposées par Stripe à {@code expires_at} (30 min à 24 h après la création), avec une marge. */
+    private static final Duration STRIPE_MIN_SESSION_LIFETIME = Duration.ofMinutes(31);
+    private static final Duration STRIPE_MAX_SESSION_LIFETIME = Duration.ofHours(23);
+
     private final AppointmentRepository appointmentRepository;
     private final PaymentRepository paymentRepository;
+    private final AppointmentExpiryRepository appointmentExpiryRepository;
     private final AuditService auditService;
     private final EmailService emailService;
     private final UserService userService;
-
-    /** Clé secrète Stripe (mode test/production), injectée via configuration. */
-    @Value("${stripe.api-key}")
-    private String stripeApiKey;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentGateway paymentGateway;
+    private final MeterRegistry meterRegistry;
 
     /** URL de base du frontend pour les retours success/cancel. */
     @Value("${app.frontend.url}")
     private String frontendUrl;
 
     /**
-     * Initialise le SDK Stripe avec la clé API au démarrage du contexte.
-     * Requis par {@link com.stripe.Stripe#apiKey}.
+     * Durée de validité restante (en minutes) en dessous de laquelle une session Checkout renouvelable
+     * n'est plus réutilisée : une nouvelle session est créée à la demande du client.
+     */
+    @Value("${app.payment.checkout.refresh-ahead-minutes:30}")
+    private Integer refreshAheadMinutes;
+
+    /** Durée (en minutes) pendant laquelle un rendez-vous non payé garde son créneau. */
+    @Value("${app.booking.slot-hold-minutes:15}")
+    private Integer holdMinutes;
+
+    /** Nombre maximal de sessions Checkout suivies en mémoire. */
+    @Value("${app.payment.checkout.cache-size:10000}")
+    private Integer checkoutCacheSize;
+
+    private TransactionTemplate readOnlyTransaction;
+    private Cache<UUID, CachedSession> checkoutSessions;
+    private ThreadPoolExecutor refreshExecutor;
+
+    /**
+     * Prépare la transaction en lecture seule utilisée avant les appels à Stripe,
+     * ainsi que le cache des sessions Checkout et son pool de renouvellement.
      */
     @PostConstruct
     public void init() {
-        Stripe.apiKey = stripeApiKey;
+        readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransaction.setReadOnly(true);
+        checkoutSessions = Caffeine.newBuilder()
+                .maximumSize(checkoutCacheSize)
+                .expireAfter(Expiry.<UUID, CachedSession>writing((appointmentId, cached) -> {
+                    Duration remaining = Duration.between(Instant.now(), cached.session().expiresAt());
+                    return remaining.isNegative() ? Duration.ZERO : remaining;
+                }))
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener(this::onCheckoutSessionRemoved)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, checkoutSessions, "checkoutSessions");
+        // Un renouvellement écarté (file pleine) sera fait à la demande, à la prochaine visite du client
+        refreshExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100),
+                Thread.ofPlatform().name("checkout-refresh-", 1).daemon().factory(),
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
     }
 
     /**
      * Crée une session Stripe Checkout pour payer un rendez-vous donné.
      * <ul>
      *   <li>Vérifie l'existence du rendez-vous et l'appartenance à l'utilisateur</li>
-     *   <li>Empêche la création si un paiement existe déjà pour ce rendez-vous</li>
-     *   <li>Construit la session en mode paiement unique avec une ligne (service)</li>
+     *   <li>Empêche la création si un paiement non en attente existe déjà pour ce rendez-vous</li>
+     *   <li>Renvoie, sans appel à Stripe, la session en cours si elle reste valide assez longtemps</li>
+     *   <li>Sinon construit la session en mode paiement unique avec une ligne (service)</li>
      *   <li>Persiste un enregistrement {@link Payment} en statut {@link PaymentStatus#PENDING}</li>
      * </ul>
+     * L'appel à Stripe est fait hors transaction (voir {@link #saveSession}).
      *
      * @param request   dto contenant l'ID du rendez-vous cible
      * @param userEmail email du demandeur (doit être le propriétaire du rendez-vous)
      * @return objet contenant l'ID de session Stripe et l'URL publique Checkout
      * @throws StripeException problème de communication avec Stripe
-     * @throws IllegalArgumentException si rendez-vous introuvable, accès interdit, ou paiement déjà existant
+     * @throws IllegalArgumentException si rendez-vous introuvable, accès interdit, paiement déjà existant,
+     *                                  ou rendez-vous modifié pendant la création de la session
      */
-    @Transactional
     public CheckoutResponse createCheckoutSession(CreateCheckoutRequest request, String userEmail)
             throws StripeException {
-        Appointment appointment = appointmentRepository.findById(request.getAppointmentId())
-                .orElseThrow(() -> new IllegalArgumentException("Rendez-vous non trouvé"));
-
-        if (!appointment.getUser().getEmail().equals(userEmail)) {
-            throw new IllegalArgumentException("Accès non autorisé");
-        }
-
-        if (paymentRepository.findByAppointmentId(appointment.getId()).isPresent()) {
-            throw new IllegalArgumentException("Un paiement existe déjà pour ce rendez-vous");
-        }
-
-        SessionCreateParams params = SessionCreateParams.builder()
-                .setMode(SessionCreateParams.Mode.PAYMENT)
-                .setSuccessUrl(frontendUrl + "/payment/success?session_id={CHECKOUT_SESSION_ID}")
-                .setCancelUrl(frontendUrl + "/payment/cancel?appointment_id=" + appointment.getId())
-                .addLineItem(SessionCreateParams.LineItem.builder()
-                        .setQuantity(1L)
-                        .setPriceData(SessionCreateParams.LineItem.PriceData.builder()
-                                .setCurrency("eur")
-                                .setUnitAmount((long) appointment.getService().getPriceCents())
-                                .setProductData(SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                        .setName(appointment.getService().getName())
-                                        .setDescription("Rendez-vous avec " + appointment.getStaffMember().getFullName())
-                                        .build())
-                                .build())
-                        .build())
-                .putMetadata("appointmentId", appointment.getId().toString())
-                .putMetadata("userId", appointment.getUser().getId().toString())
-                .build();
+        CheckoutDraft draft = readOnlyTransaction.execute(tx -> {
+            Appointment appointment = appointmentRepository.findById(request.getAppointmentId())
+                    .orElseThrow(() -> new IllegalArgumentException("Rendez-vous non trouvé"));
 
-        Session session = Session.create(params);
-
-        Payment payment = Payment.builder()
-                .appointment(appointment)
-                .provider("STRIPE")
-                .providerSessionId(session.getId())
-                .providerPaymentId(session.getPaymentIntent())
-                .checkoutUrl(session.getUrl())
-                .amountCents(appointment.getService().getPriceCents())
-                .currency("EUR")
-                .status(PaymentStatus.PENDING)
-                .metadata(new HashMap<>())
-                .build();
-
-        paymentRepository.save(payment);
-        log.info("Checkout session created for appointment {}: {}", appointment.getId(), session.getId());
+            if (!appointment.getUser().getEmail().equals(userEmail)) {
+                throw new IllegalArgumentException("Accès non autorisé");
+            }
+            return draftOf(appointment);
+        });
 
-        return CheckoutResponse.builder()
-                .sessionId(session.getId())
-                .url(session.getUrl())
-                .build();
+        CheckoutResponse response = reuseOrCreate(draft);
+        log.info("Checkout session for appointment {}: {}", draft.appointmentId(), response.getSessionId());
+        return response;
     }
 
     /**
-     * Point d'entrée pour traiter un webhook Stripe (événements paiement).
+     * Marque un paiement comme réussi et confirme le rendez-vous associé, sans appel à Stripe
+     * (l'ID du payment intent est lu dans l'événement webhook).
+     * Sans effet si le paiement est déjà traité : un événement rejoué n'est appliqué qu'une fois.
      * <p>
-     * Cette méthode peut être utilisée pour ajouter une logique métier supplémentaire
-     * lors de la réception d'un webhook Stripe (logs d'audit, notifications, etc.).
-     *
-     * @param payload   corps brut du webhook
-     * @param sigHeader en-tête {@code Stripe-Signature}
-     */
-    @Transactional
-    public void handleWebhook(String payload, String sigHeader) {
-        log.info("Webhook received - Payload length: {} bytes, Signature present: {}",
-                payload != null ? payload.length() : 0,
-                sigHeader != null && !sigHeader.isEmpty());
-
-        // Log des informations du webhook pour l'audit
-        if (payload != null && payload.contains("checkout.session.completed")) {
-            log.info("Checkout session completed event received");
-        } else if (payload != null && payload.contains("payment_intent.succeeded")) {
-            log.info("Payment intent succeeded event received");
-        } else if (payload != null && payload.contains("checkout.session.expired")) {
-            log.info("Checkout session expired event received");
-        }
-
-        // Ici, on pourrait ajouter d'autres traitements comme :
-        // - Enregistrer le webhook brut dans une table d'audit
-        // - Envoyer des notifications
-        // - Déclencher des événements métier
-    }
-
-    /**
-     * Marque un paiement comme réussi et confirme le rendez-vous associé.
+     * Le rendez-vous n'est confirmé que s'il est encore en attente (mise à jour conditionnelle,
+     * {@link AppointmentExpiryRepository#confirmIfPending}). Un paiement arrivé après l'annulation du
+     * rendez-vous (réservation temporaire expirée, annulation par le client) ne le ressuscite pas :
+     * le paiement passe en {@link PaymentStatus#REFUND_REQUIRED} et les administrateurs sont prévenus.
      * <p>
-     * Récupère la {@link Session} Stripe pour compléter l'ID du payment intent si nécessaire,
-     * puis passe le paiement à {@link PaymentStatus#SUCCEEDED} et confirme le rendez-vous.
+     * Une session payée qui n'est plus celle d'aucun paiement (remplacée entre-temps) est rattachée au
+     * paiement encore en attente du rendez-vous (métadonnée {@code appointmentId} de la session). À défaut,
+     * l'argent reçu est signalé aux administrateurs.
      *
-     * @param appointmentId identifiant du rendez-vous (informative log)
-     * @param sessionId     identifiant de session Stripe Checkout
-     * @throws IllegalArgumentException si aucun paiement n'est lié à la session
+     * @param appointmentId   identifiant du rendez-vous (métadonnée de la session), ou {@code null} si inconnu
+     * @param sessionId       identifiant de session Stripe Checkout
+     * @param paymentIntentId identifiant du payment intent, ou {@code null} si inconnu
      */
     @Transactional
-    public void markPaymentSucceeded(UUID appointmentId, String sessionId) {
+    public void markPaymentSucceeded(UUID appointmentId, String sessionId, String paymentIntentId) {
         Payment payment = paymentRepository.findByProviderSessionId(sessionId)
-                .orElseThrow(() -> new IllegalArgumentException("Paiement non trouvé"));
+                .or(() -> pendingPaymentOf(appointmentId, sessionId))
+                .orElse(null);
+        if (payment == null) {
+            flagUnmatchedPayment(appointmentId, sessionId, paymentIntentId);
+            return;
+        }
+        if (payment.getStatus() == PaymentStatus.SUCCEEDED || payment.getStatus() == PaymentStatus.REFUND_REQUIRED) {
+            log.debug("Payment for session {} already {}", sessionId, payment.getStatus());
+            return;
+        }
 
-        try {
-            Session session = Session.retrieve(sessionId);
-            if (session.getPaymentIntent() != null) {
-                payment.setProviderPaymentId(session.getPaymentIntent());
-            }
-        } catch (StripeException e) {
-            log.error("Error retrieving Stripe session: {}", e.getMessage());
+        if (paymentIntentId != null) {
+            payment.setProviderPaymentId(paymentIntentId);
+        }
+        checkoutSessions.invalidate(payment.getAppointment().getId());
+
+        // Verrouille la ligne du rendez-vous jusqu'au commit : l'expiration de la réservation attend ou échoue
+        if (appointmentExpiryRepository.confirmIfPending(payment.getAppointment().getId()) == 0) {
+            flagForRefund(payment, appointmentId, sessionId);
+            return;
         }
 
         payment.markSucceeded();
         paymentRepository.save(payment);
 
-        // Confirmer le rendez-vous
+        // Rendez-vous confirmé par la mise à jour conditionnelle
         Appointment appointment = payment.getAppointment();
         appointment.confirm();
-        appointmentRepository.save(appointment);
+        eventPublisher.publishEvent(AppointmentSlotChangedEvent.of(appointment));
 
         // Ajouter les points de fidélité au client
         User user = appointment.getUser();
@@ -221,7 +265,64 @@ public class PaymentService {
     }
 
     /**
-     * Marque un paiement comme échoué et envoie un email au client.
+     * Paiement encore en attente d'un rendez-vous, rattaché à la session payée qui l'a réglé.
+     */
+    private Optional<Payment> pendingPaymentOf(UUID appointmentId, String sessionId) {
+        if (appointmentId == null) {
+            return Optional.empty();
+        }
+        return paymentRepository.findByAppointmentId(appointmentId)
+                .filter(payment -> payment.getStatus() == PaymentStatus.PENDING)
+                .map(payment -> {
+                    log.warn("Paid session {} replaced by {} for appointment {}, payment matched by appointment",
+                            sessionId, payment.getProviderSessionId(), appointmentId);
+                    payment.setProviderSessionId(sessionId);
+                    return payment;
+                });
+    }
+
+    /**
+     * Signale aux administrateurs un paiement reçu pour une session qui ne correspond à aucun paiement
+     * en attente (paiement en double, ou paiement supprimé) : il doit être remboursé ou rattaché à la main.
+     */
+    private void flagUnmatchedPayment(UUID appointmentId, String sessionId, String paymentIntentId) {
+        log.error("Payment received for session {} (appointment {}) matches no pending payment: manual review required",
+                sessionId, appointmentId);
+        eventPublisher.publishEvent(AdminNotificationEvent.of("Paiements à rembourser", String.format(
+                "Paiement reçu sans paiement en attente correspondant, pour le rendez-vous %s\n"
+                        + "Session Stripe : %s\nPayment intent : %s",
+                appointmentId != null ? appointmentId : "inconnu", sessionId, paymentIntentId)));
+    }
+
+    /**
+     * Enregistre un paiement reçu pour un rendez-vous qui n'est plus en attente : le montant doit être
+     * remboursé (ou le rendez-vous reprogrammé) par un administrateur.
+     */
+    private void flagForRefund(Payment payment, UUID appointmentId, String sessionId) {
+        payment.markRefundRequired();
+        paymentRepository.save(payment);
+
+        Appointment appointment = payment.getAppointment();
+        log.warn("Payment received for appointment {} which is {}: refund required", appointmentId, appointment.getStatus());
+        eventPublisher.publishEvent(AdminNotificationEvent.of("Paiements à rembourser", String.format(
+                "Paiement de %.2f € reçu pour le rendez-vous %s de %s, qui est %s\nSession Stripe : %s",
+                payment.getAmountCents() / 100.0, appointment.getId(), appointment.getUser().getEmail(),
+                appointment.getStatus(), sessionId)));
+
+        // Audit log
+        auditService.logAction(appointment.getUser().getEmail(), "PAYMENT_REFUND_REQUIRED", "Payment", payment.getId(),
+                java.util.Map.of(
+                        "appointmentId", appointment.getId(),
+                        "appointmentStatus", appointment.getStatus().name(),
+                        "amountCents", payment.getAmountCents(),
+                        "sessionId", sessionId
+                ));
+    }
+
+    /**
+     * Marque un paiement comme échoué, annule le rendez-vous encore en attente
+     * (libérant immédiatement son créneau) et envoie un email au client.
+     * Sans effet si le paiement n'est plus en attente (événement rejoué ou arrivé après le succès).
      *
      * @param appointmentId identifiant du rendez-vous
      * @param sessionId     identifiant de session Stripe Checkout
@@ -230,11 +331,21 @@ public class PaymentService {
     public void markPaymentFailed(UUID appointmentId, String sessionId) {
         Payment payment = paymentRepository.findByProviderSessionId(sessionId)
                 .orElseThrow(() -> new IllegalArgumentException("Paiement non trouvé"));
+        if (payment.getStatus() != PaymentStatus.PENDING) {
+            log.debug("Payment for session {} is {}, failure ignored", sessionId, payment.getStatus());
+            return;
+        }
 
         payment.markFailed();
         paymentRepository.save(payment);
+        checkoutSessions.invalidate(payment.getAppointment().getId());
 
         Appointment appointment = payment.getAppointment();
+        if (appointment.getStatus() == AppointmentStatus.PENDING) {
+            appointment.cancel("Échec du paiement");
+            appointmentRepository.save(appointment);
+            eventPublisher.publishEvent(AppointmentSlotChangedEvent.of(appointment));
+        }
 
         log.info("Payment failed for appointment {}", appointmentId);
 
@@ -250,6 +361,52 @@ public class PaymentService {
                 ));
     }
 
+    /**
+     * Applique l'expiration d'une session Checkout chez Stripe.
+     * <p>
+     * Une session renouvelable (arrivée à son terme avant la réservation temporaire) laisse le paiement en
+     * attente tant que la réservation court : elle est remplacée en arrière-plan, ou à la prochaine visite
+     * du client. Une session déjà remplacée est ignorée. Sinon, le paiement échoue comme avec
+     * {@link #markPaymentFailed}.
+     *
+     * @param appointmentId identifiant du rendez-vous
+     * @param sessionId     identifiant de session Stripe Checkout
+     */
+    @Transactional
+    public void markSessionExpired(UUID appointmentId, String sessionId) {
+        Payment payment = paymentRepository.findByProviderSessionId(sessionId).orElse(null);
+        if (payment == null) {
+            log.debug("Expired checkout session {} of appointment {} was already replaced", sessionId, appointmentId);
+            return;
+        }
+        CachedSession stored = sessionOf(payment);
+        if (payment.getStatus() == PaymentStatus.PENDING && stored != null && stored.renewable()
+                && stored.holdExpiresAt().isAfter(Instant.now())) {
+            log.debug("Checkout session {} expired during the hold of appointment {}, payment kept pending",
+                    sessionId, appointmentId);
+            return;
+        }
+        markPaymentFailed(appointmentId, sessionId);
+    }
+
+    /**
+     * Expire chez Stripe la session Checkout encore ouverte d'un rendez-vous dont le créneau a été libéré
+     * (expiration de la réservation temporaire), pour que le client ne puisse plus la payer.
+     * Un échec est seulement journalisé (voir {@link #expireQuietly}).
+     *
+     * @param appointmentId identifiant du rendez-vous
+     */
+    public void expireOpenCheckoutSession(UUID appointmentId) {
+        String sessionId = readOnlyTransaction.execute(tx -> paymentRepository.findByAppointmentId(appointmentId)
+                .filter(payment -> payment.getStatus() == PaymentStatus.PENDING)
+                .map(Payment::getProviderSessionId)
+                .orElse(null));
+        checkoutSessions.invalidate(appointmentId);
+        if (sessionId != null) {
+            expireQuietly(sessionId);
+        }
+    }
+
     /**
      * Recherche un paiement par fournisseur et identifiant de paiement externe.
      *
@@ -322,91 +479,365 @@ public class PaymentService {
 
     /**
      * Récupère ou recrée l'URL de paiement pour un rendez-vous en attente.
-     * Si le paiement existe avec une URL, la retourne.
-     * Sinon, recrée une nouvelle session Stripe.
+     * Si la session en cours reste valide assez longtemps, la retourne sans appel à Stripe.
+     * Sinon, recrée une nouvelle session Stripe (hors transaction, voir {@link #saveSession}).
      *
      * @param appointmentId identifiant du rendez-vous
      * @param userEmail email de l'utilisateur
      * @return CheckoutResponse avec l'URL de paiement
      * @throws StripeException si erreur Stripe
-     * @throws IllegalArgumentException si rendez-vous non trouvé ou accès refusé
+     * @throws IllegalArgumentException si rendez-vous non trouvé, accès refusé,
+     *                                  ou rendez-vous modifié pendant la création de la session
      */
-    @Transactional
     public CheckoutResponse getOrCreatePaymentUrl(UUID appointmentId, String userEmail) throws StripeException {
-        Appointment appointment = appointmentRepository.findById(appointmentId)
-                .orElseThrow(() -> new IllegalArgumentException("Rendez-vous non trouvé"));
+        CheckoutDraft draft = readOnlyTransaction.execute(tx -> {
+            Appointment appointment = appointmentRepository.findById(appointmentId)
+                    .orElseThrow(() -> new IllegalArgumentException("Rendez-vous non trouvé"));
+
+            // Vérifier que le rendez-vous appartient à l'utilisateur
+            if (!appointment.getUser().getEmail().equals(userEmail)) {
+                throw new IllegalArgumentException("Accès non autorisé");
+            }
+
+            // Vérifier que le rendez-vous est en attente
+            if (appointment.getStatus() != AppointmentStatus.PENDING) {
+                throw new IllegalArgumentException("Le rendez-vous n'est pas en attente de paiement");
+            }
+            return draftOf(appointment);
+        });
+
+        CheckoutResponse response = reuseOrCreate(draft);
+        log.info("Payment URL for appointment {}: {}", appointmentId, response.getUrl());
+        return response;
+    }
+
+    /**
+     * Lit, dans la transaction courante, l'état nécessaire à la création d'une session.
+     *
+     * @throws IllegalArgumentException si un paiement non en attente existe déjà pour ce rendez-vous
+     */
+    private CheckoutDraft draftOf(Appointment appointment) {
+        Optional<Payment> payment = paymentRepository.findByAppointmentId(appointment.getId());
+        if (payment.isPresent() && payment.get().getStatus() != PaymentStatus.PENDING) {
+            throw new IllegalArgumentException("Un paiement existe déjà pour ce rendez-vous");
+        }
+        return CheckoutDraft.of(appointment, holdExpiresAt(appointment),
+                payment.map(Payment::getProviderSessionId).orElse(null),
+                payment.map(this::currentSession).orElse(null));
+    }
+
+    /**
+     * Échéance de la réservation temporaire du rendez-vous, au-delà de laquelle il est annulé s'il n'est pas payé.
+     */
+    private Instant holdExpiresAt(Appointment appointment) {
+        return appointment.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant()
+                .plus(Duration.ofMinutes(holdMinutes));
+    }
+
+    /**
+     * Renvoie la session en cours si elle est réutilisable (voir {@link #isReusable}), sinon en crée une nouvelle.
+     */
+    private CheckoutResponse reuseOrCreate(CheckoutDraft draft) throws StripeException {
+        if (draft.current() != null && isReusable(draft.current())) {
+            meterRegistry.counter("payment.checkout.sessions", "result", "reused").increment();
+            return toResponse(draft.current().session());
+        }
+
+        PaymentGateway.CheckoutSession session;
+        try {
+            session = paymentGateway.createCheckoutSession(buildSessionParams(draft));
+        } catch (ApiConnectionException e) {
+            // Stripe indisponible : la session en cours reste payable jusqu'à son expiration effective
+            PaymentGateway.CheckoutSession current = draft.current() != null ? draft.current().session() : null;
+            if (current != null && current.expiresAt().isAfter(Instant.now().plus(FALLBACK_MIN_VALIDITY))) {
+                meterRegistry.counter("payment.checkout.sessions", "result", "fallback").increment();
+                log.warn("Payment provider unavailable, serving current checkout session of appointment {}: {}",
+                        draft.appointmentId(), e.getMessage());
+                return toResponse(current);
+            }
+            throw e;
+        }
+        meterRegistry.counter("payment.checkout.sessions", "result", "created").increment();
+        return saveSession(draft, session);
+    }
+
+    /**
+     * Session en cours d'un paiement : celle du cache si elle correspond encore au paiement,
+     * sinon celle enregistrée en base, qui est alors suivie par le cache.
+     *
+     * @return la session, ou {@code null} si le paiement n'a pas de session dont l'expiration est connue
+     */
+    private CachedSession currentSession(Payment payment) {
+        UUID appointmentId = payment.getAppointment().getId();
+        CachedSession cached = checkoutSessions.getIfPresent(appointmentId);
+        if (cached != null && cached.session().id().equals(payment.getProviderSessionId())) {
+            return cached;
+        }
+
+        CachedSession stored = sessionOf(payment);
+        if (stored != null && isReusable(stored)) {
+            checkoutSessions.put(appointmentId, stored);
+        }
+        return stored;
+    }
+
+    /**
+     * Session enregistrée avec un paiement.
+     *
+     * @return la session, ou {@code null} si son expiration n'est pas connue
+     */
+    private CachedSession sessionOf(Payment payment) {
+        Object expiresAt = payment.getMetadata() != null ? payment.getMetadata().get(CHECKOUT_EXPIRES_AT) : null;
+        if (payment.getCheckoutUrl() == null || expiresAt == null) {
+            return null;
+        }
+        return new CachedSession(new PaymentGateway.CheckoutSession(payment.getProviderSessionId(),
+                payment.getCheckoutUrl(), payment.getProviderPaymentId(), Instant.parse(expiresAt.toString())),
+                holdExpiresAt(payment.getAppointment()));
+    }
+
+    /**
+     * Une session renouvelable est réutilisée si elle reste valide au moins
+     * {@code app.payment.checkout.refresh-ahead-minutes} ; une session bornée par la réservation
+     * temporaire l'est jusqu'à son expiration.
+     */
+    private boolean isReusable(CachedSession cached) {
+        Instant now = Instant.now();
+        return cached.renewable()
+                ? cached.session().expiresAt().isAfter(now.plus(Duration.ofMinutes(refreshAheadMinutes)))
+                : cached.session().expiresAt().isAfter(now);
+    }
+
+    /**
+     * Une session renouvelable a expiré chez Stripe avant la réservation : la recréer en arrière-plan pour
+     * que le client trouve une URL de paiement valide sans attendre Stripe.
+     */
+    private void onCheckoutSessionRemoved(UUID appointmentId, CachedSession cached, RemovalCause cause) {
+        if (cause == RemovalCause.EXPIRED && cached.renewable()) {
+            refreshExecutor.execute(() -> refreshSession(appointmentId, cached.session().id()));
+        }
+    }
 
-        // Vérifier que le rendez-vous appartient à l'utilisateur
-        if (!appointment.getUser().getEmail().equals(userEmail)) {
-            throw new IllegalArgumentException("Accès non autorisé");
+    /**
+     * Remplace la session expirée d'un rendez-vous encore en attente. Sans effet tant que la session
+     * enregistrée n'a pas expiré : un client peut encore la payer.
+     *
+     * @param appointmentId     identifiant du rendez-vous
+     * @param expiringSessionId session à remplacer
+     */
+    void refreshSession(UUID appointmentId, String expiringSessionId) {
+        try {
+            CheckoutDraft draft = readOnlyTransaction.execute(tx -> {
+                Appointment appointment = appointmentRepository.findById(appointmentId).orElse(null);
+                if (appointment == null || appointment.getStatus() != AppointmentStatus.PENDING) {
+                    return null;
+                }
+                CachedSession expired = paymentRepository.findByAppointmentId(appointmentId)
+                        .filter(payment -> payment.getStatus() == PaymentStatus.PENDING)
+                        .filter(payment -> expiringSessionId.equals(payment.getProviderSessionId()))
+                        .map(this::sessionOf)
+                        .filter(stored -> !stored.session().expiresAt().isAfter(Instant.now()))
+                        .orElse(null);
+                return expired != null
+                        ? CheckoutDraft.of(appointment, holdExpiresAt(appointment), expiringSessionId, expired)
+                        : null;
+            });
+            if (draft == null) {
+                return;
+            }
+
+            PaymentGateway.CheckoutSession session = paymentGateway.createCheckoutSession(buildSessionParams(draft));
+            meterRegistry.counter("payment.checkout.sessions", "result", "refreshed").increment();
+            saveSession(draft, session);
+            log.debug("Checkout session of appointment {} refreshed: {}", appointmentId, session.id());
+        } catch (StripeException | RuntimeException e) {
+            log.warn("Could not refresh checkout session of appointment {}: {}", appointmentId, e.getMessage());
         }
+    }
 
-        // Vérifier que le rendez-vous est en attente
-        if (appointment.getStatus() != be.salon.coiffurereservation.entity.AppointmentStatus.PENDING) {
-            throw new IllegalArgumentException("Le rendez-vous n'est pas en attente de paiement");
+    /**
+     * Enregistre une session Checkout créée hors transaction, dans une transaction courte.
+     * <p>
+     * L'enregistrement est une écriture conditionnelle, arbitrée par la base :
+     * <ul>
+     *   <li>Premier checkout : insertion du paiement, l'index unique sur {@code payment.appointment_id}
+     *       ne laisse gagner qu'un checkout concurrent</li>
+     *   <li>Remplacement : {@link PaymentRepository#swapCheckoutSession} ne remplace la session que si
+     *       elle est toujours celle lue avant l'appel à Stripe</li>
+     * </ul>
+     * Politique en cas d'état devenu obsolète pendant l'appel à Stripe :
+     * <ul>
+     *   <li>Rendez-vous supprimé ou changé de statut (annulé, expiré…), ou paiement plus en attente :
+     *       la session est expirée chez Stripe et la demande est refusée</li>
+     *   <li>Un checkout concurrent a enregistré sa session le premier : la nouvelle session est expirée
+     *       chez Stripe et la session enregistrée est renvoyée, le client n'a ainsi qu'une URL de paiement</li>
+     * </ul>
+     * La session remplacée, le cas échéant, est expirée chez Stripe pour ne pas pouvoir être payée en double,
+     * sauf si elle a déjà expiré. L'expiration enregistrée est bornée par l'échéance de la réservation temporaire.
+     *
+     * @param draft   état du rendez-vous lu avant l'appel à Stripe
+     * @param session session créée chez Stripe
+     * @return la session enregistrée pour le rendez-vous
+     * @throws IllegalArgumentException si le rendez-vous a changé depuis la lecture
+     */
+    private CheckoutResponse saveSession(CheckoutDraft draft, PaymentGateway.CheckoutSession created) {
+        PaymentGateway.CheckoutSession session = created.expiresAt().isAfter(draft.holdExpiresAt())
+                ? new PaymentGateway.CheckoutSession(created.id(), created.url(), created.paymentIntentId(),
+                        draft.holdExpiresAt())
+                : created;
+        boolean saved;
+        try {
+            saved = Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+                Appointment appointment = appointmentRepository.findById(draft.appointmentId())
+                        .orElseThrow(() -> new IllegalArgumentException("Rendez-vous non trouvé"));
+                if (appointment.getStatus() != draft.status()) {
+                    throw new IllegalArgumentException("Le rendez-vous a été modifié pendant la création du paiement");
+                }
+
+                if (draft.observedSessionId() == null) {
+                    paymentRepository.saveAndFlush(Payment.builder()
+                            .appointment(appointment)
+                            .provider("STRIPE")
+                            .amountCents(draft.priceCents())
+                            .currency("EUR")
+                            .status(PaymentStatus.PENDING)
+                            .providerSessionId(session.id())
+                            .providerPaymentId(session.paymentIntentId())
+                            .checkoutUrl(session.url())
+                            .metadata(new HashMap<>(Map.of(CHECKOUT_EXPIRES_AT, session.expiresAt().toString())))
+                            .build());
+                    return true;
+                }
+                return paymentRepository.swapCheckoutSession(draft.appointmentId(), draft.observedSessionId(),
+                        session.id(), session.paymentIntentId(), session.url(), session.expiresAt().toString()) == 1;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            // Un premier checkout concurrent a inséré le paiement du rendez-vous
+            saved = false;
+        } catch (RuntimeException e) {
+            expireQuietly(session.id());
+            throw e;
+        }
+
+        if (!saved) {
+            expireQuietly(session.id());
+            CheckoutResponse winner = storedSession(draft.appointmentId());
+            log.info("Concurrent checkout for appointment {}: kept session {}, expired {}",
+                    draft.appointmentId(), winner.getSessionId(), session.id());
+            return winner;
+        }
+
+        checkoutSessions.put(draft.appointmentId(), new CachedSession(session, draft.holdExpiresAt()));
+        if (draft.observedSessionId() != null && (draft.current() == null
+                || draft.current().session().expiresAt().isAfter(Instant.now()))) {
+            expireQuietly(draft.observedSessionId());
         }
+        return toResponse(session);
+    }
 
-        // Chercher le paiement existant
-        Optional<Payment> existingPayment = paymentRepository.findByAppointmentId(appointmentId);
+    /**
+     * Session enregistrée par le checkout concurrent qui l'a emporté.
+     *
+     * @throws IllegalArgumentException si le paiement n'est plus en attente
+     */
+    private CheckoutResponse storedSession(UUID appointmentId) {
+        return readOnlyTransaction.execute(tx -> paymentRepository.findByAppointmentId(appointmentId)
+                .filter(payment -> payment.getStatus() == PaymentStatus.PENDING)
+                .map(PaymentService::toResponse)
+                .orElseThrow(() -> new IllegalArgumentException("Un paiement existe déjà pour ce rendez-vous")));
+    }
 
-        // Si le paiement existe et a une URL valide, la retourner
-        if (existingPayment.isPresent() && existingPayment.get().getCheckoutUrl() != null) {
-            Payment payment = existingPayment.get();
-            return CheckoutResponse.builder()
-                    .sessionId(payment.getProviderSessionId())
-                    .url(payment.getCheckoutUrl())
-                    .build();
+    /**
+     * Paramètres de la session Checkout d'un rendez-vous. Son expiration chez Stripe suit la réservation
+     * temporaire, dans les bornes acceptées par Stripe.
+     *
+     * @throws IllegalArgumentException si la réservation temporaire a expiré
+     */
+    private SessionCreateParams buildSessionParams(CheckoutDraft draft) {
+        Instant now = Instant.now();
+        if (!draft.holdExpiresAt().isAfter(now)) {
+            throw new IllegalArgumentException("La réservation du créneau a expiré");
+        }
+        Instant expiresAt = draft.holdExpiresAt().isAfter(now.plus(STRIPE_MIN_SESSION_LIFETIME))
+                ? draft.holdExpiresAt()
+                : now.plus(STRIPE_MIN_SESSION_LIFETIME);
+        if (expiresAt.isAfter(now.plus(STRIPE_MAX_SESSION_LIFETIME))) {
+            expiresAt = now.plus(STRIPE_MAX_SESSION_LIFETIME);
         }
 
-        // Sinon, créer une nouvelle session (ou mettre à jour l'existante)
-        SessionCreateParams params = SessionCreateParams.builder()
+        return SessionCreateParams.builder()
                 .setMode(SessionCreateParams.Mode.PAYMENT)
+                .setExpiresAt(expiresAt.getEpochSecond())
                 .setSuccessUrl(frontendUrl + "/payment/success?session_id={CHECKOUT_SESSION_ID}")
-                .setCancelUrl(frontendUrl + "/payment/cancel?appointment_id=" + appointment.getId())
+                .setCancelUrl(frontendUrl + "/payment/cancel?appointment_id=" + draft.appointmentId())
                 .addLineItem(SessionCreateParams.LineItem.builder()
                         .setQuantity(1L)
                         .setPriceData(SessionCreateParams.LineItem.PriceData.builder()
                                 .setCurrency("eur")
-                                .setUnitAmount((long) appointment.getService().getPriceCents())
+                                .setUnitAmount((long) draft.priceCents())
                                 .setProductData(SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                        .setName(appointment.getService().getName())
-                                        .setDescription("Rendez-vous avec " + appointment.getStaffMember().getFullName())
+                                        .setName(draft.serviceName())
+                                        .setDescription("Rendez-vous avec " + draft.staffName())
                                         .build())
                                 .build())
                         .build())
-                .putMetadata("appointmentId", appointment.getId().toString())
-                .putMetadata("userId", appointment.getUser().getId().toString())
+                .putMetadata("appointmentId", draft.appointmentId().toString())
+                .putMetadata("userId", draft.userId().toString())
                 .build();
+    }
 
-        Session session = Session.create(params);
-
-        // Mettre à jour ou créer le paiement
-        Payment payment;
-        if (existingPayment.isPresent()) {
-            payment = existingPayment.get();
-            payment.setProviderSessionId(session.getId());
-            payment.setCheckoutUrl(session.getUrl());
-            payment.setProviderPaymentId(session.getPaymentIntent());
-        } else {
-            payment = Payment.builder()
-                    .appointment(appointment)
-                    .provider("STRIPE")
-                    .providerSessionId(session.getId())
-                    .providerPaymentId(session.getPaymentIntent())
-                    .checkoutUrl(session.getUrl())
-                    .amountCents(appointment.getService().getPriceCents())
-                    .currency("EUR")
-                    .status(PaymentStatus.PENDING)
-                    .metadata(new HashMap<>())
-                    .build();
+    /**
+     * Expire une session Checkout devenue inutile, pour qu'elle ne puisse plus être payée.
+     * Un échec est seulement journalisé : Stripe expire de toute façon la session à son {@code expires_at}.
+     */
+    private void expireQuietly(String sessionId) {
+        try {
+            paymentGateway.expireCheckoutSession(sessionId);
+        } catch (StripeException e) {
+            log.warn("Could not expire Stripe session {}: {}", sessionId, e.getMessage());
         }
+    }
 
-        paymentRepository.save(payment);
-        log.info("Payment URL created/updated for appointment {}: {}", appointment.getId(), session.getUrl());
+    private static CheckoutResponse toResponse(Payment payment) {
+        return CheckoutResponse.builder()
+                .sessionId(payment.getProviderSessionId())
+                .url(payment.getCheckoutUrl())
+                .build();
+    }
 
+    private static CheckoutResponse toResponse(PaymentGateway.CheckoutSession session) {
         return CheckoutResponse.builder()
-                .sessionId(session.getId())
-                .url(session.getUrl())
+                .sessionId(session.id())
+                .url(session.url())
                 .build();
     }
+
+    /**
+     * Données du rendez-vous lues avant l'appel à Stripe ; {@code status} et {@code observedSessionId}
+     * (session du paiement lors de la lecture, {@code null} si aucun paiement) servent de contrôle
+     * optimiste lors de l'enregistrement de la session, {@code current} est la session en cours
+     * dont l'expiration est connue, le cas échéant.
+     */
+    private record CheckoutDraft(UUID appointmentId, UUID userId, AppointmentStatus status,
+                                 String serviceName, String staffName, Integer priceCents, Instant holdExpiresAt,
+                                 String observedSessionId, CachedSession current) {
+
+        static CheckoutDraft of(Appointment appointment, Instant holdExpiresAt, String observedSessionId,
+                                CachedSession current) {
+            return new CheckoutDraft(appointment.getId(), appointment.getUser().getId(), appointment.getStatus(),
+                    appointment.getService().getName(), appointment.getStaffMember().getFullName(),
+                    appointment.getService().getPriceCents(), holdExpiresAt, observedSessionId, current);
+        }
+    }
+
+    /**
+     * Session suivie par le cache, avec l'échéance de la réservation temporaire du rendez-vous.
+     * Elle n'est renouvelable que si elle expire avant la réservation.
+     */
+    private record CachedSession(PaymentGateway.CheckoutSession session, Instant holdExpiresAt) {
+
+        boolean renewable() {
+            return session.expiresAt().isBefore(holdExpiresAt);
+        }
+    }
 }
@@ -4,6 +4,7 @@ package com.hairbook.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -29,6 +30,7 @@ public class RefundRequestService {
     private final AppointmentRepository appointmentRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${file.upload.dir:uploads/refund-justifications}")
     private String uploadDir;
@@ -103,7 +105,7 @@ public class RefundRequestService {
 
         log.info("Demande de remboursement créée: {} pour le rendez-vous: {}", refundRequest.getId(), appointmentIdStr);
 
-        // Envoyer un email à l'admin
+        // Notifier les administrateurs (email récapitulatif)
         sendAdminNotification(refundRequest);
 
         return toDTO(refundRequest);
@@ -309,23 +311,21 @@ public class RefundRequestService {
     }
 
     /**
-     * Envoie une notification à l'admin.
+     * Publie une notification pour les administrateurs, regroupée dans le récapitulatif
+     * envoyé par {@link AdminDigestService}.
      */
     private void sendAdminNotification(RefundRequest refundRequest) {
         try {
-            String subject = "Nouvelle demande de remboursement";
             LocalDate appointmentDate = refundRequest.getAppointment().getAppointmentDate();
             LocalDateTime appointmentDateTime = LocalDateTime.of(appointmentDate, refundRequest.getAppointment().getStartTime());
 
-            String body = String.format(
-                    "Une nouvelle demande de remboursement a été soumise.\n\n" +
-                            "Client: %s %s\n" +
+            String summary = String.format(
+                    "Client: %s %s\n" +
                             "Email: %s\n" +
                             "Rendez-vous: %s\n" +
                             "Service: %s\n" +
                             "Montant: %.2f€\n" +
-                            "Raison: %s\n\n" +
-                            "Veuillez traiter cette demande dans l'interface d'administration.",
+                            "Raison: %s",
                     refundRequest.getUser().getFirstName(),
                     refundRequest.getUser().getLastName(),
                     refundRequest.getUser().getEmail(),
@@ -335,10 +335,9 @@ public class RefundRequestService {
                     refundRequest.getReason()
             );
 
-            // TODO: Récupérer l'email admin depuis la configuration
-            emailService.sendSimpleEmail("coiffeurbelge@gmail.com", subject, body);
+            eventPublisher.publishEvent(AdminNotificationEvent.of("Demandes de remboursement", summary));
         } catch (Exception e) {
-            log.error("Erreur lors de l'envoi de l'email à l'admin", e);
+            log.error("Erreur lors de la notification de l'admin", e);
         }
     }
 
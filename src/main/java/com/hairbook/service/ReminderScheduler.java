@@ -1,60 +1,303 @@
 package com.hairbook.service;
 
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentReminder;
+import com.hairbook.entity.AppointmentStatus;
+import com.hairbook.repository.AppointmentReminderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * Tâche planifiée envoyant les emails de rappel pour les rendez-vous du lendemain.
+ * Planification et envoi des emails de rappel des rendez-vous confirmés.
  * <p>
- * Parcourt chaque jour les rendez-vous confirmés de J+1 et déclenche l'envoi d'un
- * email via {@link EmailService#sendAppointmentReminder(Appointment)}.
- * <br>
- * ⚠️ Nécessite {@code @EnableScheduling} dans une classe de configuration.
+ * Les délais des rappels sont configurables via le paramètre du salon {@code REMINDER_OFFSETS}
+ * (par défaut {@code 24h,2h}). Chaque rappel d'un rendez-vous a une heure d'envoi exacte
+ * (début du rendez-vous moins le délai) :
+ * <ul>
+ *   <li>Les rappels dont l'heure d'envoi tombe dans les {@code app.reminders.horizon-hours}
+ *       prochaines heures sont placés dans une roue temporelle (timer wheel de Caffeine)</li>
+ *   <li>La confirmation d'un rendez-vous planifie ses rappels ; une annulation les retire,
+ *       un déplacement les replanifie (et efface les traces des rappels déjà envoyés pour l'ancienne heure)</li>
+ *   <li>Une tâche horaire (et le démarrage) charge par lots les rappels entrant dans l'horizon</li>
+ *   <li>À échéance, un pool de {@code app.reminders.workers} threads met le rappel en file dans la
+ *       boîte d'envoi ({@link EmailOutboxService}) : les envois s'étalent au lieu d'un pic quotidien</li>
+ * </ul>
+ * La trace {@link AppointmentReminder}, unique par rendez-vous et type de rappel, est enregistrée
+ * dans la même transaction que l'email mis en file : une reprise après redémarrage, ou un rappel
+ * planifié sur deux instances, ne produit pas de doublon.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ReminderScheduler {
 
-    private final AppointmentRepository appointmentRepository;
+    private final AppointmentReminderRepository appointmentReminderRepository;
     private final EmailService emailService;
+    private final SalonSettingService salonSettingService;
+    private final ScheduledJobService scheduledJobService;
+    private final MeterRegistry meterRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    /** Nom de la tâche de chargement des rappels (verrou et administration). */
+    public static final String JOB_NAME = "reminder-scheduling";
+
+    /** Paramètre du salon listant les délais des rappels (ex : {@code 24h,2h,30m}). */
+    public static final String OFFSETS_SETTING = "REMINDER_OFFSETS";
+
+    /** Délais utilisés si le paramètre est absent. */
+    private static final String DEFAULT_OFFSETS = "24h,2h";
+
+    /** Plus petit UUID, point de départ de la pagination par clé. */
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    /** Retard maximal toléré pour un rappel dont l'heure d'envoi est passée (application arrêtée). */
+    private static final Duration CATCH_UP = Duration.ofMinutes(30);
+
+    /** Nombre de rendez-vous lus par lot lors du chargement. */
+    @Value("${app.reminders.chunk-size:100}")
+    private Integer chunkSize;
+
+    /** Nombre de threads d'envoi. */
+    @Value("${app.reminders.workers:2}")
+    private Integer workerCount;
+
+    /** Horizon (en heures) des rappels gardés en mémoire ; doit dépasser l'intervalle de chargement (1 h). */
+    @Value("${app.reminders.horizon-hours:2}")
+    private Integer horizonHours;
+
+    private ExecutorService workers;
+    private Cache<ReminderKey, Instant> wheel;
+
+    @PostConstruct
+    void init() {
+        workers = Executors.newFixedThreadPool(workerCount, Thread.ofPlatform().name("reminder-sender-", 1).factory());
+        wheel = Caffeine.newBuilder()
+                .expireAfter(Expiry.<ReminderKey, Instant>creating((key, fireAt) -> {
+                    Duration remaining = Duration.between(Instant.now(), fireAt);
+                    return remaining.isNegative() ? Duration.ZERO : remaining;
+                }))
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener(this::onRemoval)
+                .build();
+        Gauge.builder("reminders.scheduled", wheel, cache -> cache.estimatedSize())
+                .description("Rappels planifiés dans l'horizon")
+                .register(meterRegistry);
+        scheduledJobService.register(new ScheduledJob(JOB_NAME, ScheduledJobService.NOTIFICATIONS_POOL,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofMinutes(15), this::loadUpcomingReminders));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
 
     /**
-     * Tâche quotidienne (par défaut à 10:00) qui envoie les rappels pour les rendez-vous du lendemain.
-     * <p>
-     * Cron par défaut : {@code 0 0 10 * * *} (tous les jours à 10:00).
-     * Fenêtre traitée : [demain 00:00, après-demain 00:00).
+     * Charge toutes les heures les rappels entrant dans l'horizon.
+     * Exécutée dans le pool des notifications, par une seule instance (voir {@link ScheduledJobService}).
      */
-    @Scheduled(cron = "0 0 10 * * *")
-    public void sendDailyReminders() {
-        log.info("Starting daily reminder job");
+    @Scheduled(cron = "0 0 * * * *")
+    public void scheduleUpcomingReminders() {
+        scheduledJobService.run(JOB_NAME);
+    }
 
-        LocalDateTime tomorrow = LocalDateTime.now()
-                .plusDays(1)
-                .withHour(0).withMinute(0).withSecond(0).withNano(0);
-        LocalDateTime endOfTomorrow = tomorrow.plusDays(1);
+    /**
+     * Recharge les rappels de l'horizon au démarrage (rappels perdus lors de l'arrêt).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        scheduledJobService.run(JOB_NAME);
+    }
+
+    /**
+     * Planifie, replanifie ou retire les rappels d'un rendez-vous après commit.
+     *
+     * @param event rendez-vous confirmé, déplacé ou annulé
+     */
+    @TransactionalEventListener
+    public void onAppointmentChanged(AppointmentSlotChangedEvent event) {
+        wheel.asMap().keySet().removeIf(key -> key.appointmentId().equals(event.appointmentId()));
+        if (!event.active() || event.pending()) {
+            return;
+        }
 
-        List<Appointment> appointments = appointmentRepository.findConfirmedBetween(
-                tomorrow.toLocalDate(), tomorrow.toLocalTime(),
-                endOfTomorrow.toLocalDate(), endOfTomorrow.toLocalTime());
+        LocalDateTime start = LocalDateTime.of(event.date(), event.startTime());
+        for (Duration offset : getOffsets()) {
+            schedule(event.appointmentId(), offset, start);
+        }
+    }
 
-        log.info("Found {} appointments for tomorrow", appointments.size());
+    /**
+     * Charge par lots (pagination par clé) les rendez-vous confirmés dont un rappel
+     * doit partir dans l'horizon et le place dans la roue.
+     */
+    private void loadUpcomingReminders() {
+        LocalDateTime now = LocalDateTime.now();
+        int scheduled = 0;
+        for (Duration offset : getOffsets()) {
+            String type = typeOf(offset);
+            LocalDateTime from = now.plus(offset).minus(CATCH_UP);
+            LocalDateTime to = now.plus(offset).plusHours(horizonHours);
 
-        for (Appointment appointment : appointments) {
-            try {
+            LocalDate afterDate = from.toLocalDate();
+            LocalTime afterTime = from.toLocalTime();
+            UUID afterId = FIRST_ID;
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Appointment> chunk = appointmentReminderRepository.findChunkToRemind(type,
+                        from.toLocalDate(), from.toLocalTime(), to.toLocalDate(), to.toLocalTime(),
+                        afterDate, afterTime, afterId, Limit.of(chunkSize));
+                for (Appointment appointment : chunk) {
+                    if (schedule(appointment.getId(), offset,
+                            LocalDateTime.of(appointment.getAppointmentDate(), appointment.getStartTime()))) {
+                        scheduled++;
+                    }
+                }
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                Appointment last = chunk.get(chunk.size() - 1);
+                afterDate = last.getAppointmentDate();
+                afterTime = last.getStartTime();
+                afterId = last.getId();
+            }
+        }
+        log.info("Reminder wheel loaded: {} reminder(s) scheduled, {} pending", scheduled, wheel.estimatedSize());
+    }
+
+    /**
+     * Place un rappel dans la roue si son heure d'envoi tombe dans l'horizon
+     * et que le rendez-vous n'a pas encore commencé.
+     *
+     * @return {@code true} si le rappel a été planifié
+     */
+    private boolean schedule(UUID appointmentId, Duration offset, LocalDateTime start) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime fireAt = start.minus(offset);
+        if (!start.isAfter(now) || fireAt.isBefore(now.minus(CATCH_UP)) || fireAt.isAfter(now.plusHours(horizonHours))) {
+            return false;
+        }
+        wheel.put(new ReminderKey(appointmentId, offset), fireAt.atZone(ZoneId.systemDefault()).toInstant());
+        return true;
+    }
+
+    private void onRemoval(ReminderKey key, Instant fireAt, RemovalCause cause) {
+        if (cause != RemovalCause.EXPIRED) {
+            return;
+        }
+        try {
+            workers.submit(() -> send(key, fireAt));
+        } catch (RejectedExecutionException e) {
+            log.warn("Reminder {} for appointment {} dropped: sender stopped", key.type(), key.appointmentId());
+        }
+    }
+
+    /**
+     * Trace et met en file un rappel arrivé à échéance.
+     * <p>
+     * L'heure d'envoi planifiée est comparée au début actuel du rendez-vous : un rappel calculé
+     * avant un déplacement (sur cette instance ou une autre) est abandonné, le rappel de la
+     * nouvelle heure étant planifié par l'événement de déplacement ou le chargement suivant.
+     *
+     * @param key    rappel arrivé à échéance
+     * @param fireAt heure d'envoi avec laquelle il a été planifié
+     */
+    private void send(ReminderKey key, Instant fireAt) {
+        try {
+            Boolean queued = transactionTemplate.execute(status -> {
+                Appointment appointment = appointmentReminderRepository.findForReminder(key.appointmentId()).orElse(null);
+                if (appointment == null || appointment.getStatus() != AppointmentStatus.CONFIRMED) {
+                    return false;
+                }
+                LocalDateTime start = LocalDateTime.of(appointment.getAppointmentDate(), appointment.getStartTime());
+                if (!start.isAfter(LocalDateTime.now())) {
+                    return false;
+                }
+                if (!start.minus(key.offset()).atZone(ZoneId.systemDefault()).toInstant().equals(fireAt)) {
+                    log.debug("Reminder {} for appointment {} skipped: appointment moved", key.type(), key.appointmentId());
+                    return false;
+                }
+
+                appointmentReminderRepository.saveAndFlush(AppointmentReminder.builder()
+                        .appointmentId(key.appointmentId())
+                        .reminderType(key.type())
+                        .sentAt(LocalDateTime.now())
+                        .build());
                 emailService.sendAppointmentReminder(appointment);
-            } catch (Exception e) {
-                log.error("Failed to send reminder for appointment {}", appointment.getId(), e);
+                return true;
+            });
+            if (Boolean.TRUE.equals(queued)) {
+                meterRegistry.counter("reminders.queued", "type", key.type()).increment();
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Reminder {} for appointment {} already sent", key.type(), key.appointmentId());
+        }
+    }
+
+    /**
+     * Lit les délais des rappels depuis les paramètres du salon (ex : {@code 24h,2h,30m}).
+     * Les valeurs invalides sont ignorées.
+     */
+    private List<Duration> getOffsets() {
+        List<Duration> offsets = new ArrayList<>();
+        for (String value : salonSettingService.getSettingValue(OFFSETS_SETTING, DEFAULT_OFFSETS).split(",")) {
+            String offset = value.trim().toLowerCase(Locale.ROOT);
+            try {
+                if (offset.endsWith("h")) {
+                    offsets.add(Duration.ofHours(Long.parseLong(offset.substring(0, offset.length() - 1))));
+                } else if (offset.endsWith("m")) {
+                    offsets.add(Duration.ofMinutes(Long.parseLong(offset.substring(0, offset.length() - 1))));
+                } else if (!offset.isEmpty()) {
+                    log.warn("Ignoring reminder offset without unit: {}", value);
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid reminder offset: {}", value);
             }
         }
+        return offsets;
+    }
 
-        log.info("Daily reminder job completed");
+    /** Type de rappel tracé pour un délai (ex : {@code BEFORE_1440M} pour 24 h). */
+    private static String typeOf(Duration offset) {
+        return "BEFORE_" + offset.toMinutes() + "M";
+    }
+
+    /** Rappel planifié : un par rendez-vous et par délai. */
+    private record ReminderKey(UUID appointmentId, Duration offset) {
+
+        String type() {
+            return typeOf(offset);
+        }
     }
 }
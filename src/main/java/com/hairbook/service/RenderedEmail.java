@@ -0,0 +1,14 @@
+package com.hairbook.service;
+
+/**
+ * Email rendu à partir d'un {@link EmailTemplate}.
+ *
+ * @param subject sujet de l'email
+ * @param text    partie texte
+ * @param html    partie HTML
+ */
+public record RenderedEmail(
+        String subject,
+        String text,
+        String html) {
+}
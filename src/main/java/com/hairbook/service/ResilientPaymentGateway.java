@@ -0,0 +1,228 @@
+package com.hairbook.service;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.param.checkout.SessionCreateParams;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Passerelle de paiement protégeant l'application des lenteurs et pannes du prestataire.
+ * <p>
+ * Chaque appel vers la passerelle déléguée :
+ * <ul>
+ *   <li>S'exécute dans une cloison : un pool dédié d'au plus {@code maxConcurrentCalls} threads, sans file
+ *       d'attente. Au-delà, l'appel est refusé immédiatement : les threads HTTP bloqués sur Stripe sont
+ *       bornés et la consultation des créneaux reste servie pendant un incident</li>
+ *   <li>Est abandonné au-delà de {@code timeout} (le thread appelant est libéré, l'appel est interrompu)</li>
+ *   <li>Passe par un disjoncteur : après {@code failureThreshold} pannes consécutives (erreur réseau,
+ *       délai dépassé, erreur 429 ou 5xx), les appels échouent immédiatement pendant {@code openDuration},
+ *       puis un seul appel d'essai décide de la refermeture</li>
+ *   <li>Métriques Micrometer : {@code payment.gateway.calls} (par opération et issue), l'état du disjoncteur
+ *       ({@code payment.gateway.circuit.state} : 0 fermé, 1 demi-ouvert, 2 ouvert) et l'occupation de la cloison
+ *       ({@code payment.gateway.executor})</li>
+ * </ul>
+ * Les refus (cloison pleine, disjoncteur ouvert, délai dépassé) sont signalés par une
+ * {@link ApiConnectionException}, comme une panne réseau.
+ */
+@Slf4j
+public class ResilientPaymentGateway implements PaymentGateway {
+
+    private final PaymentGateway delegate;
+    private final Duration timeout;
+    private final ThreadPoolExecutor bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param delegate           passerelle appelée
+     * @param maxConcurrentCalls nombre maximal d'appels simultanés
+     * @param timeout            durée maximale d'un appel
+     * @param failureThreshold   nombre de pannes consécutives ouvrant le disjoncteur
+     * @param openDuration       durée d'ouverture du disjoncteur avant un appel d'essai
+     * @param meterRegistry      registre des métriques
+     */
+    public ResilientPaymentGateway(PaymentGateway delegate, int maxConcurrentCalls, Duration timeout,
+                                   int failureThreshold, Duration openDuration, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeout = timeout;
+        this.meterRegistry = meterRegistry;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+        this.bulkhead = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), Thread.ofPlatform().name("payment-gateway-", 1).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.bulkhead.allowCoreThreadTimeOut(true);
+        ExecutorServiceMetrics.monitor(meterRegistry, bulkhead, "payment.gateway.executor");
+        Gauge.builder("payment.gateway.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("État du disjoncteur de la passerelle de paiement (0 fermé, 1 demi-ouvert, 2 ouvert)")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public CheckoutSession createCheckoutSession(SessionCreateParams params) throws StripeException {
+        return call("create_session", () -> delegate.createCheckoutSession(params));
+    }
+
+    @Override
+    public CheckoutSession retrieveCheckoutSession(String sessionId) throws StripeException {
+        return call("retrieve_session", () -> delegate.retrieveCheckoutSession(sessionId));
+    }
+
+    @Override
+    public void expireCheckoutSession(String sessionId) throws StripeException {
+        call("expire_session", () -> {
+            delegate.expireCheckoutSession(sessionId);
+            return null;
+        });
+    }
+
+    @Override
+    public SessionPage listCheckoutSessions(Instant createdFrom, Instant createdTo, String startingAfter, int limit)
+            throws StripeException {
+        return call("list_sessions", () -> delegate.listCheckoutSessions(createdFrom, createdTo, startingAfter, limit));
+    }
+
+    /**
+     * Arrête la cloison. Appelé à l'arrêt du contexte.
+     */
+    public void shutdown() {
+        bulkhead.shutdownNow();
+    }
+
+    private <T> T call(String operation, Callable<T> call) throws StripeException {
+        if (!circuitBreaker.tryAcquire()) {
+            record(operation, "short_circuited", 0);
+            throw new ApiConnectionException("Service de paiement temporairement indisponible");
+        }
+
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = bulkhead.submit(call);
+        } catch (RejectedExecutionException e) {
+            circuitBreaker.onNotExecuted();
+            record(operation, "rejected", 0);
+            throw new ApiConnectionException("Trop d'appels simultanés au service de paiement");
+        }
+
+        try {
+            T result = future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            record(operation, "success", System.nanoTime() - start);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            circuitBreaker.onFailure();
+            record(operation, "timeout", System.nanoTime() - start);
+            throw new ApiConnectionException("Délai dépassé (" + timeout.toMillis() + " ms) pour l'appel " + operation);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            circuitBreaker.onNotExecuted();
+            Thread.currentThread().interrupt();
+            throw new ApiConnectionException("Appel " + operation + " interrompu", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof StripeException stripe && !isProviderFailure(stripe)) {
+                // Erreur de la requête (4xx) : le prestataire a répondu, il est disponible
+                circuitBreaker.onSuccess();
+                record(operation, "client_error", System.nanoTime() - start);
+                throw stripe;
+            }
+            circuitBreaker.onFailure();
+            record(operation, "error", System.nanoTime() - start);
+            if (cause instanceof StripeException stripe) {
+                throw stripe;
+            }
+            throw new ApiConnectionException("Erreur lors de l'appel " + operation, cause);
+        }
+    }
+
+    private static boolean isProviderFailure(StripeException e) {
+        Integer status = e.getStatusCode();
+        return status == null || status == 429 || status >= 500;
+    }
+
+    private void record(String operation, String outcome, long nanos) {
+        Timer.builder("payment.gateway.calls")
+                .description("Appels au prestataire de paiement")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** État du disjoncteur (l'ordre sert de valeur à la jauge). */
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    /**
+     * Disjoncteur à pannes consécutives. En demi-ouverture, un seul appel d'essai est autorisé.
+     */
+    static final class CircuitBreaker {
+
+        private final int failureThreshold;
+        private final long openNanos;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+
+        CircuitBreaker(int failureThreshold, Duration openDuration) {
+            this.failureThreshold = failureThreshold;
+            this.openNanos = openDuration.toNanos();
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                log.info("Payment gateway circuit half-open, sending a trial call");
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void onSuccess() {
+            if (state != State.CLOSED) {
+                log.info("Payment gateway circuit closed");
+            }
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                log.warn("Payment gateway circuit opened after {} consecutive failure(s)", consecutiveFailures);
+            }
+        }
+
+        /** L'appel autorisé n'a pas atteint le prestataire : un autre appel d'essai peut être tenté. */
+        synchronized void onNotExecuted() {
+            if (state == State.HALF_OPEN) {
+                state = State.OPEN;
+                openedAt = System.nanoTime() - openNanos;
+            }
+        }
+
+        synchronized State getState() {
+            return state;
+        }
+    }
+}
@@ -209,6 +209,10 @@ public class SalonSettingService {
                 "Intervalle entre les créneaux disponibles en minutes");
         createSettingIfNotExists("ENABLE_PAYMENTS", "true",
                 "Activer les paiements en ligne");
+        createSettingIfNotExists("REMINDER_OFFSETS", "24h,2h",
+                "Délais des rappels avant le rendez-vous, séparés par des virgules (ex : 24h,2h,30m)");
+        createSettingIfNotExists("ADMIN_NOTIFICATION_EMAILS", "coiffeurbelge@gmail.com",
+                "Destinataires des récapitulatifs administrateur, séparés par des virgules");
         createSettingIfNotExists("CANCELLATION_POLICY",
                 "Les annulations doivent être effectuées au moins 24h à l'avance.",
                 "Politique d'annulation affichée aux clients");
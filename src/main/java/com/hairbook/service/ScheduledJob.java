@@ -0,0 +1,23 @@
+package com.hairbook.service;
+
+import java.time.Duration;
+
+/**
+ * Définition d'une tâche planifiée gérée par {@link ScheduledJobService}.
+ *
+ * @param name      nom unique de la tâche (également nom du verrou)
+ * @param pool      pool de threads exécutant la tâche ({@link ScheduledJobService#NOTIFICATIONS_POOL},
+ *                  {@link ScheduledJobService#MAINTENANCE_POOL} ou {@link ScheduledJobService#PAYMENTS_POOL})
+ * @param lease     durée du bail du verrou, prolongée par heartbeat
+ * @param minHold   durée minimale de détention du verrou après le démarrage
+ * @param timeout   durée maximale d'exécution, au-delà de laquelle le thread est interrompu
+ * @param task      traitement à exécuter
+ */
+public record ScheduledJob(
+        String name,
+        String pool,
+        Duration lease,
+        Duration minHold,
+        Duration timeout,
+        Runnable task) {
+}
@@ -0,0 +1,271 @@
+package com.hairbook.service;
+
+import com.hairbook.dto.ScheduledJobDto;
+import com.hairbook.entity.JobLock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service d'exécution des tâches planifiées.
+ * <p>
+ * Les méthodes {@code @Scheduled} ne font que déclencher {@link #run(String)} : le traitement
+ * s'exécute dans le pool de threads dédié à sa famille de tâches (notifications, maintenance, paiements),
+ * si bien qu'un envoi d'emails lent ne retarde plus les tâches de maintenance. Pour chaque exécution :
+ * <ul>
+ *   <li>Pas de chevauchement : une exécution encore en cours sur cette instance fait sauter le déclenchement</li>
+ *   <li>Une seule instance du cluster exécute la tâche ({@link JobLockService}), sauf si elle est suspendue</li>
+ *   <li>Au-delà de son délai maximal, compté à partir du début de l'exécution (et non de la mise en
+ *       file d'attente du pool), le thread de la tâche est interrompu</li>
+ *   <li>Métriques Micrometer : {@code scheduled.job.duration} (par tâche et issue),
+ *       {@code scheduled.job.skipped} (par tâche et raison), et l'occupation de chaque pool</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScheduledJobService {
+
+    /** Pool des tâches d'envoi de notifications (emails). */
+    public static final String NOTIFICATIONS_POOL = "notifications";
+
+    /** Pool des tâches de maintenance (annulations, purges). */
+    public static final String MAINTENANCE_POOL = "maintenance";
+
+    /** Pool des tâches de paiement (traitement des webhooks Stripe). */
+    public static final String PAYMENTS_POOL = "payments";
+
+    private final JobLockService jobLockService;
+    private final MeterRegistry meterRegistry;
+
+    /** Nombre de threads du pool des notifications. */
+    @Value("${app.scheduling.pools.notifications:2}")
+    private Integer notificationsPoolSize;
+
+    /** Nombre de threads du pool de maintenance. */
+    @Value("${app.scheduling.pools.maintenance:2}")
+    private Integer maintenancePoolSize;
+
+    /** Nombre de threads du pool des paiements. */
+    @Value("${app.scheduling.pools.payments:1}")
+    private Integer paymentsPoolSize;
+
+    private final Map<String, ScheduledJob> jobs = new ConcurrentHashMap<>();
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+    private final Map<String, ExecutorService> pools = new ConcurrentHashMap<>();
+    private ScheduledThreadPoolExecutor watchdog;
+
+    @PostConstruct
+    void init() {
+        pools.put(NOTIFICATIONS_POOL, createPool(NOTIFICATIONS_POOL, notificationsPoolSize));
+        pools.put(MAINTENANCE_POOL, createPool(MAINTENANCE_POOL, maintenancePoolSize));
+        pools.put(PAYMENTS_POOL, createPool(PAYMENTS_POOL, paymentsPoolSize));
+        watchdog = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("job-watchdog").daemon().factory());
+        // Les délais annulés en fin d'exécution ne s'accumulent pas dans la file jusqu'à leur échéance
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        watchdog.shutdownNow();
+        for (ExecutorService pool : pools.values()) {
+            pool.shutdown();
+        }
+        for (ExecutorService pool : pools.values()) {
+            pool.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Enregistre une tâche. À appeler à l'initialisation du bean propriétaire.
+     *
+     * @param job définition de la tâche
+     * @throws IllegalArgumentException si le nom est déjà utilisé ou le pool inconnu
+     */
+    public void register(ScheduledJob job) {
+        if (!pools.containsKey(job.pool())) {
+            throw new IllegalArgumentException("Pool de tâches inconnu : " + job.pool());
+        }
+        if (jobs.putIfAbsent(job.name(), job) != null) {
+            throw new IllegalArgumentException("Tâche déjà enregistrée : " + job.name());
+        }
+    }
+
+    /**
+     * Déclenche une tâche dans son pool, sans attendre la fin de son exécution.
+     *
+     * @param name nom de la tâche
+     * @return {@code true} si l'exécution a été lancée, {@code false} si une exécution est déjà en cours
+     * @throws IllegalArgumentException si la tâche est inconnue
+     */
+    public boolean run(String name) {
+        ScheduledJob job = getJob(name);
+        if (!running.add(name)) {
+            skipped(name, "overlap");
+            return false;
+        }
+
+        try {
+            pools.get(job.pool()).execute(new Execution(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            running.remove(name);
+            skipped(name, "rejected");
+            return false;
+        }
+    }
+
+    /**
+     * Liste les tâches enregistrées avec l'état de leur verrou et de leur dernière exécution.
+     *
+     * @return tâches triées par nom
+     */
+    public List<ScheduledJobDto> getJobs() {
+        Map<String, JobLock> locks = jobLockService.getJobLocks().stream()
+                .collect(Collectors.toMap(JobLock::getName, Function.identity()));
+        return jobs.values().stream()
+                .sorted(Comparator.comparing(ScheduledJob::name))
+                .map(job -> toDto(job, locks.get(job.name())))
+                .toList();
+    }
+
+    /**
+     * Suspend ou réactive une tâche sur toutes les instances.
+     *
+     * @param name   nom de la tâche
+     * @param paused {@code true} pour suspendre
+     * @throws IllegalArgumentException si la tâche est inconnue
+     */
+    public void setPaused(String name, boolean paused) {
+        getJob(name);
+        jobLockService.setPaused(name, paused);
+    }
+
+    private void execute(ScheduledJob job) {
+        try {
+            boolean executed = jobLockService.runExclusive(job.name(), job.lease(), job.minHold(), () -> timed(job));
+            if (!executed) {
+                skipped(job.name(), "locked_or_paused");
+            }
+        } catch (RuntimeException e) {
+            log.error("Job {} failed", job.name(), e);
+        } finally {
+            running.remove(job.name());
+        }
+    }
+
+    private void timed(ScheduledJob job) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            job.task().run();
+            outcome = "success";
+        } finally {
+            // Remet à zéro l'interruption du watchdog pour que la libération du verrou puisse accéder à la base
+            if (Thread.interrupted()) {
+                outcome = "timeout";
+            }
+            sample.stop(Timer.builder("scheduled.job.duration")
+                    .description("Durée d'exécution des tâches planifiées")
+                    .tag("job", job.name())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+        if ("timeout".equals(outcome)) {
+            throw new IllegalStateException("Job " + job.name() + " interrupted after " + job.timeout());
+        }
+    }
+
+    /**
+     * Exécution d'une tâche dans son pool. Le délai maximal n'est armé qu'au démarrage : une exécution
+     * encore en file d'attente n'est jamais annulée, et libère donc toujours son marqueur {@code running}.
+     * Le délai est désarmé dès la fin de l'exécution.
+     */
+    private final class Execution extends FutureTask<Void> {
+
+        private final ScheduledJob job;
+        private volatile ScheduledFuture<?> timeout;
+
+        private Execution(ScheduledJob job) {
+            super(() -> execute(job), null);
+            this.job = job;
+        }
+
+        @Override
+        public void run() {
+            timeout = watchdog.schedule(() -> {
+                if (cancel(true)) {
+                    log.warn("Job {} exceeded its timeout of {} and was interrupted", job.name(), job.timeout());
+                }
+            }, job.timeout().toMillis(), TimeUnit.MILLISECONDS);
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            ScheduledFuture<?> armed = timeout;
+            if (armed != null) {
+                armed.cancel(false);
+            }
+        }
+    }
+
+    private void skipped(String name, String reason) {
+        meterRegistry.counter("scheduled.job.skipped", "job", name, "reason", reason).increment();
+        log.debug("Job {} skipped ({})", name, reason);
+    }
+
+    private ScheduledJob getJob(String name) {
+        ScheduledJob job = jobs.get(name);
+        if (job == null) {
+            throw new IllegalArgumentException("Tâche inconnue : " + name);
+        }
+        return job;
+    }
+
+    private ExecutorService createPool(String name, int size) {
+        ExecutorService pool = Executors.newFixedThreadPool(size,
+                Thread.ofPlatform().name("job-" + name + "-", 1).factory());
+        return ExecutorServiceMetrics.monitor(meterRegistry, pool, "scheduled.jobs." + name);
+    }
+
+    private ScheduledJobDto toDto(ScheduledJob job, JobLock lock) {
+        ScheduledJobDto.ScheduledJobDtoBuilder dto = ScheduledJobDto.builder()
+                .name(job.name())
+                .pool(job.pool())
+                .timeoutSeconds(job.timeout().toSeconds())
+                .paused(false)
+                .runningOnThisNode(running.contains(job.name()));
+        if (lock != null) {
+            dto.paused(lock.getPaused())
+                    .lockedBy(lock.getLockedBy())
+                    .lockedUntil(lock.getLockedUntil())
+                    .lastRunBy(lock.getLastRunBy())
+                    .lastStartedAt(lock.getLastStartedAt())
+                    .lastDurationMs(lock.getLastDurationMs())
+                    .lastStatus(lock.getLastStatus());
+        }
+        return dto.build();
+    }
+}
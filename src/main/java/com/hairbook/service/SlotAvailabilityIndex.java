@@ -0,0 +1,253 @@
+package com.hairbook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.Holiday;
+import com.hairbook.entity.WorkingHours;
+import com.hairbook.repository.AvailabilityRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Index en mémoire des disponibilités journalières de chaque membre du staff.
+ * <p>
+ * Chaque couple (staff, date) est chargé une seule fois depuis la base (horaires, congés,
+ * rendez-vous actifs) sous forme de {@link StaffDayAvailability}, puis maintenu de façon
+ * incrémentale à partir des {@link AppointmentSlotChangedEvent} publiés après commit.
+ * Les journées manquantes d'une même demande sont chargées par lot : trois requêtes
+ * ({@link AvailabilityRepository}) quel que soit le nombre de staff et de jours.
+ * <p>
+ * Ses écouteurs s'exécutent en premier afin que les caches construits au-dessus de l'index
+ * soient invalidés une fois celui-ci à jour. Un lot chargé pendant qu'un événement est appliqué
+ * n'est pas conservé (version de l'index) : il peut avoir lu la base avant le commit de l'événement.
+ * <p>
+ * L'index est propre à chaque instance : les événements ne sont appliqués que sur l'instance qui
+ * les a publiés. Les entrées expirent donc après {@code app.booking.availability-index-ttl-seconds}
+ * (30 s par défaut), ce qui borne le retard d'une instance sur une réservation faite sur une autre
+ * (ou par SQL manuel).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotAvailabilityIndex {
+
+    private final AvailabilityRepository availabilityRepository;
+    private final MeterRegistry meterRegistry;
+
+    /** Taille d'une tranche du bitset (en minutes). */
+    @Value("${app.booking.availability-granularity-minutes:5}")
+    private Integer granularityMinutes;
+
+    /** Durée de vie d'une journée indexée (en secondes) ; borne le retard entre instances. */
+    @Value("${app.booking.availability-index-ttl-seconds:30}")
+    private Integer ttlSeconds;
+
+    /** Incrémentée par chaque événement appliqué : un chargement commencé avant n'est pas conservé. */
+    private final AtomicLong version = new AtomicLong();
+
+    private Cache<DayKey, StaffDayAvailability> days;
+
+    @PostConstruct
+    void init() {
+        days = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, days, "slotAvailabilityIndex");
+    }
+
+    /**
+     * Retourne la disponibilité d'un membre du staff pour une date, en la chargeant si nécessaire.
+     *
+     * @param staffId identifiant du membre du staff
+     * @param date    date ciblée
+     * @return disponibilité de la journée (jamais {@code null})
+     */
+    public StaffDayAvailability getDay(UUID staffId, LocalDate date) {
+        DayKey key = new DayKey(staffId, date);
+        return getAll(List.of(key)).get(key);
+    }
+
+    /**
+     * Retourne la disponibilité de plusieurs membres du staff pour une même date.
+     * Les journées absentes de l'index sont chargées en un seul lot.
+     *
+     * @param staffIds identifiants des membres du staff
+     * @param date     date ciblée
+     * @return disponibilités indexées par staff, dans l'ordre de {@code staffIds}
+     */
+    public Map<UUID, StaffDayAvailability> getDays(Collection<UUID> staffIds, LocalDate date) {
+        List<DayKey> keys = staffIds.stream().map(staffId -> new DayKey(staffId, date)).toList();
+        Map<DayKey, StaffDayAvailability> loaded = getAll(keys);
+
+        Map<UUID, StaffDayAvailability> result = new LinkedHashMap<>();
+        for (DayKey key : keys) {
+            result.put(key.staffId(), loaded.get(key));
+        }
+        return result;
+    }
+
+    /**
+     * Retourne la disponibilité de plusieurs membres du staff sur une plage de dates.
+     * Les journées absentes de l'index sont chargées en un seul lot couvrant toute la plage.
+     *
+     * @param staffIds identifiants des membres du staff
+     * @param from     première date (incluse)
+     * @param to       dernière date (incluse)
+     * @return disponibilités triées par date, puis dans l'ordre de {@code staffIds}
+     */
+    public List<StaffDayAvailability> getRange(Collection<UUID> staffIds, LocalDate from, LocalDate to) {
+        List<DayKey> keys = from.datesUntil(to.plusDays(1))
+                .flatMap(date -> staffIds.stream().map(staffId -> new DayKey(staffId, date)))
+                .toList();
+        Map<DayKey, StaffDayAvailability> loaded = getAll(keys);
+        return keys.stream().map(loaded::get).toList();
+    }
+
+    /**
+     * Applique un changement de rendez-vous aux journées déjà indexées.
+     * Les journées absentes de l'index seront chargées à jour lors du prochain accès.
+     *
+     * @param event rendez-vous créé, déplacé ou annulé
+     */
+    @TransactionalEventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onAppointmentChanged(AppointmentSlotChangedEvent event) {
+        version.incrementAndGet();
+        if (event.previousStaffId() != null || event.previousDate() != null) {
+            UUID previousStaff = event.previousStaffId() != null ? event.previousStaffId() : event.staffId();
+            LocalDate previousDate = event.previousDate() != null ? event.previousDate() : event.date();
+            days.asMap().computeIfPresent(new DayKey(previousStaff, previousDate), (key, day) -> {
+                day.release(event.appointmentId());
+                return day;
+            });
+        }
+
+        days.asMap().computeIfPresent(new DayKey(event.staffId(), event.date()), (key, day) -> {
+            if (event.active()) {
+                day.occupy(event.appointmentId(), event.startTime(), event.endTime());
+            } else {
+                day.release(event.appointmentId());
+            }
+            return day;
+        });
+    }
+
+    /**
+     * Invalide les journées indexées concernées par un changement de planning
+     * (horaires de travail, congé d'un staff ou fermeture globale du salon).
+     *
+     * @param event changement de planning
+     */
+    @TransactionalEventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onStaffScheduleChanged(StaffScheduleChangedEvent event) {
+        version.incrementAndGet();
+        if (event.isSalonWide()) {
+            days.invalidateAll();
+        } else {
+            days.asMap().keySet().removeIf(key -> key.staffId().equals(event.staffId()));
+        }
+    }
+
+    /**
+     * Retourne les journées demandées, en chargeant en un seul lot celles absentes de l'index.
+     * <p>
+     * La version est lue avant le chargement : si un événement est appliqué pendant celui-ci,
+     * les journées chargées servent à cette demande mais ne sont pas conservées. Un événement
+     * incrémente la version avant de modifier l'index : soit il modifie la journée ajoutée,
+     * soit la seconde vérification le voit et la retire.
+     */
+    private Map<DayKey, StaffDayAvailability> getAll(List<DayKey> keys) {
+        Map<DayKey, StaffDayAvailability> result = new HashMap<>(days.getAllPresent(keys));
+        Set<DayKey> missing = keys.stream().filter(key -> !result.containsKey(key)).collect(Collectors.toSet());
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long expectedVersion = version.get();
+        Map<DayKey, StaffDayAvailability> loaded = loadAll(missing);
+        result.putAll(loaded);
+        if (version.get() != expectedVersion) {
+            return result;
+        }
+        days.putAll(loaded);
+        if (version.get() != expectedVersion) {
+            loaded.forEach((key, day) -> days.asMap().remove(key, day));
+        }
+        return result;
+    }
+
+    /**
+     * Charge un lot de journées avec une requête par type de donnée (horaires, congés, rendez-vous)
+     * couvrant l'ensemble des staff et la plage de dates demandés.
+     */
+    private Map<DayKey, StaffDayAvailability> loadAll(Set<? extends DayKey> keys) {
+        Set<UUID> staffIds = keys.stream().map(DayKey::staffId).collect(Collectors.toSet());
+        LocalDate from = keys.stream().map(DayKey::date).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDate to = keys.stream().map(DayKey::date).max(Comparator.naturalOrder()).orElseThrow();
+
+        Map<UUID, Map<Integer, WorkingHours>> workingHoursByStaff = availabilityRepository
+                .findWorkingHoursByStaffIds(staffIds).stream()
+                .collect(Collectors.groupingBy(wh -> wh.getStaffMember().getId(),
+                        Collectors.toMap(WorkingHours::getDayOfWeek, wh -> wh)));
+        List<Holiday> holidays = availabilityRepository.findHolidaysForStaffIds(staffIds, from, to);
+        Map<DayKey, List<Appointment>> appointmentsByDay = availabilityRepository
+                .findActiveByStaffIdsAndDateRange(staffIds, from, to).stream()
+                .collect(Collectors.groupingBy(a -> new DayKey(a.getStaffMember().getId(), a.getAppointmentDate())));
+
+        Map<DayKey, StaffDayAvailability> loaded = new HashMap<>();
+        for (DayKey key : keys) {
+            WorkingHours workingHours = workingHoursByStaff
+                    .getOrDefault(key.staffId(), Map.of())
+                    .get(key.date().getDayOfWeek().getValue());
+
+            if (workingHours == null || isOnHoliday(holidays, key)) {
+                loaded.put(key, StaffDayAvailability.closed(key.staffId(), key.date(), granularityMinutes));
+                continue;
+            }
+
+            StaffDayAvailability day = StaffDayAvailability.of(key.staffId(), key.date(), workingHours, granularityMinutes);
+            for (Appointment appointment : appointmentsByDay.getOrDefault(key, List.of())) {
+                day.occupy(appointment.getId(), appointment.getStartTime(), appointment.getEndTime());
+            }
+            loaded.put(key, day);
+        }
+
+        log.debug("Availability indexed for {} staff day(s) between {} and {}", keys.size(), from, to);
+        return loaded;
+    }
+
+    private boolean isOnHoliday(List<Holiday> holidays, DayKey key) {
+        return holidays.stream()
+                .filter(h -> h.getStaffMember() == null || h.getStaffMember().getId().equals(key.staffId()))
+                .anyMatch(h -> h.covers(key.date()));
+    }
+
+    /** Clé d'une journée indexée. */
+    private record DayKey(UUID staffId, LocalDate date) {
+    }
+}
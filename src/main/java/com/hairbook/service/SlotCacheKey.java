@@ -0,0 +1,24 @@
+package com.hairbook.service;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Clé des entrées du cache {@code availableSlots}.
+ * <p>
+ * Une clé structurée (plutôt qu'une chaîne concaténée) permet d'invalider précisément
+ * toutes les entrées d'un membre du staff pour une date, quel que soit le service.
+ *
+ * @param date      date des créneaux
+ * @param staffId   identifiant du membre du staff
+ * @param serviceId identifiant du service
+ */
+public record SlotCacheKey(LocalDate date, UUID staffId, UUID serviceId) {
+
+    /**
+     * Indique si l'entrée concerne un membre du staff donné à une date donnée.
+     */
+    public boolean matches(UUID staffId, LocalDate date) {
+        return this.staffId.equals(staffId) && this.date.equals(date);
+    }
+}
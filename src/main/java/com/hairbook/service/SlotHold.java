@@ -0,0 +1,25 @@
+package com.hairbook.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Réservation temporaire d'un créneau par un rendez-vous en attente de paiement.
+ *
+ * @param appointmentId identifiant du rendez-vous PENDING
+ * @param staffId       membre du staff réservé
+ * @param date          date du rendez-vous
+ * @param startTime     heure de début
+ * @param endTime       heure de fin
+ * @param expiresAt     instant à partir duquel le créneau est libéré si le paiement n'a pas abouti
+ */
+public record SlotHold(
+        UUID appointmentId,
+        UUID staffId,
+        LocalDate date,
+        LocalTime startTime,
+        LocalTime endTime,
+        Instant expiresAt) {
+}
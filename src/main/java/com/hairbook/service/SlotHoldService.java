@@ -0,0 +1,156 @@
+package com.hairbook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.hairbook.entity.Appointment;
+import com.hairbook.repository.AppointmentExpiryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Service de gestion des réservations temporaires de créneaux pendant le paiement Stripe.
+ * <p>
+ * Chaque rendez-vous PENDING dispose d'un {@link SlotHold} avec une expiration propre
+ * ({@code app.booking.slot-hold-minutes} après sa création). Le créneau est libéré :
+ * <ul>
+ *   <li>à l'instant de l'expiration, sans attendre une tâche planifiée : le rendez-vous est annulé
+ *       via {@link AppointmentSchedulerService#expireHold(UUID)}</li>
+ *   <li>dès l'échec du paiement ({@link PaymentService#markPaymentFailed})</li>
+ * </ul>
+ * Les expirations reposent sur la roue temporelle (timer wheel) de Caffeine, réveillée par le
+ * {@link Scheduler#systemScheduler() scheduler système} : l'annulation intervient environ une seconde
+ * après l'échéance. Les réservations sont reconstruites depuis la base au démarrage.
+ * <p>
+ * Le rendez-vous PENDING occupe déjà le créneau dans le {@link SlotAvailabilityIndex} ; son annulation
+ * publie un {@link AppointmentSlotChangedEvent} qui rend le créneau immédiatement visible
+ * comme libre par le {@link SlotService}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotHoldService {
+
+    private final AppointmentSchedulerService appointmentSchedulerService;
+    private final AppointmentExpiryRepository appointmentExpiryRepository;
+    private final MeterRegistry meterRegistry;
+
+    /** Durée (en minutes) pendant laquelle un rendez-vous non payé garde son créneau. */
+    @Value("${app.booking.slot-hold-minutes:15}")
+    private Integer holdMinutes;
+
+    private Cache<UUID, SlotHold> holds;
+    private Counter expiredCounter;
+
+    @PostConstruct
+    void init() {
+        holds = Caffeine.newBuilder()
+                .expireAfter(Expiry.<UUID, SlotHold>creating((id, hold) -> {
+                    Duration remaining = Duration.between(Instant.now(), hold.expiresAt());
+                    return remaining.isNegative() ? Duration.ZERO : remaining;
+                }))
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener(this::onRemoval)
+                .build();
+        expiredCounter = Counter.builder("slots.holds.expired")
+                .description("Réservations temporaires expirées sans paiement")
+                .register(meterRegistry);
+        Gauge.builder("slots.holds.active", holds, cache -> cache.estimatedSize())
+                .description("Réservations temporaires en cours")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reconstruit les réservations temporaires des rendez-vous PENDING au démarrage,
+     * avec une échéance calculée depuis leur date de création. Les rendez-vous
+     * dont l'échéance est déjà passée sont annulés immédiatement.
+     * <p>
+     * Chaque instance reconstruit toutes les réservations : l'annulation conditionnelle de
+     * {@link AppointmentSchedulerService#expireHold(UUID)} garantit qu'un rendez-vous n'est annulé,
+     * audité et notifié qu'une fois, quelle que soit l'instance qui atteint l'échéance la première.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildHolds() {
+        int restored = 0;
+        int expired = 0;
+        Instant now = Instant.now();
+        for (Appointment appointment : appointmentExpiryRepository.findAllPendingWithStaff()) {
+            Instant expiresAt = appointment.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant()
+                    .plus(Duration.ofMinutes(holdMinutes));
+            if (expiresAt.isAfter(now)) {
+                holds.put(appointment.getId(), new SlotHold(
+                        appointment.getId(),
+                        appointment.getStaffMember().getId(),
+                        appointment.getAppointmentDate(),
+                        appointment.getStartTime(),
+                        appointment.getEndTime(),
+                        expiresAt));
+                restored++;
+            } else if (expire(appointment.getId())) {
+                expired++;
+            }
+        }
+        log.info("Slot holds rebuilt: {} restored, {} cancelled by this instance after expiring while stopped", restored, expired);
+    }
+
+    /**
+     * Pose, met à jour ou retire la réservation temporaire d'un rendez-vous après commit.
+     * Un rendez-vous déplacé conserve son expiration initiale.
+     *
+     * @param event rendez-vous créé, déplacé, confirmé ou annulé
+     */
+    @TransactionalEventListener
+    public void onAppointmentChanged(AppointmentSlotChangedEvent event) {
+        if (!event.pending()) {
+            holds.invalidate(event.appointmentId());
+            return;
+        }
+
+        holds.asMap().compute(event.appointmentId(), (id, previous) -> new SlotHold(
+                id,
+                event.staffId(),
+                event.date(),
+                event.startTime(),
+                event.endTime(),
+                previous != null ? previous.expiresAt() : Instant.now().plus(Duration.ofMinutes(holdMinutes))));
+    }
+
+    private void onRemoval(UUID appointmentId, SlotHold hold, RemovalCause cause) {
+        if (cause != RemovalCause.EXPIRED) {
+            return;
+        }
+        expire(appointmentId);
+    }
+
+    /**
+     * @return {@code true} si le rendez-vous a été annulé par cette instance
+     */
+    private boolean expire(UUID appointmentId) {
+        try {
+            boolean cancelled = appointmentSchedulerService.expireHold(appointmentId);
+            if (cancelled) {
+                expiredCounter.increment();
+            }
+            return cancelled;
+        } catch (RuntimeException e) {
+            log.error("Unable to release expired hold for appointment {}: {}", appointmentId, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -2,18 +2,40 @@ package com.hairbook.service;
 
 
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hairbook.dto.AnyStaffSlotDto;
+import com.hairbook.entity.Holiday;
+import com.hairbook.repository.AvailabilityRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Service de calcul des créneaux disponibles pour la prise de rendez-vous.
@@ -26,7 +48,16 @@ import java.util.UUID;
  *   <li>Respect d'un délai minimal avant réservation ({@code minAdvanceHours})</li>
  *   <li>Création de créneaux par pas de {@code slotIntervalMinutes}</li>
  * </ul>
- * Les résultats peuvent être mis en cache par date/service/staff.
+ * Les trois premières règles sont portées par le {@link SlotAvailabilityIndex} (bitset par
+ * staff et par jour, mis à jour à chaque réservation) ; ce service se contente d'y faire
+ * glisser la fenêtre correspondant à la durée du service.
+ * <p>
+ * Les résultats sont mis en cache par date/service/staff ({@link SlotCacheKey}) dans un cache
+ * asynchrone : les demandes simultanées d'une même clé absente partagent un seul calcul en cours,
+ * et une entrée plus ancienne que {@code app.booking.slot-cache-refresh-seconds} continue d'être
+ * servie pendant son rafraîchissement en arrière-plan. L'invalidation est faite par
+ * {@link AvailableSlotsCacheInvalidator}. Les métriques {@code slots.cache.in_flight} et
+ * {@code slots.cache.coalesced} sont exposées via l'Actuator.
  */
 @Service
 @RequiredArgsConstructor
@@ -35,9 +66,10 @@ public class SlotService {
 
     private final ServiceRepository serviceRepository;
     private final StaffMemberRepository staffMemberRepository;
-    private final WorkingHoursRepository workingHoursRepository;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+    private final AvailabilityRepository availabilityRepository;
     private final HolidayService holidayService;
-    private final AppointmentRepository appointmentRepository;
+    private final MeterRegistry meterRegistry;
 
     /** Pas de génération entre deux slots (en minutes). */
     @Value("${app.booking.slot-interval-minutes:30}")
@@ -47,16 +79,61 @@ public class SlotService {
     @Value("${app.booking.min-advance-hours:1}")
     private Integer minAdvanceHours;
 
+    /** Âge (en secondes) à partir duquel une entrée est rafraîchie en arrière-plan tout en restant servie. */
+    @Value("${app.booking.slot-cache-refresh-seconds:60}")
+    private Integer refreshSeconds;
+
+    /** Durée de vie maximale (en minutes) d'une entrée du cache. */
+    @Value("${app.booking.slot-cache-ttl-minutes:10}")
+    private Integer ttlMinutes;
+
+    /** Horizon maximal (en jours) de la recherche du prochain créneau disponible. */
+    @Value("${app.booking.next-available-max-horizon-days:90}")
+    private Integer maxHorizonDays;
+
+    /** Nombre de threads calculant les créneaux pour le cache. */
+    @Value("${app.booking.slot-cache-loader-threads:4}")
+    private Integer loaderThreads;
+
+    private final AtomicInteger inFlightLoads = new AtomicInteger();
+    private AsyncLoadingCache<SlotCacheKey, List<SlotDto>> availableSlots;
+    private ExecutorService slotLoader;
+    private Counter coalescedRequests;
+
+    @PostConstruct
+    void initCache() {
+        slotLoader = Executors.newFixedThreadPool(loaderThreads,
+                Thread.ofPlatform().name("slot-loader-", 0).daemon().factory());
+        availableSlots = Caffeine.newBuilder()
+                .maximumSize(500)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .refreshAfterWrite(Duration.ofSeconds(refreshSeconds))
+                .executor(slotLoader)
+                .recordStats()
+                .buildAsync(this::loadSlots);
+
+        CaffeineCacheMetrics.monitor(meterRegistry, availableSlots, "availableSlots");
+        Gauge.builder("slots.cache.in_flight", inFlightLoads, AtomicInteger::get)
+                .description("Calculs de créneaux en cours")
+                .register(meterRegistry);
+        coalescedRequests = Counter.builder("slots.cache.coalesced")
+                .description("Demandes ayant rejoint un calcul déjà en cours")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdownCache() {
+        slotLoader.shutdown();
+    }
+
     /**
      * Calcule la liste des créneaux disponibles pour un service et un membre du staff à une date donnée.
      * <p>
      * Étapes :
      * <ol>
      *   <li>Vérifie l'existence du service et du staff, et que le staff est actif</li>
-     *   <li>Exclut la date si le staff est en congé</li>
-     *   <li>Récupère les horaires de travail du jour, sinon renvoie vide</li>
-     *   <li>Génère des créneaux par pas de {@code slotIntervalMinutes} couvrant la durée du service</li>
-     *   <li>Filtre les créneaux en conflit avec les rendez-vous existants</li>
+     *   <li>Récupère la disponibilité indexée du jour (vide si congé ou sans horaires)</li>
+     *   <li>Fait glisser une fenêtre de la durée du service par pas de {@code slotIntervalMinutes}</li>
      *   <li>Applique le délai minimal avant réservation</li>
      * </ol>
      *
@@ -66,8 +143,46 @@ public class SlotService {
      * @return liste de créneaux disponibles (triés chronologiquement)
      * @throws IllegalArgumentException si service ou staff introuvable
      */
-    @Cacheable(value = "availableSlots", key = "#date + '-' + #serviceId + '-' + #staffId")
     public List<SlotDto> getAvailableSlots(LocalDate date, UUID serviceId, UUID staffId) {
+        SlotCacheKey key = new SlotCacheKey(date, staffId, serviceId);
+
+        CompletableFuture<List<SlotDto>> pending = availableSlots.asMap().get(key);
+        if (pending != null && !pending.isDone()) {
+            coalescedRequests.increment();
+        }
+
+        try {
+            return availableSlots.get(key).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Supprime du cache les entrées correspondant à un critère (voir {@link AvailableSlotsCacheInvalidator}).
+     *
+     * @param predicate critère sur la clé d'entrée
+     */
+    public void evictAvailableSlots(Predicate<SlotCacheKey> predicate) {
+        availableSlots.synchronous().asMap().keySet().removeIf(predicate);
+    }
+
+    /**
+     * Calcule les créneaux d'une entrée du cache, en suivant le nombre de calculs en cours.
+     */
+    private List<SlotDto> loadSlots(SlotCacheKey key) {
+        inFlightLoads.incrementAndGet();
+        try {
+            return computeAvailableSlots(key.date(), key.serviceId(), key.staffId());
+        } finally {
+            inFlightLoads.decrementAndGet();
+        }
+    }
+
+    private List<SlotDto> computeAvailableSlots(LocalDate date, UUID serviceId, UUID staffId) {
         be.salon.coiffurereservation.entity.Service service = serviceRepository.findById(serviceId)
                 .orElseThrow(() -> new IllegalArgumentException("Service non trouvé"));
 
@@ -78,102 +193,191 @@ public class SlotService {
             return new ArrayList<>();
         }
 
-        if (holidayService.isStaffOnHoliday(staffId, date)) {
-            log.debug("Staff {} is on holiday on {}", staffId, date);
+        StaffDayAvailability availability = slotAvailabilityIndex.getDay(staffId, date);
+        if (availability.isClosed()) {
+            log.debug("Staff {} is not available on {}", staffId, date);
             return new ArrayList<>();
         }
 
-        int dayOfWeek = date.getDayOfWeek().getValue();
-        WorkingHours workingHours = workingHoursRepository
-                .findByStaffMemberIdAndDayOfWeek(staffId, dayOfWeek)
-                .orElse(null);
+        LocalDateTime minStartTime = LocalDateTime.now().plusHours(minAdvanceHours);
+
+        return availability.findAvailableStarts(service.getDurationMinutes(), slotIntervalMinutes).stream()
+                .map(start -> LocalDateTime.of(date, start))
+                .filter(slotStart -> slotStart.isAfter(minStartTime))
+                .map(slotStart -> SlotDto.builder()
+                        .startTime(slotStart)
+                        .endTime(slotStart.plusMinutes(service.getDurationMinutes()))
+                        .staffId(staff.getId())
+                        .staffName(staff.getFullName())
+                        .available(true)
+                        .build())
+                .toList();
+    }
 
-        if (workingHours == null) {
-            log.debug("No working hours for staff {} on day {}", staffId, dayOfWeek);
+    /**
+     * Calcule les créneaux disponibles pour un service, tous membres du staff actifs confondus.
+     * <p>
+     * Les disponibilités de tous les staff sont obtenues en un seul lot depuis le
+     * {@link SlotAvailabilityIndex}, puis fusionnées par heure de début. Chaque créneau
+     * indique quels membres du staff peuvent le prendre, dans leur ordre d'affichage.
+     *
+     * @param date      date ciblée
+     * @param serviceId identifiant du service
+     * @param skill     compétence requise (optionnelle, comparée sans tenir compte de la casse)
+     * @return créneaux fusionnés, triés chronologiquement
+     * @throws IllegalArgumentException si le service est introuvable
+     */
+    public List<AnyStaffSlotDto> getAvailableSlotsForAnyStaff(LocalDate date, UUID serviceId, String skill) {
+        be.salon.coiffurereservation.entity.Service service = serviceRepository.findById(serviceId)
+                .orElseThrow(() -> new IllegalArgumentException("Service non trouvé"));
+
+        List<StaffMember> staffMembers = staffMemberRepository.findByActiveTrueOrderByDisplayOrderAsc().stream()
+                .filter(staff -> hasSkill(staff, skill))
+                .toList();
+        if (staffMembers.isEmpty()) {
             return new ArrayList<>();
         }
 
-        List<SlotDto> slots = generateSlots(date, workingHours, service, staff);
-
-        LocalDateTime dayStart = date.atStartOfDay();
-        LocalDateTime dayEnd = date.plusDays(1).atStartOfDay();
-        List<Appointment> existingAppointments = appointmentRepository
-                .findActiveByStaffAndDateRange(staffId, dayStart, dayEnd);
-
-        return slots.stream()
-                .peek(slot -> {
-                    boolean isAvailable = existingAppointments.stream()
-                            .noneMatch(appt -> isOverlapping(slot.getStartTime(), slot.getEndTime(),
-                                    appt.getAppointmentDate().atTime(appt.getStartTime()),
-                                    appt.getAppointmentDate().atTime(appt.getEndTime())));
-                    slot.setAvailable(isAvailable);
-                })
-                .filter(SlotDto::getAvailable)
+        Map<UUID, StaffDayAvailability> availabilities = slotAvailabilityIndex.getDays(
+                staffMembers.stream().map(StaffMember::getId).toList(), date);
+        LocalDateTime minStartTime = LocalDateTime.now().plusHours(minAdvanceHours);
+
+        Map<LocalTime, List<AnyStaffSlotDto.AvailableStaff>> staffByStart = new TreeMap<>();
+        for (StaffMember staff : staffMembers) {
+            AnyStaffSlotDto.AvailableStaff available = AnyStaffSlotDto.AvailableStaff.builder()
+                    .staffId(staff.getId())
+                    .staffName(staff.getFullName())
+                    .build();
+            for (LocalTime start : availabilities.get(staff.getId())
+                    .findAvailableStarts(service.getDurationMinutes(), slotIntervalMinutes)) {
+                if (LocalDateTime.of(date, start).isAfter(minStartTime)) {
+                    staffByStart.computeIfAbsent(start, s -> new ArrayList<>()).add(available);
+                }
+            }
+        }
+
+        return staffByStart.entrySet().stream()
+                .map(entry -> AnyStaffSlotDto.builder()
+                        .startTime(LocalDateTime.of(date, entry.getKey()))
+                        .endTime(LocalDateTime.of(date, entry.getKey()).plusMinutes(service.getDurationMinutes()))
+                        .staff(entry.getValue())
+                        .build())
                 .toList();
     }
 
     /**
-     * Génère les créneaux bruts (sans tenir compte des rendez-vous existants) en respectant
-     * les horaires, la pause éventuelle, la durée du service et le délai minimal.
+     * Recherche les prochains créneaux disponibles pour un service, à partir d'une date.
+     * <p>
+     * Parcourt les jours dans l'ordre et s'arrête dès que {@code limit} créneaux ont été trouvés :
+     * <ul>
+     *   <li>Les jours fermés (fermeture du salon, aucun staff travaillant ce jour-là) sont écartés
+     *       sans requête, à partir des horaires hebdomadaires et des fermetures chargés une seule fois ;
+     *       comme pour {@link #getAvailableSlots}, seules les fermetures enregistrées ferment un jour</li>
+     *   <li>Les disponibilités des jours restants sont chargées par semaine via le
+     *       {@link SlotAvailabilityIndex}, uniquement si la recherche atteint cette semaine</li>
+     *   <li>Les créneaux d'une même journée sont départagés par heure de début puis par ordre d'affichage du staff</li>
+     * </ul>
      *
-     * @param date         date ciblée
-     * @param workingHours horaires du staff pour le jour
-     * @param service      service à planifier
-     * @param staff        membre du staff
-     * @return liste de slots potentiels (possiblement encore en conflit)
+     * @param serviceId   identifiant du service
+     * @param staffId     identifiant du membre du staff, ou {@code null} pour tous les staff actifs
+     * @param from        première date examinée
+     * @param horizonDays nombre de jours examinés (borné par {@code app.booking.next-available-max-horizon-days})
+     * @param limit       nombre maximal de créneaux renvoyés
+     * @return les créneaux les plus proches, triés chronologiquement (vide si aucun dans l'horizon)
+     * @throws IllegalArgumentException si service ou staff introuvable, ou paramètres invalides
      */
-    private List<SlotDto> generateSlots(LocalDate date, WorkingHours workingHours,
-                                        be.salon.coiffurereservation.entity.Service service, StaffMember staff) {
-        List<SlotDto> slots = new ArrayList<>();
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime minStartTime = now.plusHours(minAdvanceHours);
-
-        LocalTime currentTime = workingHours.getStartTime();
-        LocalTime endTime = workingHours.getEndTime();
-
-        // on autorise un slot si (current + durée) == endTime (borne incluse).
-        while (currentTime.plusMinutes(service.getDurationMinutes()).isBefore(endTime)
-                || currentTime.plusMinutes(service.getDurationMinutes()).equals(endTime)) {
-
-            // sauter la plage de pause
-            if (workingHours.hasBreak() &&
-                    !currentTime.isBefore(workingHours.getBreakStart()) &&
-                    currentTime.isBefore(workingHours.getBreakEnd())) {
-                currentTime = currentTime.plusMinutes(slotIntervalMinutes);
+    public List<SlotDto> findNextAvailable(UUID serviceId, UUID staffId, LocalDate from, int horizonDays, int limit) {
+        if (horizonDays < 1 || limit < 1) {
+            throw new IllegalArgumentException("L'horizon et le nombre de créneaux doivent être positifs");
+        }
+
+        be.salon.coiffurereservation.entity.Service service = serviceRepository.findById(serviceId)
+                .orElseThrow(() -> new IllegalArgumentException("Service non trouvé"));
+
+        List<StaffMember> staffMembers;
+        if (staffId != null) {
+            StaffMember staff = staffMemberRepository.findById(staffId)
+                    .orElseThrow(() -> new IllegalArgumentException("Membre du staff non trouvé"));
+            staffMembers = staff.getActive() ? List.of(staff) : List.of();
+        } else {
+            staffMembers = staffMemberRepository.findByActiveTrueOrderByDisplayOrderAsc();
+        }
+        if (staffMembers.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<UUID> staffIds = staffMembers.stream().map(StaffMember::getId).toList();
+        Set<Integer> workingDays = availabilityRepository.findWorkingHoursByStaffIds(staffIds).stream()
+                .map(WorkingHours::getDayOfWeek)
+                .collect(Collectors.toSet());
+        // Équivalent en mémoire de HolidayService#isSalonClosed : une requête pour tout l'horizon
+        // plutôt qu'une par jour examiné
+        List<Holiday> salonHolidays = holidayService.getSalonHolidays();
+
+        LocalDateTime minStartTime = LocalDateTime.now().plusHours(minAdvanceHours);
+        LocalDate start = from.isBefore(minStartTime.toLocalDate()) ? minStartTime.toLocalDate() : from;
+        LocalDate end = start.plusDays(Math.min(horizonDays, maxHorizonDays) - 1L);
+
+        List<SlotDto> found = new ArrayList<>();
+        for (LocalDate weekStart = start; !weekStart.isAfter(end) && found.size() < limit; weekStart = weekStart.plusWeeks(1)) {
+            LocalDate weekEnd = weekStart.plusDays(6).isAfter(end) ? end : weekStart.plusDays(6);
+
+            List<LocalDate> openDays = weekStart.datesUntil(weekEnd.plusDays(1))
+                    .filter(date -> workingDays.contains(date.getDayOfWeek().getValue()))
+                    .filter(date -> salonHolidays.stream().noneMatch(h -> h.covers(date)))
+                    .toList();
+            if (openDays.isEmpty()) {
                 continue;
             }
 
-            LocalDateTime slotStart = LocalDateTime.of(date, currentTime);
-            LocalDateTime slotEnd = slotStart.plusMinutes(service.getDurationMinutes());
+            Map<LocalDate, List<StaffDayAvailability>> week = slotAvailabilityIndex
+                    .getRange(staffIds, openDays.get(0), openDays.get(openDays.size() - 1)).stream()
+                    .collect(Collectors.groupingBy(StaffDayAvailability::getDate));
 
-            // respect du délai minimal
-            if (slotStart.isAfter(minStartTime)) {
-                slots.add(SlotDto.builder()
-                        .startTime(slotStart)
-                        .endTime(slotEnd)
-                        .staffId(staff.getId())
-                        .staffName(staff.getFullName())
-                        .available(true)
-                        .build());
-            }
+            for (LocalDate date : openDays) {
+                List<SlotDto> daySlots = new ArrayList<>();
+                for (int i = 0; i < staffMembers.size(); i++) {
+                    StaffMember staff = staffMembers.get(i);
+                    StaffDayAvailability day = week.get(date).get(i);
+                    for (LocalTime slotStart : day.findAvailableStarts(service.getDurationMinutes(), slotIntervalMinutes)) {
+                        LocalDateTime startTime = LocalDateTime.of(date, slotStart);
+                        if (startTime.isAfter(minStartTime)) {
+                            daySlots.add(SlotDto.builder()
+                                    .startTime(startTime)
+                                    .endTime(startTime.plusMinutes(service.getDurationMinutes()))
+                                    .staffId(staff.getId())
+                                    .staffName(staff.getFullName())
+                                    .available(true)
+                                    .build());
+                        }
+                    }
+                }
 
-            currentTime = currentTime.plusMinutes(slotIntervalMinutes);
+                daySlots.sort(Comparator.comparing(SlotDto::getStartTime));
+                for (SlotDto slot : daySlots) {
+                    if (found.size() == limit) {
+                        return found;
+                    }
+                    found.add(slot);
+                }
+            }
         }
 
-        return slots;
+        return found;
     }
 
     /**
-     * Indique si deux intervalles se chevauchent strictement.
+     * Indique si un membre du staff possède la compétence demandée.
      *
-     * @param start1 début 1
-     * @param end1   fin 1
-     * @param start2 début 2
-     * @param end2   fin 2
-     * @return {@code true} si chevauchement, sinon {@code false}
+     * @param staff membre du staff
+     * @param skill compétence requise ({@code null} ou vide : aucun filtre)
+     * @return {@code true} si aucun filtre n'est demandé ou si la compétence est déclarée
      */
-    private boolean isOverlapping(LocalDateTime start1, LocalDateTime end1,
-                                  LocalDateTime start2, LocalDateTime end2) {
-        return start1.isBefore(end2) && end1.isAfter(start2);
+    private boolean hasSkill(StaffMember staff, String skill) {
+        if (skill == null || skill.isBlank()) {
+            return true;
+        }
+        return staff.getSkills() != null
+                && staff.getSkills().stream().anyMatch(s -> s.equalsIgnoreCase(skill.trim()));
     }
 }
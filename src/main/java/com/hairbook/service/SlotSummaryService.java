@@ -0,0 +1,244 @@
+package com.hairbook.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hairbook.dto.DaySlotSummaryDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Service de calcul des résumés de disponibilité par jour (vue calendrier).
+ * <p>
+ * Pour une plage de dates, renvoie le nombre de créneaux libres et la première heure libre
+ * de chaque jour. Les journées manquantes sont calculées en une passe sur une plage chargée
+ * en un seul lot par le {@link SlotAvailabilityIndex}.
+ * <p>
+ * Les résumés sont mis en cache par (service, staff, mois) ; une réservation, une annulation
+ * ou un déplacement n'invalide que les journées concernées à l'intérieur du mois. Un résumé
+ * calculé pendant l'invalidation de sa journée n'est pas conservé (version du mois).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotSummaryService {
+
+    /** Nombre maximal de jours couverts par une demande de résumé. */
+    private static final int MAX_RANGE_DAYS = 62;
+
+    private final ServiceRepository serviceRepository;
+    private final StaffMemberRepository staffMemberRepository;
+    private final SlotAvailabilityIndex slotAvailabilityIndex;
+    private final MeterRegistry meterRegistry;
+
+    /** Pas de génération entre deux slots (en minutes). */
+    @Value("${app.booking.slot-interval-minutes:30}")
+    private Integer slotIntervalMinutes;
+
+    /** Délai minimal (en heures) entre maintenant et le début d'un rendez-vous réservable. */
+    @Value("${app.booking.min-advance-hours:1}")
+    private Integer minAdvanceHours;
+
+    /** Durée de vie d'un mois de résumés en cache (en minutes). */
+    @Value("${app.booking.slot-summary-ttl-minutes:10}")
+    private Integer ttlMinutes;
+
+    private Cache<MonthKey, MonthSummaries> summaries;
+
+    @PostConstruct
+    void init() {
+        summaries = Caffeine.newBuilder()
+                .maximumSize(2_000)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, summaries, "slotSummaries");
+    }
+
+    /**
+     * Calcule le résumé de disponibilité de chaque jour d'une plage.
+     *
+     * @param from      première date (incluse)
+     * @param to        dernière date (incluse)
+     * @param serviceId identifiant du service
+     * @param staffId   identifiant du membre du staff, ou {@code null} pour tous les staff actifs
+     * @return un résumé par jour, trié chronologiquement
+     * @throws IllegalArgumentException si la plage est invalide, ou si service ou staff introuvable
+     */
+    public List<DaySlotSummaryDto> getSummary(LocalDate from, LocalDate to, UUID serviceId, UUID staffId) {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS) {
+            throw new IllegalArgumentException("La plage de dates doit couvrir entre 1 et " + MAX_RANGE_DAYS + " jours");
+        }
+
+        be.salon.coiffurereservation.entity.Service service = serviceRepository.findById(serviceId)
+                .orElseThrow(() -> new IllegalArgumentException("Service non trouvé"));
+        List<UUID> staffIds = resolveStaffIds(staffId);
+
+        Map<LocalDate, DaySlotSummaryDto> result = new TreeMap<>();
+        List<LocalDate> missing = new ArrayList<>();
+        Map<MonthSummaries, Long> versions = new IdentityHashMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            MonthSummaries month = monthOf(serviceId, staffId, date);
+            DaySlotSummaryDto cached = month.days().get(date);
+            if (cached != null) {
+                result.put(date, cached);
+            } else {
+                // Version lue avant le calcul : une invalidation pendant le calcul la fait changer
+                versions.computeIfAbsent(month, m -> m.version().get());
+                missing.add(date);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<LocalDate, DaySlotSummaryDto> computed = computeSummaries(service, staffIds,
+                    missing.get(0), missing.get(missing.size() - 1));
+            for (LocalDate date : missing) {
+                DaySlotSummaryDto summary = computed.get(date);
+                MonthSummaries month = monthOf(serviceId, staffId, date);
+                Long version = versions.get(month);
+                if (version != null) {
+                    month.putIfCurrent(date, summary, version);
+                }
+                result.put(date, summary);
+            }
+            log.debug("Slot summary computed for {} day(s) of service {} (staff {})", missing.size(), serviceId, staffId);
+        }
+
+        return new ArrayList<>(result.values());
+    }
+
+    /**
+     * Invalide, après commit, les journées touchées par un changement de rendez-vous
+     * (ancienne et nouvelle date en cas de déplacement).
+     *
+     * @param event rendez-vous créé, déplacé ou annulé
+     */
+    @TransactionalEventListener
+    public void onAppointmentChanged(AppointmentSlotChangedEvent event) {
+        evictDay(event.staffId(), event.date());
+        if (event.previousStaffId() != null || event.previousDate() != null) {
+            evictDay(Objects.requireNonNullElse(event.previousStaffId(), event.staffId()),
+                    Objects.requireNonNullElse(event.previousDate(), event.date()));
+        }
+    }
+
+    /**
+     * Invalide, après commit, les résumés d'un staff (et les résumés tous staff confondus)
+     * lorsque son planning change.
+     *
+     * @param event changement de planning
+     */
+    @TransactionalEventListener
+    public void onStaffScheduleChanged(StaffScheduleChangedEvent event) {
+        if (event.isSalonWide()) {
+            summaries.invalidateAll();
+        } else {
+            summaries.asMap().keySet().removeIf(key -> key.staffId() == null || key.staffId().equals(event.staffId()));
+        }
+    }
+
+    private Map<LocalDate, DaySlotSummaryDto> computeSummaries(be.salon.coiffurereservation.entity.Service service,
+                                                               List<UUID> staffIds, LocalDate from, LocalDate to) {
+        LocalDateTime minStartTime = LocalDateTime.now().plusHours(minAdvanceHours);
+        Map<LocalDate, List<StaffDayAvailability>> daysByDate = slotAvailabilityIndex
+                .getRange(staffIds, from, to).stream()
+                .collect(Collectors.groupingBy(StaffDayAvailability::getDate));
+
+        Map<LocalDate, DaySlotSummaryDto> computed = new TreeMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            TreeSet<LocalTime> starts = new TreeSet<>();
+            for (StaffDayAvailability day : daysByDate.getOrDefault(date, List.of())) {
+                for (LocalTime start : day.findAvailableStarts(service.getDurationMinutes(), slotIntervalMinutes)) {
+                    if (LocalDateTime.of(date, start).isAfter(minStartTime)) {
+                        starts.add(start);
+                    }
+                }
+            }
+            computed.put(date, DaySlotSummaryDto.builder()
+                    .date(date)
+                    .freeSlots(starts.size())
+                    .earliestStart(starts.isEmpty() ? null : starts.first())
+                    .build());
+        }
+        return computed;
+    }
+
+    private List<UUID> resolveStaffIds(UUID staffId) {
+        if (staffId == null) {
+            return staffMemberRepository.findByActiveTrueOrderByDisplayOrderAsc().stream()
+                    .map(StaffMember::getId)
+                    .toList();
+        }
+        StaffMember staff = staffMemberRepository.findById(staffId)
+                .orElseThrow(() -> new IllegalArgumentException("Membre du staff non trouvé"));
+        return staff.getActive() ? List.of(staffId) : List.of();
+    }
+
+    private MonthSummaries monthOf(UUID serviceId, UUID staffId, LocalDate date) {
+        return summaries.get(new MonthKey(serviceId, staffId, YearMonth.from(date)),
+                key -> new MonthSummaries(new ConcurrentHashMap<>(), new AtomicLong()));
+    }
+
+    private void evictDay(UUID staffId, LocalDate date) {
+        YearMonth month = YearMonth.from(date);
+        summaries.asMap().forEach((key, summariesOfMonth) -> {
+            if (key.month().equals(month) && (key.staffId() == null || key.staffId().equals(staffId))) {
+                summariesOfMonth.evict(date);
+            }
+        });
+    }
+
+    /** Clé d'un mois de résumés ; {@code staffId} nul pour tous les staff confondus. */
+    private record MonthKey(UUID serviceId, UUID staffId, YearMonth month) {
+    }
+
+    /**
+     * Résumés d'un mois. La version augmente à chaque invalidation : un résumé calculé à partir
+     * d'une version dépassée n'est pas conservé.
+     */
+    private record MonthSummaries(Map<LocalDate, DaySlotSummaryDto> days, AtomicLong version) {
+
+        void evict(LocalDate date) {
+            version.incrementAndGet();
+            days.remove(date);
+        }
+
+        /**
+         * Conserve un résumé si aucune invalidation n'a eu lieu depuis {@code expectedVersion}.
+         * Une invalidation concurrente incrémente la version avant de retirer la journée : soit elle
+         * retire le résumé ajouté, soit la seconde vérification le voit et le retire.
+         */
+        void putIfCurrent(LocalDate date, DaySlotSummaryDto summary, long expectedVersion) {
+            if (version.get() != expectedVersion) {
+                return;
+            }
+            days.put(date, summary);
+            if (version.get() != expectedVersion) {
+                days.remove(date, summary);
+            }
+        }
+    }
+}
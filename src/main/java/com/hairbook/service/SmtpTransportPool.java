@@ -0,0 +1,154 @@
+package com.hairbook.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool de connexions SMTP authentifiées.
+ * <p>
+ * {@link JavaMailSenderImpl#send} ouvre et authentifie une connexion à chaque appel ; ce pool garde
+ * les connexions ouvertes entre deux lots d'emails :
+ * <ul>
+ *   <li>Au plus {@code app.mail.smtp.pool.size} connexions ouvertes simultanément</li>
+ *   <li>Une connexion inactive depuis plus de {@code app.mail.smtp.pool.max-idle-seconds}, ou fermée
+ *       par le serveur, est rouverte à l'emprunt</li>
+ *   <li>Une connexion en erreur est fermée au lieu d'être rendue au pool</li>
+ *   <li>Métriques Micrometer : {@code mail.smtp.connections.opened} et {@code mail.smtp.connections.idle}</li>
+ * </ul>
+ * Les paramètres de connexion (hôte, port, identifiants) sont ceux de {@code spring.mail.*}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SmtpTransportPool {
+
+    private final JavaMailSenderImpl mailSender;
+    private final MeterRegistry meterRegistry;
+
+    /** Nombre maximal de connexions SMTP ouvertes simultanément. */
+    @Value("${app.mail.smtp.pool.size:4}")
+    private Integer poolSize;
+
+    /** Durée (en secondes) au-delà de laquelle une connexion inactive est rouverte. */
+    @Value("${app.mail.smtp.pool.max-idle-seconds:60}")
+    private Integer maxIdleSeconds;
+
+    /** Délai maximal (en secondes) d'attente d'une connexion libre. */
+    @Value("${app.mail.smtp.pool.borrow-timeout-seconds:30}")
+    private Integer borrowTimeoutSeconds;
+
+    private Semaphore permits;
+    private final BlockingQueue<PooledTransport> idle = new LinkedBlockingQueue<>();
+    private Counter openedCounter;
+
+    @PostConstruct
+    void init() {
+        permits = new Semaphore(poolSize);
+        openedCounter = Counter.builder("mail.smtp.connections.opened")
+                .description("Connexions SMTP ouvertes et authentifiées")
+                .register(meterRegistry);
+        Gauge.builder("mail.smtp.connections.idle", idle, BlockingQueue::size)
+                .description("Connexions SMTP ouvertes en attente de réutilisation")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        PooledTransport transport;
+        while ((transport = idle.poll()) != null) {
+            close(transport.transport());
+        }
+    }
+
+    /**
+     * Session JavaMail utilisée pour créer les messages envoyés par ce pool.
+     *
+     * @return la session de {@code spring.mail.*}
+     */
+    public Session getSession() {
+        return mailSender.getSession();
+    }
+
+    /**
+     * Emprunte une connexion ouverte et authentifiée. Doit être rendue par {@link #release}.
+     *
+     * @return une connexion prête à l'envoi
+     * @throws MessagingException   si la connexion au serveur échoue
+     * @throws InterruptedException si l'attente d'une connexion libre est interrompue
+     * @throws IllegalStateException si aucune connexion ne se libère à temps
+     */
+    public Transport borrow() throws MessagingException, InterruptedException {
+        if (!permits.tryAcquire(borrowTimeoutSeconds, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("No SMTP connection available after " + borrowTimeoutSeconds + "s");
+        }
+        try {
+            PooledTransport pooled;
+            long now = System.nanoTime();
+            while ((pooled = idle.poll()) != null) {
+                if (pooled.transport().isConnected()
+                        && now - pooled.releasedAt() < TimeUnit.SECONDS.toNanos(maxIdleSeconds)) {
+                    return pooled.transport();
+                }
+                close(pooled.transport());
+            }
+            return connect();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Rend une connexion empruntée.
+     *
+     * @param transport connexion empruntée
+     * @param healthy   {@code false} si une erreur de connexion s'est produite : la connexion est fermée
+     */
+    public void release(Transport transport, boolean healthy) {
+        try {
+            if (healthy && transport.isConnected()) {
+                idle.add(new PooledTransport(transport, System.nanoTime()));
+            } else {
+                close(transport);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Transport connect() throws MessagingException {
+        Transport transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        openedCounter.increment();
+        log.debug("SMTP connection opened to {}:{}", mailSender.getHost(), mailSender.getPort());
+        return transport;
+    }
+
+    private void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP connection", e);
+        }
+    }
+
+    /** Connexion inactive et date de sa remise au pool. */
+    private record PooledTransport(Transport transport, long releasedAt) {
+    }
+}
@@ -0,0 +1,198 @@
+package com.hairbook.service;
+
+import com.hairbook.entity.WorkingHours;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Disponibilité d'un membre du staff pour une journée, représentée sous forme de bitset.
+ * <p>
+ * Chaque bit couvre {@code granularityMinutes} minutes à partir de minuit ; un bit à 1 signifie
+ * que le membre du staff est libre sur cette tranche. Le bitset est construit à partir des
+ * horaires de travail (pause exclue), puis les rendez-vous actifs y sont retirés.
+ * <p>
+ * Les mutations ({@link #occupy}, {@link #release}) publient un nouveau bitset (copy-on-write),
+ * ce qui permet des lectures concurrentes sans verrou.
+ */
+public final class StaffDayAvailability {
+
+    private final UUID staffId;
+    private final LocalDate date;
+    private final int granularityMinutes;
+
+    /** Début et fin de la journée de travail ({@code null} si le staff ne travaille pas ce jour). */
+    private final LocalTime workStart;
+    private final LocalTime workEnd;
+
+    /** Tranches travaillées (horaires moins la pause), jamais modifié après construction. */
+    private final BitSet working;
+
+    /** Rendez-vous actifs occupant la journée : id → [bit de début, bit de fin). */
+    private final Map<UUID, int[]> occupied = new HashMap<>();
+
+    /** Tranches libres (working moins occupied). */
+    private volatile BitSet free;
+
+    private StaffDayAvailability(UUID staffId, LocalDate date, int granularityMinutes,
+                                 LocalTime workStart, LocalTime workEnd, BitSet working) {
+        this.staffId = staffId;
+        this.date = date;
+        this.granularityMinutes = granularityMinutes;
+        this.workStart = workStart;
+        this.workEnd = workEnd;
+        this.working = working;
+        this.free = (BitSet) working.clone();
+    }
+
+    /**
+     * Journée sans aucune disponibilité (congé, fermeture ou absence d'horaires).
+     */
+    public static StaffDayAvailability closed(UUID staffId, LocalDate date, int granularityMinutes) {
+        return new StaffDayAvailability(staffId, date, granularityMinutes, null, null, new BitSet());
+    }
+
+    /**
+     * Construit la disponibilité d'une journée à partir des horaires de travail du staff.
+     *
+     * @param staffId            identifiant du membre du staff
+     * @param date               date concernée
+     * @param workingHours       horaires du jour (pause éventuelle incluse)
+     * @param granularityMinutes taille d'une tranche en minutes
+     * @return disponibilité sans aucun rendez-vous
+     */
+    public static StaffDayAvailability of(UUID staffId, LocalDate date, WorkingHours workingHours,
+                                          int granularityMinutes) {
+        BitSet working = new BitSet(24 * 60 / granularityMinutes);
+        working.set(ceilBit(workingHours.getStartTime(), granularityMinutes),
+                floorBit(workingHours.getEndTime(), granularityMinutes));
+        if (workingHours.hasBreak()) {
+            working.clear(floorBit(workingHours.getBreakStart(), granularityMinutes),
+                    ceilBit(workingHours.getBreakEnd(), granularityMinutes));
+        }
+        return new StaffDayAvailability(staffId, date, granularityMinutes,
+                workingHours.getStartTime(), workingHours.getEndTime(), working);
+    }
+
+    public UUID getStaffId() {
+        return staffId;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * @return {@code true} si le staff ne travaille pas ce jour-là
+     */
+    public boolean isClosed() {
+        return workStart == null;
+    }
+
+    /**
+     * Marque l'intervalle d'un rendez-vous comme occupé. Idempotent pour un même rendez-vous.
+     *
+     * @param appointmentId identifiant du rendez-vous
+     * @param startTime     heure de début
+     * @param endTime       heure de fin
+     */
+    public synchronized void occupy(UUID appointmentId, LocalTime startTime, LocalTime endTime) {
+        occupied.put(appointmentId, new int[]{
+                floorBit(startTime, granularityMinutes), ceilBit(endTime, granularityMinutes)});
+        recompute();
+    }
+
+    /**
+     * Libère l'intervalle précédemment occupé par un rendez-vous (sans effet s'il est inconnu).
+     *
+     * @param appointmentId identifiant du rendez-vous
+     */
+    public synchronized void release(UUID appointmentId) {
+        if (occupied.remove(appointmentId) != null) {
+            recompute();
+        }
+    }
+
+    /**
+     * Indique si l'intervalle [start, end) est entièrement libre.
+     */
+    public boolean isFree(LocalTime startTime, LocalTime endTime) {
+        if (isClosed()) {
+            return false;
+        }
+        int fromBit = floorBit(startTime, granularityMinutes);
+        int toBit = ceilBit(endTime, granularityMinutes);
+        return free.nextClearBit(fromBit) >= toBit;
+    }
+
+    /**
+     * Parcourt la journée par fenêtre glissante et retourne les heures de début possibles
+     * pour une prestation de {@code durationMinutes}, alignées sur {@code stepMinutes}
+     * à partir du début de journée.
+     * <p>
+     * Lorsqu'une fenêtre rencontre une tranche occupée, la recherche saute directement
+     * au premier candidat situé après la prochaine tranche libre.
+     *
+     * @param durationMinutes durée de la prestation
+     * @param stepMinutes     pas entre deux créneaux
+     * @return heures de début disponibles, triées chronologiquement
+     */
+    public List<LocalTime> findAvailableStarts(int durationMinutes, int stepMinutes) {
+        List<LocalTime> starts = new ArrayList<>();
+        if (isClosed()) {
+            return starts;
+        }
+
+        BitSet snapshot = free;
+        int base = minuteOfDay(workStart);
+        int limit = minuteOfDay(workEnd);
+        int startMinute = base;
+
+        while (startMinute + durationMinutes <= limit) {
+            int fromBit = startMinute / granularityMinutes;
+            int toBit = Math.ceilDiv(startMinute + durationMinutes, granularityMinutes);
+            int busyBit = snapshot.nextClearBit(fromBit);
+
+            if (busyBit >= toBit) {
+                starts.add(LocalTime.of(startMinute / 60, startMinute % 60));
+                startMinute += stepMinutes;
+                continue;
+            }
+
+            int nextFreeBit = snapshot.nextSetBit(busyBit);
+            if (nextFreeBit < 0) {
+                break;
+            }
+            int target = nextFreeBit * granularityMinutes;
+            startMinute = base + Math.ceilDiv(target - base, stepMinutes) * stepMinutes;
+        }
+
+        return starts;
+    }
+
+    private void recompute() {
+        BitSet next = (BitSet) working.clone();
+        for (int[] interval : occupied.values()) {
+            next.clear(interval[0], interval[1]);
+        }
+        free = next;
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static int floorBit(LocalTime time, int granularityMinutes) {
+        return minuteOfDay(time) / granularityMinutes;
+    }
+
+    private static int ceilBit(LocalTime time, int granularityMinutes) {
+        return Math.ceilDiv(minuteOfDay(time), granularityMinutes);
+    }
+}
@@ -0,0 +1,26 @@
+package com.hairbook.service;
+
+import java.util.UUID;
+
+/**
+ * Événement publié lorsqu'un élément du planning d'un membre du staff change
+ * (horaires de travail, congé) ou lorsqu'une fermeture globale du salon est modifiée.
+ *
+ * @param staffId identifiant du membre du staff, ou {@code null} pour tout le salon
+ */
+public record StaffScheduleChangedEvent(UUID staffId) {
+
+    /**
+     * Crée l'événement pour une fermeture globale du salon.
+     */
+    public static StaffScheduleChangedEvent salonWide() {
+        return new StaffScheduleChangedEvent(null);
+    }
+
+    /**
+     * @return {@code true} si le changement concerne tous les membres du staff
+     */
+    public boolean isSalonWide() {
+        return staffId == null;
+    }
+}
@@ -0,0 +1,81 @@
+package com.hairbook.service;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.checkout.Session;
+import com.stripe.model.checkout.SessionCollection;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.checkout.SessionCreateParams;
+import com.stripe.param.checkout.SessionListParams;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Passerelle de paiement appelant l'API Stripe via {@code stripe-java}.
+ * <p>
+ * Les délais de connexion et de lecture sont explicites (les valeurs par défaut de la bibliothèque
+ * vont jusqu'à 80 s) et les nouveaux essais réseau de la bibliothèque sont désactivés par défaut,
+ * pour que la durée d'un appel reste sous le délai de {@link ResilientPaymentGateway}.
+ */
+public class StripePaymentGateway implements PaymentGateway {
+
+    private final RequestOptions requestOptions;
+
+    /**
+     * @param apiKey             clé secrète Stripe
+     * @param connectTimeout     délai maximal d'établissement de la connexion
+     * @param readTimeout        délai maximal d'attente de la réponse
+     * @param maxNetworkRetries  nombre de nouveaux essais réseau (idempotents) de la bibliothèque
+     */
+    public StripePaymentGateway(String apiKey, Duration connectTimeout, Duration readTimeout, int maxNetworkRetries) {
+        this.requestOptions = RequestOptions.builder()
+                .setApiKey(apiKey)
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setReadTimeout((int) readTimeout.toMillis())
+                .setMaxNetworkRetries(maxNetworkRetries)
+                .build();
+    }
+
+    @Override
+    public CheckoutSession createCheckoutSession(SessionCreateParams params) throws StripeException {
+        return toCheckoutSession(Session.create(params, requestOptions));
+    }
+
+    @Override
+    public CheckoutSession retrieveCheckoutSession(String sessionId) throws StripeException {
+        return toCheckoutSession(Session.retrieve(sessionId, requestOptions));
+    }
+
+    @Override
+    public void expireCheckoutSession(String sessionId) throws StripeException {
+        Session.retrieve(sessionId, requestOptions).expire(requestOptions);
+    }
+
+    @Override
+    public SessionPage listCheckoutSessions(Instant createdFrom, Instant createdTo, String startingAfter, int limit)
+            throws StripeException {
+        SessionListParams.Builder params = SessionListParams.builder()
+                .setLimit((long) limit)
+                .setCreated(SessionListParams.Created.builder()
+                        .setGte(createdFrom.getEpochSecond())
+                        .setLt(createdTo.getEpochSecond())
+                        .build());
+        if (startingAfter != null) {
+            params.setStartingAfter(startingAfter);
+        }
+        SessionCollection page = Session.list(params.build(), requestOptions);
+        List<SessionSummary> sessions = page.getData().stream()
+                .map(session -> new SessionSummary(session.getId(),
+                        session.getMetadata() != null ? session.getMetadata().get("appointmentId") : null,
+                        session.getStatus(), session.getPaymentStatus(), session.getPaymentIntent(),
+                        session.getAmountTotal(), Instant.ofEpochSecond(session.getCreated())))
+                .toList();
+        return new SessionPage(sessions, Boolean.TRUE.equals(page.getHasMore()));
+    }
+
+    private static CheckoutSession toCheckoutSession(Session session) {
+        return new CheckoutSession(session.getId(), session.getUrl(), session.getPaymentIntent(),
+                Instant.ofEpochSecond(session.getExpiresAt()));
+    }
+}
@@ -0,0 +1,325 @@
+package com.hairbook.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hairbook.entity.StripeWebhookEvent;
+import com.hairbook.entity.WebhookEventStatus;
+import com.hairbook.repository.StripeWebhookEventRepository;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Réception et traitement des webhooks Stripe.
+ * <p>
+ * {@link #receive} vérifie la signature puis enregistre l'événement brut dans la boîte de réception
+ * ({@code stripe_webhook_event}) et rend la main : la réponse à Stripe ne dépend ni de la base métier
+ * ni d'un appel à l'API Stripe. Un événement renvoyé par Stripe (même identifiant) n'est enregistré
+ * qu'une fois. Les événements sont appliqués en arrière-plan par la tâche {@value #DISPATCH_JOB} :
+ * <ul>
+ *   <li>Déclenchée après chaque réception d'un nouvel événement, et à intervalle régulier</li>
+ *   <li>Réserve les événements par lots ({@code FOR UPDATE SKIP LOCKED}) en ne retenant que le plus
+ *       ancien événement en attente de chaque rendez-vous : les événements d'un même rendez-vous sont
+ *       appliqués dans l'ordre de création chez Stripe</li>
+ *   <li>Applique un lot en parallèle ({@code app.stripe.webhook.workers} threads), chaque événement
+ *       dans sa propre transaction avec la mise à jour de son statut</li>
+ *   <li>Réessaie les échecs techniques avec un délai doublé à chaque tentative, puis abandonne
+ *       (statut FAILED) ; un événement incohérent (paiement inconnu) est abandonné immédiatement,
+ *       sauf un paiement reçu, rattaché au rendez-vous ou signalé aux administrateurs
+ *       ({@link PaymentService#markPaymentSucceeded})</li>
+ *   <li>Métriques Micrometer : {@code stripe.webhook.received} (par issue), {@code stripe.webhook.processed}
+ *       (par type et issue), {@code stripe.webhook.lag} (réception → application), {@code stripe.webhook.pending}
+ *       et l'occupation du pool ({@code stripe.webhook.executor})</li>
+ * </ul>
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StripeWebhookService {
+
+    /** Nom de la tâche d'application des événements (verrou et administration). */
+    public static final String DISPATCH_JOB = "stripe-webhook-dispatch";
+
+    /** Nom de la tâche de purge des événements traités. */
+    public static final String PURGE_JOB = "stripe-webhook-purge";
+
+    /** Longueur maximale du message d'erreur conservé. */
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final StripeWebhookEventRepository stripeWebhookEventRepository;
+    private final PaymentService paymentService;
+    private final ScheduledJobService scheduledJobService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    /** Secret de signature du endpoint webhook ({@code whsec_...}). */
+    @Value("${stripe.webhook-secret}")
+    private String webhookSecret;
+
+    /** Nombre d'événements réservés par lot. */
+    @Value("${app.stripe.webhook.batch-size:50}")
+    private Integer batchSize;
+
+    /** Durée (en secondes) de la réservation d'un lot ; doit couvrir son traitement entier. */
+    @Value("${app.stripe.webhook.lease-seconds:120}")
+    private Integer leaseSeconds;
+
+    /** Nombre de threads appliquant les événements d'un lot. */
+    @Value("${app.stripe.webhook.workers:4}")
+    private Integer workers;
+
+    /** Nombre maximal de tentatives avant abandon. */
+    @Value("${app.stripe.webhook.max-attempts:10}")
+    private Integer maxAttempts;
+
+    /** Délai (en secondes) avant le premier nouvel essai, doublé à chaque échec. */
+    @Value("${app.stripe.webhook.retry-base-seconds:10}")
+    private Integer retryBaseSeconds;
+
+    /** Délai maximal (en secondes) entre deux essais. */
+    @Value("${app.stripe.webhook.retry-max-seconds:1800}")
+    private Integer retryMaxSeconds;
+
+    /** Durée (en jours) de conservation des événements traités. */
+    @Value("${app.stripe.webhook.retention-days:30}")
+    private Integer retentionDays;
+
+    private ExecutorService workerPool;
+    private final AtomicLong pending = new AtomicLong();
+    private Timer lagTimer;
+
+    @PostConstruct
+    void init() {
+        workerPool = Executors.newFixedThreadPool(workers, Thread.ofPlatform().name("stripe-webhook-", 1).factory());
+        ExecutorServiceMetrics.monitor(meterRegistry, workerPool, "stripe.webhook.executor");
+        lagTimer = Timer.builder("stripe.webhook.lag")
+                .description("Délai entre la réception d'un événement Stripe et son application")
+                .register(meterRegistry);
+        Gauge.builder("stripe.webhook.pending", pending, AtomicLong::get)
+                .description("Événements Stripe en attente (au dernier passage du dispatcher)")
+                .register(meterRegistry);
+        scheduledJobService.register(new ScheduledJob(DISPATCH_JOB, ScheduledJobService.PAYMENTS_POOL,
+                Duration.ofMinutes(2), Duration.ZERO, Duration.ofMinutes(10), this::dispatch));
+        scheduledJobService.register(new ScheduledJob(PURGE_JOB, ScheduledJobService.MAINTENANCE_POOL,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofMinutes(5), this::deleteFinished));
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Les événements en cours redeviennent disponibles à l'expiration de leur réservation
+        workerPool.shutdown();
+        if (!workerPool.awaitTermination(30, TimeUnit.SECONDS)) {
+            workerPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Vérifie et enregistre un événement Stripe reçu par webhook, puis déclenche son traitement.
+     *
+     * @param payload   corps brut du webhook
+     * @param sigHeader en-tête {@code Stripe-Signature}
+     * @return {@code true} si l'événement est nouveau, {@code false} s'il a déjà été reçu
+     * @throws SignatureVerificationException si la signature est absente ou invalide
+     */
+    public boolean receive(String payload, String sigHeader) throws SignatureVerificationException {
+        Event event;
+        try {
+            event = Webhook.constructEvent(payload, sigHeader, webhookSecret);
+        } catch (SignatureVerificationException e) {
+            meterRegistry.counter("stripe.webhook.received", "outcome", "invalid_signature").increment();
+            throw e;
+        }
+
+        LocalDateTime createdAt = LocalDateTime.ofInstant(Instant.ofEpochSecond(event.getCreated()), ZoneId.systemDefault());
+        boolean inserted = stripeWebhookEventRepository.insertIfAbsent(event.getId(), event.getType(),
+                appointmentIdOf(payload), payload, createdAt) > 0;
+        meterRegistry.counter("stripe.webhook.received", "outcome", inserted ? "accepted" : "duplicate").increment();
+        if (inserted) {
+            scheduledJobService.run(DISPATCH_JOB);
+        } else {
+            log.debug("Stripe event {} already received", event.getId());
+        }
+        return inserted;
+    }
+
+    /**
+     * Applique les événements en attente dont l'échéance est passée (nouveaux essais, événements
+     * d'une instance arrêtée, réceptions dont le déclenchement a été sauté).
+     */
+    @Scheduled(fixedDelayString = "${app.stripe.webhook.poll-interval-ms:5000}")
+    public void dispatchPending() {
+        scheduledJobService.run(DISPATCH_JOB);
+    }
+
+    /**
+     * Purge chaque nuit les événements traités depuis plus de {@code app.stripe.webhook.retention-days} jours.
+     */
+    @Scheduled(cron = "0 45 3 * * *")
+    public void purgeFinished() {
+        scheduledJobService.run(PURGE_JOB);
+    }
+
+    private void dispatch() {
+        int processed = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<String> ids = stripeWebhookEventRepository.claimBatch(batchSize, leaseSeconds);
+            if (ids.isEmpty()) {
+                break;
+            }
+            List<Callable<Void>> tasks = stripeWebhookEventRepository.findAllById(ids).stream()
+                    .<Callable<Void>>map(event -> () -> {
+                        process(event);
+                        return null;
+                    })
+                    .toList();
+            try {
+                workerPool.invokeAll(tasks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            processed += tasks.size();
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        pending.set(stripeWebhookEventRepository.countByStatus(WebhookEventStatus.PENDING));
+        if (processed > 0) {
+            log.info("Stripe webhooks: {} event(s) processed, {} pending", processed, pending.get());
+        }
+    }
+
+    /**
+     * Applique un événement et enregistre son statut dans la même transaction ;
+     * en cas d'échec, l'erreur est enregistrée à part et l'événement replanifié ou abandonné.
+     */
+    private void process(StripeWebhookEvent event) {
+        try {
+            WebhookEventStatus status = transactionTemplate.execute(tx -> {
+                WebhookEventStatus result = apply(event);
+                stripeWebhookEventRepository.markFinished(event.getId(), result, LocalDateTime.now(), null);
+                return result;
+            });
+            lagTimer.record(Duration.between(event.getReceivedAt(), LocalDateTime.now()));
+            processed(event, status == WebhookEventStatus.PROCESSED ? "processed" : "ignored");
+        } catch (IllegalArgumentException e) {
+            // Événement incohérent avec nos données : un nouvel essai n'y changerait rien
+            stripeWebhookEventRepository.markFinished(event.getId(), WebhookEventStatus.FAILED,
+                    LocalDateTime.now(), truncate(e.getMessage()));
+            processed(event, "failed");
+            log.error("Stripe event {} ({}) rejected: {}", event.getId(), event.getType(), e.getMessage());
+        } catch (RuntimeException e) {
+            recordFailure(event, e);
+        }
+    }
+
+    /**
+     * Applique un événement à l'état des paiements et rendez-vous.
+     *
+     * @return {@code PROCESSED} si l'événement a été appliqué, {@code IGNORED} s'il n'est pas géré
+     */
+    private WebhookEventStatus apply(StripeWebhookEvent event) {
+        JsonNode session = readObject(event.getPayload());
+        String sessionId = session.path("id").asText(null);
+        switch (event.getType()) {
+            case "checkout.session.completed" -> {
+                // Moyens de paiement différés : le résultat arrive par async_payment_succeeded/failed
+                if (!"paid".equals(session.path("payment_status").asText())) {
+                    return WebhookEventStatus.IGNORED;
+                }
+                paymentService.markPaymentSucceeded(event.getAppointmentId(), sessionId,
+                        session.path("payment_intent").asText(null));
+            }
+            case "checkout.session.async_payment_succeeded" -> paymentService.markPaymentSucceeded(
+                    event.getAppointmentId(), sessionId, session.path("payment_intent").asText(null));
+            case "checkout.session.expired" -> paymentService.markSessionExpired(event.getAppointmentId(), sessionId);
+            case "checkout.session.async_payment_failed" ->
+                    paymentService.markPaymentFailed(event.getAppointmentId(), sessionId);
+            default -> {
+                return WebhookEventStatus.IGNORED;
+            }
+        }
+        return WebhookEventStatus.PROCESSED;
+    }
+
+    private void recordFailure(StripeWebhookEvent event, RuntimeException e) {
+        String error = truncate(e.getMessage());
+        if (event.getAttempts() >= maxAttempts) {
+            stripeWebhookEventRepository.markFinished(event.getId(), WebhookEventStatus.FAILED, LocalDateTime.now(), error);
+            processed(event, "failed");
+            log.error("Stripe event {} ({}) abandoned after {} attempt(s)", event.getId(), event.getType(),
+                    event.getAttempts(), e);
+            return;
+        }
+
+        long delay = Math.min((long) retryBaseSeconds << Math.min(event.getAttempts() - 1, 20), retryMaxSeconds);
+        stripeWebhookEventRepository.reschedule(event.getId(), LocalDateTime.now().plusSeconds(delay), error);
+        processed(event, "retried");
+        log.warn("Stripe event {} ({}) failed (attempt {}), retrying in {}s: {}", event.getId(), event.getType(),
+                event.getAttempts(), delay, error);
+    }
+
+    private void processed(StripeWebhookEvent event, String outcome) {
+        meterRegistry.counter("stripe.webhook.processed", "type", event.getType(), "outcome", outcome).increment();
+    }
+
+    private void deleteFinished() {
+        int deleted = stripeWebhookEventRepository.deleteFinishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} processed Stripe event(s)", deleted);
+        }
+    }
+
+    /**
+     * Lit le rendez-vous concerné dans les métadonnées de l'objet de l'événement.
+     *
+     * @return identifiant du rendez-vous, ou {@code null} si absent ou illisible
+     */
+    private UUID appointmentIdOf(String payload) {
+        String value = readObject(payload).path("metadata").path("appointmentId").asText(null);
+        try {
+            return value != null ? UUID.fromString(value) : null;
+        } catch (IllegalArgumentException e) {
+            log.warn("Stripe event with invalid appointmentId metadata: {}", value);
+            return null;
+        }
+    }
+
+    private JsonNode readObject(String payload) {
+        try {
+            return objectMapper.readTree(payload).path("data").path("object");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corps d'événement Stripe illisible", e);
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -302,6 +302,7 @@ public class UserService {
                 .firstName(request.getFirstName())
                 .lastName(request.getLastName())
                 .phone(request.getPhone())
+                .preferredLocale(request.getPreferredLocale())
                 .active(request.getActive() != null ? request.getActive() : true)
                 .emailVerified(request.getEmailVerified() != null ? request.getEmailVerified() : true)
                 .roles(request.getRoles() != null && !request.getRoles().isEmpty()
@@ -313,11 +314,7 @@ public class UserService {
         log.info("User created by admin: {}", savedUser.getEmail());
 
         // Envoyer l'email avec les identifiants
-        emailService.sendNewAccountCredentials(
-                savedUser.getEmail(),
-                savedUser.getFirstName(),
-                plainPassword
-        );
+        emailService.sendNewAccountCredentials(savedUser, plainPassword);
 
         return savedUser;
     }
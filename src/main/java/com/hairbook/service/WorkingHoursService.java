@@ -3,6 +3,7 @@ package com.hairbook.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +26,7 @@ public class WorkingHoursService {
 
     private final WorkingHoursRepository workingHoursRepository;
     private final StaffMemberRepository staffMemberRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Récupère tous les horaires de travail d'un membre du staff.
@@ -113,6 +115,7 @@ public class WorkingHoursService {
 
         WorkingHours saved = workingHoursRepository.save(workingHours);
         log.info("Working hours set for staff {} on day {}", staffId, dayOfWeek);
+        eventPublisher.publishEvent(new StaffScheduleChangedEvent(staffId));
         return saved;
     }
 
@@ -173,6 +176,7 @@ public class WorkingHoursService {
                 .ifPresent(workingHours -> {
                     workingHoursRepository.delete(workingHours);
                     log.info("Working hours deleted for staff {} on day {}", staffId, dayOfWeek);
+                    eventPublisher.publishEvent(new StaffScheduleChangedEvent(staffId));
                 });
     }
 
@@ -186,6 +190,7 @@ public class WorkingHoursService {
         List<WorkingHours> workingHours = getStaffWorkingHours(staffId);
         workingHoursRepository.deleteAll(workingHours);
         log.info("All working hours deleted for staff {}", staffId);
+        eventPublisher.publishEvent(new StaffScheduleChangedEvent(staffId));
     }
 
     /**
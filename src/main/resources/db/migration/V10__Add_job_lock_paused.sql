@@ -0,0 +1,2 @@
+-- Suspension d'une tâche planifiée, partagée entre toutes les instances
+ALTER TABLE job_lock ADD COLUMN paused BOOLEAN NOT NULL DEFAULT FALSE;
@@ -0,0 +1,14 @@
+-- Point de reprise de l'envoi des rappels : une ligne par rendez-vous et par type de rappel envoyé.
+-- Après un arrêt ou un redémarrage, la tâche reprend avec les rendez-vous non encore rappelés.
+
+CREATE TABLE appointment_reminder (
+    id UUID PRIMARY KEY,
+    appointment_id UUID NOT NULL REFERENCES appointment(id) ON DELETE CASCADE,
+    reminder_type VARCHAR(30) NOT NULL,
+    sent_at TIMESTAMP NOT NULL,
+    CONSTRAINT uk_appointment_reminder UNIQUE (appointment_id, reminder_type)
+);
+
+-- Parcours des rendez-vous confirmés par date et heure (pagination par clé)
+CREATE INDEX IF NOT EXISTS idx_appointment_confirmed_date_time
+    ON appointment (appointment_date, start_time, id) WHERE status = 'CONFIRMED';
@@ -0,0 +1,22 @@
+-- Boîte d'envoi transactionnelle : les emails sont enregistrés dans la même transaction
+-- que l'action métier, puis envoyés en arrière-plan par EmailOutboxService.
+-- Un email dont la transaction est annulée n'est jamais envoyé ; un email en file survit aux redémarrages.
+
+CREATE TABLE email_outbox (
+    id UUID PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP
+);
+
+-- Sélection des emails à envoyer par ordre d'échéance
+CREATE INDEX idx_email_outbox_pending ON email_outbox (next_attempt_at) WHERE status = 'PENDING';
+
+-- Purge des emails envoyés
+CREATE INDEX idx_email_outbox_sent_at ON email_outbox (sent_at) WHERE status = 'SENT';
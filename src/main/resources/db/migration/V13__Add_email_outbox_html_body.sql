@@ -0,0 +1,3 @@
+-- Partie HTML des emails rendus par EmailTemplateService (la partie texte reste dans body).
+
+ALTER TABLE email_outbox ADD COLUMN html_body TEXT;
@@ -0,0 +1,28 @@
+-- Boîte de réception des webhooks Stripe : chaque événement est enregistré une seule fois
+-- (clé = identifiant d'événement Stripe, les renvois sont ignorés) puis appliqué en arrière-plan
+-- par StripeWebhookService, dans l'ordre par rendez-vous.
+
+CREATE TABLE stripe_webhook_event (
+    id VARCHAR(255) PRIMARY KEY,
+    type VARCHAR(100) NOT NULL,
+    appointment_id UUID,
+    payload TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    event_created_at TIMESTAMP NOT NULL,
+    received_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at TIMESTAMP,
+    last_error VARCHAR(500)
+);
+
+-- Sélection des événements à traiter par ordre de création chez Stripe
+CREATE INDEX idx_stripe_webhook_event_pending
+    ON stripe_webhook_event (event_created_at, id) WHERE status = 'PENDING';
+
+-- Recherche d'un événement antérieur en attente pour le même rendez-vous
+CREATE INDEX idx_stripe_webhook_event_pending_appointment
+    ON stripe_webhook_event (appointment_id, event_created_at) WHERE status = 'PENDING';
+
+-- Purge des événements traités
+CREATE INDEX idx_stripe_webhook_event_received_at ON stripe_webhook_event (received_at) WHERE status <> 'PENDING';
@@ -0,0 +1,3 @@
+-- Un seul paiement par rendez-vous : deux premiers checkouts concurrents ne peuvent plus
+-- insérer chacun un paiement PENDING (le second échoue et reprend la session du premier).
+CREATE UNIQUE INDEX IF NOT EXISTS uq_payment_appointment ON payment (appointment_id);
@@ -0,0 +1,3 @@
+-- Une clé d'idempotence est réservée avant l'exécution de la requête : une ligne sans réponse
+-- est une exécution en cours, dont expires_at est le bail (reprise possible une fois expiré).
+ALTER TABLE idempotency_key ALTER COLUMN response_body DROP NOT NULL;
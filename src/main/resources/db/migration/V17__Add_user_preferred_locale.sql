@@ -0,0 +1,3 @@
+-- Langue des emails d'un utilisateur, indépendante de la requête qui déclenche l'envoi
+-- (NULL : langue par défaut app.mail.default-locale)
+ALTER TABLE users ADD COLUMN preferred_locale VARCHAR(8);
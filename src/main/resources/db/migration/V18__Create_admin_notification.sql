@@ -0,0 +1,13 @@
+-- Notifications administrateur en attente du prochain récapitulatif (AdminDigestService).
+-- Enregistrées dans la transaction qui les publie, supprimées dans celle qui met le récapitulatif
+-- en file : elles survivent à un redémarrage et attendent qu'un destinataire soit configuré.
+
+CREATE TABLE admin_notification (
+    id UUID PRIMARY KEY,
+    category VARCHAR(100) NOT NULL,
+    summary TEXT NOT NULL,
+    occurred_at TIMESTAMP NOT NULL
+);
+
+-- Recherche de la plus ancienne notification en attente
+CREATE INDEX idx_admin_notification_occurred_at ON admin_notification (occurred_at);
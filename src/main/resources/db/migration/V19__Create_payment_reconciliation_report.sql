@@ -0,0 +1,8 @@
+-- Rapport du dernier rapprochement des paiements (PaymentReconciliationService), lisible depuis
+-- toutes les instances et conservé au redémarrage : une ligne par tâche, remplacée à chaque exécution.
+
+CREATE TABLE payment_reconciliation_report (
+    job_name VARCHAR(100) PRIMARY KEY,
+    finished_at TIMESTAMP NOT NULL,
+    report TEXT NOT NULL
+);
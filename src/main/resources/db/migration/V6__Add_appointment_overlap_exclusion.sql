@@ -0,0 +1,18 @@
+-- Empêche, au niveau de la base, deux rendez-vous actifs qui se chevauchent pour un même membre du staff.
+-- La vérification applicative (findActiveConflicts puis save) laisse passer deux réservations
+-- concurrentes ; la contrainte d'exclusion rend l'insertion perdante en erreur (SQLSTATE 23P01).
+
+-- 1. Extension nécessaire pour combiner l'égalité sur staff_id (UUID) et le chevauchement de plages dans un index GiST
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- 2. Plage horaire du rendez-vous, calculée à partir de la date et des heures de début/fin
+--    Borne de fin exclue : un rendez-vous peut commencer à l'heure exacte où le précédent se termine
+ALTER TABLE appointment
+ADD COLUMN time_range TSRANGE
+GENERATED ALWAYS AS (tsrange(appointment_date + start_time, appointment_date + end_time, '[)')) STORED;
+
+-- 3. Aucun chevauchement entre rendez-vous actifs d'un même staff
+ALTER TABLE appointment
+ADD CONSTRAINT excl_appointment_staff_overlap
+EXCLUDE USING gist (staff_id WITH =, time_range WITH &&)
+WHERE (status IN ('PENDING', 'CONFIRMED'));
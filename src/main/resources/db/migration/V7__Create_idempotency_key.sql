@@ -0,0 +1,14 @@
+-- Réponses mémorisées des requêtes envoyées avec un en-tête Idempotency-Key
+-- (création de rendez-vous, création de session Stripe Checkout).
+-- Les lignes expirées sont purgées périodiquement par IdempotencyService.
+
+CREATE TABLE idempotency_key (
+    id VARCHAR(64) PRIMARY KEY,
+    scope VARCHAR(50) NOT NULL,
+    request_fingerprint VARCHAR(64) NOT NULL,
+    response_body TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_idempotency_key_expires_at ON idempotency_key (expires_at);
@@ -0,0 +1,6 @@
+-- Index partiel pour l'annulation automatique des rendez-vous non payés :
+-- seuls les rendez-vous PENDING sont parcourus, par ordre d'ancienneté.
+CREATE INDEX idx_appointment_pending_created_at ON appointment (created_at) WHERE status = 'PENDING';
+
+-- Recherche du paiement réussi d'un rendez-vous (NOT EXISTS de l'annulation automatique)
+CREATE INDEX IF NOT EXISTS idx_payment_appointment_status ON payment (appointment_id, status);
@@ -0,0 +1,15 @@
+-- Verrous des tâches planifiées : une seule instance exécute chaque tâche.
+-- Le verrou est un bail (locked_until) prolongé par heartbeat tant que la tâche tourne ;
+-- un bail expiré (instance arrêtée brutalement) peut être repris par une autre instance.
+
+CREATE TABLE job_lock (
+    name VARCHAR(100) PRIMARY KEY,
+    locked_by VARCHAR(255) NOT NULL,
+    locked_at TIMESTAMP NOT NULL,
+    locked_until TIMESTAMP NOT NULL,
+    last_run_by VARCHAR(255),
+    last_started_at TIMESTAMP,
+    last_finished_at TIMESTAMP,
+    last_duration_ms BIGINT,
+    last_status VARCHAR(20)
+);
@@ -0,0 +1,160 @@
+package com.hairbook;
+
+import com.hairbook.dto.CheckoutResponse;
+import com.hairbook.dto.CreateCheckoutRequest;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.StaffMember;
+import com.hairbook.entity.User;
+import com.hairbook.service.FakePaymentGateway;
+import com.hairbook.service.PaymentService;
+import com.hairbook.service.ScheduledJobService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Base des tests d'intégration sur une vraie base PostgreSQL (Testcontainers) : les réservations
+ * {@code FOR UPDATE SKIP LOCKED}, les {@code ON CONFLICT} et les contraintes d'exclusion ne sont pas
+ * reproductibles sur H2. Le conteneur est partagé par toutes les classes de test ; les tests sont
+ * ignorés sans Docker.
+ * <p>
+ * Stripe est remplacé par une {@link FakePaymentGateway} en mémoire. Les tâches planifiées suspendues
+ * par un test ({@link #pauseJob(String)}) reprennent après lui.
+ */
+@SpringBootTest(properties = {
+		"stripe.api-key=sk_test_integration",
+		"stripe.webhook-secret=whsec_integration",
+		"app.frontend.url=http://localhost:4200",
+		"spring.mail.host=localhost"
+})
+@Import(PostgresIntegrationTest.FakeGatewayConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+	@ServiceConnection
+	static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	static {
+		POSTGRES.start();
+	}
+
+	@Autowired
+	protected TransactionTemplate transactionTemplate;
+
+	@Autowired
+	protected EntityManager entityManager;
+
+	@Autowired
+	protected FakePaymentGateway paymentGateway;
+
+	@Autowired
+	protected PaymentService paymentService;
+
+	@Autowired
+	protected ScheduledJobService scheduledJobService;
+
+	private final List<String> pausedJobs = new ArrayList<>();
+
+	/**
+	 * Suspend une tâche planifiée (sur toutes les instances) jusqu'à la fin du test : seul le test
+	 * traite alors les lignes qu'elle aurait prises.
+	 */
+	protected void pauseJob(String name) {
+		scheduledJobService.setPaused(name, true);
+		pausedJobs.add(name);
+	}
+
+	@AfterEach
+	void resumePausedJobs() {
+		pausedJobs.forEach(name -> scheduledJobService.setPaused(name, false));
+		pausedJobs.clear();
+	}
+
+	/**
+	 * Crée un rendez-vous PENDING, avec son client, son membre du staff et son service.
+	 * Chaque rendez-vous a son propre membre du staff : aucun chevauchement entre fixtures.
+	 */
+	protected Appointment createPendingAppointment() {
+		return transactionTemplate.execute(tx -> {
+			String suffix = UUID.randomUUID().toString().substring(0, 8);
+			User user = User.builder()
+					.email("client-" + suffix + "@test.local")
+					.passwordHash("{noop}secret")
+					.firstName("Client")
+					.lastName(suffix)
+					.build();
+			StaffMember staff = StaffMember.builder()
+					.firstName("Staff")
+					.lastName(suffix)
+					.build();
+			com.hairbook.entity.Service service = com.hairbook.entity.Service.builder()
+					.name("Coupe " + suffix)
+					.durationMinutes(30)
+					.priceCents(2500)
+					.build();
+			entityManager.persist(user);
+			entityManager.persist(staff);
+			entityManager.persist(service);
+
+			Appointment appointment = Appointment.builder()
+					.user(user)
+					.staffMember(staff)
+					.service(service)
+					.appointmentDate(LocalDate.now().plusDays(7))
+					.startTime(LocalTime.of(10, 0))
+					.endTime(LocalTime.of(10, 30))
+					.build();
+			entityManager.persist(appointment);
+			return appointment;
+		});
+	}
+
+	/**
+	 * Crée (ou réutilise) la session Checkout d'un rendez-vous pour son client.
+	 */
+	protected CheckoutResponse checkout(Appointment appointment) throws Exception {
+		return paymentService.createCheckoutSession(
+				CreateCheckoutRequest.builder().appointmentId(appointment.getId()).build(),
+				appointment.getUser().getEmail());
+	}
+
+	/**
+	 * Identifiant de la session Checkout d'un rendez-vous (voir {@link #checkout(Appointment)}).
+	 */
+	protected String checkoutSession(Appointment appointment) throws Exception {
+		return checkout(appointment).getSessionId();
+	}
+
+	/**
+	 * Relit un rendez-vous depuis la base.
+	 */
+	protected Appointment reload(Appointment appointment) {
+		return transactionTemplate.execute(tx -> entityManager.find(Appointment.class, appointment.getId()));
+	}
+
+	@TestConfiguration(proxyBeanMethods = false)
+	static class FakeGatewayConfiguration {
+
+		@Bean
+		@Primary
+		FakePaymentGateway fakePaymentGateway() {
+			return new FakePaymentGateway("http://localhost:4200", Duration.ZERO);
+		}
+	}
+}
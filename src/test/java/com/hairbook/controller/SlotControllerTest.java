@@ -0,0 +1,60 @@
+package com.hairbook.controller;
+
+import com.hairbook.dto.AnyStaffSlotDto;
+import com.hairbook.service.SlotService;
+import com.hairbook.service.SlotSummaryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Endpoint « n'importe quel membre du staff » : paramètres et forme de la réponse.
+ */
+class SlotControllerTest {
+
+	private final SlotService slotService = mock(SlotService.class);
+	private final MockMvc mockMvc = MockMvcBuilders
+			.standaloneSetup(new SlotController(slotService, mock(SlotSummaryService.class)))
+			.build();
+
+	@Test
+	void anyStaffEndpointReturnsMergedSlotsWithTheirStaff() throws Exception {
+		LocalDate date = LocalDate.of(2025, 11, 3);
+		UUID serviceId = UUID.randomUUID();
+		UUID staffId = UUID.randomUUID();
+		when(slotService.getAvailableSlotsForAnyStaff(date, serviceId, "Balayage")).thenReturn(List.of(
+				AnyStaffSlotDto.builder()
+						.startTime(date.atTime(9, 30))
+						.endTime(date.atTime(10, 0))
+						.staff(List.of(AnyStaffSlotDto.AvailableStaff.builder().staffId(staffId).staffName("Bob B").build()))
+						.build()));
+
+		mockMvc.perform(get("/api/v1/slots/any-staff")
+						.param("date", "2025-11-03")
+						.param("serviceId", serviceId.toString())
+						.param("skill", "Balayage"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].staff[0].staffId").value(staffId.toString()))
+				.andExpect(jsonPath("$[0].staff[0].staffName").value("Bob B"));
+	}
+
+	@Test
+	void anyStaffEndpointRequiresDateAndService() throws Exception {
+		mockMvc.perform(get("/api/v1/slots/any-staff").param("serviceId", UUID.randomUUID().toString()))
+				.andExpect(status().isBadRequest());
+
+		verifyNoInteractions(slotService);
+	}
+}
@@ -0,0 +1,142 @@
+package com.hairbook.repository;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentStatus;
+import com.hairbook.entity.Payment;
+import com.hairbook.entity.PaymentStatus;
+import com.hairbook.service.AppointmentSchedulerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Annulation ensembliste des rendez-vous non payés sur PostgreSQL ({@code UPDATE ... RETURNING},
+ * {@code FOR UPDATE SKIP LOCKED}). Les rendez-vous des tests sont antidatés de deux jours et la limite
+ * est placée un jour en arrière : seuls ces rendez-vous sont éligibles. La tâche d'annulation automatique
+ * est suspendue pendant les tests.
+ */
+class AppointmentExpiryRepositoryTest extends PostgresIntegrationTest {
+
+	private static final String REASON = "Test";
+
+	@Autowired
+	private AppointmentExpiryRepository appointmentExpiryRepository;
+
+	private final LocalDateTime cutoff = LocalDateTime.now().minusDays(1);
+
+	@BeforeEach
+	void pauseAutoCancel() {
+		pauseJob(AppointmentSchedulerService.AUTO_CANCEL_JOB);
+	}
+
+	@AfterEach
+	void cancelBackdatedAppointments() {
+		// Aucun rendez-vous antidaté ne reste éligible pour le test suivant (ni pour la tâche, reprise ensuite)
+		transactionTemplate.execute(tx -> appointmentExpiryRepository.cancelExpiredPending(cutoff, REASON, Integer.MAX_VALUE));
+	}
+
+	@Test
+	void cancelsOnlyExpiredUnpaidPendingAppointments() {
+		Appointment expired = backdate(createPendingAppointment());
+		Appointment paid = backdate(createPendingAppointment());
+		addPayment(paid, PaymentStatus.SUCCEEDED);
+		Appointment failedPayment = backdate(createPendingAppointment());
+		addPayment(failedPayment, PaymentStatus.FAILED);
+		Appointment recent = createPendingAppointment();
+
+		assertThat(appointmentExpiryRepository.countExpiredPending(cutoff)).isEqualTo(2);
+		List<UUID> cancelled = transactionTemplate.execute(tx ->
+				appointmentExpiryRepository.cancelExpiredPending(cutoff, REASON, 100));
+
+		assertThat(cancelled).containsExactlyInAnyOrder(expired.getId(), failedPayment.getId());
+		Appointment reloaded = reload(expired);
+		assertThat(reloaded.getStatus()).isEqualTo(AppointmentStatus.CANCELLED);
+		assertThat(reloaded.getCancellationReason()).isEqualTo(REASON);
+		assertThat(reloaded.getCancelledAt()).isNotNull();
+		assertThat(reload(paid).getStatus()).isEqualTo(AppointmentStatus.PENDING);
+		assertThat(reload(recent).getStatus()).isEqualTo(AppointmentStatus.PENDING);
+		assertThat(appointmentExpiryRepository.countExpiredPending(cutoff)).isZero();
+	}
+
+	@Test
+	void cancelsAtMostOneChunkOldestFirst() {
+		Appointment oldest = backdate(createPendingAppointment(), 4);
+		Appointment older = backdate(createPendingAppointment(), 3);
+		Appointment old = backdate(createPendingAppointment(), 2);
+
+		List<UUID> first = transactionTemplate.execute(tx -> appointmentExpiryRepository.cancelExpiredPending(cutoff, REASON, 2));
+		List<UUID> second = transactionTemplate.execute(tx -> appointmentExpiryRepository.cancelExpiredPending(cutoff, REASON, 2));
+
+		assertThat(first).containsExactlyInAnyOrder(oldest.getId(), older.getId());
+		assertThat(second).containsExactly(old.getId());
+	}
+
+	@Test
+	void skipsAppointmentLockedByAnotherTransaction() throws Exception {
+		Appointment locked = backdate(createPendingAppointment());
+		Appointment free = backdate(createPendingAppointment());
+		CountDownLatch lockHeld = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		// Autre instance traitant déjà ce rendez-vous (ligne verrouillée)
+		CompletableFuture<Void> other = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+			entityManager.createNativeQuery("SELECT id FROM appointment WHERE id = :id FOR UPDATE")
+					.setParameter("id", locked.getId())
+					.getResultList();
+			lockHeld.countDown();
+			await(release);
+		}));
+		try {
+			assertThat(lockHeld.await(10, TimeUnit.SECONDS)).isTrue();
+
+			List<UUID> cancelled = transactionTemplate.execute(tx ->
+					appointmentExpiryRepository.cancelExpiredPending(cutoff, REASON, 100));
+
+			assertThat(cancelled).containsExactly(free.getId());
+		} finally {
+			release.countDown();
+			other.get(10, TimeUnit.SECONDS);
+		}
+		assertThat(reload(locked).getStatus()).isEqualTo(AppointmentStatus.PENDING);
+	}
+
+	private Appointment backdate(Appointment appointment) {
+		return backdate(appointment, 2);
+	}
+
+	private Appointment backdate(Appointment appointment, int days) {
+		transactionTemplate.executeWithoutResult(tx -> entityManager
+				.createNativeQuery("UPDATE appointment SET created_at = LOCALTIMESTAMP - :days * INTERVAL '1 day' WHERE id = :id")
+				.setParameter("days", days)
+				.setParameter("id", appointment.getId())
+				.executeUpdate());
+		return appointment;
+	}
+
+	private void addPayment(Appointment appointment, PaymentStatus status) {
+		transactionTemplate.executeWithoutResult(tx -> entityManager.persist(Payment.builder()
+				.appointment(entityManager.getReference(Appointment.class, appointment.getId()))
+				.amountCents(2500)
+				.status(status)
+				.build()));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.hairbook.repository;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentReminder;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Lecture par lots des rendez-vous à rappeler (pagination par clé date, heure, id). Chaque test place
+ * ses rendez-vous à une date qui lui est propre, hors de l'horizon des rappels planifiés par l'application.
+ */
+class AppointmentReminderRepositoryTest extends PostgresIntegrationTest {
+
+	private static final String TYPE = "BEFORE_1440M";
+	private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+	@Autowired
+	private AppointmentReminderRepository appointmentReminderRepository;
+
+	@Test
+	void chunksCoverEveryAppointmentOnceInKeyOrder() {
+		LocalDate date = LocalDate.now().plusDays(200);
+		List<Appointment> appointments = new ArrayList<>();
+		for (LocalTime start : List.of(LocalTime.of(10, 0), LocalTime.of(10, 0), LocalTime.of(10, 0),
+				LocalTime.of(11, 0), LocalTime.of(11, 0))) {
+			appointments.add(confirmedAt(date, start));
+		}
+
+		List<List<UUID>> chunks = new ArrayList<>();
+		LocalDate afterDate = date;
+		LocalTime afterTime = LocalTime.MIN;
+		UUID afterId = FIRST_ID;
+		while (true) {
+			List<Appointment> chunk = findChunk(date, afterDate, afterTime, afterId, 2);
+			chunks.add(chunk.stream().map(Appointment::getId).toList());
+			if (chunk.size() < 2) {
+				break;
+			}
+			Appointment last = chunk.get(chunk.size() - 1);
+			afterDate = last.getAppointmentDate();
+			afterTime = last.getStartTime();
+			afterId = last.getId();
+		}
+
+		assertThat(chunks).extracting(List::size).containsExactly(2, 2, 1);
+		assertThat(chunks.stream().flatMap(List::stream).toList()).containsExactlyElementsOf(appointments.stream()
+				.sorted(Comparator.comparing(Appointment::getStartTime)
+						// Ordre des uuid de PostgreSQL (octets non signés), différent de UUID#compareTo
+						.thenComparing(appointment -> appointment.getId().toString()))
+				.map(Appointment::getId)
+				.toList());
+	}
+
+	@Test
+	void remindedPendingAndOutOfWindowAppointmentsAreSkipped() {
+		LocalDate date = LocalDate.now().plusDays(201);
+		Appointment due = confirmedAt(date, LocalTime.of(10, 0));
+		Appointment reminded = confirmedAt(date, LocalTime.of(10, 0));
+		remind(reminded, TYPE);
+		Appointment remindedOtherType = confirmedAt(date, LocalTime.of(10, 0));
+		remind(remindedOtherType, "BEFORE_120M");
+		Appointment pending = move(createPendingAppointment(), date, LocalTime.of(10, 0));
+		Appointment afterWindow = confirmedAt(date, LocalTime.of(12, 0));
+
+		List<UUID> found = findChunk(date, date, LocalTime.MIN, FIRST_ID, 100).stream()
+				.map(Appointment::getId)
+				.toList();
+
+		assertThat(found).containsExactlyInAnyOrder(due.getId(), remindedOtherType.getId())
+				.doesNotContain(reminded.getId(), pending.getId(), afterWindow.getId());
+	}
+
+	/**
+	 * Lot de la fenêtre {@code [date 00:00, date 12:00[}, comme le parcourt le {@code ReminderScheduler}.
+	 */
+	private List<Appointment> findChunk(LocalDate date, LocalDate afterDate, LocalTime afterTime, UUID afterId, int size) {
+		return transactionTemplate.execute(tx -> appointmentReminderRepository.findChunkToRemind(TYPE,
+				date, LocalTime.MIN, date, LocalTime.NOON, afterDate, afterTime, afterId, Limit.of(size)));
+	}
+
+	private Appointment confirmedAt(LocalDate date, LocalTime start) {
+		Appointment appointment = move(createPendingAppointment(), date, start);
+		transactionTemplate.executeWithoutResult(tx -> entityManager.find(Appointment.class, appointment.getId()).confirm());
+		return reload(appointment);
+	}
+
+	private Appointment move(Appointment appointment, LocalDate date, LocalTime start) {
+		transactionTemplate.executeWithoutResult(tx -> {
+			Appointment managed = entityManager.find(Appointment.class, appointment.getId());
+			managed.setAppointmentDate(date);
+			managed.setStartTime(start);
+			managed.setEndTime(start.plusMinutes(30));
+		});
+		return reload(appointment);
+	}
+
+	private void remind(Appointment appointment, String type) {
+		appointmentReminderRepository.saveAndFlush(AppointmentReminder.builder()
+				.appointmentId(appointment.getId())
+				.reminderType(type)
+				.sentAt(LocalDateTime.now())
+				.build());
+	}
+}
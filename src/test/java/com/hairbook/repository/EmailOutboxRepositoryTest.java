@@ -0,0 +1,136 @@
+package com.hairbook.repository;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.EmailOutbox;
+import com.hairbook.entity.EmailOutboxStatus;
+import com.hairbook.service.EmailOutboxService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Réservation des emails de la boîte d'envoi sur PostgreSQL ({@code FOR UPDATE SKIP LOCKED}).
+ * La tâche d'envoi est suspendue pendant les tests : seuls les tests réservent des emails.
+ */
+class EmailOutboxRepositoryTest extends PostgresIntegrationTest {
+
+	@Autowired
+	private EmailOutboxRepository emailOutboxRepository;
+
+	@Autowired
+	private EmailOutboxService emailOutboxService;
+
+	@BeforeEach
+	void pauseDispatcher() {
+		pauseJob(EmailOutboxService.DISPATCH_JOB);
+	}
+
+	@Test
+	void concurrentDispatchersNeverClaimTheSameEmail() throws Exception {
+		List<UUID> ours = enqueue(40);
+
+		ExecutorService dispatchers = Executors.newFixedThreadPool(4);
+		List<UUID> claimed = new ArrayList<>();
+		try {
+			List<Callable<List<UUID>>> tasks = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				tasks.add(this::claimUntilEmpty);
+			}
+			for (Future<List<UUID>> result : dispatchers.invokeAll(tasks)) {
+				claimed.addAll(result.get());
+			}
+		} finally {
+			dispatchers.shutdown();
+		}
+
+		assertThat(claimed).doesNotHaveDuplicates().containsAll(ours);
+	}
+
+	@Test
+	void claimedEmailIsAvailableAgainOnlyOnceItsLeaseExpires() {
+		UUID email = enqueue(1).get(0);
+		assertThat(claimUntilEmpty()).contains(email);
+		assertThat(emailOutboxRepository.claimBatch(100, 300)).doesNotContain(email);
+
+		// Instance arrêtée pendant l'envoi : la réservation expire
+		transactionTemplate.executeWithoutResult(tx -> entityManager
+				.createNativeQuery("UPDATE email_outbox SET next_attempt_at = LOCALTIMESTAMP - INTERVAL '1 second' WHERE id = :id")
+				.setParameter("id", email)
+				.executeUpdate());
+
+		assertThat(claimUntilEmpty()).contains(email);
+		assertThat(emailOutboxRepository.findById(email).orElseThrow().getAttempts()).isEqualTo(2);
+	}
+
+	@Test
+	void releasedClaimDoesNotCountAsAnAttempt() {
+		UUID email = enqueue(1).get(0);
+		assertThat(claimUntilEmpty()).contains(email);
+
+		emailOutboxRepository.releaseClaim(email, LocalDateTime.now().minusSeconds(1));
+
+		assertThat(claimUntilEmpty()).contains(email);
+		assertThat(emailOutboxRepository.findById(email).orElseThrow().getAttempts()).isEqualTo(1);
+	}
+
+	@Test
+	void sentAndAbandonedEmailsAreErasedThenPurged() {
+		List<UUID> emails = enqueue(3);
+		UUID sent = emails.get(0);
+		UUID failed = emails.get(1);
+		UUID pending = emails.get(2);
+
+		emailOutboxRepository.markSent(sent, LocalDateTime.now());
+		emailOutboxRepository.markFailed(failed, LocalDateTime.now(), "550 mailbox unavailable");
+
+		for (UUID id : List.of(sent, failed)) {
+			EmailOutbox email = emailOutboxRepository.findById(id).orElseThrow();
+			assertThat(email.getBody()).isEmpty();
+			assertThat(email.getHtmlBody()).isNull();
+		}
+		assertThat(emailOutboxRepository.findById(failed).orElseThrow().getStatus()).isEqualTo(EmailOutboxStatus.FAILED);
+		assertThat(emailOutboxRepository.findById(pending).orElseThrow().getBody()).contains("secret");
+
+		emailOutboxRepository.deleteFinishedBefore(LocalDateTime.now().plusMinutes(1));
+
+		assertThat(emailOutboxRepository.findAllById(emails)).extracting(EmailOutbox::getId).containsExactly(pending);
+	}
+
+	/**
+	 * Met en file des emails portant un mot de passe et renvoie leurs identifiants.
+	 */
+	private List<UUID> enqueue(int count) {
+		String marker = "outbox-test-" + UUID.randomUUID();
+		transactionTemplate.executeWithoutResult(tx -> {
+			for (int i = 0; i < count; i++) {
+				emailOutboxService.enqueue("client-" + i + "@test.local", marker,
+						"Mot de passe temporaire : secret-" + i);
+			}
+		});
+		return transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT o.id FROM EmailOutbox o WHERE o.subject = :marker ORDER BY o.recipient", UUID.class)
+				.setParameter("marker", marker)
+				.getResultList());
+	}
+
+	private List<UUID> claimUntilEmpty() {
+		List<UUID> claimed = new ArrayList<>();
+		List<UUID> batch;
+		do {
+			batch = emailOutboxRepository.claimBatch(7, 300);
+			claimed.addAll(batch);
+		} while (!batch.isEmpty());
+		return claimed;
+	}
+}
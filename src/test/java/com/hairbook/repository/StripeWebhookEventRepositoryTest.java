@@ -0,0 +1,139 @@
+package com.hairbook.repository;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.WebhookEventStatus;
+import com.hairbook.service.StripeWebhookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Réception et réservation des événements de la boîte de réception des webhooks Stripe sur PostgreSQL
+ * ({@code ON CONFLICT DO NOTHING}, {@code FOR UPDATE SKIP LOCKED}). La tâche d'application est suspendue
+ * pendant les tests : seuls les tests réservent des événements.
+ */
+class StripeWebhookEventRepositoryTest extends PostgresIntegrationTest {
+
+	@Autowired
+	private StripeWebhookEventRepository stripeWebhookEventRepository;
+
+	@BeforeEach
+	void pauseDispatcher() {
+		pauseJob(StripeWebhookService.DISPATCH_JOB);
+	}
+
+	@Test
+	void redeliveredEventIsStoredOnce() {
+		String id = eventId();
+		assertThat(insert(id, UUID.randomUUID(), LocalDateTime.now())).isEqualTo(1);
+		assertThat(insert(id, UUID.randomUUID(), LocalDateTime.now())).isZero();
+	}
+
+	@Test
+	void concurrentDispatchersNeverClaimTheSameEvent() throws Exception {
+		List<String> ours = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			String id = eventId();
+			insert(id, UUID.randomUUID(), LocalDateTime.now().minusMinutes(1));
+			ours.add(id);
+		}
+
+		ExecutorService dispatchers = Executors.newFixedThreadPool(4);
+		List<String> claimed = new ArrayList<>();
+		try {
+			List<Callable<List<String>>> tasks = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				tasks.add(this::claimUntilEmpty);
+			}
+			for (Future<List<String>> result : dispatchers.invokeAll(tasks)) {
+				claimed.addAll(result.get());
+			}
+		} finally {
+			dispatchers.shutdown();
+		}
+
+		assertThat(claimed).doesNotHaveDuplicates().containsAll(ours);
+	}
+
+	@Test
+	void eventsOfAnAppointmentAreClaimedOneAtATimeInStripeOrder() {
+		UUID appointmentId = UUID.randomUUID();
+		LocalDateTime createdAt = LocalDateTime.now().minusMinutes(1);
+		String completed = eventId();
+		String expired = eventId();
+		// Reçus dans le désordre : l'ordre de création chez Stripe fait foi
+		insert(expired, appointmentId, createdAt.plusSeconds(5));
+		insert(completed, appointmentId, createdAt);
+
+		List<String> firstPass = claimUntilEmpty();
+		assertThat(firstPass).contains(completed).doesNotContain(expired);
+
+		// Nouvel essai planifié : l'événement suivant attend toujours
+		stripeWebhookEventRepository.reschedule(completed, LocalDateTime.now().minusSeconds(1), "timeout");
+		assertThat(claimUntilEmpty()).contains(completed).doesNotContain(expired);
+
+		stripeWebhookEventRepository.markFinished(completed, WebhookEventStatus.PROCESSED, LocalDateTime.now(), null);
+		assertThat(claimUntilEmpty()).contains(expired);
+	}
+
+	@Test
+	void claimedEventIsAvailableAgainOnlyOnceItsLeaseExpires() {
+		String id = eventId();
+		insert(id, UUID.randomUUID(), LocalDateTime.now().minusMinutes(1));
+		assertThat(claimUntilEmpty()).contains(id);
+		assertThat(stripeWebhookEventRepository.claimBatch(100, 120)).doesNotContain(id);
+
+		// Instance arrêtée pendant le traitement : la réservation expire
+		transactionTemplate.executeWithoutResult(tx -> entityManager
+				.createNativeQuery("UPDATE stripe_webhook_event SET next_attempt_at = LOCALTIMESTAMP - INTERVAL '1 second' WHERE id = :id")
+				.setParameter("id", id)
+				.executeUpdate());
+
+		assertThat(claimUntilEmpty()).contains(id);
+		assertThat(stripeWebhookEventRepository.findById(id).orElseThrow().getAttempts()).isEqualTo(2);
+	}
+
+	@Test
+	void finishedEventsArePurgedAndPendingOnesKept() {
+		String processed = eventId();
+		String pending = eventId();
+		insert(processed, UUID.randomUUID(), LocalDateTime.now());
+		insert(pending, UUID.randomUUID(), LocalDateTime.now());
+		stripeWebhookEventRepository.markFinished(processed, WebhookEventStatus.PROCESSED, LocalDateTime.now(), null);
+
+		stripeWebhookEventRepository.deleteFinishedBefore(LocalDateTime.now().plusMinutes(1));
+
+		assertThat(stripeWebhookEventRepository.existsById(processed)).isFalse();
+		assertThat(stripeWebhookEventRepository.existsById(pending)).isTrue();
+	}
+
+	private int insert(String id, UUID appointmentId, LocalDateTime createdAt) {
+		return stripeWebhookEventRepository.insertIfAbsent(id, "checkout.session.completed", appointmentId,
+				"{\"data\":{\"object\":{}}}", createdAt);
+	}
+
+	private static String eventId() {
+		return "evt_test_" + UUID.randomUUID().toString().replace("-", "");
+	}
+
+	private List<String> claimUntilEmpty() {
+		List<String> claimed = new ArrayList<>();
+		List<String> batch;
+		do {
+			batch = stripeWebhookEventRepository.claimBatch(7, 120);
+			claimed.addAll(batch);
+		} while (!batch.isEmpty());
+		return claimed;
+	}
+}
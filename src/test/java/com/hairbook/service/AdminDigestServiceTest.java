@@ -0,0 +1,130 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.EmailOutbox;
+import com.hairbook.repository.AdminNotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Récapitulatif des notifications administrateur déclenché après le commit de la transaction qui publie
+ * les événements. La tâche d'envoi des emails est suspendue : les emails restent dans la boîte d'envoi.
+ * Les notifications laissées en attente par d'autres classes de test sont effacées avant chaque test.
+ * Les tests qui exécutent eux-mêmes le récapitulatif ({@link AdminDigestService#digest()}) suspendent
+ * sa tâche, déclenchée sinon en parallèle par chaque commit.
+ */
+@TestPropertySource(properties = "app.admin-digest.max-events=2")
+class AdminDigestServiceTest extends PostgresIntegrationTest {
+
+	@Autowired
+	private ApplicationEventPublisher eventPublisher;
+
+	@Autowired
+	private AdminDigestService adminDigestService;
+
+	@Autowired
+	private AdminNotificationRepository adminNotificationRepository;
+
+	@Autowired
+	private SalonSettingService salonSettingService;
+
+	@BeforeEach
+	void pauseDispatcher() {
+		pauseJob(EmailOutboxService.DISPATCH_JOB);
+		adminNotificationRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void digestTriggeredAfterCommitIsQueued() throws Exception {
+		String recipient = "admin-" + UUID.randomUUID() + "@test.local";
+		salonSettingService.setSetting(AdminDigestService.RECIPIENTS_SETTING, recipient);
+
+		transactionTemplate.executeWithoutResult(tx -> {
+			eventPublisher.publishEvent(AdminNotificationEvent.of("Paiements", "Paiement reçu après annulation"));
+			eventPublisher.publishEvent(AdminNotificationEvent.of("Paiements", "Remboursement à effectuer"));
+		});
+
+		assertThat(awaitDigestsFor(recipient)).singleElement().satisfies(digest -> {
+			assertThat(digest.getSubject()).isEqualTo("Récapitulatif des notifications (2)");
+			assertThat(digest.getBody()).contains("Paiement reçu après annulation", "Remboursement à effectuer");
+		});
+		assertThat(adminNotificationRepository.count()).isZero();
+	}
+
+	@Test
+	void notificationsAreKeptUntilARecipientIsConfigured() {
+		pauseJob(AdminDigestService.DIGEST_JOB);
+		salonSettingService.setSetting(AdminDigestService.RECIPIENTS_SETTING, "");
+		transactionTemplate.executeWithoutResult(tx -> {
+			eventPublisher.publishEvent(AdminNotificationEvent.of("Demandes de remboursement", "Coupe du 12/03"));
+			eventPublisher.publishEvent(AdminNotificationEvent.of("Demandes de remboursement", "Brushing du 13/03"));
+		});
+
+		adminDigestService.digest();
+		assertThat(adminNotificationRepository.count()).isEqualTo(2);
+
+		String recipient = "admin-" + UUID.randomUUID() + "@test.local";
+		salonSettingService.setSetting(AdminDigestService.RECIPIENTS_SETTING, recipient);
+		adminDigestService.digest();
+
+		assertThat(digestsFor(recipient)).singleElement()
+				.satisfies(digest -> assertThat(digest.getBody()).contains("Coupe du 12/03", "Brushing du 13/03"));
+		assertThat(adminNotificationRepository.count()).isZero();
+	}
+
+	@Test
+	void backlogIsSentInDigestsOfAtMostMaxEvents() {
+		pauseJob(AdminDigestService.DIGEST_JOB);
+		salonSettingService.setSetting(AdminDigestService.RECIPIENTS_SETTING, "");
+		transactionTemplate.executeWithoutResult(tx -> {
+			for (int i = 1; i <= 5; i++) {
+				eventPublisher.publishEvent(AdminNotificationEvent.of("Paiements", "Remboursement " + i));
+			}
+		});
+
+		String recipient = "admin-" + UUID.randomUUID() + "@test.local";
+		salonSettingService.setSetting(AdminDigestService.RECIPIENTS_SETTING, recipient);
+		adminDigestService.digest();
+
+		// Le dernier événement, seul et récent, attend le récapitulatif suivant
+		assertThat(digestsFor(recipient)).extracting(EmailOutbox::getSubject).containsExactly(
+				"Récapitulatif des notifications (2)", "Récapitulatif des notifications (2)");
+		assertThat(adminNotificationRepository.count()).isEqualTo(1);
+	}
+
+	@Test
+	void notificationOfRolledBackTransactionIsNotKept() {
+		transactionTemplate.executeWithoutResult(tx -> {
+			eventPublisher.publishEvent(AdminNotificationEvent.of("Paiements", "Paiement annulé"));
+			tx.setRollbackOnly();
+		});
+
+		assertThat(adminNotificationRepository.count()).isZero();
+	}
+
+	private List<EmailOutbox> awaitDigestsFor(String recipient) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		List<EmailOutbox> digests = digestsFor(recipient);
+		while (digests.isEmpty() && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(100);
+			digests = digestsFor(recipient);
+		}
+		return digests;
+	}
+
+	private List<EmailOutbox> digestsFor(String recipient) {
+		return transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT o FROM EmailOutbox o WHERE o.recipient = :recipient", EmailOutbox.class)
+				.setParameter("recipient", recipient)
+				.getResultList());
+	}
+}
@@ -0,0 +1,111 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.dto.CreateAppointmentRequest;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.StaffMember;
+import com.hairbook.entity.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Contrainte d'exclusion {@code excl_appointment_staff_overlap} : deux rendez-vous actifs d'un même staff
+ * ne se chevauchent jamais, même lorsque la vérification applicative ne voit pas l'autre réservation.
+ */
+class AppointmentOverlapTest extends PostgresIntegrationTest {
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Test
+	void databaseRejectsOverlappingAppointmentForSameStaff() {
+		Appointment booked = createPendingAppointment();
+
+		assertThatThrownBy(() -> insertAt(booked, LocalTime.of(10, 15), LocalTime.of(10, 45)))
+				.satisfies(e -> assertThat(NestedExceptionUtils.getMostSpecificCause(e))
+						.isInstanceOfSatisfying(SQLException.class,
+								sql -> assertThat(sql.getSQLState()).isEqualTo("23P01")));
+	}
+
+	@Test
+	void adjacentAppointmentIsAccepted() {
+		Appointment booked = createPendingAppointment();
+
+		Appointment next = insertAt(booked, LocalTime.of(10, 30), LocalTime.of(11, 0));
+
+		assertThat(reload(next)).isNotNull();
+	}
+
+	@Test
+	void concurrentBookingIsRejectedWithSlotConflict() throws Exception {
+		Appointment fixture = createPendingAppointment();
+		CountDownLatch inserted = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+
+		// Réservation concurrente insérée mais pas encore validée : invisible pour findActiveConflicts
+		CompletableFuture<Void> concurrent = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+			entityManager.persist(copyAt(fixture, LocalTime.of(14, 0), LocalTime.of(14, 30)));
+			entityManager.flush();
+			inserted.countDown();
+			await(commit);
+		}));
+		assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+
+		CompletableFuture<Void> booking = CompletableFuture.runAsync(() -> appointmentService.createAppointment(
+				CreateAppointmentRequest.builder()
+						.serviceId(fixture.getService().getId())
+						.staffId(fixture.getStaffMember().getId())
+						.startTime(fixture.getAppointmentDate().atTime(14, 15))
+						.build(),
+				fixture.getUser().getEmail()));
+		// L'insertion attend la transaction concurrente sur l'index d'exclusion
+		TimeUnit.MILLISECONDS.sleep(500);
+		commit.countDown();
+		concurrent.get(10, TimeUnit.SECONDS);
+
+		assertThatThrownBy(() -> booking.get(10, TimeUnit.SECONDS))
+				.cause()
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("This time slot is no longer available")
+				.hasCauseInstanceOf(DataIntegrityViolationException.class);
+	}
+
+	private Appointment insertAt(Appointment booked, LocalTime start, LocalTime end) {
+		return transactionTemplate.execute(tx -> {
+			Appointment appointment = copyAt(booked, start, end);
+			entityManager.persist(appointment);
+			entityManager.flush();
+			return appointment;
+		});
+	}
+
+	private Appointment copyAt(Appointment booked, LocalTime start, LocalTime end) {
+		return Appointment.builder()
+				.user(entityManager.getReference(User.class, booked.getUser().getId()))
+				.staffMember(entityManager.getReference(StaffMember.class, booked.getStaffMember().getId()))
+				.service(entityManager.getReference(com.hairbook.entity.Service.class, booked.getService().getId()))
+				.appointmentDate(booked.getAppointmentDate())
+				.startTime(start)
+				.endTime(end)
+				.build();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.dto.CheckoutResponse;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.Payment;
+import com.stripe.exception.StripeException;
+import com.stripe.param.checkout.SessionCreateParams;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test de charge du checkout contre une passerelle Stripe en mémoire ({@link FakePaymentGateway}, 200 ms
+ * de latence) : compare l'occupation du pool Hikari lorsque l'appel à Stripe est fait dans une transaction
+ * (ancien flux) et hors transaction ({@link PaymentService#createCheckoutSession}).
+ * <p>
+ * La mesure compare des durées : elle est étiquetée {@code benchmark}, exclue de la suite de tests et lancée
+ * avec {@code mvn test -Pbenchmark}. Vérifie aussi, dans la suite normale, qu'un rendez-vous n'a qu'un paiement
+ * et qu'une session payable quand plusieurs checkouts concurrents portent sur lui.
+ */
+@TestPropertySource(properties = "spring.datasource.hikari.maximum-pool-size=10")
+@Slf4j
+class CheckoutConnectionPoolLoadTest extends PostgresIntegrationTest {
+
+	private static final int CLIENTS = 40;
+	private static final Duration STRIPE_LATENCY = Duration.ofMillis(200);
+
+	@Autowired
+	private DataSource dataSource;
+
+	@AfterEach
+	void resetGateway() {
+		paymentGateway.setLatency(Duration.ZERO);
+	}
+
+	@Test
+	@Tag("benchmark")
+	void stripeCallsNoLongerPinPooledConnections() throws Exception {
+		List<Appointment> before = createAppointments();
+		List<Appointment> after = createAppointments();
+		paymentGateway.setLatency(STRIPE_LATENCY);
+
+		PoolUsage inTransaction = measure(before, appointment -> transactionTemplate.execute(tx -> {
+			entityManager.find(Appointment.class, appointment.getId());
+			try {
+				return paymentGateway.createCheckoutSession(params(appointment)).id();
+			} catch (StripeException e) {
+				throw new IllegalStateException(e);
+			}
+		}));
+		PoolUsage outsideTransaction = measure(after, this::checkoutSession);
+
+		log.info("Checkout x{}, Stripe {} ms: in transaction {}; outside transaction {}",
+				CLIENTS, STRIPE_LATENCY.toMillis(), inTransaction, outsideTransaction);
+		assertThat(inTransaction.maxWaiting()).isPositive();
+		assertThat(outsideTransaction.maxActive()).isLessThan(inTransaction.maxActive());
+		assertThat(outsideTransaction.elapsed()).isLessThan(inTransaction.elapsed());
+	}
+
+	@Test
+	void concurrentFirstCheckoutsKeepASinglePaymentAndSession() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		paymentGateway.setLatency(Duration.ofMillis(50));
+
+		List<CheckoutResponse> responses = runConcurrently(8, () -> checkout(appointment));
+
+		assertThat(responses).extracting(CheckoutResponse::getSessionId).containsOnly(responses.get(0).getSessionId());
+		List<Payment> payments = transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT p FROM Payment p WHERE p.appointment.id = :id", Payment.class)
+				.setParameter("id", appointment.getId())
+				.getResultList());
+		assertThat(payments).hasSize(1);
+		assertThat(payments.get(0).getProviderSessionId()).isEqualTo(responses.get(0).getSessionId());
+	}
+
+	private List<Appointment> createAppointments() {
+		List<Appointment> appointments = new ArrayList<>();
+		for (int i = 0; i < CLIENTS; i++) {
+			appointments.add(createPendingAppointment());
+		}
+		return appointments;
+	}
+
+	private PoolUsage measure(List<Appointment> appointments, Checkout checkout) throws Exception {
+		HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+		AtomicBoolean sampling = new AtomicBoolean(true);
+		AtomicInteger maxActive = new AtomicInteger();
+		AtomicInteger maxWaiting = new AtomicInteger();
+		Thread sampler = Thread.ofPlatform().start(() -> {
+			while (sampling.get()) {
+				maxActive.accumulateAndGet(hikari.getHikariPoolMXBean().getActiveConnections(), Math::max);
+				maxWaiting.accumulateAndGet(hikari.getHikariPoolMXBean().getThreadsAwaitingConnection(), Math::max);
+				Thread.onSpinWait();
+			}
+		});
+
+		long start = System.nanoTime();
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		try {
+			List<Future<String>> results = clients.invokeAll(appointments.stream()
+					.<Callable<String>>map(appointment -> () -> checkout.run(appointment))
+					.toList());
+			for (Future<String> result : results) {
+				assertThat(result.get()).isNotNull();
+			}
+		} finally {
+			clients.shutdown();
+			sampling.set(false);
+			sampler.join();
+		}
+		return new PoolUsage(maxActive.get(), maxWaiting.get(), Duration.ofNanos(System.nanoTime() - start));
+	}
+
+	private static <T> List<T> runConcurrently(int threads, Callable<T> task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<T>> tasks = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				tasks.add(task);
+			}
+			List<T> results = new ArrayList<>();
+			for (Future<T> future : executor.invokeAll(tasks)) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	private static SessionCreateParams params(Appointment appointment) {
+		return SessionCreateParams.builder()
+				.setMode(SessionCreateParams.Mode.PAYMENT)
+				.setSuccessUrl("http://localhost:4200/payment/success")
+				.putMetadata("appointmentId", appointment.getId().toString())
+				.build();
+	}
+
+	@FunctionalInterface
+	private interface Checkout {
+		String run(Appointment appointment) throws Exception;
+	}
+
+	private record PoolUsage(int maxActive, int maxWaiting, Duration elapsed) {
+
+		@Override
+		public String toString() {
+			return "max active " + maxActive + "/10, max waiting " + maxWaiting + ", " + elapsed.toMillis() + " ms";
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.dto.CheckoutResponse;
+import com.hairbook.entity.Appointment;
+import com.stripe.exception.ApiConnectionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Repli sur la session Checkout en cours lorsque Stripe est indisponible. La réservation temporaire dure
+ * plus longtemps qu'une session et la fenêtre de renouvellement couvre toute la durée de vie d'une session :
+ * chaque visite tente donc de recréer la session.
+ */
+@TestPropertySource(properties = {
+		"app.booking.slot-hold-minutes=1500",
+		"app.payment.checkout.refresh-ahead-minutes=1500"
+})
+class CheckoutFallbackTest extends PostgresIntegrationTest {
+
+	@AfterEach
+	void restoreGateway() {
+		paymentGateway.setAvailable(true);
+	}
+
+	@Test
+	void servesCurrentSessionWhileProviderIsDown() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		CheckoutResponse first = checkout(appointment);
+
+		paymentGateway.setAvailable(false);
+		CheckoutResponse fallback = checkout(appointment);
+
+		assertThat(fallback.getSessionId()).isEqualTo(first.getSessionId());
+		assertThat(fallback.getUrl()).isEqualTo(first.getUrl());
+	}
+
+	@Test
+	void failsWhenNoSessionCanBeServed() {
+		Appointment appointment = createPendingAppointment();
+		paymentGateway.setAvailable(false);
+
+		assertThatThrownBy(() -> checkout(appointment)).isInstanceOf(ApiConnectionException.class);
+	}
+}
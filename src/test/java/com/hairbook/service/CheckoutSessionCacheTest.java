@@ -0,0 +1,68 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.dto.CheckoutResponse;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Validité des sessions Checkout suivies par {@link PaymentService} : bornée par la réservation temporaire
+ * du rendez-vous (15 minutes par défaut, plus courte que la durée minimale d'une session Stripe).
+ */
+class CheckoutSessionCacheTest extends PostgresIntegrationTest {
+
+	private static final Duration HOLD = Duration.ofMinutes(15);
+
+	@Test
+	void sessionValidityIsCappedAtHoldExpiry() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		Instant holdExpiresAt = appointment.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().plus(HOLD);
+
+		CheckoutResponse response = checkout(appointment);
+
+		assertThat(paymentGateway.retrieveCheckoutSession(response.getSessionId()).expiresAt())
+				.isAfter(Instant.now().plus(Duration.ofMinutes(30)));
+		Payment payment = transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT p FROM Payment p WHERE p.appointment.id = :id", Payment.class)
+				.setParameter("id", appointment.getId())
+				.getSingleResult());
+		assertThat(Instant.parse(payment.getMetadata().get("checkoutExpiresAt").toString()))
+				.isCloseTo(holdExpiresAt, within(1, ChronoUnit.MILLIS));
+	}
+
+	@Test
+	void sessionCappedByHoldIsReusedUntilItExpires() throws Exception {
+		Appointment appointment = createPendingAppointment();
+
+		CheckoutResponse first = checkout(appointment);
+		CheckoutResponse second = checkout(appointment);
+
+		// Moins de 15 minutes de validité, sous la fenêtre de renouvellement de 30 minutes : réutilisée tout de même
+		assertThat(second.getSessionId()).isEqualTo(first.getSessionId());
+	}
+
+	@Test
+	void refusesCheckoutOnceHoldHasExpired() {
+		Appointment appointment = createPendingAppointment();
+		transactionTemplate.executeWithoutResult(tx -> entityManager
+				.createNativeQuery("UPDATE appointment SET created_at = :createdAt WHERE id = :id")
+				.setParameter("createdAt", LocalDateTime.now().minus(HOLD).minusMinutes(1))
+				.setParameter("id", appointment.getId())
+				.executeUpdate());
+
+		assertThatThrownBy(() -> checkout(appointment))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("expiré");
+	}
+}
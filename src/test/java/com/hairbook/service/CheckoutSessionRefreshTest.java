@@ -0,0 +1,94 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentStatus;
+import com.hairbook.entity.Payment;
+import com.hairbook.entity.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Renouvellement en arrière-plan des sessions Checkout lorsque la réservation temporaire (48 h) dure plus
+ * longtemps qu'une session Stripe (23 h au plus) : la session n'est remplacée qu'une fois expirée.
+ */
+@TestPropertySource(properties = "app.booking.slot-hold-minutes=2880")
+class CheckoutSessionRefreshTest extends PostgresIntegrationTest {
+
+	@Test
+	void openSessionIsNotReplaced() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+
+		paymentService.refreshSession(appointment.getId(), sessionId);
+
+		assertThat(payment(appointment).getProviderSessionId()).isEqualTo(sessionId);
+		assertThat(sessionStatus(sessionId)).isEqualTo("open");
+	}
+
+	@Test
+	void expiredSessionIsReplacedAndServedWithoutStripeCall() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String expiredSession = checkoutSession(appointment);
+		expireStoredSession(appointment);
+
+		paymentService.refreshSession(appointment.getId(), expiredSession);
+
+		String refreshed = payment(appointment).getProviderSessionId();
+		assertThat(refreshed).isNotEqualTo(expiredSession);
+		// Déjà expirée chez Stripe : la session remplacée n'est pas expirée une seconde fois
+		assertThat(sessionStatus(expiredSession)).isEqualTo("open");
+		assertThat(checkoutSession(appointment)).isEqualTo(refreshed);
+	}
+
+	@Test
+	void expiryOfRenewableSessionKeepsPaymentPendingDuringHold() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+		expireStoredSession(appointment);
+
+		paymentService.markSessionExpired(appointment.getId(), sessionId);
+
+		assertThat(payment(appointment).getStatus()).isEqualTo(PaymentStatus.PENDING);
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.PENDING);
+
+		// Événement de la session remplacée entre-temps : ignoré
+		paymentService.refreshSession(appointment.getId(), sessionId);
+		paymentService.markSessionExpired(appointment.getId(), sessionId);
+		assertThat(payment(appointment).getStatus()).isEqualTo(PaymentStatus.PENDING);
+	}
+
+	/**
+	 * Fait comme si la session enregistrée avait atteint son {@code expires_at}.
+	 */
+	private void expireStoredSession(Appointment appointment) {
+		transactionTemplate.executeWithoutResult(tx -> entityManager.createNativeQuery("""
+						UPDATE payment
+						SET metadata = jsonb_set(metadata, '{checkoutExpiresAt}', to_jsonb(CAST(:expiresAt AS text)))
+						WHERE appointment_id = :id
+						""")
+				.setParameter("expiresAt", Instant.now().minusSeconds(1).toString())
+				.setParameter("id", appointment.getId())
+				.executeUpdate());
+	}
+
+	private Payment payment(Appointment appointment) {
+		return transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT p FROM Payment p WHERE p.appointment.id = :id", Payment.class)
+				.setParameter("id", appointment.getId())
+				.getSingleResult());
+	}
+
+	private String sessionStatus(String sessionId) throws Exception {
+		return paymentGateway.listCheckoutSessions(Instant.EPOCH, Instant.now().plusSeconds(60), null, Integer.MAX_VALUE)
+				.sessions().stream()
+				.filter(summary -> summary.id().equals(sessionId))
+				.findFirst()
+				.orElseThrow()
+				.status();
+	}
+}
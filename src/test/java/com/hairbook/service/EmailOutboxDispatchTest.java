@@ -0,0 +1,98 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.EmailOutbox;
+import com.hairbook.entity.EmailOutboxStatus;
+import com.hairbook.repository.EmailOutboxRepository;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Envoi des emails de la boîte d'envoi avec un transport SMTP simulé : une erreur inattendue sur un email
+ * ne laisse pas les emails de son lot réservés jusqu'à l'expiration de la réservation.
+ */
+@TestPropertySource(properties = "app.mail.outbox.poll-interval-ms=200")
+class EmailOutboxDispatchTest extends PostgresIntegrationTest {
+
+	@MockitoBean
+	private SmtpTransportPool smtpTransportPool;
+
+	@Autowired
+	private EmailOutboxService emailOutboxService;
+
+	@Autowired
+	private EmailOutboxRepository emailOutboxRepository;
+
+	@BeforeEach
+	void smtpRejectsPoisonRecipient() throws Exception {
+		Transport transport = mock(Transport.class);
+		doAnswer(invocation -> {
+			Address[] recipients = invocation.getArgument(1);
+			if (Arrays.stream(recipients).anyMatch(address -> address.toString().startsWith("poison"))) {
+				throw new IllegalArgumentException("Unexpected transport failure");
+			}
+			return null;
+		}).when(transport).sendMessage(any(Message.class), any(Address[].class));
+		when(smtpTransportPool.getSession()).thenReturn(Session.getInstance(new Properties()));
+		when(smtpTransportPool.borrow()).thenReturn(transport);
+	}
+
+	@Test
+	void unexpectedErrorRetriesFailingEmailAndReleasesTheRestOfItsBatch() throws Exception {
+		String marker = "dispatch-test-" + UUID.randomUUID();
+		transactionTemplate.executeWithoutResult(tx -> {
+			emailOutboxService.enqueue("poison@test.local", marker, "corps");
+			for (int i = 0; i < 5; i++) {
+				emailOutboxService.enqueue("client-" + i + "@test.local", marker, "corps");
+			}
+		});
+
+		List<EmailOutbox> emails = awaitEmails(marker, all -> all.stream()
+				.filter(email -> !email.getRecipient().startsWith("poison"))
+				.allMatch(email -> email.getStatus() == EmailOutboxStatus.SENT));
+
+		EmailOutbox poison = emails.stream()
+				.filter(email -> email.getRecipient().startsWith("poison"))
+				.findFirst()
+				.orElseThrow();
+		assertThat(poison.getStatus()).isEqualTo(EmailOutboxStatus.PENDING);
+		assertThat(poison.getAttempts()).isEqualTo(1);
+		assertThat(poison.getLastError()).contains("Unexpected transport failure");
+		assertThat(poison.getNextAttemptAt()).isAfter(LocalDateTime.now());
+	}
+
+	private List<EmailOutbox> awaitEmails(String marker, Predicate<List<EmailOutbox>> condition) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+		List<EmailOutbox> emails;
+		do {
+			TimeUnit.MILLISECONDS.sleep(100);
+			emails = transactionTemplate.execute(tx -> entityManager
+					.createQuery("SELECT o FROM EmailOutbox o WHERE o.subject = :marker", EmailOutbox.class)
+					.setParameter("marker", marker)
+					.getResultList());
+		} while (!condition.test(emails) && System.nanoTime() < deadline);
+		assertThat(condition.test(emails)).as("emails sent before the claim lease expired").isTrue();
+		return emails;
+	}
+}
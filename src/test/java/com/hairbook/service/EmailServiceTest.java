@@ -0,0 +1,87 @@
+package com.hairbook.service;
+
+import com.hairbook.config.I18nConfig;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.StaffMember;
+import com.hairbook.entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Langue des emails : celle du destinataire, jamais celle de la requête qui déclenche l'envoi.
+ * La requête simulée est en anglais (ex : un admin qui confirme le rendez-vous d'un client francophone).
+ */
+class EmailServiceTest {
+
+	private final EmailOutboxService emailOutboxService = mock(EmailOutboxService.class);
+	private final EmailTemplateService emailTemplateService = new EmailTemplateService(
+			new MessageService(new I18nConfig().messageSource()));
+	private final EmailService emailService = new EmailService(emailOutboxService, emailTemplateService);
+
+	@BeforeEach
+	void init() {
+		ReflectionTestUtils.setField(emailTemplateService, "supportedLanguages", List.of("fr", "en"));
+		ReflectionTestUtils.setField(emailTemplateService, "defaultLanguage", "fr");
+		ReflectionTestUtils.setField(emailService, "frontendUrl", "http://localhost:4200");
+		emailTemplateService.init();
+		LocaleContextHolder.setLocale(Locale.ENGLISH);
+	}
+
+	@AfterEach
+	void resetLocale() {
+		LocaleContextHolder.resetLocaleContext();
+	}
+
+	@Test
+	void reminderIsWrittenInRecipientLanguage() {
+		emailService.sendAppointmentReminder(appointmentFor("fr"));
+
+		assertThat(queuedSubject()).isEqualTo("Rappel : votre rendez-vous approche");
+	}
+
+	@Test
+	void recipientWithoutPreferenceGetsDefaultLanguage() {
+		emailService.sendAppointmentReminder(appointmentFor(null));
+
+		assertThat(queuedSubject()).isEqualTo("Rappel : votre rendez-vous approche");
+	}
+
+	@Test
+	void unsupportedPreferenceFallsBackToDefaultLanguage() {
+		assertThat(emailTemplateService.resolveLocale(User.builder().preferredLocale("de").build()))
+				.isEqualTo(Locale.FRENCH);
+		assertThat(emailTemplateService.resolveLocale(User.builder().preferredLocale("EN").build()))
+				.isEqualTo(Locale.ENGLISH);
+	}
+
+	private String queuedSubject() {
+		ArgumentCaptor<RenderedEmail> email = ArgumentCaptor.forClass(RenderedEmail.class);
+		verify(emailOutboxService).enqueue(eq("client@test.local"), email.capture());
+		return email.getValue().subject();
+	}
+
+	private Appointment appointmentFor(String preferredLocale) {
+		return Appointment.builder()
+				.user(User.builder().email("client@test.local").firstName("Marie").preferredLocale(preferredLocale).build())
+				.service(com.hairbook.entity.Service.builder().name("Coupe").durationMinutes(30).build())
+				.staffMember(StaffMember.builder().firstName("Sophie").lastName("Martin").build())
+				.appointmentDate(LocalDate.of(2025, 12, 31))
+				.startTime(LocalTime.of(14, 30))
+				.endTime(LocalTime.of(15, 0))
+				.build();
+	}
+}
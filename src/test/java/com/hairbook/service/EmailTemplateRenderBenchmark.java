@@ -0,0 +1,97 @@
+package com.hairbook.service;
+
+import com.hairbook.config.I18nConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH du rendu de l'email de confirmation de rendez-vous : plan de rendu précompilé
+ * ({@link EmailTemplateService}, sujet + partie texte + partie HTML) contre l'ancien corps texte construit
+ * par {@link String#format} à chaque envoi.
+ * <p>
+ * Lancement : {@code mvn test-compile} puis exécuter {@link #main} avec le classpath de test ;
+ * le profil d'allocation s'obtient en ajoutant {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmailTemplateRenderBenchmark {
+
+	/** Format de date de l'ancien {@code EmailService}. */
+	private static final DateTimeFormatter LEGACY_DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy 'at' HH:mm");
+
+	private static final String LEGACY_CONFIRMATION = """
+			Hello %s,
+
+			Your appointment has been successfully confirmed.
+
+			Details:
+			- Service: %s
+			- Date & Time: %s
+			- Duration: %d minutes
+			- With: %s
+			- Price: %.2f €
+
+			To modify or cancel your appointment, please log in to your account:
+			%s
+
+			See you soon!
+
+			The Salon Team
+			""";
+
+	private final LocalDateTime dateTime = LocalDateTime.of(2025, 12, 31, 14, 30);
+	private EmailTemplateService emailTemplateService;
+
+	@Setup
+	public void setUp() {
+		emailTemplateService = new EmailTemplateService(new MessageService(new I18nConfig().messageSource()));
+		ReflectionTestUtils.setField(emailTemplateService, "supportedLanguages", List.of("fr", "en"));
+		ReflectionTestUtils.setField(emailTemplateService, "defaultLanguage", "fr");
+		emailTemplateService.init();
+	}
+
+	@Benchmark
+	public String legacyStringFormat() {
+		return String.format(LEGACY_CONFIRMATION, "Marie", "Coupe femme", dateTime.format(LEGACY_DATE_FORMATTER),
+				45, "Sophie Martin", 35.0, "http://localhost:4200/appointments");
+	}
+
+	@Benchmark
+	public RenderedEmail renderPlan() {
+		return emailTemplateService.render(EmailTemplate.APPOINTMENT_CONFIRMATION, Locale.ENGLISH,
+				"Marie", "Coupe femme", emailTemplateService.formatDateTime(dateTime, Locale.ENGLISH),
+				45, "Sophie Martin", BigDecimal.valueOf(35.0).setScale(2, RoundingMode.HALF_UP).toPlainString(),
+				"http://localhost:4200/appointments");
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(EmailTemplateRenderBenchmark.class.getSimpleName())
+				.build())
+				.run();
+	}
+}
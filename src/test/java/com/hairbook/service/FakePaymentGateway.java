@@ -0,0 +1,141 @@
+package com.hairbook.service;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.exception.StripeException;
+import com.stripe.param.checkout.SessionCreateParams;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passerelle de paiement en mémoire, sans appel réseau, réservée aux tests (jamais déployée).
+ * <p>
+ * Remplace Stripe dans les tests d'intégration, ou est instanciée directement dans les tests unitaires.
+ * La latence et les pannes du prestataire sont simulables ({@link #setLatency}, {@link #setAvailable})
+ * pour exercer {@link ResilientPaymentGateway}, et une session
+ * peut être marquée payée ({@link #completeCheckoutSession}) pour exercer le rapprochement des paiements.
+ * Les URL de paiement renvoient directement vers la page de succès du frontend.
+ */
+public class FakePaymentGateway implements PaymentGateway {
+
+	/** Durée de vie d'une session sans {@code expires_at}, comme la valeur par défaut de Stripe. */
+	private static final Duration SESSION_LIFETIME = Duration.ofHours(24);
+
+	private final String frontendUrl;
+	private final Map<String, CheckoutSession> sessions = new ConcurrentHashMap<>();
+	private final Map<String, SessionSummary> summaries = new ConcurrentHashMap<>();
+	private volatile Duration latency;
+	private volatile boolean available = true;
+
+	/**
+	 * @param frontendUrl URL de base du frontend
+	 * @param latency     latence simulée de chaque appel
+	 */
+	public FakePaymentGateway(String frontendUrl, Duration latency) {
+		this.frontendUrl = frontendUrl;
+		this.latency = latency;
+	}
+
+	@Override
+	public CheckoutSession createCheckoutSession(SessionCreateParams params) throws StripeException {
+		simulateCall();
+		String id = "cs_fake_" + UUID.randomUUID().toString().replace("-", "");
+		CheckoutSession session = new CheckoutSession(id, frontendUrl + "/payment/success?session_id=" + id,
+				"pi_fake_" + id.substring(8), params.getExpiresAt() != null
+						? Instant.ofEpochSecond(params.getExpiresAt())
+						: Instant.now().plus(SESSION_LIFETIME));
+		sessions.put(id, session);
+		Long amount = params.getLineItems() != null && !params.getLineItems().isEmpty()
+				? params.getLineItems().get(0).getPriceData().getUnitAmount()
+				: null;
+		summaries.put(id, new SessionSummary(id, params.getMetadata() != null ? params.getMetadata().get("appointmentId") : null,
+				"open", "unpaid", session.paymentIntentId(), amount, Instant.now()));
+		return session;
+	}
+
+	@Override
+	public CheckoutSession retrieveCheckoutSession(String sessionId) throws StripeException {
+		simulateCall();
+		CheckoutSession session = sessions.get(sessionId);
+		if (session == null) {
+			throw new InvalidRequestException("No such checkout session: " + sessionId, "id", null, null, 404, null);
+		}
+		return session;
+	}
+
+	@Override
+	public void expireCheckoutSession(String sessionId) throws StripeException {
+		simulateCall();
+		summaries.computeIfPresent(sessionId, (id, summary) -> "open".equals(summary.status())
+				? withStatus(summary, "expired", summary.paymentStatus())
+				: summary);
+	}
+
+	@Override
+	public SessionPage listCheckoutSessions(Instant createdFrom, Instant createdTo, String startingAfter, int limit)
+			throws StripeException {
+		simulateCall();
+		List<SessionSummary> window = summaries.values().stream()
+				.filter(summary -> !summary.createdAt().isBefore(createdFrom) && summary.createdAt().isBefore(createdTo))
+				.sorted(Comparator.comparing(SessionSummary::createdAt).thenComparing(SessionSummary::id).reversed())
+				.toList();
+		int start = 0;
+		if (startingAfter != null) {
+			for (int i = 0; i < window.size(); i++) {
+				if (window.get(i).id().equals(startingAfter)) {
+					start = i + 1;
+					break;
+				}
+			}
+		}
+		int end = Math.min(start + limit, window.size());
+		return new SessionPage(window.subList(start, end), end < window.size());
+	}
+
+	/**
+	 * Simule le paiement d'une session par le client.
+	 *
+	 * @param sessionId identifiant de la session
+	 */
+	public void completeCheckoutSession(String sessionId) {
+		summaries.computeIfPresent(sessionId, (id, summary) -> withStatus(summary, "complete", "paid"));
+	}
+
+	/**
+	 * @param latency latence simulée de chaque appel
+	 */
+	public void setLatency(Duration latency) {
+		this.latency = latency;
+	}
+
+	/**
+	 * @param available {@code false} pour simuler une panne (chaque appel échoue après la latence)
+	 */
+	public void setAvailable(boolean available) {
+		this.available = available;
+	}
+
+	private static SessionSummary withStatus(SessionSummary summary, String status, String paymentStatus) {
+		return new SessionSummary(summary.id(), summary.appointmentId(), status, paymentStatus,
+				summary.paymentIntentId(), summary.amountTotal(), summary.createdAt());
+	}
+
+	private void simulateCall() throws StripeException {
+		try {
+			TimeUnit.MILLISECONDS.sleep(latency.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ApiConnectionException("Interrupted", e);
+		}
+		if (!available) {
+			throw new ApiConnectionException("Simulated payment provider outage");
+		}
+	}
+}
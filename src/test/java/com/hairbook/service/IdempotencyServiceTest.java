@@ -0,0 +1,152 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Réservation des clés d'idempotence en base. Une autre instance est simulée en réservant
+ * la clé directement dans le dépôt.
+ */
+class IdempotencyServiceTest extends PostgresIntegrationTest {
+
+	private static final String SCOPE = "TEST";
+	private static final String OWNER = "client@test.local";
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	private final AtomicInteger executions = new AtomicInteger();
+
+	@Test
+	void replaysStoredResponseWithoutRunningActionAgain() {
+		String key = UUID.randomUUID().toString();
+
+		String first = execute(key, "body");
+		String replayed = execute(key, "body");
+
+		assertThat(replayed).isEqualTo(first);
+		assertThat(executions).hasValue(1);
+	}
+
+	@Test
+	void rejectsKeyClaimedByAnotherInstanceWhileInProgress() throws Exception {
+		String key = UUID.randomUUID().toString();
+		assertThat(idempotencyRecordRepository.claim(id(key), SCOPE, fingerprint("body"), 300)).isEqualTo(1);
+
+		assertThatThrownBy(() -> execute(key, "body"))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+		assertThatThrownBy(() -> execute(key, "other body")).isInstanceOf(IllegalArgumentException.class);
+		assertThat(executions).hasValue(0);
+	}
+
+	@Test
+	void takesOverAbandonedClaimOnceLeaseHasExpired() throws Exception {
+		String key = UUID.randomUUID().toString();
+		idempotencyRecordRepository.claim(id(key), SCOPE, fingerprint("body"), 0);
+
+		execute(key, "body");
+
+		assertThat(executions).hasValue(1);
+	}
+
+	@Test
+	void failedActionReleasesClaim() {
+		String key = UUID.randomUUID().toString();
+
+		assertThatThrownBy(() -> idempotencyService.execute(SCOPE, key, OWNER, List.of("body"), String.class, () -> {
+			throw new IllegalStateException("échec");
+		})).isInstanceOf(IllegalStateException.class);
+		execute(key, "body");
+
+		assertThat(executions).hasValue(1);
+	}
+
+	@Test
+	void responseIsNotReplayedWhenClaimWasLostDuringExecution() throws Exception {
+		String key = UUID.randomUUID().toString();
+
+		idempotencyService.execute(SCOPE, key, OWNER, List.of("body"), String.class, () -> {
+			// Bail échu : une autre instance reprend la clé pour une autre requête
+			idempotencyRecordRepository.release(id(key));
+			idempotencyRecordRepository.claim(id(key), SCOPE, fingerprint("other body"), 300);
+			return "response-" + executions.incrementAndGet();
+		});
+
+		assertThatThrownBy(() -> execute(key, "body")).isInstanceOf(IllegalArgumentException.class);
+		assertThat(executions).hasValue(1);
+	}
+
+	@Test
+	void concurrentReplayOnSameInstanceStopsWaitingAfterLease() throws Exception {
+		String key = UUID.randomUUID().toString();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ReflectionTestUtils.setField(idempotencyService, "claimTimeoutSeconds", 1);
+		try {
+			CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> idempotencyService.execute(
+					SCOPE, key, OWNER, List.of("body"), String.class, () -> {
+						started.countDown();
+						await(release);
+						return "response-" + executions.incrementAndGet();
+					}));
+			assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+			assertThatThrownBy(() -> execute(key, "body"))
+					.isInstanceOfSatisfying(ResponseStatusException.class,
+							e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+
+			release.countDown();
+			assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("response-1");
+		} finally {
+			release.countDown();
+			ReflectionTestUtils.setField(idempotencyService, "claimTimeoutSeconds", 300);
+		}
+	}
+
+	private String execute(String key, String body) {
+		return idempotencyService.execute(SCOPE, key, OWNER, List.of(body), String.class,
+				() -> "response-" + executions.incrementAndGet());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static String id(String key) throws Exception {
+		return sha256(SCOPE + "\n" + OWNER + "\n" + key);
+	}
+
+	private static String fingerprint(String body) throws Exception {
+		return sha256("[\"" + body + "\"]");
+	}
+
+	private static String sha256(String value) throws Exception {
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+	}
+}
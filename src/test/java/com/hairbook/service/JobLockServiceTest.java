@@ -0,0 +1,53 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.JobLock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * État des verrous de tâches, évalué avec l'horloge de la base.
+ */
+class JobLockServiceTest extends PostgresIntegrationTest {
+
+	@Autowired
+	private JobLockService jobLockService;
+
+	@Test
+	void lockIsHeldWhileJobRunsAndReleasedAfterMinimumHold() {
+		String jobName = "test-" + UUID.randomUUID();
+		AtomicReference<JobLock> whileRunning = new AtomicReference<>();
+
+		boolean ran = jobLockService.runExclusive(jobName, Duration.ofMinutes(5), Duration.ZERO,
+				() -> whileRunning.set(lock(jobName)));
+
+		assertThat(ran).isTrue();
+		assertThat(whileRunning.get().getLocked()).isTrue();
+		JobLock released = lock(jobName);
+		assertThat(released.getLocked()).isFalse();
+		assertThat(released.getLastStatus()).isEqualTo("SUCCESS");
+		assertThat(released.getLastStartedAt()).isBeforeOrEqualTo(released.getLastFinishedAt());
+	}
+
+	@Test
+	void anotherRunIsSkippedDuringMinimumHold() {
+		String jobName = "test-" + UUID.randomUUID();
+		jobLockService.runExclusive(jobName, Duration.ofMinutes(5), Duration.ofMinutes(5), () -> { });
+
+		assertThat(lock(jobName).getLocked()).isTrue();
+		assertThat(jobLockService.runExclusive(jobName, Duration.ofMinutes(5), Duration.ZERO, () -> { })).isFalse();
+	}
+
+	private JobLock lock(String jobName) {
+		return jobLockService.getJobLocks().stream()
+				.filter(lock -> lock.getName().equals(jobName))
+				.findFirst()
+				.orElseThrow();
+	}
+}
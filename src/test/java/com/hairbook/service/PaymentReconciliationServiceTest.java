@@ -0,0 +1,112 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.dto.ReconciliationReportDto;
+import com.hairbook.dto.ReconciliationReportDto.Discrepancy;
+import com.hairbook.dto.ReconciliationReportDto.DiscrepancyType;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentStatus;
+import com.hairbook.entity.Payment;
+import com.hairbook.entity.PaymentReconciliationReport;
+import com.hairbook.entity.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Rapprochement des paiements contre la passerelle en mémoire. La fenêtre se termine 26 h dans le futur
+ * pour que les paiements créés par le test soient assez anciens pour le contrôle des sessions absentes.
+ */
+class PaymentReconciliationServiceTest extends PostgresIntegrationTest {
+
+	@Autowired
+	private PaymentReconciliationService paymentReconciliationService;
+
+	@Test
+	void correctsPaymentsWhoseWebhookWasMissed() throws Exception {
+		Appointment paid = createPendingAppointment();
+		Appointment abandoned = createPendingAppointment();
+		String paidSession = checkoutSession(paid);
+		String abandonedSession = checkoutSession(abandoned);
+		paymentGateway.completeCheckoutSession(paidSession);
+		paymentGateway.expireCheckoutSession(abandonedSession);
+
+		ReconciliationReportDto report = reconcile();
+
+		assertThat(discrepancies(report, paidSession)).extracting(Discrepancy::getType, Discrepancy::getCorrected)
+				.containsExactly(tuple(DiscrepancyType.MISSED_PAYMENT, true));
+		assertThat(discrepancies(report, abandonedSession)).extracting(Discrepancy::getType)
+				.containsExactly(DiscrepancyType.MISSED_EXPIRATION);
+		assertThat(paymentStatus(paid)).isEqualTo(PaymentStatus.SUCCEEDED);
+		assertThat(reload(paid).getStatus()).isEqualTo(AppointmentStatus.CONFIRMED);
+		assertThat(paymentStatus(abandoned)).isEqualTo(PaymentStatus.FAILED);
+	}
+
+	@Test
+	void pendingPaymentWithOpenSessionIsNotReportedMissing() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String session = checkoutSession(appointment);
+
+		ReconciliationReportDto report = reconcile();
+
+		assertThat(report.getError()).isNull();
+		assertThat(discrepancies(report, session)).isEmpty();
+		assertThat(paymentStatus(appointment)).isEqualTo(PaymentStatus.PENDING);
+	}
+
+	@Test
+	void reportsPendingPaymentAbsentFromStripe() {
+		Appointment appointment = createPendingAppointment();
+		String session = "cs_lost_" + UUID.randomUUID();
+		transactionTemplate.executeWithoutResult(tx -> entityManager.persist(Payment.builder()
+				.appointment(entityManager.find(Appointment.class, appointment.getId()))
+				.amountCents(2500)
+				.providerSessionId(session)
+				.build()));
+
+		ReconciliationReportDto report = reconcile();
+
+		assertThat(discrepancies(report, session)).extracting(Discrepancy::getType)
+				.containsExactly(DiscrepancyType.MISSING_AT_STRIPE);
+	}
+
+	@Test
+	void lastReportIsReadBackFromTheDatabase() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String session = checkoutSession(appointment);
+		paymentGateway.completeCheckoutSession(session);
+		ReconciliationReportDto report = reconcile();
+
+		paymentReconciliationService.record(report);
+
+		PaymentReconciliationReport stored = transactionTemplate.execute(tx -> entityManager.find(
+				PaymentReconciliationReport.class, PaymentReconciliationService.JOB_NAME));
+		assertThat(stored).isNotNull();
+		assertThat(paymentReconciliationService.getLastReport()).isEqualTo(report);
+	}
+
+	private ReconciliationReportDto reconcile() {
+		Instant now = Instant.now();
+		return paymentReconciliationService.reconcile(now.minus(Duration.ofHours(1)), now.plus(Duration.ofHours(26)));
+	}
+
+	private PaymentStatus paymentStatus(Appointment appointment) {
+		return transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT p.status FROM Payment p WHERE p.appointment.id = :id", PaymentStatus.class)
+				.setParameter("id", appointment.getId())
+				.getSingleResult());
+	}
+
+	private static List<Discrepancy> discrepancies(ReconciliationReportDto report, String sessionId) {
+		return report.getDiscrepancies().stream()
+				.filter(discrepancy -> sessionId.equals(discrepancy.getSessionId()))
+				.toList();
+	}
+}
@@ -0,0 +1,116 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentStatus;
+import com.hairbook.entity.Payment;
+import com.hairbook.entity.AdminNotification;
+import com.hairbook.entity.PaymentStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Transitions des paiements et rendez-vous appliquées depuis les webhooks Stripe : un paiement ne confirme
+ * qu'un rendez-vous encore en attente, un événement rejoué n'est appliqué qu'une fois, et un paiement reçu
+ * n'est jamais ignoré.
+ */
+class PaymentServiceTest extends PostgresIntegrationTest {
+
+	@Test
+	void paymentConfirmsPendingAppointment() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+
+		paymentService.markPaymentSucceeded(appointment.getId(), sessionId, "pi_test");
+
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CONFIRMED);
+		Payment payment = payment(sessionId);
+		assertThat(payment.getStatus()).isEqualTo(PaymentStatus.SUCCEEDED);
+		assertThat(payment.getProviderPaymentId()).isEqualTo("pi_test");
+	}
+
+	@Test
+	void latePaymentAfterCancellationRequiresRefund() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+		transactionTemplate.executeWithoutResult(tx ->
+				entityManager.find(Appointment.class, appointment.getId()).cancel("Annulé par le client"));
+
+		paymentService.markPaymentSucceeded(appointment.getId(), sessionId, "pi_late");
+
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CANCELLED);
+		assertThat(payment(sessionId).getStatus()).isEqualTo(PaymentStatus.REFUND_REQUIRED);
+
+		// Événement renvoyé par Stripe : aucun effet
+		paymentService.markPaymentSucceeded(appointment.getId(), sessionId, "pi_late");
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CANCELLED);
+		assertThat(payment(sessionId).getStatus()).isEqualTo(PaymentStatus.REFUND_REQUIRED);
+	}
+
+	@Test
+	void failureAfterSuccessIsIgnored() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+		paymentService.markPaymentSucceeded(appointment.getId(), sessionId, "pi_test");
+
+		paymentService.markPaymentFailed(appointment.getId(), sessionId);
+
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CONFIRMED);
+		assertThat(payment(sessionId).getStatus()).isEqualTo(PaymentStatus.SUCCEEDED);
+	}
+
+	@Test
+	void failedPaymentCancelsPendingAppointment() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+
+		paymentService.markPaymentFailed(appointment.getId(), sessionId);
+
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CANCELLED);
+		assertThat(payment(sessionId).getStatus()).isEqualTo(PaymentStatus.FAILED);
+	}
+
+	@Test
+	void paymentOfReplacedSessionIsMatchedByAppointment() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String paidSession = checkoutSession(appointment);
+		transactionTemplate.executeWithoutResult(tx -> entityManager
+				.createNativeQuery("UPDATE payment SET provider_session_id = :sessionId WHERE appointment_id = :id")
+				.setParameter("sessionId", "cs_replacement_" + UUID.randomUUID())
+				.setParameter("id", appointment.getId())
+				.executeUpdate());
+
+		paymentService.markPaymentSucceeded(appointment.getId(), paidSession, "pi_test");
+
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CONFIRMED);
+		assertThat(payment(paidSession).getStatus()).isEqualTo(PaymentStatus.SUCCEEDED);
+	}
+
+	@Test
+	void unmatchedPaymentIsReportedToAdmins() {
+		// Le récapitulatif ne doit pas consommer la notification avant sa lecture
+		pauseJob(AdminDigestService.DIGEST_JOB);
+		String sessionId = "cs_unknown_" + UUID.randomUUID();
+
+		transactionTemplate.executeWithoutResult(tx ->
+				paymentService.markPaymentSucceeded(UUID.randomUUID(), sessionId, "pi_unknown"));
+
+		List<AdminNotification> notifications = transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT n FROM AdminNotification n WHERE n.summary LIKE :sessionId", AdminNotification.class)
+				.setParameter("sessionId", "%" + sessionId + "%")
+				.getResultList());
+		assertThat(notifications).singleElement()
+				.satisfies(notification -> assertThat(notification.getSummary()).contains("pi_unknown"));
+	}
+
+	private Payment payment(String sessionId) {
+		return transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT p FROM Payment p WHERE p.providerSessionId = :sessionId", Payment.class)
+				.setParameter("sessionId", sessionId)
+				.getSingleResult());
+	}
+}
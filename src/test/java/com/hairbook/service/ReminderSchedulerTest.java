@@ -0,0 +1,70 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.dto.UpdateAppointmentRequest;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentReminder;
+import com.hairbook.repository.AppointmentReminderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Traces des rappels d'un rendez-vous confirmé face à son déplacement.
+ */
+class ReminderSchedulerTest extends PostgresIntegrationTest {
+
+	@Autowired
+	private AppointmentService appointmentService;
+
+	@Autowired
+	private AppointmentReminderRepository appointmentReminderRepository;
+
+	@Test
+	void movingAppointmentClearsRemindersSentForPreviousTime() {
+		Appointment appointment = confirm(createPendingAppointment());
+		appointmentReminderRepository.saveAndFlush(AppointmentReminder.builder()
+				.appointmentId(appointment.getId())
+				.reminderType("BEFORE_1440M")
+				.sentAt(LocalDateTime.now())
+				.build());
+
+		appointmentService.updateAppointment(appointment.getId(), UpdateAppointmentRequest.builder()
+				.startTime(appointment.getAppointmentDate().plusDays(1).atTime(14, 0))
+				.build(), appointment.getUser().getEmail());
+
+		assertThat(reminderCount(appointment)).isZero();
+	}
+
+	@Test
+	void editingNotesKeepsSentReminders() {
+		Appointment appointment = confirm(createPendingAppointment());
+		appointmentReminderRepository.saveAndFlush(AppointmentReminder.builder()
+				.appointmentId(appointment.getId())
+				.reminderType("BEFORE_1440M")
+				.sentAt(LocalDateTime.now())
+				.build());
+
+		appointmentService.updateAppointment(appointment.getId(), UpdateAppointmentRequest.builder()
+				.startTime(appointment.getAppointmentDate().atTime(appointment.getStartTime()))
+				.notes("Frange plus courte")
+				.build(), appointment.getUser().getEmail());
+
+		assertThat(reminderCount(appointment)).isEqualTo(1);
+	}
+
+	private Appointment confirm(Appointment appointment) {
+		transactionTemplate.executeWithoutResult(tx -> entityManager.find(Appointment.class, appointment.getId()).confirm());
+		return appointment;
+	}
+
+	private long reminderCount(Appointment appointment) {
+		return transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT COUNT(r) FROM AppointmentReminder r WHERE r.appointmentId = :id", Long.class)
+				.setParameter("id", appointment.getId())
+				.getSingleResult());
+	}
+}
@@ -0,0 +1,150 @@
+package com.hairbook.service;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.param.checkout.SessionCreateParams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResilientPaymentGatewayTest {
+
+	private final FakePaymentGateway provider = new FakePaymentGateway("http://localhost:4200", Duration.ZERO);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private ResilientPaymentGateway gateway;
+
+	private ResilientPaymentGateway gateway(int maxConcurrentCalls, Duration timeout, Duration openDuration) {
+		gateway = new ResilientPaymentGateway(provider, maxConcurrentCalls, timeout, 3, openDuration, meterRegistry);
+		return gateway;
+	}
+
+	@AfterEach
+	void shutdown() {
+		gateway.shutdown();
+	}
+
+	@Test
+	void opensCircuitAfterConsecutiveFailuresAndShortCircuitsCalls() {
+		ResilientPaymentGateway gateway = gateway(2, Duration.ofSeconds(1), Duration.ofHours(1));
+		provider.setAvailable(false);
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> gateway.createCheckoutSession(params())).isInstanceOf(ApiConnectionException.class);
+		}
+
+		provider.setAvailable(true);
+		assertThatThrownBy(() -> gateway.createCheckoutSession(params()))
+				.isInstanceOf(ApiConnectionException.class)
+				.hasMessageContaining("temporairement indisponible");
+		assertThat(circuitState()).isEqualTo(ResilientPaymentGateway.State.OPEN.ordinal());
+		assertThat(calls("short_circuited")).isEqualTo(1);
+	}
+
+	@Test
+	void successfulTrialCallClosesCircuit() throws Exception {
+		ResilientPaymentGateway gateway = gateway(2, Duration.ofSeconds(1), Duration.ofMillis(50));
+		provider.setAvailable(false);
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> gateway.createCheckoutSession(params())).isInstanceOf(ApiConnectionException.class);
+		}
+
+		TimeUnit.MILLISECONDS.sleep(80);
+		provider.setAvailable(true);
+		assertThat(gateway.createCheckoutSession(params()).id()).startsWith("cs_fake_");
+		assertThat(circuitState()).isEqualTo(ResilientPaymentGateway.State.CLOSED.ordinal());
+	}
+
+	@Test
+	void failedTrialCallReopensCircuit() throws Exception {
+		ResilientPaymentGateway gateway = gateway(2, Duration.ofSeconds(1), Duration.ofMillis(50));
+		provider.setAvailable(false);
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> gateway.createCheckoutSession(params())).isInstanceOf(ApiConnectionException.class);
+		}
+
+		TimeUnit.MILLISECONDS.sleep(80);
+		assertThatThrownBy(() -> gateway.createCheckoutSession(params())).isInstanceOf(ApiConnectionException.class);
+		assertThat(circuitState()).isEqualTo(ResilientPaymentGateway.State.OPEN.ordinal());
+		assertThat(calls("error")).isEqualTo(4);
+	}
+
+	@Test
+	void clientErrorsDoNotOpenCircuit() {
+		ResilientPaymentGateway gateway = gateway(2, Duration.ofSeconds(1), Duration.ofHours(1));
+		for (int i = 0; i < 5; i++) {
+			assertThatThrownBy(() -> gateway.retrieveCheckoutSession("cs_unknown"))
+					.isInstanceOf(InvalidRequestException.class);
+		}
+
+		assertThat(circuitState()).isEqualTo(ResilientPaymentGateway.State.CLOSED.ordinal());
+		assertThat(calls("client_error")).isEqualTo(5);
+	}
+
+	@Test
+	void abandonsCallsExceedingTimeout() {
+		ResilientPaymentGateway gateway = gateway(2, Duration.ofMillis(100), Duration.ofHours(1));
+		provider.setLatency(Duration.ofSeconds(2));
+
+		long start = System.nanoTime();
+		assertThatThrownBy(() -> gateway.createCheckoutSession(params()))
+				.isInstanceOf(ApiConnectionException.class)
+				.hasMessageContaining("Délai dépassé");
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+		assertThat(calls("timeout")).isEqualTo(1);
+	}
+
+	@Test
+	void bulkheadRejectsCallsBeyondLimitWithoutOpeningCircuit() throws Exception {
+		ResilientPaymentGateway gateway = gateway(2, Duration.ofSeconds(5), Duration.ofHours(1));
+		provider.setLatency(Duration.ofMillis(500));
+		CountDownLatch started = new CountDownLatch(2);
+		CompletableFuture<?>[] inFlight = new CompletableFuture<?>[2];
+		for (int i = 0; i < 2; i++) {
+			inFlight[i] = CompletableFuture.runAsync(() -> {
+				started.countDown();
+				try {
+					gateway.createCheckoutSession(params());
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+		}
+		started.await();
+		TimeUnit.MILLISECONDS.sleep(100);
+
+		long start = System.nanoTime();
+		assertThatThrownBy(() -> gateway.createCheckoutSession(params()))
+				.isInstanceOf(ApiConnectionException.class)
+				.hasMessageContaining("Trop d'appels simultanés");
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(100));
+
+		CompletableFuture.allOf(inFlight).get(5, TimeUnit.SECONDS);
+		assertThat(calls("rejected")).isEqualTo(1);
+		assertThat(calls("success")).isEqualTo(2);
+		assertThat(circuitState()).isEqualTo(ResilientPaymentGateway.State.CLOSED.ordinal());
+	}
+
+	private double circuitState() {
+		return meterRegistry.get("payment.gateway.circuit.state").gauge().value();
+	}
+
+	private long calls(String outcome) {
+		return meterRegistry.find("payment.gateway.calls").tag("outcome", outcome).timers().stream()
+				.mapToLong(timer -> timer.count())
+				.sum();
+	}
+
+	private static SessionCreateParams params() {
+		return SessionCreateParams.builder()
+				.setMode(SessionCreateParams.Mode.PAYMENT)
+				.setSuccessUrl("http://localhost:4200/payment/success")
+				.build();
+	}
+}
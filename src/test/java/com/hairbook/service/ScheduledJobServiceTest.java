@@ -0,0 +1,132 @@
+package com.hairbook.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Exécution des tâches dans leur pool, avec un pool de maintenance d'un seul thread ; le verrou entre
+ * instances est toujours accordé.
+ */
+class ScheduledJobServiceTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final JobLockService jobLockService = mock(JobLockService.class);
+	private final ScheduledJobService scheduledJobService = new ScheduledJobService(jobLockService, meterRegistry);
+
+	@BeforeEach
+	void init() {
+		ReflectionTestUtils.setField(scheduledJobService, "notificationsPoolSize", 1);
+		ReflectionTestUtils.setField(scheduledJobService, "maintenancePoolSize", 1);
+		ReflectionTestUtils.setField(scheduledJobService, "paymentsPoolSize", 1);
+		scheduledJobService.init();
+		when(jobLockService.runExclusive(anyString(), any(), any(), any())).thenAnswer(invocation -> {
+			invocation.<Runnable>getArgument(3).run();
+			return true;
+		});
+	}
+
+	@AfterEach
+	void shutdown() throws InterruptedException {
+		scheduledJobService.shutdown();
+	}
+
+	@Test
+	void jobQueuedLongerThanItsTimeoutStillRunsAndCanRunAgain() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch queuedRan = new CountDownLatch(1);
+		register("blocker", Duration.ofSeconds(5), () -> await(release));
+		register("queued", Duration.ofMillis(50), queuedRan::countDown);
+
+		assertThat(scheduledJobService.run("blocker")).isTrue();
+		assertThat(scheduledJobService.run("queued")).isTrue();
+		TimeUnit.MILLISECONDS.sleep(200);
+		release.countDown();
+
+		assertThat(queuedRan.await(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(runWhenIdle("queued")).isTrue();
+	}
+
+	@Test
+	void interruptsJobExceedingItsTimeout() throws Exception {
+		CountDownLatch finished = new CountDownLatch(1);
+		AtomicInteger runs = new AtomicInteger();
+		register("slow", Duration.ofMillis(100), () -> {
+			if (runs.incrementAndGet() > 1) {
+				return;
+			}
+			try {
+				TimeUnit.SECONDS.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				finished.countDown();
+			}
+		});
+
+		scheduledJobService.run("slow");
+
+		assertThat(finished.await(2, TimeUnit.SECONDS)).isTrue();
+		assertThat(runWhenIdle("slow")).isTrue();
+		assertThat(meterRegistry.get("scheduled.job.duration").tag("outcome", "timeout").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void disarmsTimeoutWhenJobFinishes() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		register("quick", Duration.ofHours(2), runs::incrementAndGet);
+
+		scheduledJobService.run("quick");
+
+		assertThat(runWhenIdle("quick")).isTrue();
+		assertThat(runs).hasValueGreaterThanOrEqualTo(1);
+		ScheduledThreadPoolExecutor watchdog =
+				(ScheduledThreadPoolExecutor) ReflectionTestUtils.getField(scheduledJobService, "watchdog");
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+		while (!watchdog.getQueue().isEmpty() && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		assertThat(watchdog.getQueue()).isEmpty();
+	}
+
+	private void register(String name, Duration timeout, Runnable task) {
+		scheduledJobService.register(new ScheduledJob(name, ScheduledJobService.MAINTENANCE_POOL,
+				Duration.ofMinutes(1), Duration.ZERO, timeout, task));
+	}
+
+	/**
+	 * Relance une tâche dès que son exécution précédente est terminée.
+	 */
+	private boolean runWhenIdle(String name) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+		while (System.nanoTime() < deadline) {
+			if (scheduledJobService.run(name)) {
+				return true;
+			}
+			TimeUnit.MILLISECONDS.sleep(10);
+		}
+		return false;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.hairbook.service;
+
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.StaffMember;
+import com.hairbook.entity.WorkingHours;
+import com.hairbook.repository.AvailabilityRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Index des disponibilités face à une réservation validée pendant le chargement d'une journée.
+ */
+class SlotAvailabilityIndexTest {
+
+	private static final LocalDate DATE = LocalDate.of(2025, 11, 3);
+
+	private final AvailabilityRepository availabilityRepository = mock(AvailabilityRepository.class);
+	private final SlotAvailabilityIndex index = new SlotAvailabilityIndex(availabilityRepository, new SimpleMeterRegistry());
+	private final StaffMember staff = StaffMember.builder().id(UUID.randomUUID()).build();
+
+	@BeforeEach
+	void init() {
+		ReflectionTestUtils.setField(index, "granularityMinutes", 5);
+		ReflectionTestUtils.setField(index, "ttlSeconds", 30);
+		index.init();
+		when(availabilityRepository.findWorkingHoursByStaffIds(anyCollection())).thenReturn(List.of(WorkingHours.builder()
+				.staffMember(staff)
+				.dayOfWeek(DATE.getDayOfWeek().getValue())
+				.startTime(LocalTime.of(9, 0))
+				.endTime(LocalTime.of(13, 0))
+				.build()));
+		when(availabilityRepository.findHolidaysForStaffIds(anyCollection(), any(), any())).thenReturn(List.of());
+	}
+
+	@Test
+	void bookingCommittedDuringLoadIsNotHiddenByTheStaleSnapshot() throws Exception {
+		Appointment booked = Appointment.builder()
+				.id(UUID.randomUUID())
+				.staffMember(staff)
+				.appointmentDate(DATE)
+				.startTime(LocalTime.of(9, 30))
+				.endTime(LocalTime.of(10, 0))
+				.build();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch committed = new CountDownLatch(1);
+		when(availabilityRepository.findActiveByStaffIdsAndDateRange(anyCollection(), any(), any()))
+				.thenAnswer(invocation -> {
+					// Lecture de la base avant le commit de la réservation
+					loading.countDown();
+					committed.await(5, TimeUnit.SECONDS);
+					return List.of();
+				})
+				.thenReturn(List.of(booked));
+
+		CompletableFuture<StaffDayAvailability> load = CompletableFuture.supplyAsync(() -> index.getDay(staff.getId(), DATE));
+		assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+		index.onAppointmentChanged(new AppointmentSlotChangedEvent(booked.getId(), staff.getId(), DATE,
+				booked.getStartTime(), booked.getEndTime(), true, false, null, null));
+		committed.countDown();
+		load.get(5, TimeUnit.SECONDS);
+
+		assertThat(index.getDay(staff.getId(), DATE).isFree(LocalTime.of(9, 30), LocalTime.of(10, 0))).isFalse();
+		verify(availabilityRepository, times(2)).findActiveByStaffIdsAndDateRange(anyCollection(), any(), any());
+	}
+
+	@Test
+	void loadedDayIsKeptAndPatchedByLaterEvents() {
+		when(availabilityRepository.findActiveByStaffIdsAndDateRange(anyCollection(), any(), any())).thenReturn(List.of());
+		index.getDay(staff.getId(), DATE);
+
+		UUID appointmentId = UUID.randomUUID();
+		index.onAppointmentChanged(new AppointmentSlotChangedEvent(appointmentId, staff.getId(), DATE,
+				LocalTime.of(11, 0), LocalTime.of(11, 30), true, false, null, null));
+
+		assertThat(index.getDay(staff.getId(), DATE).isFree(LocalTime.of(11, 0), LocalTime.of(11, 30))).isFalse();
+		verify(availabilityRepository, times(1)).findActiveByStaffIdsAndDateRange(anyCollection(), any(), any());
+	}
+}
@@ -0,0 +1,107 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.AppointmentStatus;
+import com.hairbook.entity.PaymentStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Expiration d'une réservation temporaire face au paiement de sa session Checkout : le premier des deux
+ * à valider l'emporte, sans jamais écraser l'autre.
+ */
+class SlotHoldExpiryTest extends PostgresIntegrationTest {
+
+	@Autowired
+	private AppointmentSchedulerService appointmentSchedulerService;
+
+	@Test
+	void expiredHoldCancelsUnpaidAppointmentAndClosesItsSession() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+
+		assertThat(appointmentSchedulerService.expireHold(appointment.getId())).isTrue();
+
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CANCELLED);
+		assertThat(sessionStatus(sessionId)).isEqualTo("expired");
+		// Une seconde expiration (autre instance) n'annule rien
+		assertThat(appointmentSchedulerService.expireHold(appointment.getId())).isFalse();
+	}
+
+	@Test
+	void paidAppointmentIsNotCancelledWhenItsHoldExpires() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+		paymentService.markPaymentSucceeded(appointment.getId(), sessionId, "pi_test");
+
+		assertThat(appointmentSchedulerService.expireHold(appointment.getId())).isFalse();
+
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CONFIRMED);
+		assertThat(sessionStatus(sessionId)).isEqualTo("open");
+	}
+
+	@Test
+	void holdExpiringWhilePaymentCommitsLeavesAppointmentConfirmed() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+		CountDownLatch confirmed = new CountDownLatch(1);
+
+		CompletableFuture<Void> payment = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+			paymentService.markPaymentSucceeded(appointment.getId(), sessionId, "pi_test");
+			confirmed.countDown();
+			try {
+				// La ligne du rendez-vous reste verrouillée jusqu'au commit
+				TimeUnit.MILLISECONDS.sleep(500);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertThat(confirmed.await(10, TimeUnit.SECONDS)).isTrue();
+
+		long start = System.nanoTime();
+		assertThat(appointmentSchedulerService.expireHold(appointment.getId())).isFalse();
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isGreaterThan(Duration.ofMillis(200));
+		payment.get(10, TimeUnit.SECONDS);
+
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CONFIRMED);
+		assertThat(paymentStatus(sessionId)).isEqualTo(PaymentStatus.SUCCEEDED);
+	}
+
+	@Test
+	void paymentAfterHoldExpiryRequiresRefund() throws Exception {
+		Appointment appointment = createPendingAppointment();
+		String sessionId = checkoutSession(appointment);
+		assertThat(appointmentSchedulerService.expireHold(appointment.getId())).isTrue();
+
+		// Session payée juste avant son expiration chez Stripe : le webhook arrive après l'annulation
+		paymentService.markPaymentSucceeded(appointment.getId(), sessionId, "pi_late");
+
+		assertThat(reload(appointment).getStatus()).isEqualTo(AppointmentStatus.CANCELLED);
+		assertThat(paymentStatus(sessionId)).isEqualTo(PaymentStatus.REFUND_REQUIRED);
+	}
+
+	private PaymentStatus paymentStatus(String sessionId) {
+		return transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT p.status FROM Payment p WHERE p.providerSessionId = :sessionId", PaymentStatus.class)
+				.setParameter("sessionId", sessionId)
+				.getSingleResult());
+	}
+
+	private String sessionStatus(String sessionId) throws Exception {
+		return paymentGateway.listCheckoutSessions(Instant.EPOCH, Instant.now().plusSeconds(60), null, Integer.MAX_VALUE)
+				.sessions().stream()
+				.filter(summary -> summary.id().equals(sessionId))
+				.findFirst()
+				.orElseThrow()
+				.status();
+	}
+}
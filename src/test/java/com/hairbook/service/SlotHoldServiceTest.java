@@ -0,0 +1,122 @@
+package com.hairbook.service;
+
+import com.hairbook.entity.Appointment;
+import com.hairbook.entity.StaffMember;
+import com.hairbook.repository.AppointmentExpiryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Réservations temporaires des rendez-vous PENDING : reconstruction au démarrage, expiration
+ * à l'échéance et libération sans annulation lorsque le rendez-vous quitte l'état PENDING.
+ */
+class SlotHoldServiceTest {
+
+	private static final LocalDate DATE = LocalDate.now().plusDays(7);
+
+	private final AppointmentSchedulerService appointmentSchedulerService = mock(AppointmentSchedulerService.class);
+	private final AppointmentExpiryRepository appointmentExpiryRepository = mock(AppointmentExpiryRepository.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SlotHoldService slotHoldService = new SlotHoldService(appointmentSchedulerService,
+			appointmentExpiryRepository, meterRegistry);
+
+	private final StaffMember staff = StaffMember.builder().id(UUID.randomUUID()).build();
+
+	@BeforeEach
+	void init() {
+		ReflectionTestUtils.setField(slotHoldService, "holdMinutes", 15);
+		slotHoldService.init();
+		when(appointmentSchedulerService.expireHold(any())).thenReturn(true);
+	}
+
+	@Test
+	void rebuildRestoresRunningHoldsAndCancelsExpiredOnes() {
+		Appointment running = pendingCreatedAt(LocalDateTime.now().minusMinutes(5));
+		Appointment expired = pendingCreatedAt(LocalDateTime.now().minusMinutes(20));
+		when(appointmentExpiryRepository.findAllPendingWithStaff()).thenReturn(List.of(running, expired));
+
+		slotHoldService.rebuildHolds();
+
+		verify(appointmentSchedulerService).expireHold(expired.getId());
+		verify(appointmentSchedulerService, never()).expireHold(running.getId());
+		assertThat(activeHolds()).isEqualTo(1);
+		assertThat(expiredHolds()).isEqualTo(1);
+	}
+
+	@Test
+	void holdIsExpiredOnceAtItsDeadline() {
+		ReflectionTestUtils.setField(slotHoldService, "holdMinutes", 0);
+		UUID appointmentId = UUID.randomUUID();
+
+		slotHoldService.onAppointmentChanged(event(appointmentId, LocalTime.of(10, 0), true));
+
+		verify(appointmentSchedulerService, timeout(5000)).expireHold(appointmentId);
+		verify(appointmentSchedulerService, after(1500)).expireHold(appointmentId);
+		assertThat(expiredHolds()).isEqualTo(1);
+	}
+
+	@Test
+	void confirmedAppointmentReleasesItsHoldWithoutCancelling() {
+		UUID appointmentId = UUID.randomUUID();
+		slotHoldService.onAppointmentChanged(event(appointmentId, LocalTime.of(10, 0), true));
+
+		slotHoldService.onAppointmentChanged(event(appointmentId, LocalTime.of(10, 0), false));
+
+		assertThat(activeHolds()).isZero();
+		verify(appointmentSchedulerService, never()).expireHold(any());
+	}
+
+	@Test
+	void movedHoldKeepsItsInitialDeadline() {
+		UUID appointmentId = UUID.randomUUID();
+		slotHoldService.onAppointmentChanged(event(appointmentId, LocalTime.of(10, 0), true));
+
+		// Une nouvelle réservation expirerait immédiatement ; le déplacement ne doit pas la prolonger ni l'écourter
+		ReflectionTestUtils.setField(slotHoldService, "holdMinutes", 0);
+		slotHoldService.onAppointmentChanged(event(appointmentId, LocalTime.of(14, 0), true));
+
+		verify(appointmentSchedulerService, after(1500).never()).expireHold(any());
+		assertThat(activeHolds()).isEqualTo(1);
+	}
+
+	private Appointment pendingCreatedAt(LocalDateTime createdAt) {
+		return Appointment.builder()
+				.id(UUID.randomUUID())
+				.staffMember(staff)
+				.appointmentDate(DATE)
+				.startTime(LocalTime.of(10, 0))
+				.endTime(LocalTime.of(10, 30))
+				.createdAt(createdAt)
+				.build();
+	}
+
+	private AppointmentSlotChangedEvent event(UUID appointmentId, LocalTime start, boolean pending) {
+		return new AppointmentSlotChangedEvent(appointmentId, staff.getId(), DATE, start, start.plusMinutes(30),
+				true, pending, null, null);
+	}
+
+	private double activeHolds() {
+		return meterRegistry.get("slots.holds.active").gauge().value();
+	}
+
+	private double expiredHolds() {
+		return meterRegistry.get("slots.holds.expired").counter().count();
+	}
+}
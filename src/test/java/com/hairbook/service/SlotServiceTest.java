@@ -0,0 +1,300 @@
+package com.hairbook.service;
+
+import com.hairbook.dto.AnyStaffSlotDto;
+import com.hairbook.dto.SlotDto;
+import com.hairbook.entity.Holiday;
+import com.hairbook.entity.StaffMember;
+import com.hairbook.entity.WorkingHours;
+import com.hairbook.repository.AvailabilityRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Calcul et mise en cache des créneaux à partir de l'index des disponibilités (simulé) : Alice travaille
+ * de 9 h à 10 h, Bob de 9 h 30 à 11 h, pour un service de 30 minutes. Un appel à l'index compte pour
+ * un calcul : une entrée servie depuis le cache ne le rappelle pas.
+ */
+class SlotServiceTest {
+
+	private static final LocalDate DATE = LocalDate.now().plusDays(7);
+
+	private final ServiceRepository serviceRepository = mock(ServiceRepository.class);
+	private final StaffMemberRepository staffMemberRepository = mock(StaffMemberRepository.class);
+	private final SlotAvailabilityIndex slotAvailabilityIndex = mock(SlotAvailabilityIndex.class);
+	private final AvailabilityRepository availabilityRepository = mock(AvailabilityRepository.class);
+	private final HolidayService holidayService = mock(HolidayService.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SlotService slotService = new SlotService(serviceRepository, staffMemberRepository,
+			slotAvailabilityIndex, availabilityRepository, holidayService, meterRegistry);
+	private final AvailableSlotsCacheInvalidator invalidator = new AvailableSlotsCacheInvalidator(slotService);
+
+	private final UUID serviceId = UUID.randomUUID();
+	private final StaffMember alice = StaffMember.builder().id(UUID.randomUUID()).firstName("Alice").lastName("A").build();
+	private final StaffMember bob = StaffMember.builder().id(UUID.randomUUID()).firstName("Bob").lastName("B")
+			.skills(Set.of("Balayage")).build();
+
+	@BeforeEach
+	void init() {
+		ReflectionTestUtils.setField(slotService, "slotIntervalMinutes", 30);
+		ReflectionTestUtils.setField(slotService, "minAdvanceHours", 1);
+		ReflectionTestUtils.setField(slotService, "refreshSeconds", 60);
+		ReflectionTestUtils.setField(slotService, "ttlMinutes", 10);
+		ReflectionTestUtils.setField(slotService, "maxHorizonDays", 90);
+		ReflectionTestUtils.setField(slotService, "loaderThreads", 2);
+		slotService.initCache();
+		when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(
+				com.hairbook.entity.Service.builder().id(serviceId).durationMinutes(30).build()));
+		when(staffMemberRepository.findByActiveTrueOrderByDisplayOrderAsc()).thenReturn(List.of(alice, bob));
+		when(staffMemberRepository.findById(alice.getId())).thenReturn(Optional.of(alice));
+		when(staffMemberRepository.findById(bob.getId())).thenReturn(Optional.of(bob));
+		when(slotAvailabilityIndex.getDay(any(), any())).thenAnswer(invocation ->
+				day(invocation.getArgument(0), invocation.getArgument(1)));
+		when(slotAvailabilityIndex.getDays(anyCollection(), eq(DATE))).thenAnswer(invocation -> {
+			Map<UUID, StaffDayAvailability> days = new LinkedHashMap<>();
+			for (UUID staffId : invocation.<Collection<UUID>>getArgument(0)) {
+				days.put(staffId, day(staffId, DATE));
+			}
+			return days;
+		});
+	}
+
+	@AfterEach
+	void shutdown() {
+		slotService.shutdownCache();
+	}
+
+	@Test
+	void anyStaffSlotsAreMergedByStartTimeWithStaffInDisplayOrder() {
+		List<AnyStaffSlotDto> slots = slotService.getAvailableSlotsForAnyStaff(DATE, serviceId, null);
+
+		assertThat(slots).extracting(slot -> slot.getStartTime().toLocalTime()).containsExactly(
+				LocalTime.of(9, 0), LocalTime.of(9, 30), LocalTime.of(10, 0), LocalTime.of(10, 30));
+		assertThat(slots.get(0).getStaff()).extracting(AnyStaffSlotDto.AvailableStaff::getStaffId)
+				.containsExactly(alice.getId());
+		assertThat(slots.get(1).getStaff()).extracting(AnyStaffSlotDto.AvailableStaff::getStaffId)
+				.containsExactly(alice.getId(), bob.getId());
+		assertThat(slots.get(1).getEndTime()).isEqualTo(DATE.atTime(10, 0));
+	}
+
+	@Test
+	void anyStaffSlotsKeepOnlyStaffWithRequestedSkill() {
+		List<AnyStaffSlotDto> slots = slotService.getAvailableSlotsForAnyStaff(DATE, serviceId, " balayage ");
+
+		assertThat(slots).extracting(slot -> slot.getStartTime().toLocalTime()).containsExactly(
+				LocalTime.of(9, 30), LocalTime.of(10, 0), LocalTime.of(10, 30));
+		assertThat(slots).allSatisfy(slot -> assertThat(slot.getStaff())
+				.extracting(AnyStaffSlotDto.AvailableStaff::getStaffName).containsExactly("Bob B"));
+	}
+
+	@Test
+	void anyStaffSlotsAreEmptyWhenNoStaffHasTheSkill() {
+		assertThat(slotService.getAvailableSlotsForAnyStaff(DATE, serviceId, "Barbe")).isEmpty();
+	}
+
+	@Test
+	void nextAvailableStopsAtLimitOrderedByTimeThenStaff() {
+		workOn(DATE, DATE.plusDays(1));
+
+		List<SlotDto> slots = slotService.findNextAvailable(serviceId, null, DATE, 14, 3);
+
+		assertThat(slots).extracting(SlotDto::getStartTime, SlotDto::getStaffId).containsExactly(
+				tuple(DATE.atTime(9, 0), alice.getId()),
+				tuple(DATE.atTime(9, 30), alice.getId()),
+				tuple(DATE.atTime(9, 30), bob.getId()));
+		verify(slotAvailabilityIndex, times(1)).getRange(anyCollection(), any(), any());
+	}
+
+	@Test
+	void nextAvailableSkipsClosedDaysWithoutLoadingThem() {
+		workOn(DATE, DATE.plusDays(1));
+		when(holidayService.getSalonHolidays()).thenReturn(List.of(
+				Holiday.builder().name("Inventaire").startDate(DATE).endDate(DATE).build()));
+
+		List<SlotDto> slots = slotService.findNextAvailable(serviceId, alice.getId(), DATE, 14, 1);
+
+		assertThat(slots).extracting(SlotDto::getStartTime).containsExactly(DATE.plusDays(1).atTime(9, 0));
+		verify(slotAvailabilityIndex).getRange(anyCollection(), eq(DATE.plusDays(1)), eq(DATE.plusDays(1)));
+	}
+
+	@Test
+	void nextAvailableDoesNotSearchBeyondMaxHorizon() {
+		ReflectionTestUtils.setField(slotService, "maxHorizonDays", 7);
+		workOn(DATE, DATE.plusDays(1));
+		when(holidayService.getSalonHolidays()).thenReturn(List.of(
+				Holiday.builder().name("Vacances").startDate(DATE).endDate(DATE.plusDays(1)).build()));
+
+		assertThat(slotService.findNextAvailable(serviceId, null, DATE, 30, 1)).isEmpty();
+		verify(slotAvailabilityIndex, never()).getRange(anyCollection(), any(), any());
+	}
+
+	@Test
+	void nextAvailableRejectsNonPositiveParameters() {
+		assertThatThrownBy(() -> slotService.findNextAvailable(serviceId, null, DATE, 14, 0))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> slotService.findNextAvailable(serviceId, null, DATE, 0, 3))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void concurrentRequestsForSameSlotsShareOneComputation() throws Exception {
+		CountDownLatch computing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(slotAvailabilityIndex.getDay(alice.getId(), DATE)).thenAnswer(invocation -> {
+			computing.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return day(alice.getId(), DATE);
+		});
+
+		CompletableFuture<List<SlotDto>> first = CompletableFuture.supplyAsync(
+				() -> slotService.getAvailableSlots(DATE, serviceId, alice.getId()));
+		assertThat(computing.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<List<SlotDto>> second = CompletableFuture.supplyAsync(
+				() -> slotService.getAvailableSlots(DATE, serviceId, alice.getId()));
+		// Le second appel rejoint le calcul en cours avant de l'attendre
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (coalesced() == 0 && System.nanoTime() < deadline) {
+			Thread.onSpinWait();
+		}
+		release.countDown();
+
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(first.get(5, TimeUnit.SECONDS)).hasSize(2);
+		assertThat(coalesced()).isEqualTo(1);
+		verify(slotAvailabilityIndex, times(1)).getDay(alice.getId(), DATE);
+	}
+
+	@Test
+	void failedComputationIsRethrownUnwrapped() {
+		UUID unknownService = UUID.randomUUID();
+
+		assertThatThrownBy(() -> slotService.getAvailableSlots(DATE, unknownService, alice.getId()))
+				.isExactlyInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Service non trouvé");
+	}
+
+	@Test
+	void appointmentChangeEvictsOnlyItsStaffAndDate() {
+		warmUp();
+
+		invalidator.onAppointmentChanged(event(alice, DATE, null, null));
+		warmUp();
+
+		verify(slotAvailabilityIndex, times(2)).getDay(alice.getId(), DATE);
+		verify(slotAvailabilityIndex, times(1)).getDay(alice.getId(), DATE.plusDays(1));
+		verify(slotAvailabilityIndex, times(1)).getDay(bob.getId(), DATE);
+	}
+
+	@Test
+	void movedAppointmentEvictsPreviousStaffAndDate() {
+		warmUp();
+
+		invalidator.onAppointmentChanged(event(alice, DATE.plusDays(1), bob.getId(), DATE));
+		warmUp();
+
+		verify(slotAvailabilityIndex, times(2)).getDay(alice.getId(), DATE.plusDays(1));
+		verify(slotAvailabilityIndex, times(2)).getDay(bob.getId(), DATE);
+		verify(slotAvailabilityIndex, times(1)).getDay(alice.getId(), DATE);
+	}
+
+	@Test
+	void scheduleChangeEvictsAllDatesOfItsStaff() {
+		warmUp();
+
+		invalidator.onStaffScheduleChanged(new StaffScheduleChangedEvent(alice.getId()));
+		warmUp();
+
+		verify(slotAvailabilityIndex, times(2)).getDay(alice.getId(), DATE);
+		verify(slotAvailabilityIndex, times(2)).getDay(alice.getId(), DATE.plusDays(1));
+		verify(slotAvailabilityIndex, times(1)).getDay(bob.getId(), DATE);
+	}
+
+	@Test
+	void salonWideChangeEvictsEverything() {
+		warmUp();
+
+		invalidator.onStaffScheduleChanged(StaffScheduleChangedEvent.salonWide());
+		warmUp();
+
+		verify(slotAvailabilityIndex, times(2)).getDay(alice.getId(), DATE);
+		verify(slotAvailabilityIndex, times(2)).getDay(alice.getId(), DATE.plusDays(1));
+		verify(slotAvailabilityIndex, times(2)).getDay(bob.getId(), DATE);
+	}
+
+	/**
+	 * Remplit le cache avec Alice (deux dates) et Bob (une date).
+	 */
+	private void warmUp() {
+		slotService.getAvailableSlots(DATE, serviceId, alice.getId());
+		slotService.getAvailableSlots(DATE.plusDays(1), serviceId, alice.getId());
+		slotService.getAvailableSlots(DATE, serviceId, bob.getId());
+	}
+
+	/**
+	 * Déclare les jours de la semaine travaillés par le staff, et sert les disponibilités
+	 * demandées à l'index jour par jour, dans l'ordre des staff.
+	 */
+	private void workOn(LocalDate... dates) {
+		List<WorkingHours> weekly = new ArrayList<>();
+		for (LocalDate date : dates) {
+			weekly.add(WorkingHours.builder().dayOfWeek(date.getDayOfWeek().getValue()).build());
+		}
+		when(availabilityRepository.findWorkingHoursByStaffIds(anyCollection())).thenReturn(weekly);
+		when(slotAvailabilityIndex.getRange(anyCollection(), any(), any())).thenAnswer(invocation -> {
+			List<StaffDayAvailability> range = new ArrayList<>();
+			LocalDate to = invocation.getArgument(2);
+			for (LocalDate date = invocation.getArgument(1); !date.isAfter(to); date = date.plusDays(1)) {
+				for (UUID staffId : invocation.<Collection<UUID>>getArgument(0)) {
+					range.add(day(staffId, date));
+				}
+			}
+			return range;
+		});
+	}
+
+	private double coalesced() {
+		return meterRegistry.get("slots.cache.coalesced").counter().count();
+	}
+
+	private static AppointmentSlotChangedEvent event(StaffMember staff, LocalDate date, UUID previousStaffId,
+													 LocalDate previousDate) {
+		return new AppointmentSlotChangedEvent(UUID.randomUUID(), staff.getId(), date,
+				LocalTime.of(9, 0), LocalTime.of(9, 30), true, false, previousStaffId, previousDate);
+	}
+
+	private StaffDayAvailability day(UUID staffId, LocalDate date) {
+		boolean isAlice = staffId.equals(alice.getId());
+		return StaffDayAvailability.of(staffId, date, WorkingHours.builder()
+				.dayOfWeek(date.getDayOfWeek().getValue())
+				.startTime(isAlice ? LocalTime.of(9, 0) : LocalTime.of(9, 30))
+				.endTime(isAlice ? LocalTime.of(10, 0) : LocalTime.of(11, 0))
+				.build(), 5);
+	}
+}
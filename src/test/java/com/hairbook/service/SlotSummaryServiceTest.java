@@ -0,0 +1,108 @@
+package com.hairbook.service;
+
+import com.hairbook.dto.DaySlotSummaryDto;
+import com.hairbook.entity.StaffMember;
+import com.hairbook.entity.WorkingHours;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cache des résumés journaliers face à une réservation validée pendant le calcul d'un résumé.
+ */
+class SlotSummaryServiceTest {
+
+	private static final LocalDate DATE = LocalDate.now().plusDays(7);
+
+	private final ServiceRepository serviceRepository = mock(ServiceRepository.class);
+	private final StaffMemberRepository staffMemberRepository = mock(StaffMemberRepository.class);
+	private final SlotAvailabilityIndex slotAvailabilityIndex = mock(SlotAvailabilityIndex.class);
+	private final SlotSummaryService slotSummaryService = new SlotSummaryService(serviceRepository,
+			staffMemberRepository, slotAvailabilityIndex, new SimpleMeterRegistry());
+
+	private final UUID serviceId = UUID.randomUUID();
+	private final StaffMember staff = StaffMember.builder().id(UUID.randomUUID()).build();
+
+	@BeforeEach
+	void init() {
+		ReflectionTestUtils.setField(slotSummaryService, "slotIntervalMinutes", 30);
+		ReflectionTestUtils.setField(slotSummaryService, "minAdvanceHours", 1);
+		ReflectionTestUtils.setField(slotSummaryService, "ttlMinutes", 10);
+		slotSummaryService.init();
+		when(serviceRepository.findById(serviceId)).thenReturn(Optional.of(
+				com.hairbook.entity.Service.builder().id(serviceId).durationMinutes(30).build()));
+		when(staffMemberRepository.findById(staff.getId())).thenReturn(Optional.of(staff));
+	}
+
+	@Test
+	void summaryComputedWhileItsDayIsInvalidatedIsNotCached() throws Exception {
+		CountDownLatch computing = new CountDownLatch(1);
+		CountDownLatch invalidated = new CountDownLatch(1);
+		when(slotAvailabilityIndex.getRange(anyCollection(), any(), any()))
+				.thenAnswer(invocation -> {
+					// Disponibilités lues avant la réservation
+					computing.countDown();
+					invalidated.await(5, TimeUnit.SECONDS);
+					return List.of(day());
+				})
+				.thenReturn(List.of(bookedAtNine()));
+
+		CompletableFuture<List<DaySlotSummaryDto>> stale = CompletableFuture.supplyAsync(
+				() -> slotSummaryService.getSummary(DATE, DATE, serviceId, staff.getId()));
+		assertThat(computing.await(5, TimeUnit.SECONDS)).isTrue();
+		slotSummaryService.onAppointmentChanged(new AppointmentSlotChangedEvent(UUID.randomUUID(), staff.getId(), DATE,
+				LocalTime.of(9, 0), LocalTime.of(9, 30), true, false, null, null));
+		invalidated.countDown();
+		assertThat(stale.get(5, TimeUnit.SECONDS).get(0).getFreeSlots()).isEqualTo(2);
+
+		DaySlotSummaryDto summary = slotSummaryService.getSummary(DATE, DATE, serviceId, staff.getId()).get(0);
+
+		assertThat(summary.getFreeSlots()).isEqualTo(1);
+		assertThat(summary.getEarliestStart()).isEqualTo(LocalTime.of(9, 30));
+		verify(slotAvailabilityIndex, times(2)).getRange(anyCollection(), any(), any());
+	}
+
+	@Test
+	void summaryComputedWithoutInvalidationIsCached() {
+		when(slotAvailabilityIndex.getRange(anyCollection(), any(), any())).thenReturn(List.of(day()));
+
+		slotSummaryService.getSummary(DATE, DATE, serviceId, staff.getId());
+		DaySlotSummaryDto summary = slotSummaryService.getSummary(DATE, DATE, serviceId, staff.getId()).get(0);
+
+		assertThat(summary.getFreeSlots()).isEqualTo(2);
+		verify(slotAvailabilityIndex, times(1)).getRange(anyCollection(), any(), any());
+	}
+
+	private StaffDayAvailability day() {
+		return StaffDayAvailability.of(staff.getId(), DATE, WorkingHours.builder()
+				.staffMember(staff)
+				.dayOfWeek(DATE.getDayOfWeek().getValue())
+				.startTime(LocalTime.of(9, 0))
+				.endTime(LocalTime.of(10, 0))
+				.build(), 5);
+	}
+
+	private StaffDayAvailability bookedAtNine() {
+		StaffDayAvailability day = day();
+		day.occupy(UUID.randomUUID(), LocalTime.of(9, 0), LocalTime.of(9, 30));
+		return day;
+	}
+}
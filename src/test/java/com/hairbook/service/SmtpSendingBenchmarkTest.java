@@ -0,0 +1,159 @@
+package com.hairbook.service;
+
+import com.hairbook.PostgresIntegrationTest;
+import com.hairbook.entity.EmailOutboxStatus;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark de l'envoi des emails contre un serveur SMTP local (GreenMail) : compare le débit d'un envoi
+ * {@link JavaMailSenderImpl#send} par email (une connexion SMTP par email, ancien flux) et celui de la boîte
+ * d'envoi ({@link EmailOutboxService}), qui envoie par lots sur des connexions réutilisées
+ * ({@link SmtpTransportPool}). Les deux flux utilisent le même nombre de threads d'envoi.
+ * <p>
+ * Le débit n'est pas limité ({@code app.mail.max-per-second}) et chaque domaine peut occuper tous les
+ * threads d'envoi : seul le coût des connexions SMTP est mesuré.
+ * <p>
+ * Étiqueté {@code benchmark} : exclu de la suite de tests, lancé avec {@code mvn test -Pbenchmark}.
+ */
+@TestPropertySource(properties = {
+		"spring.mail.port=3025",
+		"app.mail.max-per-second=100000",
+		"app.mail.executor.threads=4",
+		"app.mail.smtp.pool.size=4",
+		"app.mail.smtp.per-domain-concurrency=4"
+})
+@Tag("benchmark")
+@Slf4j
+class SmtpSendingBenchmarkTest extends PostgresIntegrationTest {
+
+	private static final int EMAILS = 400;
+	private static final int SENDER_THREADS = 4;
+	private static final List<String> DOMAINS = List.of("gmail.test", "outlook.test", "skynet.test", "proximus.test");
+
+	@RegisterExtension
+	static final GreenMailExtension GREEN_MAIL = new GreenMailExtension(ServerSetupTest.SMTP)
+			.withPerMethodLifecycle(false);
+
+	@Autowired
+	private JavaMailSenderImpl mailSender;
+
+	@Autowired
+	private EmailOutboxService emailOutboxService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void pooledBatchesSendFasterThanOneConnectionPerEmail() throws Exception {
+		String directMarker = "direct-" + UUID.randomUUID();
+		long directStart = System.nanoTime();
+		sendDirectly(directMarker);
+		Duration direct = Duration.ofNanos(System.nanoTime() - directStart);
+		assertThat(received(directMarker)).isEqualTo(EMAILS);
+
+		String outboxMarker = "outbox-" + UUID.randomUUID();
+		double openedBefore = meterRegistry.counter("mail.smtp.connections.opened").count();
+		long outboxStart = System.nanoTime();
+		transactionTemplate.executeWithoutResult(tx -> {
+			for (int i = 0; i < EMAILS; i++) {
+				emailOutboxService.enqueue(recipient(i), outboxMarker, "corps");
+			}
+		});
+		awaitSent(outboxMarker);
+		Duration outbox = Duration.ofNanos(System.nanoTime() - outboxStart);
+		double opened = meterRegistry.counter("mail.smtp.connections.opened").count() - openedBefore;
+		assertThat(received(outboxMarker)).isEqualTo(EMAILS);
+
+		log.info("SMTP x{} emails, {} threads: one connection per email {}; pooled batches {}, {} connection(s) opened",
+				EMAILS, SENDER_THREADS, rate(direct), rate(outbox), (long) opened);
+		assertThat(opened).isLessThanOrEqualTo(SENDER_THREADS);
+		assertThat(outbox).isLessThan(direct);
+	}
+
+	private void sendDirectly(String marker) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(SENDER_THREADS);
+		try {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (int i = 0; i < EMAILS; i++) {
+				SimpleMailMessage message = new SimpleMailMessage();
+				message.setFrom("noreply@salon.be");
+				message.setTo(recipient(i));
+				message.setSubject(marker);
+				message.setText("corps");
+				tasks.add(() -> {
+					mailSender.send(message);
+					return null;
+				});
+			}
+			for (Future<Void> result : executor.invokeAll(tasks)) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	private void awaitSent(String marker) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+		while (sentCount(marker) < EMAILS && System.nanoTime() < deadline) {
+			TimeUnit.MILLISECONDS.sleep(20);
+		}
+	}
+
+	private long sentCount(String marker) {
+		return transactionTemplate.execute(tx -> entityManager
+				.createQuery("SELECT COUNT(o) FROM EmailOutbox o WHERE o.subject = :marker AND o.status = :status",
+						Long.class)
+				.setParameter("marker", marker)
+				.setParameter("status", EmailOutboxStatus.SENT)
+				.getSingleResult());
+	}
+
+	private static long received(String marker) {
+		return Arrays.stream(GREEN_MAIL.getReceivedMessages())
+				.filter(message -> marker.equals(subject(message)))
+				.count();
+	}
+
+	private static String subject(MimeMessage message) {
+		try {
+			return message.getSubject();
+		} catch (MessagingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String recipient(int i) {
+		return "client-" + i + "@" + DOMAINS.get(i % DOMAINS.size());
+	}
+
+	private static String rate(Duration elapsed) {
+		return String.format("%d ms, %.0f emails/s", elapsed.toMillis(), EMAILS * 1000.0 / Math.max(1, elapsed.toMillis()));
+	}
+}
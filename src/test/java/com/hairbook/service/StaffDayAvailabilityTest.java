@@ -0,0 +1,63 @@
+package com.hairbook.service;
+
+import com.hairbook.entity.WorkingHours;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StaffDayAvailabilityTest {
+
+	private static final UUID STAFF_ID = UUID.randomUUID();
+	private static final LocalDate DATE = LocalDate.of(2025, 11, 3);
+
+	private StaffDayAvailability day() {
+		WorkingHours workingHours = WorkingHours.builder()
+				.dayOfWeek(1)
+				.startTime(LocalTime.of(9, 0))
+				.endTime(LocalTime.of(13, 0))
+				.breakStart(LocalTime.of(11, 0))
+				.breakEnd(LocalTime.of(11, 30))
+				.build();
+		return StaffDayAvailability.of(STAFF_ID, DATE, workingHours, 5);
+	}
+
+	@Test
+	void excludesBreakFromAvailableStarts() {
+		List<LocalTime> starts = day().findAvailableStarts(60, 30);
+
+		assertThat(starts).containsExactly(
+				LocalTime.of(9, 0), LocalTime.of(9, 30), LocalTime.of(10, 0),
+				LocalTime.of(11, 30), LocalTime.of(12, 0));
+	}
+
+	@Test
+	void occupyAndReleaseUpdateAvailability() {
+		StaffDayAvailability day = day();
+		UUID appointmentId = UUID.randomUUID();
+
+		day.occupy(appointmentId, LocalTime.of(9, 30), LocalTime.of(10, 15));
+
+		assertThat(day.isFree(LocalTime.of(9, 0), LocalTime.of(9, 30))).isTrue();
+		assertThat(day.isFree(LocalTime.of(10, 0), LocalTime.of(10, 30))).isFalse();
+		assertThat(day.findAvailableStarts(30, 30)).containsExactly(
+				LocalTime.of(9, 0), LocalTime.of(10, 30), LocalTime.of(11, 30),
+				LocalTime.of(12, 0), LocalTime.of(12, 30));
+
+		day.release(appointmentId);
+
+		assertThat(day.isFree(LocalTime.of(9, 30), LocalTime.of(10, 15))).isTrue();
+	}
+
+	@Test
+	void closedDayHasNoAvailability() {
+		StaffDayAvailability closed = StaffDayAvailability.closed(STAFF_ID, DATE, 5);
+
+		assertThat(closed.isClosed()).isTrue();
+		assertThat(closed.findAvailableStarts(30, 30)).isEmpty();
+	}
+}